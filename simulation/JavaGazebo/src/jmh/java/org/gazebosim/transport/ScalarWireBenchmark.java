@@ -0,0 +1,78 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package org.gazebosim.transport;
+
+import gazebo.msgs.GzFloat64.Float64;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+
+/**
+ * Compares building and parsing Float64 messages through the generated
+ * classes with encoding and decoding them through {@link ScalarWire}.
+ *
+ * Run with "gradle :simulation:JavaGazebo:jmh -PmakeSim". Add
+ * "-prof gc" to the JMH arguments to compare the allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScalarWireBenchmark {
+	private final byte[] buffer = new byte[64];
+	private byte[] encoded;
+	private double value = 0.5;
+
+	@Setup
+	public void setup() {
+		encoded = Msgs.Float64(0.5).toByteArray();
+	}
+
+	@Benchmark
+	public int encodeBuilder() throws IOException {
+		value += 1e-9;
+		CodedOutputStream out = CodedOutputStream.newInstance(buffer);
+		Float64 msg = Msgs.Float64(value);
+		msg.writeTo(out);
+		return msg.getSerializedSize() - out.spaceLeft();
+	}
+
+	@Benchmark
+	public int encodeWire() throws IOException {
+		value += 1e-9;
+		CodedOutputStream out = CodedOutputStream.newInstance(buffer);
+		ScalarWire.writeFloat64(out, value);
+		return ScalarWire.float64Size() - out.spaceLeft();
+	}
+
+	@Benchmark
+	public double decodeParser() throws IOException {
+		return Float64.PARSER.parseFrom(CodedInputStream.newInstance(encoded)).getData();
+	}
+
+	@Benchmark
+	public double decodeWire() throws IOException {
+		return ScalarWire.readFloat64(CodedInputStream.newInstance(encoded));
+	}
+}
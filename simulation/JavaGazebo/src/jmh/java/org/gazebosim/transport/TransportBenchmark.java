@@ -0,0 +1,128 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package org.gazebosim.transport;
+
+import gazebo.msgs.GzFloat64.Float64;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the latency and throughput of the Gazebo transport between two
+ * nodes in this JVM, connected through the {@link Master} stand-in.
+ *
+ * A "robot" node publishes Float64 messages on a motor topic. A "plant" node
+ * subscribes to it and echoes every value back on a sensor topic, which the
+ * robot subscribes to. This is the shape of a closed-loop simulation step.
+ *
+ * Run with "gradle :simulation:JavaGazebo:jmh -PmakeSim".
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransportBenchmark {
+	private static final int kBatch = 1000;
+
+	@Param({"THREADS", "SELECTOR", "IN_PROCESS"})
+	public Node.Transport transport;
+
+	private Master master;
+	private Publisher<Float64> motor;
+	private final AtomicLong received = new AtomicLong();
+	private volatile double lastEcho = Double.NaN;
+	private double value = 0;
+
+	@Setup
+	public void setup() throws Exception {
+		Node robot = new Node("frc", transport);
+		Node plant = new Node("frc", transport);
+		if (transport == Node.Transport.IN_PROCESS) {
+			robot.waitForConnection();
+			plant.waitForConnection();
+		} else {
+			master = new Master(0);
+			master.start();
+			robot.waitForConnection("localhost", master.getPort());
+			plant.waitForConnection("localhost", master.getPort());
+		}
+
+		final Publisher<Float64> sensor = plant.advertise("benchmark/sensor", Msgs.Float64());
+		plant.subscribe("benchmark/motor", Msgs.Float64(), new SubscriberCallback<Float64>() {
+			@Override
+			public void callback(Float64 msg) {
+				sensor.publishFloat64(msg.getData());
+			}
+		});
+		motor = robot.advertise("benchmark/motor", Msgs.Float64());
+		robot.subscribe("benchmark/sensor", Msgs.Float64(), new SubscriberCallback<Float64>() {
+			@Override
+			public void callback(Float64 msg) {
+				lastEcho = msg.getData();
+				received.incrementAndGet();
+			}
+		});
+		if (!motor.waitForConnection(10000) || !sensor.waitForConnection(10000)) {
+			throw new IllegalStateException("The nodes did not connect");
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		if (master != null) {
+			master.close();
+		}
+	}
+
+	/**
+	 * The time for a value to go to the plant and back.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.SampleTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public double roundTrip() {
+		double v = ++value;
+		motor.publishFloat64(v);
+		while (lastEcho != v) {
+			Thread.yield();
+		}
+		return v;
+	}
+
+	/**
+	 * The rate at which a batch of values goes to the plant and back.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	@OperationsPerInvocation(kBatch)
+	public long throughput() {
+		long target = received.get() + kBatch;
+		for (int i = 0; i < kBatch; i++) {
+			motor.publishFloat64(++value);
+		}
+		while (received.get() < target) {
+			Thread.yield();
+		}
+		return target;
+	}
+}
@@ -8,21 +8,25 @@
 package org.gazebosim.transport;
 
 import gazebo.msgs.GzPacket.Packet;
-import gazebo.msgs.GzTime.Time;
 
 import java.io.IOException;
 import java.net.ConnectException;
 import java.net.InetAddress;
-import java.io.InputStream;
+import java.net.InetSocketAddress;
 import java.io.OutputStream;
-import java.net.ServerSocket;
-import java.net.Socket;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 
-import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
 import com.google.protobuf.Message;
+import com.google.protobuf.WireFormat;
 
 /**
  * Manages a Gazebo protocol connection.
@@ -31,26 +35,63 @@ import com.google.protobuf.Message;
  * publisher. Additionally, it can act as the TCP client, or as a
  * server. In either case, it provides methods to read and write
  * structured data on the socket.
+ *
+ * Writes may come from any thread. On a non-blocking channel, the part of a
+ * frame which the socket cannot take at once is queued in order, and sent
+ * when the event loop sees the channel is writable, or when
+ * {@link #flushPending()} is called, so a writer never waits for a slow
+ * peer. Reads are not synchronized: a connection
+ * has a single reader, either the thread which owns it or the event loop it
+ * is registered with, because each read reuses the same frame buffer.
  */
 public class Connection {
-	private static int HEADER_SIZE = 8;
-	
 	public String host;
 	public int port;
 	
-	private Socket socket;
-	private ServerSocket ssocket;
-	private InputStream is;
-	private OutputStream os;
+	// Null once closed, which may happen while another thread writes
+	private volatile SocketChannel socket;
+	private ServerSocketChannel ssocket;
+	private FrameReader reader;
+
+	// The write path: messages are serialized through coded into body, the
+	// hex length is written into header, and both are sent with one
+	// gathering write. They are created by the first write.
+	private static final int WRITE_BUFFER_SIZE = 4096;
+	private static final byte[] HEX_DIGITS = "0123456789ABCDEF".getBytes();
+	private final Object writeLock = new Object();
+	private ByteBuffer header;
+	private ByteBuffer body;
+	private ByteBuffer[] frame;
+	private CodedOutputStream coded;
+	// The bytes which a non-blocking channel has not taken yet, in write
+	// mode, guarded by writeLock
+	private static final int MAX_PENDING = 32 << 20;
+	private ByteBuffer pending;
+	// Set when the connection is registered with an event loop, which then
+	// sends the pending bytes
+	private volatile EventLoop loop;
+	private volatile SelectionKey key;
 	
 	private static final Logger LOG = Logger.getLogger("Gazebo Transport");
 
+	public Connection() {
+	}
+
+	/**
+	 * Wrap a channel which is connected, or connecting, without blocking.
+	 */
+	Connection(String host, int port, SocketChannel channel) {
+		this.host = host;
+		this.port = port;
+		this.socket = channel;
+		this.reader = new FrameReader(channel);
+	}
+
 	public void connect(String host, int port) throws UnknownHostException, IOException {
 		this.host = host;
 		this.port = port;
-		socket = new Socket(host, port);
-		is = socket.getInputStream();
-		os = socket.getOutputStream();
+		socket = SocketChannel.open(new InetSocketAddress(host, port));
+		setStreams();
 	}
 
 	public void connectAndWait(String host, int port) throws IOException, InterruptedException {
@@ -58,7 +99,7 @@ public class Connection {
 		this.port = port;
 		while (true) {
 			try {
-				socket = new Socket(host, port);
+				socket = SocketChannel.open(new InetSocketAddress(host, port));
 				break;
 			} catch (ConnectException ex) {
 				// Retry.
@@ -66,48 +107,129 @@ public class Connection {
 				Thread.sleep(5000);
 			}
 		}
-		is = socket.getInputStream();
-		os = socket.getOutputStream();
+		setStreams();
 	}
 
-	public void serve(final ServerCallback cb) throws IOException {
-		ssocket = new ServerSocket(0);
-		host = ssocket.getInetAddress().getHostAddress();
-		port = ssocket.getLocalPort();
+	private void setStreams() throws IOException {
+		reader = new FrameReader(socket);
+	}
 
-		//enable user to change master uri via environment variable GAZEBO_MASTER_URI
-		//TODO : allow for automatic guesing of IP. Look at Connection.cc in gazebo for C++ example
-		String user_defined_ip = System.getenv("GAZEBO_IP");
-        if (user_defined_ip != null) {
-          host = InetAddress.getByName(user_defined_ip).getHostAddress();;
-          LOG.warning("Using custom host: "+host);
-        }
+	SocketChannel channel() {
+		return socket;
+	}
+
+	FrameReader reader() {
+		return reader;
+	}
+
+	/**
+	 * Called on the event loop thread when the channel is registered.
+	 */
+	void registered(EventLoop loop, SelectionKey key) {
+		this.loop = loop;
+		this.key = key;
+		synchronized (writeLock) {
+			if (hasPendingWrites()) {
+				key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+			}
+		}
+	}
+
+	/**
+	 * @return True if some written bytes are still waiting for the channel
+	 */
+	boolean hasPendingWrites() {
+		synchronized (writeLock) {
+			return pending != null && pending.position() > 0;
+		}
+	}
+
+	/**
+	 * Send as many of the pending bytes as the channel takes without
+	 * blocking. Once they are all sent, the event loop stops waiting for the
+	 * channel to become writable.
+	 *
+	 * @return True if nothing is left to send
+	 */
+	boolean flushPending() throws IOException {
+		synchronized (writeLock) {
+			if (pending == null || pending.position() == 0) {
+				return true;
+			}
+			SocketChannel channel = socket;
+			if (channel == null) {
+				throw new IOException("Connection closed");
+			}
+			pending.flip();
+			channel.write(pending);
+			pending.compact();
+			if (pending.position() > 0) {
+				return false;
+			}
+			SelectionKey current = key;
+			if (current != null && current.isValid() && loop.inLoop()) {
+				current.interestOps(current.interestOps() & ~SelectionKey.OP_WRITE);
+			}
+			return true;
+		}
+	}
+
+	public void serve(final ServerCallback cb) throws IOException {
+		bind();
+		final ServerSocketChannel server = ssocket;
 
 		new Thread("Gazebo Server Thread") {
 			@Override
 			public void run() {
 				LOG.config("Listening on "+host+":"+port);
-				while (true) {
+				// Until close()
+				while (server.isOpen()) {
 					Connection conn = new Connection();
 					try {
-						conn.socket = ssocket.accept();
-						conn.is = conn.socket.getInputStream();
-						conn.os = conn.socket.getOutputStream();
-						LOG.info("Handling connect from "+conn.socket.getInetAddress());
+						conn.socket = server.accept();
+						conn.setStreams();
+						LOG.info("Handling connect from "+conn.socket.socket().getInetAddress());
 						cb.handle(conn);
 					} catch (IOException e) {
-						LOG.log(Level.WARNING, "Cannot handle client", e);
+						if (server.isOpen()) {
+							LOG.log(Level.WARNING, "Cannot handle client", e);
+						}
 					}
 				}
 			}
 		}.start();
 	}
 
+	/**
+	 * Accept connections on an event loop instead of a dedicated thread.
+	 */
+	void listen(EventLoop loop, EventLoop.AcceptHandler handler) throws IOException {
+		bind();
+		LOG.config("Listening on "+host+":"+port);
+		loop.listen(ssocket, handler);
+	}
+
+	private void bind() throws IOException {
+		ssocket = ServerSocketChannel.open();
+		ssocket.socket().bind(new InetSocketAddress(0));
+		host = ssocket.socket().getInetAddress().getHostAddress();
+		port = ssocket.socket().getLocalPort();
+
+		//enable user to change master uri via environment variable GAZEBO_MASTER_URI
+		//TODO : allow for automatic guesing of IP. Look at Connection.cc in gazebo for C++ example
+		String user_defined_ip = System.getenv("GAZEBO_IP");
+        if (user_defined_ip != null) {
+          host = InetAddress.getByName(user_defined_ip).getHostAddress();;
+          LOG.warning("Using custom host: "+host);
+        }
+	}
+
 	public void close() throws IOException {
 		LOG.info("Closing connection");
-		if (socket != null) {
-			socket.close();
-			socket = null;
+		SocketChannel channel = socket;
+		socket = null;
+		if (channel != null) {
+			channel.close();
 		}
 		if (ssocket != null) {
 			ssocket.close();
@@ -115,52 +237,230 @@ public class Connection {
 		}
 	}
 	
+	/**
+	 * Read the next message.
+	 *
+	 * The returned stream reads directly from the connection's buffer, so it
+	 * must be used up before the next read from this connection.
+	 *
+	 * @return A stream over the serialized message, or null if the
+	 *         connection was closed
+	 */
+	public CodedInputStream readFrame() throws IOException {
+		if (!reader.readFrame()) {
+			return null;
+		}
+		return reader.frameInput();
+	}
+
+	/**
+	 * Read until at least one frame has arrived, then skip to the newest
+	 * frame which has been received. Older frames are discarded without being
+	 * parsed.
+	 *
+	 * @return A stream over the newest frame, which is only valid until the
+	 *         next read, or null if the connection was closed
+	 */
+	public CodedInputStream readLatestFrame() throws IOException {
+		if (!reader.readFrame()) {
+			return null;
+		}
+		reader.lastFrame();
+		return reader.frameInput();
+	}
+
+	/**
+	 * Read the next message into a new array.
+	 *
+	 * @return The serialized message, or null if the connection was closed
+	 */
 	public byte[] rawRead() throws IOException {
-		synchronized (is) {
-			// Figure out the message size
-			byte[] buff= new byte[HEADER_SIZE];
-			int n = is.read(buff);
-			if (n != HEADER_SIZE) {
-				LOG.severe("Only read "+n+" bytes instead of 8 for header.");
-				return null;
-			}
-			int size = Integer.parseInt(new String(buff), 16);
-		
-			// Read in the actual message
-			buff = new byte[size];
-			n = is.read(buff);
-			if (n != size) {
-				throw new IOException("Failed to read whole message");
-			}
-			
-			return buff;
+		if (!reader.readFrame()) {
+			return null;
 		}
+		int offset = reader.frameOffset();
+		return Arrays.copyOfRange(reader.frameArray(), offset, offset + reader.frameLength());
 	}
 	
 	public Packet read() throws IOException {
-		byte[] buff = rawRead();
-		if (buff == null) {
+		CodedInputStream input = readFrame();
+		if (input == null) {
 			return null;
 		}
-		return Packet.parseFrom(buff);
+		return Packet.parseFrom(input);
 	}
 
 	public void write(Message msg) throws IOException {
-        ByteString data = msg.toByteString();
-        ByteString header = ByteString.copyFromUtf8(String.format("%08X", data.size()));
-        ByteString bytes = header.concat(data);
+		synchronized (writeLock) {
+			int size = msg.getSerializedSize();
+			beginFrame(size);
+			msg.writeTo(coded);
+			endFrame(size);
+		}
+	}
+
+	/**
+	 * Write a Float64 message holding value, without building the message.
+	 */
+	public void writeFloat64(double value) throws IOException {
+		synchronized (writeLock) {
+			int size = ScalarWire.float64Size();
+			beginFrame(size);
+			ScalarWire.writeFloat64(coded, value);
+			endFrame(size);
+		}
+	}
 
-        synchronized (os) {
-			os.write(bytes.toByteArray());
+	/**
+	 * Write a Bool message holding value, without building the message.
+	 */
+	public void writeBool(boolean value) throws IOException {
+		synchronized (writeLock) {
+			int size = ScalarWire.boolSize();
+			beginFrame(size);
+			ScalarWire.writeBool(coded, value);
+			endFrame(size);
 		}
 	}
 
+	/**
+	 * Write a String message holding value, without building the message.
+	 */
+	public void writeString(String value) throws IOException {
+		synchronized (writeLock) {
+			int size = ScalarWire.stringSize(value);
+			beginFrame(size);
+			ScalarWire.writeString(coded, value);
+			endFrame(size);
+		}
+	}
+
+	/**
+	 * Write a message wrapped in a packet with the given type and the
+	 * current time. The packet is encoded directly, without building the
+	 * packet and time messages.
+	 */
 	public void writePacket(String name, Message req) throws IOException {
 		long ms = System.currentTimeMillis();
-		Time t = Time.newBuilder().setSec((int) (ms / 1000)).setNsec((int) ((ms%1000)*1000)).build();
-		Packet pack = Packet.newBuilder().setType(name).setStamp(t)
-							.setSerializedData(req.toByteString()).build();
-		write(pack);
+		int sec = (int) (ms / 1000);
+		int nsec = (int) ((ms % 1000) * 1000000);
+		int timeSize = CodedOutputStream.computeInt32Size(1, sec)
+				+ CodedOutputStream.computeInt32Size(2, nsec);
+		int reqSize = req.getSerializedSize();
+		int size = CodedOutputStream.computeTagSize(1)
+				+ CodedOutputStream.computeRawVarint32Size(timeSize) + timeSize
+				+ CodedOutputStream.computeStringSize(2, name)
+				+ CodedOutputStream.computeTagSize(3)
+				+ CodedOutputStream.computeRawVarint32Size(reqSize) + reqSize;
+
+		synchronized (writeLock) {
+			beginFrame(size);
+			// Packet.stamp
+			coded.writeTag(1, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+			coded.writeRawVarint32(timeSize);
+			coded.writeInt32(1, sec);
+			coded.writeInt32(2, nsec);
+			// Packet.type
+			coded.writeString(2, name);
+			// Packet.serialized_data
+			coded.writeTag(3, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+			coded.writeRawVarint32(reqSize);
+			req.writeTo(coded);
+			endFrame(size);
+		}
 	}
 
+	private void beginFrame(int size) {
+		if (coded == null) {
+			header = ByteBuffer.allocateDirect(FrameReader.HEADER_SIZE);
+			body = ByteBuffer.allocateDirect(Math.max(size, WRITE_BUFFER_SIZE));
+			frame = new ByteBuffer[] {header, body};
+			coded = CodedOutputStream.newInstance(new OutputStream() {
+				@Override
+				public void write(int b) {
+					body.put((byte) b);
+				}
+
+				@Override
+				public void write(byte[] b, int off, int len) {
+					body.put(b, off, len);
+				}
+			}, WRITE_BUFFER_SIZE);
+		}
+		body.clear();
+		if (body.capacity() < size) {
+			body = ByteBuffer.allocateDirect(Math.max(size, body.capacity() * 2));
+			frame[1] = body;
+		}
+	}
+
+	private void endFrame(int size) throws IOException {
+		coded.flush();
+		body.flip();
+		if (body.remaining() != size) {
+			throw new IOException("Serialized " + body.remaining() + " bytes, expected " + size);
+		}
+		for (int i = FrameReader.HEADER_SIZE - 1; i >= 0; i--) {
+			header.put(i, HEX_DIGITS[size & 0xf]);
+			size >>>= 4;
+		}
+		header.clear();
+		SocketChannel channel = socket;
+		if (channel == null) {
+			throw new IOException("Connection closed");
+		}
+		if (channel.isBlocking()) {
+			while (body.hasRemaining()) {
+				channel.write(frame);
+			}
+			return;
+		}
+		if (hasPendingWrites()) {
+			// Keep the frames in order behind the ones still waiting
+			queue(frame);
+			return;
+		}
+		channel.write(frame);
+		if (body.hasRemaining()) {
+			queue(frame);
+		}
+	}
+
+	/**
+	 * Keep the rest of a frame which the channel did not take, and ask the
+	 * event loop to send it once the channel is writable.
+	 */
+	private void queue(ByteBuffer[] buffers) throws IOException {
+		int size = 0;
+		for (ByteBuffer buffer : buffers) {
+			size += buffer.remaining();
+		}
+		if (pending == null) {
+			pending = ByteBuffer.allocate(Math.max(size, WRITE_BUFFER_SIZE));
+		} else if (pending.remaining() < size) {
+			if (pending.position() + size > MAX_PENDING) {
+				throw new IOException("The peer at " + host + ":" + port + " is not reading");
+			}
+			ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.position() + size,
+					pending.capacity() * 2));
+			pending.flip();
+			grown.put(pending);
+			pending = grown;
+		}
+		for (ByteBuffer buffer : buffers) {
+			pending.put(buffer);
+		}
+		final EventLoop current = loop;
+		if (current != null) {
+			current.execute(new Runnable() {
+				@Override
+				public void run() {
+					SelectionKey k = key;
+					if (k != null && k.isValid() && hasPendingWrites()) {
+						k.interestOps(k.interestOps() | SelectionKey.OP_WRITE);
+					}
+				}
+			});
+		}
+	}
 }
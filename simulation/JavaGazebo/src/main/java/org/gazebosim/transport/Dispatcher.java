@@ -0,0 +1,82 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package org.gazebosim.transport;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs the callbacks of an in-process node's subscribers.
+ *
+ * Publishers put messages into the subscribers' lock-free inboxes and queue
+ * the subscriber here, which wakes this thread to call the callbacks. The
+ * callbacks therefore run on one thread per node, as they do with the
+ * selector transport, and never on the publishing thread.
+ *
+ * The messages are delivered in the order they were published, across all of
+ * the node's topics. So a node which sees the message a publisher sent last,
+ * such as the time acknowledging a lockstep step, has already seen everything
+ * that publisher sent before it. A conflating subscriber's newest message is
+ * delivered in the place it was published, after the messages published
+ * before it on other topics; the messages it replaced are not delivered.
+ */
+class Dispatcher implements Runnable {
+	private final AtomicBoolean pending = new AtomicBoolean();
+	// One entry for each message put in an inbox
+	private final Queue<Subscriber<?>> ready = new ConcurrentLinkedQueue<>();
+	private final Thread thread;
+	private volatile boolean running = true;
+
+	Dispatcher(String name) {
+		thread = new Thread(this, name);
+		thread.setDaemon(true);
+	}
+
+	void start() {
+		thread.start();
+	}
+
+	/**
+	 * Stop the thread. Messages which are still queued are not delivered.
+	 */
+	void stop() {
+		running = false;
+		LockSupport.unpark(thread);
+	}
+
+	/**
+	 * Called after a message is put in a subscriber's inbox, to deliver it
+	 * after the messages already queued.
+	 */
+	void ready(Subscriber<?> sub) {
+		ready.offer(sub);
+		wake();
+	}
+
+	private void wake() {
+		if (!pending.getAndSet(true)) {
+			LockSupport.unpark(thread);
+		}
+	}
+
+	@Override
+	public void run() {
+		while (running) {
+			pending.set(false);
+			Subscriber<?> sub;
+			while ((sub = ready.poll()) != null) {
+				sub.deliverLocal();
+			}
+			if (!pending.get() && running) {
+				LockSupport.park(this);
+			}
+		}
+	}
+}
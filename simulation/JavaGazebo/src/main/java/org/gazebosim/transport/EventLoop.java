@@ -0,0 +1,364 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package org.gazebosim.transport;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs every connection of a node on one thread.
+ *
+ * The master connection, the server socket and all of the subscriber
+ * connections are registered with a single selector. Frames are read through
+ * each connection's {@link FrameReader} and handed to the connection's
+ * {@link Handler} on the event loop thread, so handlers must not block.
+ *
+ * Channels may only be registered from the event loop thread, so the public
+ * methods queue a task and wake the selector. Writes to a connection whose
+ * socket is full are queued on the connection, and the loop sends them once
+ * the socket is writable.
+ *
+ * {@link #close()} stops the loop and closes every channel registered with
+ * it.
+ */
+class EventLoop implements Runnable {
+	/**
+	 * Receives the frames read from a connection.
+	 */
+	interface Handler {
+		/**
+		 * Called on the event loop thread when the connection is ready to
+		 * use, before any frames are read.
+		 */
+		void connected(Connection conn) throws IOException;
+
+		/**
+		 * Called on the event loop thread for each frame. The frame is only
+		 * valid until this method returns.
+		 */
+		void frame(Connection conn, FrameReader reader) throws IOException;
+
+		/**
+		 * Called on the event loop thread when the connection has been
+		 * closed by the other end or failed.
+		 */
+		void closed(Connection conn, IOException cause);
+	}
+
+	/**
+	 * Creates the handler for each connection accepted by a server socket.
+	 */
+	interface AcceptHandler {
+		Handler accepted(Connection conn);
+	}
+
+	private static final Logger LOG = Logger.getLogger("Gazebo Transport");
+
+	private final Selector selector;
+	private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+	private final Thread thread;
+	private volatile boolean closed = false;
+
+	EventLoop(String name) throws IOException {
+		selector = Selector.open();
+		thread = new Thread(this, name);
+		thread.setDaemon(true);
+	}
+
+	void start() {
+		thread.start();
+	}
+
+	/**
+	 * @return True if called on the event loop thread
+	 */
+	boolean inLoop() {
+		return Thread.currentThread() == thread;
+	}
+
+	/**
+	 * Stop the loop and close every channel registered with it, without
+	 * calling the handlers. Waits for the loop thread to exit, unless called
+	 * from it. Closing a loop again does nothing.
+	 */
+	void close() {
+		closed = true;
+		selector.wakeup();
+		if (inLoop()) {
+			return;
+		}
+		if (!thread.isAlive()) {
+			closeChannels();
+			return;
+		}
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Read frames from an open connection. Frames which the connection has
+	 * already buffered are handled first.
+	 */
+	void register(final Connection conn, final Handler handler) {
+		execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					conn.channel().configureBlocking(false);
+					SelectionKey key = conn.channel().register(selector, SelectionKey.OP_READ,
+							new Attachment(conn, handler));
+					conn.registered(EventLoop.this, key);
+					handler.connected(conn);
+					dispatchFrames(conn, handler);
+				} catch (IOException e) {
+					close(conn, handler, e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Connect to a server without blocking, then read frames from the
+	 * connection.
+	 */
+	void connect(final String host, final int port, final Handler handler) {
+		execute(new Runnable() {
+			@Override
+			public void run() {
+				Connection conn = null;
+				try {
+					SocketChannel channel = SocketChannel.open();
+					channel.configureBlocking(false);
+					conn = new Connection(host, port, channel);
+					Attachment attachment = new Attachment(conn, handler);
+					if (channel.connect(new InetSocketAddress(host, port))) {
+						conn.registered(EventLoop.this,
+								channel.register(selector, SelectionKey.OP_READ, attachment));
+						handler.connected(conn);
+					} else {
+						conn.registered(EventLoop.this,
+								channel.register(selector, SelectionKey.OP_CONNECT, attachment));
+					}
+				} catch (IOException e) {
+					if (conn == null) {
+						LOG.log(Level.WARNING, "Cannot connect to " + host + ":" + port, e);
+					} else {
+						close(conn, handler, e);
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Accept connections on a bound server socket.
+	 */
+	void listen(final ServerSocketChannel server, final AcceptHandler acceptHandler) {
+		execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					server.configureBlocking(false);
+					server.register(selector, SelectionKey.OP_ACCEPT, acceptHandler);
+				} catch (IOException e) {
+					LOG.log(Level.SEVERE, "Cannot listen for connections", e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Run a task on the event loop thread.
+	 */
+	void execute(Runnable task) {
+		tasks.add(task);
+		selector.wakeup();
+	}
+
+	@Override
+	public void run() {
+		try {
+			loop();
+		} finally {
+			closeChannels();
+		}
+	}
+
+	private void loop() {
+		while (!closed) {
+			try {
+				selector.select();
+			} catch (IOException e) {
+				LOG.log(Level.SEVERE, "Selector failed", e);
+				return;
+			}
+			if (closed) {
+				return;
+			}
+
+			Runnable task;
+			while ((task = tasks.poll()) != null) {
+				try {
+					task.run();
+				} catch (RuntimeException e) {
+					// Don't let a failing task stop every other connection
+					LOG.log(Level.SEVERE, "Exception in an event loop task", e);
+				}
+			}
+
+			Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+			while (keys.hasNext()) {
+				SelectionKey key = keys.next();
+				keys.remove();
+				if (!key.isValid()) {
+					continue;
+				}
+				if (key.isAcceptable()) {
+					accept(key);
+				} else if (key.isConnectable()) {
+					finishConnect(key);
+				} else {
+					if (key.isWritable()) {
+						write(key);
+					}
+					if (key.isValid() && key.isReadable()) {
+						read(key);
+					}
+				}
+			}
+		}
+	}
+
+	private synchronized void closeChannels() {
+		if (!selector.isOpen()) {
+			// Already closed by an earlier call
+			return;
+		}
+		try {
+			// Copied, since closing a channel may change the key set
+			for (SelectionKey key : selector.keys().toArray(new SelectionKey[0])) {
+				try {
+					key.channel().close();
+				} catch (IOException e) {
+					// Closing failed, probably not a big deal.
+				}
+			}
+			selector.close();
+		} catch (IOException | RuntimeException e) {
+			LOG.log(Level.WARNING, "Cannot close the event loop", e);
+		}
+	}
+
+	private void accept(SelectionKey key) {
+		ServerSocketChannel server = (ServerSocketChannel) key.channel();
+		AcceptHandler acceptHandler = (AcceptHandler) key.attachment();
+		SocketChannel channel;
+		try {
+			channel = server.accept();
+		} catch (IOException e) {
+			LOG.log(Level.WARNING, "Cannot handle client", e);
+			return;
+		}
+		if (channel == null) {
+			return;
+		}
+		LOG.info("Handling connect from "+channel.socket().getInetAddress());
+		Connection conn = new Connection(null, 0, channel);
+		Handler handler = acceptHandler.accepted(conn);
+		try {
+			channel.configureBlocking(false);
+			conn.registered(this,
+					channel.register(selector, SelectionKey.OP_READ, new Attachment(conn, handler)));
+			handler.connected(conn);
+		} catch (IOException e) {
+			close(conn, handler, e);
+		}
+	}
+
+	private void finishConnect(SelectionKey key) {
+		Attachment attachment = (Attachment) key.attachment();
+		try {
+			attachment.conn.channel().finishConnect();
+			key.interestOps(SelectionKey.OP_READ);
+			attachment.handler.connected(attachment.conn);
+			if (attachment.conn.hasPendingWrites()) {
+				key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+			}
+		} catch (IOException e) {
+			key.cancel();
+			close(attachment.conn, attachment.handler, e);
+		}
+	}
+
+	private void write(SelectionKey key) {
+		Attachment attachment = (Attachment) key.attachment();
+		try {
+			attachment.conn.flushPending();
+		} catch (IOException e) {
+			key.cancel();
+			close(attachment.conn, attachment.handler, e);
+		}
+	}
+
+	private void read(SelectionKey key) {
+		Attachment attachment = (Attachment) key.attachment();
+		try {
+			int n = attachment.conn.reader().fill();
+			dispatchFrames(attachment.conn, attachment.handler);
+			if (n < 0) {
+				key.cancel();
+				close(attachment.conn, attachment.handler, null);
+			}
+		} catch (IOException e) {
+			key.cancel();
+			close(attachment.conn, attachment.handler, e);
+		} catch (RuntimeException e) {
+			// Don't let a failing callback stop every other connection
+			LOG.log(Level.SEVERE, "Exception while handling a message", e);
+		}
+	}
+
+	private static void dispatchFrames(Connection conn, Handler handler) throws IOException {
+		FrameReader reader = conn.reader();
+		while (reader.nextFrame()) {
+			handler.frame(conn, reader);
+		}
+	}
+
+	private static void close(Connection conn, Handler handler, IOException cause) {
+		try {
+			conn.close();
+		} catch (IOException e) {
+			// Closing failed, probably not a big deal.
+		}
+		handler.closed(conn, cause);
+	}
+
+	private static final class Attachment {
+		final Connection conn;
+		final Handler handler;
+
+		Attachment(Connection conn, Handler handler) {
+			this.conn = conn;
+			this.handler = handler;
+		}
+	}
+
+}
@@ -0,0 +1,207 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package org.gazebosim.transport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+import com.google.protobuf.CodedInputStream;
+
+/**
+ * Splits the bytes read from a channel into Gazebo frames.
+ *
+ * A frame is an eight character hex length followed by that many bytes of
+ * serialized message. Bytes are read into one reusable buffer, which grows
+ * when a frame does not fit, and frames are handed out as views into that
+ * buffer without copying. A view is only valid until the next call to
+ * {@link #readFrame()} or {@link #fill()}; {@link #nextFrame()} never moves
+ * data, so the frames it skips over stay readable until then.
+ *
+ * Reads can end anywhere in a frame; the partial frame stays in the buffer
+ * until the rest of it arrives.
+ */
+class FrameReader {
+	static final int HEADER_SIZE = 8;
+	private static final int INITIAL_CAPACITY = 4096;
+
+	private final ReadableByteChannel channel;
+	private byte[] buf;
+	private ByteBuffer bb;
+	// The unconsumed data is buf[start, end).
+	private int start = 0;
+	private int end = 0;
+	private int frameOffset = 0;
+	private int frameLength = 0;
+
+	FrameReader(ReadableByteChannel channel) {
+		this.channel = channel;
+		buf = new byte[INITIAL_CAPACITY];
+		bb = ByteBuffer.wrap(buf);
+	}
+
+	/**
+	 * Read from the channel until a whole frame has arrived.
+	 *
+	 * @return False if the channel reached the end of the stream first
+	 */
+	boolean readFrame() throws IOException {
+		while (!nextFrame()) {
+			if (fill() < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Make the next frame in the buffer current, without reading from the
+	 * channel.
+	 *
+	 * @return False if the buffer does not hold a whole frame
+	 */
+	boolean nextFrame() throws IOException {
+		int available = end - start;
+		if (available < HEADER_SIZE) {
+			return false;
+		}
+		int size = parseHex(buf, start);
+		if (available - HEADER_SIZE < size) {
+			return false;
+		}
+		frameOffset = start + HEADER_SIZE;
+		frameLength = size;
+		start += HEADER_SIZE + size;
+		return true;
+	}
+
+	/**
+	 * Make the newest whole frame in the buffer current, skipping the frames
+	 * before it, without reading from the channel.
+	 *
+	 * @return The number of frames skipped, or -1 if the buffer does not hold
+	 *         a whole frame
+	 */
+	int lastFrame() throws IOException {
+		if (!nextFrame()) {
+			return -1;
+		}
+		int skipped = 0;
+		while (nextFrame()) {
+			skipped++;
+		}
+		return skipped;
+	}
+
+	/**
+	 * Read once from the channel, appending to the buffer. This invalidates
+	 * the current frame.
+	 *
+	 * @return The number of bytes read, or -1 at the end of the stream
+	 */
+	int fill() throws IOException {
+		if (start == end) {
+			start = end = 0;
+		} else if (end - start >= HEADER_SIZE) {
+			// Make sure there will be room for the rest of the partial frame
+			reserve(HEADER_SIZE + parseHex(buf, start));
+		}
+		if (end == buf.length) {
+			reserve(end - start + INITIAL_CAPACITY);
+		}
+		bb.limit(buf.length);
+		bb.position(end);
+		int n = channel.read(bb);
+		if (n > 0) {
+			end += n;
+		}
+		return n;
+	}
+
+	/**
+	 * @return True if the buffer holds data which has not been returned as a
+	 *         frame yet
+	 */
+	boolean hasBufferedData() {
+		return end > start;
+	}
+
+	/**
+	 * @return The array holding the current frame
+	 */
+	byte[] frameArray() {
+		return buf;
+	}
+
+	/**
+	 * @return The offset of the current frame in {@link #frameArray()}
+	 */
+	int frameOffset() {
+		return frameOffset;
+	}
+
+	/**
+	 * @return The length of the current frame
+	 */
+	int frameLength() {
+		return frameLength;
+	}
+
+	/**
+	 * @return A stream over the current frame, sharing the buffer
+	 */
+	CodedInputStream frameInput() {
+		return CodedInputStream.newInstance(buf, frameOffset, frameLength);
+	}
+
+	/**
+	 * Make room for at least size bytes from the start of the unconsumed
+	 * data, moving it to the front of the buffer or growing the buffer.
+	 */
+	private void reserve(int size) {
+		if (buf.length - start >= size) {
+			return;
+		}
+		int used = end - start;
+		if (size <= buf.length) {
+			System.arraycopy(buf, start, buf, 0, used);
+		} else {
+			byte[] grown = new byte[Math.max(size, buf.length * 2)];
+			System.arraycopy(buf, start, grown, 0, used);
+			buf = grown;
+			bb = ByteBuffer.wrap(buf);
+		}
+		start = 0;
+		end = used;
+	}
+
+	/**
+	 * Decode the eight hex digit frame header.
+	 */
+	static int parseHex(byte[] data, int offset) throws IOException {
+		int value = 0;
+		for (int i = offset; i < offset + HEADER_SIZE; i++) {
+			int c = data[i];
+			int digit;
+			if (c >= '0' && c <= '9') {
+				digit = c - '0';
+			} else if (c >= 'a' && c <= 'f') {
+				digit = c - 'a' + 10;
+			} else if (c >= 'A' && c <= 'F') {
+				digit = c - 'A' + 10;
+			} else {
+				throw new IOException("Invalid character in frame header: " + (char) (c & 0xff));
+			}
+			value = (value << 4) | digit;
+		}
+		if (value < 0) {
+			throw new IOException("Invalid frame length: " + value);
+		}
+		return value;
+	}
+}
@@ -0,0 +1,82 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package org.gazebosim.transport;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Connects the publishers and subscribers of every in-process node in this
+ * JVM, taking the place of the Gazebo master.
+ *
+ * A publisher is linked to each subscriber of the same topic and type. It then
+ * passes message objects straight to the subscribers' inboxes, without
+ * serializing them or going through a socket.
+ */
+final class InProcessBus {
+	private static final Logger LOG = Logger.getLogger("Gazebo Transport");
+
+	private static final Map<String, List<Publisher<?>>> publishers = new HashMap<>();
+	private static final Map<String, List<Subscriber<?>>> subscribers = new HashMap<>();
+
+	private InProcessBus() {
+	}
+
+	static synchronized void advertise(Publisher<?> pub) {
+		get(publishers, pub.getTopic()).add(pub);
+		for (Subscriber<?> sub : get(subscribers, pub.getTopic())) {
+			link(pub, sub);
+		}
+	}
+
+	static synchronized void subscribe(Subscriber<?> sub) {
+		get(subscribers, sub.getTopic()).add(sub);
+		for (Publisher<?> pub : get(publishers, sub.getTopic())) {
+			link(pub, sub);
+		}
+	}
+
+	static synchronized void unadvertise(Publisher<?> pub) {
+		remove(publishers, pub.getTopic(), pub);
+	}
+
+	static synchronized void unsubscribe(Subscriber<?> sub) {
+		remove(subscribers, sub.getTopic(), sub);
+		for (Publisher<?> pub : get(publishers, sub.getTopic())) {
+			pub.disconnectLocal(sub);
+		}
+	}
+
+	private static void link(Publisher<?> pub, Subscriber<?> sub) {
+		if (!pub.getMsgType().equals(sub.getMsgType())) {
+			LOG.warning("Not connecting " + pub.getTopic() + ": published as " + pub.getMsgType()
+					+ " but subscribed as " + sub.getMsgType());
+			return;
+		}
+		pub.connectLocal(sub);
+	}
+
+	private static <V> List<V> get(Map<String, List<V>> map, String topic) {
+		List<V> list = map.get(topic);
+		if (list == null) {
+			list = new ArrayList<>();
+			map.put(topic, list);
+		}
+		return list;
+	}
+
+	private static <V> void remove(Map<String, List<V>> map, String topic, V value) {
+		List<V> list = map.get(topic);
+		if (list != null && list.remove(value) && list.isEmpty()) {
+			map.remove(topic);
+		}
+	}
+}
@@ -0,0 +1,63 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package org.gazebosim.transport;
+
+import com.google.protobuf.Message;
+
+/**
+ * Holds the newest message received on a conflating subscription.
+ *
+ * The subscription drains every frame which has arrived and only parses the
+ * newest one, so the parsing cost does not grow when the publisher sends
+ * faster than the reader polls. Each update increments a sequence number,
+ * which lets the reader tell whether anything new arrived since it last
+ * looked.
+ *
+ * @see Node#subscribeLatest(String, Message)
+ */
+public class LatestMessage<T extends Message> implements SubscriberCallback<T> {
+	private volatile T message;
+	private volatile long sequence = 0;
+
+	/**
+	 * @param initial The message to return until the first one is received
+	 */
+	public LatestMessage(T initial) {
+		message = initial;
+	}
+
+	/**
+	 * @return The newest message received, or the initial message if none has
+	 *         been received yet
+	 */
+	public T get() {
+		return message;
+	}
+
+	/**
+	 * Get the number of messages stored so far. The sequence number is
+	 * written after the message, so a message read after the sequence number
+	 * is always at least as new as that sequence number.
+	 *
+	 * @return The sequence number of the newest message
+	 */
+	public long getSequence() {
+		return sequence;
+	}
+
+	/**
+	 * Store a new message. This is called by the subscription; it is
+	 * synchronized because each publisher's connection may have its own
+	 * thread.
+	 */
+	@Override
+	public synchronized void callback(T msg) {
+		message = msg;
+		sequence++;
+	}
+}
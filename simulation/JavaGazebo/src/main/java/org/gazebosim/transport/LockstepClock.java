@@ -0,0 +1,133 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package org.gazebosim.transport;
+
+import gazebo.msgs.GzFloat64.Float64;
+
+/**
+ * The clock side of the lockstep handshake, for simulations whose plant
+ * models run in Java instead of Gazebo.
+ *
+ * In lockstep mode the simulated robot does not wait for the clock. Once it
+ * has run its loop and published its outputs, it publishes the simulation
+ * time it wants to reach on the step topic, which is the time topic followed
+ * by {@link #STEP_SUFFIX}. The clock steps the plant to that time with a
+ * fixed period, then publishes the new time on the time topic, which
+ * acknowledges the request. Neither side waits for the wall clock, so the
+ * simulation runs as fast as the CPU allows, and the plant only moves between
+ * the robot's loops, so every run gives the same result.
+ *
+ * With the in-process transport, messages reach a node in the order they
+ * were published, so the robot has its sensor values for a step before it
+ * sees the time, and the plant has the robot's outputs before the step
+ * request. Over TCP each topic has its own connection, so a message written
+ * first may still be read later: the robot may see the time before a sensor
+ * value, or the plant the step request before an output, and the runs are
+ * not always reproducible.
+ *
+ * The Gazebo clock plugin implements the same handshake by pausing the world
+ * and stepping it.
+ */
+public class LockstepClock {
+	/**
+	 * Appended to the time topic to get the topic the step requests are
+	 * published on.
+	 */
+	public static final String STEP_SUFFIX = "/step";
+
+	/**
+	 * How far in seconds the acknowledged time may fall short of the
+	 * requested time, to allow for rounding.
+	 */
+	public static final double TOLERANCE = 1e-9;
+
+	/**
+	 * The plant models stepped by the clock.
+	 */
+	public interface Plant {
+		/**
+		 * Advance the models by one step and publish their sensor values.
+		 *
+		 * @param time The simulation time at the end of the step in seconds
+		 * @param dt The length of the step in seconds
+		 */
+		void step(double time, double dt);
+	}
+
+	private final Node node;
+	private final String topic;
+	private final double period;
+	private final Plant plant;
+	private Publisher<Float64> timePub;
+	private long steps = 0;
+	private volatile double time = 0;
+
+	/**
+	 * @param node The node to publish the time on
+	 * @param topic The time topic, which is "time" for the simulated robot
+	 * @param period The length of each plant step in seconds
+	 * @param plant The plant models, or null to only advance the time
+	 */
+	public LockstepClock(Node node, String topic, double period, Plant plant) {
+		if (period <= 0) {
+			throw new IllegalArgumentException("The period must be positive");
+		}
+		this.node = node;
+		this.topic = topic;
+		this.period = period;
+		this.plant = plant;
+	}
+
+	/**
+	 * Publish the initial time and start answering step requests.
+	 */
+	public synchronized void start() {
+		if (timePub != null) {
+			throw new IllegalStateException("The clock is already started");
+		}
+		timePub = node.advertise(topic, Msgs.Float64());
+		// So a robot which connects later starts at the right time
+		timePub.setLatchMode(true);
+		timePub.publishFloat64(time);
+		node.subscribe(topic + STEP_SUFFIX, Msgs.Float64(), new SubscriberCallback<Float64>() {
+			@Override
+			public void callback(Float64 msg) {
+				advanceTo(msg.getData());
+			}
+		});
+	}
+
+	/**
+	 * Step the plant until the time is at least target, then publish the
+	 * time. Step requests call this, but a harness which drives the clock
+	 * itself may call it directly.
+	 *
+	 * @param target The time to reach in seconds
+	 */
+	public synchronized void advanceTo(double target) {
+		if (timePub == null) {
+			throw new IllegalStateException("The clock is not started");
+		}
+		while (time < target - TOLERANCE) {
+			steps++;
+			// Multiplied rather than summed, so the time does not drift
+			time = steps * period;
+			if (plant != null) {
+				plant.step(time, period);
+			}
+		}
+		timePub.publishFloat64(time);
+	}
+
+	/**
+	 * @return The simulation time in seconds
+	 */
+	public double getTime() {
+		return time;
+	}
+}
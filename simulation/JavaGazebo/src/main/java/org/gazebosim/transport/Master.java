@@ -0,0 +1,362 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package org.gazebosim.transport;
+
+import gazebo.msgs.GzFloat64.Float64;
+import gazebo.msgs.GzPacket.Packet;
+import gazebo.msgs.GzPublish.Publish;
+import gazebo.msgs.GzPublishers.Publishers;
+import gazebo.msgs.GzString;
+import gazebo.msgs.GzSubscribe.Subscribe;
+import gazebo.msgs.StringV.String_V;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.logging.Logger;
+
+import com.google.protobuf.Message;
+
+/**
+ * A stand-in for the Gazebo master, so the simulation stack can run without
+ * gzserver, for example in CI or in the transport benchmarks.
+ *
+ * It speaks the same protocol as the master in gzserver: it sends
+ * version_init, topic_namepaces_init and publishers_init to each node which
+ * connects, and routes advertise and subscribe requests by sending
+ * publisher_add, publisher_advertise and publisher_subscribe to the nodes
+ * involved. The nodes then connect to each other directly, as they do with
+ * gzserver.
+ *
+ * The master can also publish a synthetic "time" topic, which the simulated
+ * robot uses as its clock, either stepped by hand with
+ * {@link #publishTime(double)}, driven by the wall clock with
+ * {@link #startClock(double)}, or advanced by the robot's step requests with
+ * {@link #startLockstepClock(double)}.
+ *
+ * All of the routing runs on one event loop thread.
+ */
+public class Master {
+	/**
+	 * The port gzserver's master listens on.
+	 */
+	public static final int DEFAULT_PORT = 11345;
+
+	/**
+	 * The version reported to the nodes.
+	 */
+	public static final String VERSION = "2.2";
+
+	private static final Logger LOG = Logger.getLogger("Gazebo Transport");
+
+	private final ServerSocketChannel server;
+	private final EventLoop loop;
+	private final String namespace;
+
+	// Only used on the event loop thread
+	private final List<Connection> nodes = new ArrayList<>();
+	private final List<PublisherEntry> publishers = new ArrayList<>();
+	private final List<SubscriberEntry> subscribers = new ArrayList<>();
+
+	private Node timeNode;
+	private Publisher<Float64> timePub;
+	private Thread clock;
+	private LockstepClock lockstep;
+
+	/**
+	 * Create a master in the "default" namespace.
+	 *
+	 * @param port The port to listen on, or 0 to pick a free port
+	 */
+	public Master(int port) throws IOException {
+		this(port, "default");
+	}
+
+	/**
+	 * @param port The port to listen on, or 0 to pick a free port
+	 * @param namespace The namespace reported to the nodes, which is the world
+	 *        name in gzserver
+	 */
+	public Master(int port, String namespace) throws IOException {
+		this.namespace = namespace;
+		server = ServerSocketChannel.open();
+		server.socket().setReuseAddress(true);
+		server.socket().bind(new InetSocketAddress(port));
+		loop = new EventLoop("Gazebo Master");
+	}
+
+	/**
+	 * Start accepting nodes.
+	 */
+	public void start() {
+		loop.listen(server, new EventLoop.AcceptHandler() {
+			@Override
+			public EventLoop.Handler accepted(Connection conn) {
+				return new NodeHandler();
+			}
+		});
+		loop.start();
+		LOG.info("Master listening on port " + getPort());
+	}
+
+	/**
+	 * @return The port the master is listening on
+	 */
+	public int getPort() {
+		return server.socket().getLocalPort();
+	}
+
+	/**
+	 * Publish a value on the "time" topic of the "frc" node, which the
+	 * simulated robot uses as its clock.
+	 *
+	 * @param seconds The simulation time in seconds
+	 */
+	public synchronized void publishTime(double seconds) throws IOException, InterruptedException {
+		if (lockstep != null) {
+			throw new IllegalStateException("The lockstep clock publishes the time");
+		}
+		if (timePub == null) {
+			timePub = timeNode().advertise("time", Msgs.Float64());
+			timePub.setDeliveryPolicy(Publisher.DeliveryPolicy.LATEST);
+		}
+		timePub.publishFloat64(seconds);
+	}
+
+	/**
+	 * Publish the time only when the robot asks for it, for a lockstep
+	 * simulation without plant models. The robot runs as fast as it can,
+	 * with the time advancing by whole periods.
+	 *
+	 * @param period The period in seconds
+	 * @see LockstepClock
+	 */
+	public synchronized void startLockstepClock(double period) throws IOException, InterruptedException {
+		if (timePub != null || lockstep != null) {
+			throw new IllegalStateException("The clock is already running");
+		}
+		lockstep = new LockstepClock(timeNode(), "time", period, null);
+		lockstep.start();
+	}
+
+	/**
+	 * The "frc" node which publishes the time.
+	 */
+	private Node timeNode() throws IOException, InterruptedException {
+		if (timeNode == null) {
+			timeNode = new Node("frc", Node.Transport.THREADS);
+			timeNode.waitForConnection("localhost", getPort());
+		}
+		return timeNode;
+	}
+
+	/**
+	 * Publish the time since this call on the "time" topic at a fixed
+	 * period, so simulation time runs at the speed of the wall clock.
+	 *
+	 * @param period The period in seconds
+	 */
+	public synchronized void startClock(final double period) {
+		if (clock != null) {
+			throw new IllegalStateException("The clock is already running");
+		}
+		clock = new Thread("Gazebo Master Clock") {
+			@Override
+			public void run() {
+				long start = System.nanoTime();
+				long periodNanos = (long) (period * 1e9);
+				long next = start;
+				try {
+					while (!isInterrupted()) {
+						publishTime((System.nanoTime() - start) / 1e9);
+						next += periodNanos;
+						long delay = next - System.nanoTime();
+						if (delay > 0) {
+							Thread.sleep(delay / 1000000, (int) (delay % 1000000));
+						}
+					}
+				} catch (InterruptedException e) {
+					// Stopped
+				} catch (IOException e) {
+					LOG.severe("Cannot publish the time: " + e);
+				}
+			}
+		};
+		clock.setDaemon(true);
+		clock.start();
+	}
+
+	/**
+	 * Stop the clock started by {@link #startClock(double)}.
+	 */
+	public synchronized void stopClock() {
+		if (clock != null) {
+			clock.interrupt();
+			clock = null;
+		}
+	}
+
+	/**
+	 * Stop the clock, close the node which publishes the time and the
+	 * connections to the nodes, and stop the event loop. Nodes which are
+	 * already connected keep their connections to each other.
+	 */
+	public void close() throws IOException {
+		Node closingNode;
+		synchronized (this) {
+			stopClock();
+			closingNode = timeNode;
+			timeNode = null;
+			timePub = null;
+			lockstep = null;
+		}
+		if (closingNode != null) {
+			// Stops the lockstep clock's subscription to the step requests
+			closingNode.close();
+		}
+		loop.close();
+		server.close();
+	}
+
+	private void process(Connection conn, Packet packet) throws IOException {
+		String type = packet.getType();
+		if (type.equals("advertise")) {
+			Publish pub = Publish.parseFrom(packet.getSerializedData());
+			LOG.info("Master: ADV " + pub.getTopic());
+			publishers.add(new PublisherEntry(pub, conn));
+			for (Connection node : nodes) {
+				send(node, "publisher_add", pub);
+			}
+			for (SubscriberEntry sub : subscribers) {
+				if (sub.sub.getTopic().equals(pub.getTopic())) {
+					send(sub.conn, "publisher_advertise", pub);
+				}
+			}
+		} else if (type.equals("unadvertise")) {
+			Publish pub = Publish.parseFrom(packet.getSerializedData());
+			for (Iterator<PublisherEntry> it = publishers.iterator(); it.hasNext();) {
+				Publish p = it.next().pub;
+				if (p.getTopic().equals(pub.getTopic()) && p.getHost().equals(pub.getHost())
+						&& p.getPort() == pub.getPort()) {
+					it.remove();
+				}
+			}
+		} else if (type.equals("subscribe")) {
+			Subscribe sub = Subscribe.parseFrom(packet.getSerializedData());
+			LOG.info("Master: SUB " + sub.getTopic());
+			subscribers.add(new SubscriberEntry(sub, conn));
+			for (PublisherEntry pub : publishers) {
+				if (pub.pub.getTopic().equals(sub.getTopic())) {
+					send(conn, "publisher_subscribe", pub.pub);
+				}
+			}
+		} else if (type.equals("unsubscribe")) {
+			Subscribe sub = Subscribe.parseFrom(packet.getSerializedData());
+			for (Iterator<SubscriberEntry> it = subscribers.iterator(); it.hasNext();) {
+				SubscriberEntry s = it.next();
+				if (s.conn == conn && s.sub.getTopic().equals(sub.getTopic())) {
+					it.remove();
+				}
+			}
+		} else if (type.equals("namespace_add")) {
+			GzString.String ns = GzString.String.parseFrom(packet.getSerializedData());
+			for (Connection node : nodes) {
+				send(node, "topic_namespace_add", ns);
+			}
+		} else {
+			LOG.warning("Master: can't handle " + type);
+		}
+	}
+
+	private static void send(Connection conn, String type, Message msg) {
+		try {
+			conn.writePacket(type, msg);
+		} catch (IOException e) {
+			LOG.warning("Master: cannot send " + type + ": " + e);
+		}
+	}
+
+	/**
+	 * Handles the packets from one node.
+	 */
+	private class NodeHandler implements EventLoop.Handler {
+		@Override
+		public void connected(Connection conn) throws IOException {
+			nodes.add(conn);
+			conn.writePacket("version_init", Msgs.String(VERSION));
+			conn.writePacket("topic_namepaces_init", String_V.newBuilder().addData(namespace).build());
+			Publishers.Builder pubs = Publishers.newBuilder();
+			for (PublisherEntry pub : publishers) {
+				pubs.addPublisher(pub.pub);
+			}
+			conn.writePacket("publishers_init", pubs.build());
+		}
+
+		@Override
+		public void frame(Connection conn, FrameReader reader) throws IOException {
+			process(conn, Packet.parseFrom(reader.frameInput()));
+		}
+
+		@Override
+		public void closed(Connection conn, IOException cause) {
+			nodes.remove(conn);
+			for (Iterator<PublisherEntry> it = publishers.iterator(); it.hasNext();) {
+				if (it.next().conn == conn) {
+					it.remove();
+				}
+			}
+			for (Iterator<SubscriberEntry> it = subscribers.iterator(); it.hasNext();) {
+				if (it.next().conn == conn) {
+					it.remove();
+				}
+			}
+		}
+	}
+
+	private static final class PublisherEntry {
+		final Publish pub;
+		final Connection conn;
+
+		PublisherEntry(Publish pub, Connection conn) {
+			this.pub = pub;
+			this.conn = conn;
+		}
+	}
+
+	private static final class SubscriberEntry {
+		final Subscribe sub;
+		final Connection conn;
+
+		SubscriberEntry(Subscribe sub, Connection conn) {
+			this.sub = sub;
+			this.conn = conn;
+		}
+	}
+
+	/**
+	 * Run a master with a wall clock driven or lockstep time topic.
+	 *
+	 * Usage: Master [port [clock period in seconds [lockstep]]]
+	 */
+	public static void main(String[] args) throws Exception {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		double period = args.length > 1 ? Double.parseDouble(args[1]) : 0.001;
+		Master master = new Master(port);
+		master.start();
+		if (args.length > 2 && args[2].equals("lockstep")) {
+			master.startLockstepClock(period);
+		} else {
+			master.startClock(period);
+		}
+		System.out.println("Gazebo master stand-in listening on port " + master.getPort());
+		Thread.sleep(Long.MAX_VALUE);
+	}
+}
@@ -21,6 +21,8 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.ConsoleHandler;
 import java.util.logging.Formatter;
 import java.util.logging.Handler;
@@ -32,14 +34,52 @@ import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.Message;
 
 public class Node implements Runnable, ServerCallback {
+	/**
+	 * The system property which selects the transport: "threads" (the
+	 * default), "selector" or "inprocess".
+	 *
+	 * @see Transport
+	 */
+	public static final String TRANSPORT_PROPERTY = "gazebo.transport";
+
+	/**
+	 * How a node exchanges messages.
+	 */
+	public enum Transport {
+		/**
+		 * Talk to the Gazebo master and to other nodes over TCP, with a
+		 * thread for each connection.
+		 */
+		THREADS,
+		/**
+		 * Like THREADS, but run all of the connections on a single event
+		 * loop thread.
+		 */
+		SELECTOR,
+		/**
+		 * Only talk to other in-process nodes in this JVM, such as plant
+		 * models in a test harness. Message objects are passed directly to
+		 * the subscribers through lock-free inboxes, without serialization,
+		 * sockets or a Gazebo master. The callbacks run on one dispatcher
+		 * thread per node.
+		 */
+		IN_PROCESS
+	}
+
 	private final String name;
+	private final Transport transport;
+	private EventLoop loop;
+	private Dispatcher dispatcher;
 	private final Connection master = new Connection();
 	private final Connection server = new Connection();
 	private final List<String> namespaces = new LinkedList<>();
 	private final Map<String, PublisherRecord> publishers = new HashMap<>();
 	@SuppressWarnings("rawtypes")
 	private final Map<String, Subscriber> subscriptions = new HashMap<>();
+	private TopicRecorder recorder;
+	private volatile boolean closed = false;
 	private static final Logger LOG = Logger.getLogger("Gazebo Transport");
+	private static final long CLOSE_TIMEOUT_NANOS = 100000000L;
 	static {
 		// Get rid of the excess information
 		LOG.setLevel(Level.WARNING);
@@ -55,7 +95,41 @@ public class Node implements Runnable, ServerCallback {
 	}
 
 	public Node(String name) {
+		this(name, getConfiguredTransport());
+	}
+
+	/**
+	 * @param name The node name, used in the topic names
+	 * @param useSelector True to run all connections on one event loop thread
+	 *        instead of a thread each
+	 */
+	public Node(String name, boolean useSelector) {
+		this(name, useSelector ? Transport.SELECTOR : Transport.THREADS);
+	}
+
+	/**
+	 * @param name The node name, used in the topic names
+	 * @param transport How the node exchanges messages
+	 */
+	public Node(String name, Transport transport) {
 		this.name = name;
+		this.transport = transport;
+	}
+
+	/**
+	 * @return The transport selected by the {@link #TRANSPORT_PROPERTY}
+	 *         system property
+	 */
+	public static Transport getConfiguredTransport() {
+		String value = System.getProperty(TRANSPORT_PROPERTY, "threads");
+		if (value.equals("selector")) {
+			return Transport.SELECTOR;
+		} else if (value.equals("inprocess")) {
+			return Transport.IN_PROCESS;
+		} else if (!value.equals("threads")) {
+			LOG.warning("Unknown " + TRANSPORT_PROPERTY + " " + value + ", using threads");
+		}
+		return Transport.THREADS;
 	}
 
 	public void waitForConnection() throws IOException, InterruptedException {
@@ -74,8 +148,34 @@ public class Node implements Runnable, ServerCallback {
 				port = Integer.parseInt(parts[1]);
 			}
 		}
+		waitForConnection(gazebo_master_uri, port);
+	}
+
+	/**
+	 * Connect to the master at the given address instead of the one in
+	 * GAZEBO_MASTER_URI. The in-process transport has no master, so it
+	 * ignores the address.
+	 */
+	public void waitForConnection(String gazebo_master_uri, int port) throws IOException, InterruptedException {
+		if (transport == Transport.IN_PROCESS) {
+			// There is no master to wait for
+			dispatcher = new Dispatcher("Gazebo Dispatcher " + name);
+			dispatcher.start();
+			return;
+		}
 
-		server.serve(this);
+		if (transport == Transport.SELECTOR) {
+			loop = new EventLoop("Gazebo Transport");
+			loop.start();
+			server.listen(loop, new EventLoop.AcceptHandler() {
+				@Override
+				public EventLoop.Handler accepted(Connection conn) {
+					return new SubscriberRequestHandler();
+				}
+			});
+		} else {
+			server.serve(this);
+		}
 
 		LOG.info("GAZEBO_MASTER_URI is host=" + gazebo_master_uri + " port="+port);
 
@@ -83,7 +183,11 @@ public class Node implements Runnable, ServerCallback {
 
 		initializeConnection();
 
-		new Thread(this).start();
+		if (transport == Transport.SELECTOR) {
+			loop.register(master, new MasterHandler());
+		} else {
+			new Thread(this).start();
+		}
 		LOG.info("Serving on: "+server.host+":"+server.port);
 	}
 
@@ -93,6 +197,13 @@ public class Node implements Runnable, ServerCallback {
 		String type = defaultMessage.getDescriptorForType().getFullName();
 		Publisher<T> pub = new Publisher<T>(topic, type, server.host, server.port);
 		publishers.put(topic, pub);
+		if (recorder != null) {
+			record(pub);
+		}
+		if (transport == Transport.IN_PROCESS) {
+			InProcessBus.advertise(pub);
+			return pub;
+		}
 
 		Publish req = Publish.newBuilder().setTopic(topic).setMsgType(type)
 						.setHost(server.host).setPort(server.port).build();
@@ -104,15 +215,31 @@ public class Node implements Runnable, ServerCallback {
 		return pub;
 	}
 
-	public synchronized <T extends Message> Subscriber<T>
+	public <T extends Message> Subscriber<T>
 			subscribe(String topic, T defaultMessage, SubscriberCallback<T> cb) {
+		return subscribe(topic, defaultMessage, cb, false);
+	}
+
+	private synchronized <T extends Message> Subscriber<T>
+			subscribe(String topic, T defaultMessage, SubscriberCallback<T> cb, boolean conflating) {
 		topic = fixTopic(topic);
 		LOG.info("SUB "+topic);
+		String type = defaultMessage.getDescriptorForType().getFullName();
 		if (subscriptions.containsKey(topic)) {
-			throw new RuntimeException("Multiple subscribers for: "+topic);
+			return addCallback(subscriptions.get(topic), type, cb, conflating);
+		}
+
+		if (transport == Transport.IN_PROCESS) {
+			Subscriber<T> s = new Subscriber<>(topic, type, cb, defaultMessage, dispatcher);
+			s.setConflating(conflating);
+			subscriptions.put(topic, s);
+			if (recorder != null) {
+				record(s);
+			}
+			InProcessBus.subscribe(s);
+			return s;
 		}
 
-		String type = defaultMessage.getDescriptorForType().getFullName();
 		Subscribe req = Subscribe.newBuilder().setTopic(topic).setMsgType(type)
 							.setHost(server.host).setPort(server.port).setLatching(false).build();
 		try {
@@ -122,8 +249,12 @@ public class Node implements Runnable, ServerCallback {
 		}
 
 		Subscriber<T> s = new Subscriber<>(topic, type, cb, defaultMessage,
-				server.host, server.port);
+				server.host, server.port, loop);
+		s.setConflating(conflating);
 		subscriptions.put(topic, s);
+		if (recorder != null) {
+			record(s);
+		}
 		for (PublisherRecord p : publishers.values()) {
 			if (p.getTopic().equals(topic)) {
 				s.connect(p);
@@ -132,21 +263,203 @@ public class Node implements Runnable, ServerCallback {
 		return s;
 	}
 
+	/**
+	 * Share an existing subscription with another local callback, so the
+	 * messages are received and parsed only once. The subscription only
+	 * conflates while every callback asked for conflation, so no callback
+	 * misses messages it expects.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private <T extends Message> Subscriber<T> addCallback(Subscriber s, String type,
+			SubscriberCallback<T> cb, boolean conflating) {
+		if (!s.getMsgType().equals(type)) {
+			throw new IllegalArgumentException("Cannot subscribe to " + s.getTopic() + " as "
+					+ type + ", it has type " + s.getMsgType());
+		}
+		if (!conflating) {
+			s.setConflating(false);
+		}
+		s.addCallback(cb);
+		return s;
+	}
+
+	/**
+	 * Subscribe to a topic in conflating mode, keeping only the newest
+	 * message.
+	 *
+	 * @param topic The topic to subscribe to
+	 * @param defaultMessage The message returned until one is received, which
+	 *        also gives the type of the topic
+	 * @return The slot holding the newest message
+	 * @see Subscriber#setConflating(boolean)
+	 */
+	public <T extends Message> LatestMessage<T> subscribeLatest(String topic, T defaultMessage) {
+		LatestMessage<T> latest = new LatestMessage<>(defaultMessage);
+		subscribe(topic, defaultMessage, latest, true);
+		return latest;
+	}
+
+	/**
+	 * @return The metrics of every topic this node publishes or subscribes
+	 *         to, keyed by the full topic name
+	 * @see TransportMetrics
+	 */
+	public synchronized Map<String, TopicMetrics> getMetrics() {
+		Map<String, TopicMetrics> metrics = new TreeMap<>();
+		for (PublisherRecord pub : publishers.values()) {
+			// The master's records of other nodes' publishers are kept here too
+			if (pub instanceof Publisher) {
+				metrics.put(pub.getTopic(), ((Publisher<?>) pub).getMetrics());
+			}
+		}
+		for (Subscriber<?> sub : subscriptions.values()) {
+			metrics.put(sub.getTopic(), sub.getMetrics());
+		}
+		return metrics;
+	}
+
+	/**
+	 * Record every message this node publishes or receives, including on the
+	 * topics it advertises or subscribes to later, or stop recording.
+	 *
+	 * @param recorder The recorder, or null to stop recording
+	 */
+	@SuppressWarnings("rawtypes")
+	public synchronized void setRecorder(TopicRecorder recorder) {
+		this.recorder = recorder;
+		for (PublisherRecord pub : publishers.values()) {
+			if (pub instanceof Publisher) {
+				record((Publisher) pub);
+			}
+		}
+		for (Subscriber sub : subscriptions.values()) {
+			record(sub);
+		}
+	}
+
+	private void record(Publisher<?> pub) {
+		pub.setRecording(recorder == null ? null
+				: recorder.open(relativeTopic(pub.getTopic()), pub.getMsgType(), true));
+	}
+
+	private void record(Subscriber<?> sub) {
+		sub.setRecording(recorder == null ? null
+				: recorder.open(relativeTopic(sub.getTopic()), sub.getMsgType(), false));
+	}
+
+	/**
+	 * Close the node. Its publishers and subscribers are removed, and its
+	 * threads exit, so another node may use the same topic names, such as
+	 * the next run of a batch of simulations.
+	 *
+	 * An in-process node is removed from the bus. A TCP node tells the master
+	 * it no longer publishes or subscribes to its topics, then closes its
+	 * connections to the master and to the other nodes and stops its event
+	 * loop or connection threads.
+	 */
+	@SuppressWarnings("rawtypes")
+	public void close() {
+		EventLoop closingLoop;
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			if (transport == Transport.IN_PROCESS) {
+				for (PublisherRecord pub : publishers.values()) {
+					InProcessBus.unadvertise((Publisher<?>) pub);
+				}
+				for (Subscriber sub : subscriptions.values()) {
+					InProcessBus.unsubscribe(sub);
+				}
+			} else {
+				unregister();
+			}
+			publishers.clear();
+			subscriptions.clear();
+			if (dispatcher != null) {
+				dispatcher.stop();
+				dispatcher = null;
+			}
+			closingLoop = loop;
+			loop = null;
+		}
+		// Outside the lock, since the event loop thread may be waiting for it
+		if (closingLoop != null) {
+			// Closes the master, server and subscriber connections too
+			closingLoop.close();
+		}
+		if (transport != Transport.IN_PROCESS) {
+			try {
+				master.close();
+				server.close();
+			} catch (IOException e) {
+				// Closing failed, probably not a big deal.
+			}
+		}
+	}
+
+	/**
+	 * Tell the master this node's topics are gone and close the connections
+	 * to the other nodes.
+	 */
+	@SuppressWarnings("rawtypes")
+	private void unregister() {
+		for (PublisherRecord pub : publishers.values()) {
+			// The master's records of other nodes' publishers are kept here too
+			if (pub instanceof Publisher) {
+				Publish req = Publish.newBuilder().setTopic(pub.getTopic())
+						.setMsgType(pub.getMsgType()).setHost(server.host).setPort(server.port)
+						.build();
+				sendToMaster("unadvertise", req);
+				((Publisher) pub).close();
+			}
+		}
+		for (Subscriber sub : subscriptions.values()) {
+			Subscribe req = Subscribe.newBuilder().setTopic(sub.getTopic())
+					.setMsgType(sub.getMsgType()).setHost(server.host).setPort(server.port)
+					.setLatching(false).build();
+			sendToMaster("unsubscribe", req);
+			sub.close();
+		}
+		// Let the event loop send what the master's socket did not take
+		long deadline = System.nanoTime() + CLOSE_TIMEOUT_NANOS;
+		try {
+			while (!master.flushPending() && System.nanoTime() < deadline) {
+				LockSupport.parkNanos(CLOSE_TIMEOUT_NANOS / 100);
+			}
+		} catch (IOException e) {
+			// The master is gone already
+		}
+	}
+
+	private void sendToMaster(String type, Message req) {
+		try {
+			master.writePacket(type, req);
+		} catch (IOException e) {
+			LOG.fine("Cannot send " + type + " to the master: " + e);
+		}
+	}
+
 	@Override
 	public void run() {
 		try {
 			while (true) {
 				Packet packet = master.read();
 				if (packet == null) {
-					LOG.severe("Received null packet, shutting down connection to master.");
-					master.close();
+					if (!closed) {
+						LOG.severe("Received null packet, shutting down connection to master.");
+						master.close();
+					}
 					return;
 				}
 				processPacket(packet);
 			}
 		} catch (IOException e ) {
-			LOG.severe("I/O error: " + e);
-			e.printStackTrace(); // FIXME: Log
+			if (!closed) {
+				LOG.severe("I/O error: " + e);
+				e.printStackTrace(); // FIXME: Log
+			}
 		}
 	}
 
@@ -222,7 +535,10 @@ public class Node implements Runnable, ServerCallback {
 			LOG.warning("Read null message.");
 			return;
 		}
+		handleRequest(conn, msg);
+	}
 
+	private void handleRequest(Connection conn, Packet msg) throws IOException {
 		if (msg.getType().equals("sub")) {
 			Subscribe sub = Subscribe.parseFrom(msg.getSerializedData());
 			if (!publishers.containsKey(sub.getTopic())) {
@@ -247,7 +563,59 @@ public class Node implements Runnable, ServerCallback {
 		}
 	}
 
+	/**
+	 * Handles the first message on a connection accepted by the event loop,
+	 * which is another node asking to subscribe to one of our topics.
+	 */
+	private class SubscriberRequestHandler implements EventLoop.Handler {
+		private boolean handled = false;
+
+		@Override
+		public void connected(Connection conn) {
+			LOG.fine("Handling new connection");
+		}
+
+		@Override
+		public void frame(Connection conn, FrameReader reader) throws IOException {
+			if (handled) {
+				return;
+			}
+			handled = true;
+			handleRequest(conn, Packet.parseFrom(reader.frameInput()));
+		}
+
+		@Override
+		public void closed(Connection conn, IOException cause) {
+		}
+	}
+
+	/**
+	 * Handles the packets from the master on the event loop.
+	 */
+	private class MasterHandler implements EventLoop.Handler {
+		@Override
+		public void connected(Connection conn) {
+		}
+
+		@Override
+		public void frame(Connection conn, FrameReader reader) throws IOException {
+			processPacket(Packet.parseFrom(reader.frameInput()));
+		}
+
+		@Override
+		public void closed(Connection conn, IOException cause) {
+			if (!closed) {
+				LOG.severe("Connection to master closed" + (cause == null ? "." : ": " + cause));
+			}
+		}
+	}
+
 	private String fixTopic(String topic) {
 		return "/gazebo/" + name + "/" + topic;
 	}
+
+	private String relativeTopic(String topic) {
+		String prefix = fixTopic("");
+		return topic.startsWith(prefix) ? topic.substring(prefix.length()) : topic;
+	}
 }
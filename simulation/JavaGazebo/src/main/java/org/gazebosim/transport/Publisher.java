@@ -8,49 +8,216 @@
 package org.gazebosim.transport;
 
 import java.io.IOException;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.google.protobuf.Message;
 
 public class Publisher<T extends Message> implements PublisherRecord {
+	/**
+	 * How published messages are delivered to the subscribers.
+	 */
+	public enum DeliveryPolicy {
+		/**
+		 * Write the message to every subscriber before publish() returns. The
+		 * part of a message which a subscriber's socket cannot take at once is
+		 * queued on its connection and sent in the background, so a slow
+		 * subscriber does not block the publisher.
+		 */
+		SYNCHRONOUS,
+		/**
+		 * Queue the message for each subscriber and write it from a background
+		 * thread. If a subscriber's queue is full, its oldest message is
+		 * dropped.
+		 */
+		QUEUED,
+		/**
+		 * Like QUEUED, but only the newest message is kept for each
+		 * subscriber. This is meant for topics which carry a state, such as a
+		 * motor setpoint, where only the latest value matters.
+		 */
+		LATEST
+	}
+
+	/**
+	 * The default number of messages queued per subscriber in QUEUED mode.
+	 */
+	public static final int DEFAULT_OUTBOX_SIZE = 16;
+
 	private String topic, msgType;
 	private String localHost;
 	private int localPort;
-	private List<Connection> listeners;
+	private volatile Outbox[] listeners = new Outbox[0];
+	// Subscribers in the same JVM, linked by the in-process transport
+	private volatile Subscriber<?>[] localSubscribers = new Subscriber<?>[0];
 	private boolean latching = false;
-	private T lastMsg = null;
-	
+	// The last message, which is a Message or a scalar in the form used by
+	// the outboxes
+	private Object lastValue = null;
+	private long lastBits = 0;
+	private volatile DeliveryPolicy policy = DeliveryPolicy.SYNCHRONOUS;
+	private int outboxSize = DEFAULT_OUTBOX_SIZE;
+	private final TopicMetrics metrics;
+	private final CompletableFuture<Publisher<T>> connected = new CompletableFuture<>();
+	private volatile TopicRecorder.Channel recording;
+
 	private static final Logger LOG = Logger.getLogger("Gazebo Transport");
-	
+
 	public Publisher(String topic, String msgType, String localHost, int localPort) {
 		this.topic = topic;
 		this.msgType = msgType;
 		this.localHost = localHost;
 		this.localPort = localPort;
-		listeners = new LinkedList<>();
+		metrics = TransportMetrics.forTopic(topic);
+		metrics.setPublisher(this);
+	}
+
+	/**
+	 * Choose how messages are delivered. This should be set before the first
+	 * subscriber connects.
+	 *
+	 * @param policy The delivery policy
+	 */
+	public void setDeliveryPolicy(DeliveryPolicy policy) {
+		this.policy = policy;
+	}
+
+	/**
+	 * Set the number of messages queued per subscriber in QUEUED mode. This
+	 * only affects subscribers which connect afterwards.
+	 *
+	 * @param size The queue size
+	 */
+	public synchronized void setOutboxSize(int size) {
+		if (size < 1) {
+			throw new IllegalArgumentException("Outbox size must be at least 1");
+		}
+		outboxSize = size;
+	}
+
+	public void publish(T msg) {
+		publishValue(msg, 0);
+	}
+
+	/**
+	 * Publish a Float64 message holding value. The message is encoded
+	 * directly, without building a message object.
+	 *
+	 * @throws IllegalStateException if this is not a Float64 topic
+	 */
+	public void publishFloat64(double value) {
+		checkType(ScalarWire.FLOAT64_TYPE);
+		publishValue(Outbox.FLOAT64, Double.doubleToRawLongBits(value));
+	}
+
+	/**
+	 * Publish a Bool message holding value. The message is encoded directly,
+	 * without building a message object.
+	 *
+	 * @throws IllegalStateException if this is not a Bool topic
+	 */
+	public void publishBool(boolean value) {
+		checkType(ScalarWire.BOOL_TYPE);
+		publishValue(value ? Outbox.TRUE : Outbox.FALSE, 0);
+	}
+
+	/**
+	 * Publish a String message holding value. The message is encoded
+	 * directly, without building a message object.
+	 *
+	 * @throws IllegalStateException if this is not a String topic
+	 */
+	public void publishString(String value) {
+		checkType(ScalarWire.STRING_TYPE);
+		if (value == null) {
+			throw new NullPointerException("value");
+		}
+		publishValue(value, 0);
+	}
+
+	private void checkType(String type) {
+		if (!type.equals(msgType)) {
+			throw new IllegalStateException("Cannot publish " + type + " on " + topic
+					+ ", which has type " + msgType);
+		}
+	}
+
+	private void publishValue(Object value, long bits) {
+		TopicRecorder.Channel rec = recording;
+		if (rec != null) {
+			rec.record(Outbox.toMessage(value, bits));
+		}
+		Subscriber<?>[] locals = localSubscribers;
+		if (locals.length != 0) {
+			// Counted as a message in by each subscriber, not here, since
+			// both ends share this topic's metrics
+			Message msg = Outbox.toMessage(value, bits);
+			for (Subscriber<?> sub : locals) {
+				sub.offerLocal(msg);
+			}
+		}
+		if (policy == DeliveryPolicy.SYNCHRONOUS) {
+			publishSynchronously(value, bits);
+			return;
+		}
+		synchronized (this) {
+			lastValue = value;
+			lastBits = bits;
+		}
+		Outbox[] current = listeners;
+		if (current.length == 0) {
+			return;
+		}
+		boolean conflate = policy == DeliveryPolicy.LATEST;
+		for (Outbox listener : current) {
+			listener.offer(value, bits, conflate);
+		}
+		Writer.INSTANCE.wake();
 	}
 
-	public synchronized void publish(T msg) {
-		lastMsg = msg;
-		List<Connection> toRemove = new LinkedList<>();
-		for (Connection listener : listeners) {
+	private synchronized void publishSynchronously(Object value, long bits) {
+		lastValue = value;
+		lastBits = bits;
+		boolean blocked = false;
+		for (Outbox listener : listeners) {
 			try {
-				listener.write(msg);
+				Outbox.write(listener.conn, value, bits, metrics);
+				blocked |= listener.conn.hasPendingWrites();
 			} catch (IOException e) {
-				toRemove.add(listener);
+				remove(listener);
 			}
 		}
-		for (Connection listener : toRemove) {
-			LOG.info("Removing listener from topic="+topic);
-			try {
-				listener.close();
-			} catch (IOException e1) { /* Closing failed, probably not a big deal. */}
-			listeners.remove(listener);
+		if (blocked) {
+			// The writer sends the rest once the sockets have room
+			Writer.INSTANCE.wake();
 		}
 	}
 
+	/**
+	 * Close a subscriber's connection and stop publishing to it.
+	 */
+	private synchronized void remove(Outbox listener) {
+		Outbox[] current = listeners;
+		int index = Arrays.asList(current).indexOf(listener);
+		if (index < 0) {
+			return;
+		}
+		LOG.info("Removing listener from topic="+topic);
+		try {
+			listener.conn.close();
+		} catch (IOException e1) { /* Closing failed, probably not a big deal. */}
+		Outbox[] updated = new Outbox[current.length - 1];
+		System.arraycopy(current, 0, updated, 0, index);
+		System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+		listeners = updated;
+		Writer.INSTANCE.remove(listener);
+	}
+
 	@Override
 	public String getTopic() {
 		return topic;
@@ -71,30 +238,143 @@ public class Publisher<T extends Message> implements PublisherRecord {
 		return msgType;
 	}
 
+	/**
+	 * @return The metrics of this topic
+	 */
+	public TopicMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * @return The number of messages waiting to be written to the
+	 *         subscribers
+	 */
+	int getQueueDepth() {
+		int depth = 0;
+		for (Outbox listener : listeners) {
+			depth += listener.depth();
+		}
+		return depth;
+	}
+
 	@Override
 	/**
 	 * This function is called when another topic requests a subscription to a topic I am publishing
 	 * Called in Node.java in the handle() function
 	 */
-	public synchronized void connect(Connection conn) {
+	public void connect(Connection conn) {
 		LOG.fine("Handling subscriber connection for topic: "+topic);
-		if (latching && lastMsg != null) {
+		synchronized (this) {
+			if (latching && lastValue != null) {
+				try {
+					Outbox.write(conn, lastValue, lastBits, metrics);
+				} catch (IOException e) {
+					LOG.warning("Writing latched message failed on topic="+topic);
+					try {
+						conn.close();
+					} catch (IOException e1) { /* Closing failed, probably not a big deal. */}
+					return;
+				}
+			}
 			try {
-				conn.write(lastMsg);
+				// So a slow subscriber never blocks the writer thread
+				conn.channel().configureBlocking(false);
 			} catch (IOException e) {
-				LOG.warning("Writing latched message failed on topic="+topic);
+				LOG.warning("Cannot set up the subscriber connection on topic="+topic);
 				try {
 					conn.close();
 				} catch (IOException e1) { /* Closing failed, probably not a big deal. */}
 				return;
 			}
+			Outbox listener = new Outbox(this, conn, outboxSize);
+			Outbox[] current = listeners;
+			Outbox[] updated = Arrays.copyOf(current, current.length + 1);
+			updated[current.length] = listener;
+			listeners = updated;
+			Writer.INSTANCE.add(listener);
+			this.notifyAll();
 		}
-		listeners.add(conn);
-		this.notifyAll();
+		// Outside the lock, so the dependent actions may take their own locks
+		// and publish
+		connected.complete(this);
+	}
+
+	/**
+	 * Close the connections to the subscribers. Called by the node when it is
+	 * closed.
+	 */
+	synchronized void close() {
+		for (Outbox listener : listeners) {
+			try {
+				listener.conn.close();
+			} catch (IOException e) { /* Closing failed, probably not a big deal. */}
+			Writer.INSTANCE.remove(listener);
+		}
+		listeners = new Outbox[0];
+	}
+
+	/**
+	 * Link a subscriber in the same JVM, which gets message objects directly.
+	 * Called by the in-process transport.
+	 */
+	void connectLocal(Subscriber<?> sub) {
+		LOG.fine("Handling in-process subscriber for topic: "+topic);
+		synchronized (this) {
+			if (latching && lastValue != null) {
+				sub.offerLocal(Outbox.toMessage(lastValue, lastBits));
+			}
+			Subscriber<?>[] current = localSubscribers;
+			Subscriber<?>[] updated = Arrays.copyOf(current, current.length + 1);
+			updated[current.length] = sub;
+			localSubscribers = updated;
+			this.notifyAll();
+		}
+		connected.complete(this);
+	}
+
+	/**
+	 * Record every message published from now on, or stop recording.
+	 * Called by the node.
+	 */
+	void setRecording(TopicRecorder.Channel recording) {
+		this.recording = recording;
+	}
+
+	/**
+	 * Unlink a subscriber in the same JVM. Called by the in-process transport
+	 * when a node is closed.
+	 */
+	synchronized void disconnectLocal(Subscriber<?> sub) {
+		Subscriber<?>[] current = localSubscribers;
+		for (int i = 0; i < current.length; i++) {
+			if (current[i] == sub) {
+				Subscriber<?>[] updated = new Subscriber<?>[current.length - 1];
+				System.arraycopy(current, 0, updated, 0, i);
+				System.arraycopy(current, i + 1, updated, i, updated.length - i);
+				localSubscribers = updated;
+				return;
+			}
+		}
+	}
+
+	private boolean isConnected() {
+		return listeners.length != 0 || localSubscribers.length != 0;
+	}
+
+	/**
+	 * Get a future which completes when the first subscriber connects, for
+	 * callers which must not block until then. Its dependent actions run on
+	 * the thread which connects the subscriber, unless it has already
+	 * completed.
+	 *
+	 * @return The future, which completes with this publisher
+	 */
+	public CompletableFuture<Publisher<T>> whenConnected() {
+		return connected;
 	}
 
 	public synchronized void waitForConnection() throws InterruptedException {
-		while (this.listeners.isEmpty()) {
+		while (!isConnected()) {
 			this.wait();
 		}
 	}
@@ -102,7 +382,7 @@ public class Publisher<T extends Message> implements PublisherRecord {
 	public synchronized boolean waitForConnection(long timeout_millis) throws InterruptedException {
 		long start = System.currentTimeMillis();
 
-		while (this.listeners.isEmpty()) {
+		while (!isConnected()) {
 			long remain = timeout_millis - (System.currentTimeMillis() - start);
 			if (remain <= 0) {
 				break;
@@ -110,10 +390,222 @@ public class Publisher<T extends Message> implements PublisherRecord {
 			this.wait(remain);
 		}
 
-		return !this.listeners.isEmpty();
+		return isConnected();
 	}
 
 	public void setLatchMode(boolean b) {
 		latching = b;
 	}
+
+	/**
+	 * The messages waiting to be written to one subscriber.
+	 *
+	 * A message is stored as a value and a long. The value is either a
+	 * Message, a String for a String message, {@link #TRUE} or {@link #FALSE}
+	 * for a Bool message, or {@link #FLOAT64} for a Float64 message whose
+	 * bits are in the long, so scalars are queued without boxing.
+	 */
+	private static final class Outbox {
+		static final Object FLOAT64 = new Object();
+		static final Object TRUE = new Object();
+		static final Object FALSE = new Object();
+
+		final Publisher<?> publisher;
+		final Connection conn;
+		// QUEUED messages, guarded by this
+		private final Object[] ring;
+		private final long[] ringBits;
+		private int head = 0;
+		private int count = 0;
+		// The LATEST message. The bits are written before the value, so the
+		// writer never sees a value with older bits.
+		private final AtomicReference<Object> latest = new AtomicReference<>();
+		private volatile long latestBits;
+		// The message returned by the last poll()
+		long polledBits;
+
+		Outbox(Publisher<?> publisher, Connection conn, int size) {
+			this.publisher = publisher;
+			this.conn = conn;
+			ring = new Object[size];
+			ringBits = new long[size];
+		}
+
+		void offer(Object value, long bits, boolean conflate) {
+			if (conflate) {
+				latestBits = bits;
+				if (latest.getAndSet(value) != null) {
+					publisher.metrics.conflated();
+				}
+				return;
+			}
+			synchronized (this) {
+				if (count == ring.length) {
+					// Drop the oldest message
+					ring[head] = null;
+					head = (head + 1) % ring.length;
+					count--;
+					publisher.metrics.dropped();
+				}
+				int tail = (head + count) % ring.length;
+				ring[tail] = value;
+				ringBits[tail] = bits;
+				count++;
+			}
+		}
+
+		synchronized int depth() {
+			return count + (latest.get() != null ? 1 : 0);
+		}
+
+		/**
+		 * Take the next message. Only called by the writer thread.
+		 *
+		 * @return The value of the message, with its bits in polledBits, or
+		 *         null if there is no message
+		 */
+		Object poll() {
+			synchronized (this) {
+				if (count > 0) {
+					Object value = ring[head];
+					polledBits = ringBits[head];
+					ring[head] = null;
+					head = (head + 1) % ring.length;
+					count--;
+					return value;
+				}
+			}
+			Object value = latest.getAndSet(null);
+			polledBits = latestBits;
+			return value;
+		}
+
+		/**
+		 * Build the message for a value, for subscribers which take message
+		 * objects.
+		 */
+		static Message toMessage(Object value, long bits) {
+			if (value == FLOAT64) {
+				return Msgs.Float64(Double.longBitsToDouble(bits));
+			} else if (value == TRUE || value == FALSE) {
+				return Msgs.Bool(value == TRUE);
+			} else if (value instanceof String) {
+				return Msgs.String((String) value);
+			} else {
+				return (Message) value;
+			}
+		}
+
+		static void write(Connection conn, Object value, long bits, TopicMetrics metrics)
+				throws IOException {
+			int size;
+			if (value == FLOAT64) {
+				conn.writeFloat64(Double.longBitsToDouble(bits));
+				size = ScalarWire.float64Size();
+			} else if (value == TRUE || value == FALSE) {
+				conn.writeBool(value == TRUE);
+				size = ScalarWire.boolSize();
+			} else if (value instanceof String) {
+				conn.writeString((String) value);
+				size = ScalarWire.stringSize((String) value);
+			} else {
+				conn.write((Message) value);
+				// Memoized by the write
+				size = ((Message) value).getSerializedSize();
+			}
+			metrics.messageOut(size);
+		}
+	}
+
+	/**
+	 * The thread which writes the queued messages of every publisher.
+	 *
+	 * The subscriber connections are non-blocking, so the writer never waits
+	 * for one subscriber. An outbox whose socket is full is skipped, keeping
+	 * its messages under its policy, and retried about once a millisecond
+	 * until the socket has room, while the other outboxes are still written.
+	 */
+	private static final class Writer implements Runnable {
+		static final Writer INSTANCE = new Writer();
+
+		private static final long RETRY_NANOS = 1000000L;
+
+		private final AtomicBoolean pending = new AtomicBoolean();
+		private volatile Outbox[] outboxes = new Outbox[0];
+		private final Thread thread;
+
+		private Writer() {
+			thread = new Thread(this, "Gazebo Publisher");
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		synchronized void add(Outbox outbox) {
+			Outbox[] current = outboxes;
+			Outbox[] updated = Arrays.copyOf(current, current.length + 1);
+			updated[current.length] = outbox;
+			outboxes = updated;
+		}
+
+		synchronized void remove(Outbox outbox) {
+			Outbox[] current = outboxes;
+			int index = Arrays.asList(current).indexOf(outbox);
+			if (index < 0) {
+				return;
+			}
+			Outbox[] updated = new Outbox[current.length - 1];
+			System.arraycopy(current, 0, updated, 0, index);
+			System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+			outboxes = updated;
+		}
+
+		void wake() {
+			if (!pending.getAndSet(true)) {
+				LockSupport.unpark(thread);
+			}
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				pending.set(false);
+				boolean blocked = false;
+				for (Outbox outbox : outboxes) {
+					blocked |= !drain(outbox);
+				}
+				if (blocked) {
+					LockSupport.parkNanos(this, RETRY_NANOS);
+				} else if (!pending.get()) {
+					LockSupport.park(this);
+				}
+			}
+		}
+
+		/**
+		 * Write an outbox's messages until it is empty or its socket is full.
+		 *
+		 * @return False if the socket is full
+		 */
+		private static boolean drain(Outbox outbox) {
+			try {
+				if (!outbox.conn.flushPending()) {
+					return false;
+				}
+				Object value;
+				while ((value = outbox.poll()) != null) {
+					Outbox.write(outbox.conn, value, outbox.polledBits, outbox.publisher.metrics);
+					if (outbox.conn.hasPendingWrites()) {
+						return false;
+					}
+				}
+			} catch (IOException e) {
+				outbox.publisher.remove(outbox);
+			} catch (RuntimeException e) {
+				// Don't let one subscriber stop the writes to every other one
+				LOG.log(Level.SEVERE, "Cannot write to a subscriber of "
+						+ outbox.publisher.topic, e);
+			}
+			return true;
+		}
+	}
 }
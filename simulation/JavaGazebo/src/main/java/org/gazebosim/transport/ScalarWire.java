@@ -0,0 +1,149 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package org.gazebosim.transport;
+
+import gazebo.msgs.GzBool.Bool;
+import gazebo.msgs.GzFloat64.Float64;
+import gazebo.msgs.GzString;
+
+import java.io.IOException;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.WireFormat;
+
+/**
+ * Encodes and decodes the scalar Gazebo messages without building message
+ * objects.
+ *
+ * {@link Float64}, {@link Bool} and {@link GzString.String} each hold a single
+ * required field number 1, so their wire format is one tag followed by the
+ * value. These methods write and read exactly the bytes the generated classes
+ * do, so either side of a topic may use the generated classes instead.
+ */
+public final class ScalarWire {
+	public static final String FLOAT64_TYPE = Float64.getDescriptor().getFullName();
+	public static final String BOOL_TYPE = Bool.getDescriptor().getFullName();
+	public static final String STRING_TYPE = GzString.String.getDescriptor().getFullName();
+
+	private static final int DATA_FIELD = 1;
+	// A tag is the field number shifted past the three wire type bits
+	private static final int FLOAT64_TAG = (DATA_FIELD << 3) | WireFormat.WIRETYPE_FIXED64;
+	private static final int BOOL_TAG = (DATA_FIELD << 3) | WireFormat.WIRETYPE_VARINT;
+	private static final int STRING_TAG = (DATA_FIELD << 3) | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+
+	private ScalarWire() {
+	}
+
+	/**
+	 * @return The serialized size of a Float64 message
+	 */
+	public static int float64Size() {
+		return CodedOutputStream.computeDoubleSize(DATA_FIELD, 0);
+	}
+
+	/**
+	 * @return The serialized size of a Bool message
+	 */
+	public static int boolSize() {
+		return CodedOutputStream.computeBoolSize(DATA_FIELD, false);
+	}
+
+	/**
+	 * @return The serialized size of a String message holding s
+	 */
+	public static int stringSize(String s) {
+		return CodedOutputStream.computeStringSize(DATA_FIELD, s);
+	}
+
+	public static void writeFloat64(CodedOutputStream out, double value) throws IOException {
+		out.writeDouble(DATA_FIELD, value);
+	}
+
+	public static void writeBool(CodedOutputStream out, boolean value) throws IOException {
+		out.writeBool(DATA_FIELD, value);
+	}
+
+	public static void writeString(CodedOutputStream out, String value) throws IOException {
+		out.writeString(DATA_FIELD, value);
+	}
+
+	/**
+	 * Read a serialized Float64 message. Unknown fields are skipped, as the
+	 * generated parser does.
+	 *
+	 * @throws InvalidProtocolBufferException if the data field is missing
+	 */
+	public static double readFloat64(CodedInputStream in) throws IOException {
+		double value = 0;
+		boolean found = false;
+		int tag;
+		while ((tag = in.readTag()) != 0) {
+			if (tag == FLOAT64_TAG) {
+				value = in.readDouble();
+				found = true;
+			} else if (!in.skipField(tag)) {
+				break;
+			}
+		}
+		if (!found) {
+			throw missingData(FLOAT64_TYPE);
+		}
+		return value;
+	}
+
+	/**
+	 * Read a serialized Bool message.
+	 *
+	 * @throws InvalidProtocolBufferException if the data field is missing
+	 */
+	public static boolean readBool(CodedInputStream in) throws IOException {
+		boolean value = false;
+		boolean found = false;
+		int tag;
+		while ((tag = in.readTag()) != 0) {
+			if (tag == BOOL_TAG) {
+				value = in.readBool();
+				found = true;
+			} else if (!in.skipField(tag)) {
+				break;
+			}
+		}
+		if (!found) {
+			throw missingData(BOOL_TYPE);
+		}
+		return value;
+	}
+
+	/**
+	 * Read a serialized String message.
+	 *
+	 * @throws InvalidProtocolBufferException if the data field is missing
+	 */
+	public static String readString(CodedInputStream in) throws IOException {
+		String value = null;
+		int tag;
+		while ((tag = in.readTag()) != 0) {
+			if (tag == STRING_TAG) {
+				value = in.readString();
+			} else if (!in.skipField(tag)) {
+				break;
+			}
+		}
+		if (value == null) {
+			throw missingData(STRING_TYPE);
+		}
+		return value;
+	}
+
+	private static InvalidProtocolBufferException missingData(String type) {
+		return new InvalidProtocolBufferException("Message missing required fields: data ("
+				+ type + ")");
+	}
+}
@@ -10,8 +10,15 @@ package org.gazebosim.transport;
 import gazebo.msgs.GzSubscribe.Subscribe;
 
 import java.io.IOException;
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.google.protobuf.Message;
@@ -19,36 +26,334 @@ import com.google.protobuf.Parser;
 
 public class Subscriber<T extends Message> {
 	private String topic, msgType;
-	private SubscriberCallback<T> cb;
+	// Every local callback, copied on write so delivering a message does not
+	// need a lock
+	private volatile SubscriberCallback<T>[] callbacks;
 	private Parser<T> deserializer;
 	@SuppressWarnings("unused")
 	private String localHost;
 	@SuppressWarnings("unused")
 	private int localPort;
 	private List<Connection> connections;
+	// The host:port of each publisher connected to, since the master may
+	// announce a publisher which is already known
+	private final Set<String> publisherAddresses = new HashSet<>();
+	private EventLoop loop;
+	private volatile boolean conflating = false;
+	// The inbox used by the in-process transport
+	private Dispatcher dispatcher;
+	private Queue<T> localQueue;
+	private AtomicReference<Latest<T>> localLatest;
+	private final TopicMetrics metrics;
+	private volatile TopicRecorder.Channel recording;
+	private volatile boolean closed = false;
 	private static final Logger LOG = Logger.getLogger("Gazebo Transport");
 
-	@SuppressWarnings("unchecked")
+	@SuppressWarnings({"unchecked", "rawtypes"})
 	public Subscriber(String topic, String msgType, SubscriberCallback<T> cb,
 			T deserializer, String localHost, int localPort) {
 		this.topic = topic;
 		this.msgType = msgType;
-		this.cb = cb;
+		this.callbacks = new SubscriberCallback[] {cb};
 		this.deserializer = (Parser<T>) deserializer.getParserForType();
 		this.localHost = localHost;
 		this.localPort = localPort;
-		connections = new LinkedList<>();
+		connections = new CopyOnWriteArrayList<>();
+		metrics = TransportMetrics.forTopic(topic);
+		metrics.setSubscriber(this);
+	}
+
+	/**
+	 * Create a subscriber whose connections are run by an event loop instead
+	 * of a thread each.
+	 */
+	Subscriber(String topic, String msgType, SubscriberCallback<T> cb,
+			T deserializer, String localHost, int localPort, EventLoop loop) {
+		this(topic, msgType, cb, deserializer, localHost, localPort);
+		this.loop = loop;
+	}
+
+	/**
+	 * Create a subscriber which receives message objects from publishers in
+	 * the same JVM, and whose callbacks are run by a dispatcher.
+	 */
+	Subscriber(String topic, String msgType, SubscriberCallback<T> cb,
+			T deserializer, Dispatcher dispatcher) {
+		this(topic, msgType, cb, deserializer, null, 0);
+		this.dispatcher = dispatcher;
+		localQueue = new ConcurrentLinkedQueue<>();
+		localLatest = new AtomicReference<>();
+	}
+
+	/**
+	 * In conflating mode, all of the frames which have arrived are drained
+	 * and only the newest one is parsed and passed to the callback. This is
+	 * meant for topics where only the latest value matters, such as sensor
+	 * readings, so the parsing cost stays flat when the publisher sends
+	 * faster than the values are used.
+	 *
+	 * @param conflating True to only deliver the newest message
+	 */
+	public void setConflating(boolean conflating) {
+		this.conflating = conflating;
+	}
+
+	public boolean isConflating() {
+		return conflating;
+	}
+
+	/**
+	 * @return The topic name
+	 */
+	public String getTopic() {
+		return topic;
+	}
+
+	/**
+	 * @return The full name of the message type of the topic
+	 */
+	public String getMsgType() {
+		return msgType;
+	}
+
+	/**
+	 * @return The metrics of this topic
+	 */
+	public TopicMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * @return The number of messages waiting to be delivered
+	 */
+	int getQueueDepth() {
+		if (localQueue == null) {
+			return 0;
+		}
+		// This walks the queue, but it is only called when the metrics are read
+		return localQueue.size() + (localLatest.get() != null ? 1 : 0);
+	}
+
+	/**
+	 * Add another local callback. Each message is parsed once and passed to
+	 * every callback, in the order they were added, without opening another
+	 * connection to the publishers.
+	 *
+	 * @param cb The callback to add
+	 */
+	public synchronized void addCallback(SubscriberCallback<T> cb) {
+		SubscriberCallback<T>[] current = callbacks;
+		SubscriberCallback<T>[] updated = Arrays.copyOf(current, current.length + 1);
+		updated[current.length] = cb;
+		callbacks = updated;
+	}
+
+	/**
+	 * Stop passing messages to a callback. The connections stay open, even if
+	 * no callbacks are left.
+	 *
+	 * @param cb The callback to remove
+	 * @return False if the callback was not found
+	 */
+	public synchronized boolean removeCallback(SubscriberCallback<T> cb) {
+		SubscriberCallback<T>[] current = callbacks;
+		int index = Arrays.asList(current).indexOf(cb);
+		if (index < 0) {
+			return false;
+		}
+		SubscriberCallback<T>[] updated = Arrays.copyOf(current, current.length - 1);
+		System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+		callbacks = updated;
+		return true;
+	}
+
+	/**
+	 * Pass a message to every callback. A callback which throws does not
+	 * stop the others from getting the message.
+	 */
+	private void deliver(T msg) {
+		long start = System.nanoTime();
+		for (SubscriberCallback<T> cb : callbacks) {
+			try {
+				cb.callback(msg);
+			} catch (RuntimeException e) {
+				LOG.log(Level.SEVERE, "Exception in callback for " + topic, e);
+			}
+		}
+		metrics.delivered(System.nanoTime() - start);
+	}
+
+	/**
+	 * Parse the current frame of a reader and pass it to the callbacks. In
+	 * conflating mode, the newer frames already in the buffer are skipped to
+	 * first.
+	 */
+	private void receive(FrameReader reader) throws IOException {
+		metrics.messageIn(reader.frameLength());
+		record(reader);
+		if (conflating) {
+			while (reader.nextFrame()) {
+				metrics.conflated();
+				metrics.messageIn(reader.frameLength());
+				record(reader);
+			}
+		}
+		long start = System.nanoTime();
+		T msg = deserializer.parseFrom(reader.frameInput());
+		metrics.parsed(System.nanoTime() - start);
+		deliver(msg);
+	}
+
+	private void record(FrameReader reader) {
+		TopicRecorder.Channel rec = recording;
+		if (rec != null) {
+			rec.record(reader.frameArray(), reader.frameOffset(), reader.frameLength());
+		}
+	}
+
+	/**
+	 * Record every message received from now on, including those skipped by
+	 * conflation, or stop recording. Called by the node.
+	 */
+	void setRecording(TopicRecorder.Channel recording) {
+		this.recording = recording;
+	}
+
+	/**
+	 * Put a message from an in-process publisher in the inbox. Called on the
+	 * publishing thread.
+	 */
+	@SuppressWarnings("unchecked")
+	void offerLocal(Message msg) {
+		metrics.messageIn(0);
+		TopicRecorder.Channel rec = recording;
+		if (rec != null) {
+			rec.record(msg);
+		}
+		if (conflating) {
+			// Replace the newest message and take another slot in the
+			// dispatcher, so it is delivered after everything published
+			// before it rather than in the replaced message's place
+			Latest<T> current;
+			do {
+				current = localLatest.get();
+			} while (!localLatest.compareAndSet(current,
+					new Latest<>((T) msg, current == null ? 1 : current.slots + 1)));
+			if (current != null) {
+				metrics.conflated();
+			}
+		} else {
+			localQueue.offer((T) msg);
+		}
+		dispatcher.ready(this);
+	}
+
+	/**
+	 * Deliver the oldest message in the inbox. Called on the dispatcher
+	 * thread once for each time this subscriber was queued.
+	 */
+	void deliverLocal() {
+		T msg = localQueue.poll();
+		if (msg == null) {
+			msg = takeLatest();
+		}
+		if (msg != null) {
+			deliver(msg);
+		}
+	}
+
+	/**
+	 * Give up one of the newest message's slots, and take the message if it
+	 * was the last one.
+	 *
+	 * @return The message, or null if it has a later slot
+	 */
+	private T takeLatest() {
+		while (true) {
+			Latest<T> current = localLatest.get();
+			if (current == null) {
+				return null;
+			}
+			Latest<T> updated = current.slots > 1
+					? new Latest<>(current.msg, current.slots - 1) : null;
+			if (localLatest.compareAndSet(current, updated)) {
+				return updated == null ? current.msg : null;
+			}
+		}
+	}
+
+	/**
+	 * The newest message of a conflating in-process subscriber, with the
+	 * number of times the subscriber is queued in the dispatcher for it.
+	 */
+	private static final class Latest<T> {
+		final T msg;
+		final int slots;
+
+		Latest(T msg, int slots) {
+			this.msg = msg;
+			this.slots = slots;
+		}
+	}
+
+	/**
+	 * Close the connections to the publishers and stop connecting to new
+	 * ones. Called by the node when it is closed.
+	 */
+	void close() {
+		closed = true;
+		for (Connection conn : connections) {
+			try {
+				conn.close();
+			} catch (IOException e) {
+				// Closing failed, probably not a big deal.
+			}
+		}
+		connections.clear();
 	}
 
 	public void connect(final PublisherRecord pub) {
+		if (closed) {
+			return;
+		}
+		synchronized (publisherAddresses) {
+			if (!publisherAddresses.add(address(pub))) {
+				LOG.fine("Already connected to " + address(pub) + " for " + topic);
+				return;
+			}
+		}
+		if (loop != null) {
+			LOG.fine(String.format("CONN for %s from %s:%s\n", topic, pub.getHost(),
+										pub.getPort()));
+			loop.connect(pub.getHost(), pub.getPort(), new PublisherHandler(pub));
+			return;
+		}
 		new Thread(new Runnable() {
 			@Override
 			public void run() {
-				handle_connect(pub);
+				try {
+					handle_connect(pub);
+				} finally {
+					disconnected(pub);
+				}
 			}
 		}).start();
 	}
 
+	private static String address(PublisherRecord pub) {
+		return pub.getHost() + ":" + pub.getPort();
+	}
+
+	/**
+	 * Forget a publisher whose connection closed, so it can be connected to
+	 * again.
+	 */
+	private void disconnected(PublisherRecord pub) {
+		synchronized (publisherAddresses) {
+			publisherAddresses.remove(address(pub));
+		}
+	}
+
 	private void handle_connect(PublisherRecord pub) {
 		LOG.fine(String.format("CONN for %s from %s:%s\n", topic, pub.getHost(),
 									pub.getPort()));
@@ -56,20 +361,25 @@ public class Subscriber<T extends Message> {
 		try {
 			conn.connect(pub.getHost(), pub.getPort());
 			connections.add(conn);
+			if (closed) {
+				// Closed while connecting
+				connections.remove(conn);
+				conn.close();
+				return;
+			}
 
 			Subscribe sub = Subscribe.newBuilder().setTopic(topic)
 					.setMsgType(msgType).setHost(pub.getHost())
 					.setPort(pub.getPort()).setLatching(false).build();
 			conn.writePacket("sub", sub);
 
+			FrameReader reader = conn.reader();
 			while (true) {
-				byte[] data = conn.rawRead();
-				if (data == null) {
+				if (!reader.readFrame()) {
 					connections.remove(conn);
 					return;
 				}
-				T msg = deserializer.parseFrom(data);
-				cb.callback(msg);
+				receive(reader);
 			}
 		} catch (IOException e) {
 			// FIXME: Connection lost, let's make sure it's closed and complain.
@@ -78,7 +388,43 @@ public class Subscriber<T extends Message> {
 				conn.close();
 			} catch (IOException e1) {
 			}
-			e.printStackTrace();
+			if (!closed) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Reads messages from a publisher on the event loop thread.
+	 */
+	private class PublisherHandler implements EventLoop.Handler {
+		private final PublisherRecord pub;
+
+		PublisherHandler(PublisherRecord pub) {
+			this.pub = pub;
+		}
+
+		@Override
+		public void connected(Connection conn) throws IOException {
+			connections.add(conn);
+			Subscribe sub = Subscribe.newBuilder().setTopic(topic)
+					.setMsgType(msgType).setHost(pub.getHost())
+					.setPort(pub.getPort()).setLatching(false).build();
+			conn.writePacket("sub", sub);
+		}
+
+		@Override
+		public void frame(Connection conn, FrameReader reader) throws IOException {
+			receive(reader);
+		}
+
+		@Override
+		public void closed(Connection conn, IOException cause) {
+			connections.remove(conn);
+			disconnected(pub);
+			if (cause != null && !closed) {
+				LOG.warning("Lost connection to publisher of " + topic + ": " + cause);
+			}
 		}
 	}
 }
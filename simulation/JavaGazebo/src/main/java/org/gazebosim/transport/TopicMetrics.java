@@ -0,0 +1,160 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package org.gazebosim.transport;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The traffic on one topic in this JVM.
+ *
+ * The counters are LongAdders, which spread contended updates over several
+ * cells, so the publishing, writer and reader threads can all count without
+ * locking or contending on one cache line. Reads add the cells up, so they
+ * are meant for monitoring rather than for the hot path.
+ *
+ * Messages out are counted when they are written to a subscriber, and
+ * messages in when a frame is received, whether or not it is parsed. Both
+ * ends of a TCP link in this JVM count the message, once out and once in.
+ * A message handed to an in-process subscriber is only counted once, as a
+ * message in, with no bytes since it is never serialized.
+ *
+ * @see TransportMetrics
+ */
+public class TopicMetrics implements TopicMetricsMBean {
+	private final String topic;
+
+	private final LongAdder messagesOut = new LongAdder();
+	private final LongAdder bytesOut = new LongAdder();
+	private final LongAdder messagesIn = new LongAdder();
+	private final LongAdder bytesIn = new LongAdder();
+	private final LongAdder parsed = new LongAdder();
+	private final LongAdder parseNanos = new LongAdder();
+	private final LongAdder callbacks = new LongAdder();
+	private final LongAdder callbackNanos = new LongAdder();
+	private final LongAdder dropped = new LongAdder();
+	private final LongAdder conflated = new LongAdder();
+
+	// Where the queue depth is read from
+	private volatile Publisher<?> publisher;
+	private volatile Subscriber<?> subscriber;
+
+	TopicMetrics(String topic) {
+		this.topic = topic;
+	}
+
+	void setPublisher(Publisher<?> publisher) {
+		this.publisher = publisher;
+	}
+
+	void setSubscriber(Subscriber<?> subscriber) {
+		this.subscriber = subscriber;
+	}
+
+	void messageOut(int bytes) {
+		messagesOut.increment();
+		bytesOut.add(bytes);
+	}
+
+	void messageIn(int bytes) {
+		messagesIn.increment();
+		bytesIn.add(bytes);
+	}
+
+	void parsed(long nanos) {
+		parsed.increment();
+		parseNanos.add(nanos);
+	}
+
+	void delivered(long nanos) {
+		callbacks.increment();
+		callbackNanos.add(nanos);
+	}
+
+	void dropped() {
+		dropped.increment();
+	}
+
+	void conflated() {
+		conflated.increment();
+	}
+
+	@Override
+	public String getTopic() {
+		return topic;
+	}
+
+	@Override
+	public long getMessagesOut() {
+		return messagesOut.sum();
+	}
+
+	@Override
+	public long getBytesOut() {
+		return bytesOut.sum();
+	}
+
+	@Override
+	public long getMessagesIn() {
+		return messagesIn.sum();
+	}
+
+	@Override
+	public long getBytesIn() {
+		return bytesIn.sum();
+	}
+
+	@Override
+	public double getMeanParseMicros() {
+		long n = parsed.sum();
+		return n == 0 ? 0.0 : parseNanos.sum() / 1e3 / n;
+	}
+
+	@Override
+	public double getMeanCallbackMicros() {
+		long n = callbacks.sum();
+		return n == 0 ? 0.0 : callbackNanos.sum() / 1e3 / n;
+	}
+
+	@Override
+	public int getQueueDepth() {
+		int depth = 0;
+		Publisher<?> pub = publisher;
+		if (pub != null) {
+			depth += pub.getQueueDepth();
+		}
+		Subscriber<?> sub = subscriber;
+		if (sub != null) {
+			depth += sub.getQueueDepth();
+		}
+		return depth;
+	}
+
+	@Override
+	public long getDropped() {
+		return dropped.sum();
+	}
+
+	@Override
+	public long getConflated() {
+		return conflated.sum();
+	}
+
+	@Override
+	public void reset() {
+		messagesOut.reset();
+		bytesOut.reset();
+		messagesIn.reset();
+		bytesIn.reset();
+		parsed.reset();
+		parseNanos.reset();
+		callbacks.reset();
+		callbackNanos.reset();
+		dropped.reset();
+		conflated.reset();
+	}
+}
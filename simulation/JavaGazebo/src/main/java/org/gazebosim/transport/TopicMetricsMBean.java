@@ -0,0 +1,52 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package org.gazebosim.transport;
+
+/**
+ * The JMX view of a topic's {@link TopicMetrics}.
+ */
+public interface TopicMetricsMBean {
+	String getTopic();
+
+	long getMessagesOut();
+
+	long getBytesOut();
+
+	long getMessagesIn();
+
+	long getBytesIn();
+
+	/**
+	 * @return The mean time to parse a received message in microseconds
+	 */
+	double getMeanParseMicros();
+
+	/**
+	 * @return The mean time to run the callbacks for a message in
+	 *         microseconds
+	 */
+	double getMeanCallbackMicros();
+
+	/**
+	 * @return The number of messages waiting to be written or delivered
+	 */
+	int getQueueDepth();
+
+	/**
+	 * @return The number of queued messages dropped because a queue was full
+	 */
+	long getDropped();
+
+	/**
+	 * @return The number of messages replaced by a newer one before they
+	 *         were written or delivered
+	 */
+	long getConflated();
+
+	void reset();
+}
@@ -0,0 +1,228 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package org.gazebosim.transport;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Message;
+
+import gazebo.msgs.GzFloat64.Float64;
+
+/**
+ * Records every message a node publishes or receives to a file, so a session
+ * can be replayed later with a {@link TopicReplayer}. A recorder is attached
+ * with {@link Node#setRecorder(TopicRecorder)}.
+ *
+ * Each message is stamped with the simulation time, which is the last value
+ * seen on the {@link #TIME_TOPIC} topic. The topic names are recorded
+ * relative to the node, such as "simulator/pwm/1", so a recording can be
+ * replayed to a node of another name.
+ *
+ * The file is append-only. It starts with the 8 byte {@link #MAGIC}, followed
+ * by records which each start with their length, so a file cut short by a
+ * crash can be read up to the last whole record. If a write fails, the error
+ * is logged and nothing more is recorded, so the file can be read the same
+ * way. All numbers are big-endian:
+ *
+ * <pre>
+ * record  = length:int32 kind:int8 body        (length counts kind and body)
+ * TOPIC   = id:uint16 published:int8 name:string type:string
+ * MESSAGE = id:uint16 time:float64 payload     (the serialized message)
+ * string  = length:uint16 UTF-8 bytes
+ * </pre>
+ *
+ * A TOPIC record comes before the first message of its topic. A topic which
+ * the node both publishes and receives has a TOPIC record for each direction.
+ */
+public class TopicRecorder implements Closeable {
+	/**
+	 * The first bytes of a recording.
+	 */
+	public static final byte[] MAGIC = {'G', 'Z', 'R', 'E', 'C', 0, 0, 1};
+
+	/**
+	 * The topic, relative to the node, which the messages are stamped from.
+	 */
+	public static final String TIME_TOPIC = "time";
+
+	static final byte TOPIC = 1, MESSAGE = 2;
+
+	private static final Logger LOG = Logger.getLogger("Gazebo Transport");
+
+	private final Path path;
+	// Guarded by this
+	private final DataOutputStream out;
+	private int topicCount = 0;
+	private boolean failed = false;
+	private boolean closed = false;
+	private volatile double time = 0;
+
+	/**
+	 * One direction of a topic, which a publisher or subscriber records
+	 * through.
+	 */
+	final class Channel {
+		private final int id;
+		private final boolean isTime;
+
+		Channel(int id, boolean isTime) {
+			this.id = id;
+			this.isTime = isTime;
+		}
+
+		void record(Message msg) {
+			if (isTime && msg instanceof Float64) {
+				time = ((Float64) msg).getData();
+			}
+			int size = msg.getSerializedSize();
+			synchronized (TopicRecorder.this) {
+				if (closed || failed) {
+					return;
+				}
+				try {
+					beginMessage(id, size);
+					msg.writeTo(out);
+				} catch (IOException e) {
+					fail(e);
+				}
+			}
+		}
+
+		void record(byte[] payload, int offset, int length) {
+			if (isTime) {
+				try {
+					time = Float64.parseFrom(ByteString.copyFrom(payload, offset, length)).getData();
+				} catch (IOException e) {
+					// Not a time message, keep the last time
+				}
+			}
+			synchronized (TopicRecorder.this) {
+				if (closed || failed) {
+					return;
+				}
+				try {
+					beginMessage(id, length);
+					out.write(payload, offset, length);
+				} catch (IOException e) {
+					fail(e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Create a recording, replacing any file at the path.
+	 *
+	 * @param path The file to record to
+	 */
+	public TopicRecorder(Path path) throws IOException {
+		this.path = path;
+		out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path,
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE), 1 << 16));
+		out.write(MAGIC);
+	}
+
+	/**
+	 * Start recording a topic. Called by the node for each of its publishers
+	 * and subscribers.
+	 *
+	 * @param topic The topic name, relative to the node
+	 * @param type The full name of the message type
+	 * @param published True if the node publishes the topic, false if it
+	 *        receives it
+	 */
+	synchronized Channel open(String topic, String type, boolean published) {
+		int id = topicCount++;
+		if (id > 0xFFFF) {
+			throw new IllegalStateException("Too many topics to record " + topic);
+		}
+		byte[] name = topic.getBytes(StandardCharsets.UTF_8);
+		byte[] typeName = type.getBytes(StandardCharsets.UTF_8);
+		if (closed || failed) {
+			return new Channel(id, false);
+		}
+		try {
+			out.writeInt(1 + 2 + 1 + 2 + name.length + 2 + typeName.length);
+			out.writeByte(TOPIC);
+			out.writeShort(id);
+			out.writeByte(published ? 1 : 0);
+			out.writeShort(name.length);
+			out.write(name);
+			out.writeShort(typeName.length);
+			out.write(typeName);
+		} catch (IOException e) {
+			fail(e);
+		}
+		return new Channel(id, topic.equals(TIME_TOPIC));
+	}
+
+	private void beginMessage(int id, int size) throws IOException {
+		out.writeInt(1 + 2 + 8 + size);
+		out.writeByte(MESSAGE);
+		out.writeShort(id);
+		out.writeDouble(time);
+	}
+
+	/**
+	 * Stop recording after a write fails. A record may be cut short, so
+	 * nothing more is appended; the replayer reads up to the last whole
+	 * record.
+	 */
+	private void fail(IOException e) {
+		if (!failed) {
+			failed = true;
+			LOG.log(Level.SEVERE, "Could not record to " + path + ", recording stopped", e);
+		}
+	}
+
+	/**
+	 * @return True if a write failed and recording has stopped
+	 */
+	public synchronized boolean hasFailed() {
+		return failed;
+	}
+
+	/**
+	 * @return The simulation time the next message will be stamped with
+	 */
+	public double getTime() {
+		return time;
+	}
+
+	/**
+	 * Write the buffered records to the file.
+	 */
+	public synchronized void flush() throws IOException {
+		if (!closed) {
+			out.flush();
+		}
+	}
+
+	/**
+	 * Write the buffered records and close the file. Messages are not
+	 * recorded afterwards.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (!closed) {
+			closed = true;
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,369 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package org.gazebosim.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+import com.google.protobuf.Message;
+
+import gazebo.msgs.GzBool;
+import gazebo.msgs.GzDriverStation;
+import gazebo.msgs.GzFloat64;
+import gazebo.msgs.GzFloat64.Float64;
+import gazebo.msgs.GzJoystick;
+import gazebo.msgs.GzString;
+import gazebo.msgs.GzTime;
+
+/**
+ * Plays back a recording made by a {@link TopicRecorder}, so robot code can be
+ * run against the sensor values and driver station state of a real session
+ * without Gazebo.
+ *
+ * The topics which the recorded node received, such as the sensors, the
+ * driver station and the time, are published again on a node with the
+ * robot's name. The topics which the recorded node published, such as the
+ * motors, are subscribed to so the robot's publishers connect, but are
+ * otherwise ignored. Each replayed topic is latched, so a device created
+ * after its first message still gets the current value.
+ *
+ * A robot in lockstep mode drives the replay itself once
+ * {@link #startLockstep()} is called: each step request publishes the
+ * recorded messages up to the requested time. Otherwise {@link #run(double)}
+ * plays the recording at a chosen rate, or as fast as possible.
+ *
+ * The file is memory-mapped, so opening a long recording does not read it
+ * all into the heap. Each message is copied into a reused scratch array
+ * when it is published, and parsed from there.
+ */
+public class TopicReplayer implements Closeable {
+	private static final Logger LOG = Logger.getLogger("Gazebo Transport");
+
+	private final Path path;
+	private final FileChannel file;
+	private final ByteBuffer buffer;
+	// The end of the last whole record
+	private final int limit;
+	private final List<Topic> topics = new ArrayList<>();
+	private final Map<String, Message> types = new HashMap<>();
+
+	// Guarded by this
+	private Node node;
+	private Publisher<Float64> timePub;
+	private int position = TopicRecorder.MAGIC.length;
+	private double time = 0;
+	private byte[] scratch = new byte[256];
+	private boolean closed = false;
+
+	/**
+	 * One direction of a recorded topic.
+	 */
+	private static final class Topic {
+		final String name;
+		final String type;
+		final boolean published;
+		Publisher<Message> pub;
+
+		Topic(String name, String type, boolean published) {
+			this.name = name;
+			this.type = type;
+			this.published = published;
+		}
+	}
+
+	/**
+	 * Open a recording. A file cut short by a crash is read up to its last
+	 * whole record.
+	 *
+	 * @param path The file to replay
+	 * @throws IOException If the file cannot be read or is not a recording
+	 */
+	public TopicReplayer(Path path) throws IOException {
+		this.path = path;
+		file = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			long size = file.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("The recording " + path + " is too large to map");
+			}
+			MappedByteBuffer mapped = file.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			byte[] magic = new byte[TopicRecorder.MAGIC.length];
+			if (size < magic.length) {
+				throw new IOException(path + " is not a recording");
+			}
+			mapped.get(magic);
+			if (!Arrays.equals(magic, TopicRecorder.MAGIC)) {
+				throw new IOException(path + " is not a recording");
+			}
+			buffer = mapped;
+			limit = scan();
+		} catch (IOException | RuntimeException e) {
+			file.close();
+			throw e;
+		}
+
+		register(GzBool.Bool.getDefaultInstance());
+		register(GzDriverStation.DriverStation.getDefaultInstance());
+		register(GzFloat64.Float64.getDefaultInstance());
+		register(GzJoystick.Joystick.getDefaultInstance());
+		register(GzString.String.getDefaultInstance());
+		register(GzTime.Time.getDefaultInstance());
+	}
+
+	/**
+	 * Read the topic records and find the end of the last whole record.
+	 */
+	private int scan() throws IOException {
+		int pos = TopicRecorder.MAGIC.length;
+		while (pos + 4 <= buffer.limit()) {
+			int length = buffer.getInt(pos);
+			if (length < 1 || length > buffer.limit() - pos - 4) {
+				if (length > 0) {
+					LOG.warning("The recording " + path + " ends with a partial record");
+				}
+				break;
+			}
+			if (buffer.get(pos + 4) == TopicRecorder.TOPIC) {
+				int at = pos + 5;
+				int id = buffer.getShort(at) & 0xFFFF;
+				boolean published = buffer.get(at + 2) != 0;
+				String name = getString(at + 3);
+				String type = getString(at + 3 + 2 + (buffer.getShort(at + 3) & 0xFFFF));
+				while (topics.size() <= id) {
+					topics.add(null);
+				}
+				topics.set(id, new Topic(name, type, published));
+			}
+			pos += 4 + length;
+		}
+		return pos;
+	}
+
+	private String getString(int at) {
+		byte[] bytes = new byte[buffer.getShort(at) & 0xFFFF];
+		ByteBuffer string = buffer.duplicate();
+		string.position(at + 2);
+		string.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Add a message type to replay. The types the simulated robot uses are
+	 * known already; topics of other types are skipped unless registered
+	 * before {@link #connect(Node)}.
+	 *
+	 * @param defaultInstance The default instance of the type
+	 */
+	public synchronized void register(Message defaultInstance) {
+		types.put(defaultInstance.getDescriptorForType().getFullName(), defaultInstance);
+	}
+
+	/**
+	 * Advertise the recorded inputs on a node and subscribe to the recorded
+	 * outputs.
+	 *
+	 * @param node The node, which must have the same name as the robot's
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized void connect(Node node) {
+		if (this.node != null) {
+			throw new IllegalStateException("The replayer is already connected");
+		}
+		this.node = node;
+		for (Topic topic : topics) {
+			if (topic == null) {
+				continue;
+			}
+			Message type = types.get(topic.type);
+			if (type == null) {
+				LOG.warning("Not replaying " + topic.name + ", its type " + topic.type
+						+ " is not registered");
+			} else if (topic.published) {
+				node.subscribe(topic.name, type, new SubscriberCallback<Message>() {
+					@Override
+					public void callback(Message msg) {
+					}
+				});
+			} else {
+				topic.pub = node.advertise(topic.name, type);
+				topic.pub.setLatchMode(true);
+				if (topic.name.equals(TopicRecorder.TIME_TOPIC) && type instanceof Float64) {
+					timePub = (Publisher<Float64>) (Publisher<?>) topic.pub;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Publish the messages recorded before the first time, then answer the
+	 * step requests of a robot in lockstep mode. Each request publishes the
+	 * recorded messages up to the requested time, and then the time. Once the
+	 * recording is finished, the time is still published so the robot keeps
+	 * running.
+	 */
+	public synchronized void startLockstep() {
+		if (node == null) {
+			throw new IllegalStateException("The replayer is not connected");
+		}
+		if (timePub == null) {
+			timePub = node.advertise(TopicRecorder.TIME_TOPIC, Msgs.Float64());
+			timePub.setLatchMode(true);
+		}
+		step(0);
+		node.subscribe(TopicRecorder.TIME_TOPIC + LockstepClock.STEP_SUFFIX, Msgs.Float64(),
+				new SubscriberCallback<Float64>() {
+					@Override
+					public void callback(Float64 msg) {
+						step(msg.getData());
+					}
+				});
+	}
+
+	private synchronized void step(double target) {
+		advanceTo(target);
+		if (time < target - LockstepClock.TOLERANCE) {
+			time = target;
+			timePub.publishFloat64(target);
+		}
+	}
+
+	/**
+	 * Publish the recorded messages up to a time. Stops after the message on
+	 * the time topic which reaches the target, so the sensor values of the
+	 * following step are not published early.
+	 *
+	 * @param target The simulation time in seconds
+	 * @return False if the recording is finished
+	 */
+	public synchronized boolean advanceTo(double target) {
+		if (node == null) {
+			throw new IllegalStateException("The replayer is not connected");
+		}
+		while (position < limit && !closed) {
+			int length = buffer.getInt(position);
+			int at = position + 4;
+			if (buffer.get(at) == TopicRecorder.MESSAGE) {
+				if (buffer.getDouble(at + 3) > target + LockstepClock.TOLERANCE) {
+					return true;
+				}
+				int id = buffer.getShort(at + 1) & 0xFFFF;
+				Message msg = publish(id, at + 11, length - 11);
+				position = at + length;
+				if (msg instanceof Float64 && topics.get(id).name.equals(TopicRecorder.TIME_TOPIC)) {
+					time = ((Float64) msg).getData();
+					if (time >= target - LockstepClock.TOLERANCE) {
+						return true;
+					}
+				}
+			} else {
+				position = at + length;
+			}
+		}
+		return false;
+	}
+
+	private Message publish(int id, int offset, int length) {
+		Topic topic = id < topics.size() ? topics.get(id) : null;
+		if (topic == null || topic.pub == null) {
+			return null;
+		}
+		if (scratch.length < length) {
+			scratch = new byte[Math.max(length, scratch.length * 2)];
+		}
+		ByteBuffer message = buffer.duplicate();
+		message.position(offset);
+		message.get(scratch, 0, length);
+		Message msg;
+		try {
+			msg = types.get(topic.type).getParserForType().parseFrom(scratch, 0, length);
+		} catch (IOException e) {
+			LOG.warning("Skipping a message on " + topic.name + " which could not be parsed");
+			return null;
+		}
+		topic.pub.publish(msg);
+		return msg;
+	}
+
+	/**
+	 * Play the whole recording, publishing each message when the time it was
+	 * recorded at comes round.
+	 *
+	 * @param rate How many times faster than real time to play, or zero to
+	 *        play as fast as possible
+	 */
+	public void run(double rate) throws InterruptedException {
+		long start = System.nanoTime();
+		double first = Double.NaN;
+		double next;
+		while (!Double.isNaN(next = nextTime())) {
+			if (Double.isNaN(first)) {
+				first = next;
+			}
+			if (rate > 0) {
+				long due = start + (long) ((next - first) / rate * 1e9);
+				long wait;
+				while ((wait = due - System.nanoTime()) > 0) {
+					LockSupport.parkNanos(wait);
+					if (Thread.interrupted()) {
+						throw new InterruptedException();
+					}
+				}
+			}
+			advanceTo(next);
+		}
+	}
+
+	/**
+	 * @return The time of the next message, or NaN if the recording is
+	 *         finished
+	 */
+	private synchronized double nextTime() {
+		for (int pos = position; pos < limit && !closed; pos += 4 + buffer.getInt(pos)) {
+			if (buffer.get(pos + 4) == TopicRecorder.MESSAGE) {
+				return buffer.getDouble(pos + 4 + 3);
+			}
+		}
+		return Double.NaN;
+	}
+
+	/**
+	 * @return True once every recorded message has been published
+	 */
+	public synchronized boolean isFinished() {
+		return Double.isNaN(nextTime());
+	}
+
+	/**
+	 * @return The last simulation time published, in seconds
+	 */
+	public synchronized double getTime() {
+		return time;
+	}
+
+	/**
+	 * Stop publishing and close the file.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		closed = true;
+		file.close();
+	}
+}
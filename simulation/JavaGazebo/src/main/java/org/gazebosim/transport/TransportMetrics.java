@@ -0,0 +1,165 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package org.gazebosim.transport;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * The {@link TopicMetrics} of every topic published or subscribed to in this
+ * JVM.
+ *
+ * Each topic's metrics are registered as an MBean named
+ * "org.gazebosim.transport:type=Topic,name=&lt;topic&gt;", so they can be
+ * watched with JConsole or VisualVM. If the {@link #DUMP_PROPERTY} system
+ * property is set to a period in seconds, a table of all topics, busiest
+ * first, is also logged at that period, which makes it easy to find the
+ * device which floods the link when the simulator runs slower than real time.
+ */
+public class TransportMetrics {
+	/**
+	 * The system property which sets the period in seconds of the metrics
+	 * dump. There is no dump if it is not set.
+	 */
+	public static final String DUMP_PROPERTY = "gazebo.metrics.dump";
+
+	private static final Logger LOG = Logger.getLogger("Gazebo Transport Metrics");
+	private static final Map<String, TopicMetrics> topics = new ConcurrentHashMap<>();
+	private static Thread dumper;
+
+	static {
+		String period = System.getProperty(DUMP_PROPERTY);
+		if (period != null) {
+			try {
+				startDump(Double.parseDouble(period));
+			} catch (NumberFormatException e) {
+				LOG.warning("Invalid " + DUMP_PROPERTY + ": " + period);
+			}
+		}
+	}
+
+	private TransportMetrics() {
+	}
+
+	/**
+	 * Get the metrics of a topic, creating and registering them the first
+	 * time.
+	 *
+	 * @param topic The full topic name
+	 */
+	public static TopicMetrics forTopic(String topic) {
+		TopicMetrics metrics = topics.get(topic);
+		if (metrics != null) {
+			return metrics;
+		}
+		synchronized (topics) {
+			metrics = topics.get(topic);
+			if (metrics == null) {
+				metrics = new TopicMetrics(topic);
+				topics.put(topic, metrics);
+				register(metrics);
+			}
+		}
+		return metrics;
+	}
+
+	/**
+	 * @return The metrics of every topic
+	 */
+	public static Collection<TopicMetrics> getAll() {
+		return Collections.unmodifiableCollection(topics.values());
+	}
+
+	private static void register(TopicMetrics metrics) {
+		try {
+			ObjectName name = new ObjectName("org.gazebosim.transport:type=Topic,name="
+					+ ObjectName.quote(metrics.getTopic()));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, name);
+		} catch (JMException e) {
+			LOG.log(Level.WARNING, "Cannot register the metrics of " + metrics.getTopic(), e);
+		}
+	}
+
+	/**
+	 * Log a table of all topics at a fixed period.
+	 *
+	 * @param period The period in seconds
+	 */
+	public static synchronized void startDump(final double period) {
+		if (dumper != null) {
+			return;
+		}
+		dumper = new Thread("Gazebo Metrics Dump") {
+			@Override
+			public void run() {
+				Map<String, Long> lastMessages = new HashMap<>();
+				try {
+					while (true) {
+						Thread.sleep((long) (period * 1000));
+						LOG.info(format(lastMessages, period));
+					}
+				} catch (InterruptedException e) {
+					// Stopped
+				}
+			}
+		};
+		dumper.setDaemon(true);
+		dumper.start();
+	}
+
+	/**
+	 * Format a table of all topics, sorted by the messages per second since
+	 * the last call. The rate counts the messages both out and in, so it
+	 * is the traffic seen by this JVM; see {@link TopicMetrics} for how each
+	 * kind of link is counted.
+	 *
+	 * @param lastMessages The message counts of the last call, updated by
+	 *        this call
+	 * @param period The time since the last call in seconds
+	 */
+	static String format(Map<String, Long> lastMessages, double period) {
+		final Map<String, Double> rates = new HashMap<>();
+		List<TopicMetrics> sorted = new ArrayList<>(topics.values());
+		for (TopicMetrics m : sorted) {
+			long messages = m.getMessagesOut() + m.getMessagesIn();
+			Long last = lastMessages.put(m.getTopic(), messages);
+			rates.put(m.getTopic(), (messages - (last == null ? 0 : last)) / period);
+		}
+		Collections.sort(sorted, new Comparator<TopicMetrics>() {
+			@Override
+			public int compare(TopicMetrics a, TopicMetrics b) {
+				return Double.compare(rates.get(b.getTopic()), rates.get(a.getTopic()));
+			}
+		});
+
+		StringBuilder sb = new StringBuilder("Gazebo transport metrics\n");
+		sb.append(String.format("%-40s %9s %10s %10s %12s %12s %9s %9s %6s %8s %9s%n",
+				"topic", "msg/s", "out", "in", "bytes out", "bytes in", "parse us",
+				"cb us", "queue", "dropped", "conflated"));
+		for (TopicMetrics m : sorted) {
+			sb.append(String.format("%-40s %9.1f %10d %10d %12d %12d %9.2f %9.2f %6d %8d %9d%n",
+					m.getTopic(), rates.get(m.getTopic()), m.getMessagesOut(), m.getMessagesIn(),
+					m.getBytesOut(), m.getBytesIn(), m.getMeanParseMicros(),
+					m.getMeanCallbackMicros(), m.getQueueDepth(), m.getDropped(),
+					m.getConflated()));
+		}
+		return sb.toString();
+	}
+}
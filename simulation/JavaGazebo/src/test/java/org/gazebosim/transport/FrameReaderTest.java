@@ -0,0 +1,167 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package org.gazebosim.transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class FrameReaderTest {
+	/**
+	 * A channel which returns its data in reads of the given sizes, then the
+	 * end of the stream. A size of zero is a read with no data, as from a
+	 * non-blocking channel.
+	 */
+	private static final class ChunkedChannel implements ReadableByteChannel {
+		private final byte[] data;
+		private final int[] chunks;
+		private int position = 0;
+		private int chunk = 0;
+
+		ChunkedChannel(byte[] data, int... chunks) {
+			this.data = data;
+			this.chunks = chunks;
+		}
+
+		@Override
+		public int read(ByteBuffer dst) {
+			if (chunk == chunks.length || position == data.length) {
+				return -1;
+			}
+			int n = Math.min(Math.min(chunks[chunk], data.length - position), dst.remaining());
+			dst.put(data, position, n);
+			position += n;
+			if (n == chunks[chunk]) {
+				chunk++;
+			} else {
+				chunks[chunk] -= n;
+			}
+			return n;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return true;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	private static byte[] frames(String... payloads) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (String payload : payloads) {
+			byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+			out.write(String.format("%08X", bytes.length).getBytes(StandardCharsets.US_ASCII));
+			out.write(bytes);
+		}
+		return out.toByteArray();
+	}
+
+	private static String payload(FrameReader reader) {
+		return new String(reader.frameArray(), reader.frameOffset(), reader.frameLength(),
+				StandardCharsets.UTF_8);
+	}
+
+	private static String repeat(char c, int count) {
+		char[] chars = new char[count];
+		Arrays.fill(chars, c);
+		return new String(chars);
+	}
+
+	@Test
+	public void headerSplitAcrossReads() throws IOException {
+		FrameReader reader = new FrameReader(new ChunkedChannel(frames("hello"), 3, 4, 2, 4));
+		assertTrue(reader.readFrame());
+		assertEquals("hello", payload(reader));
+		assertFalse(reader.readFrame());
+	}
+
+	@Test
+	public void partialFrameWaitsForTheRest() throws IOException {
+		byte[] data = frames("abcdef", "gh");
+		FrameReader reader = new FrameReader(new ChunkedChannel(data, 5, 0, 5, 4, 100));
+		assertEquals(5, reader.fill());
+		assertFalse(reader.nextFrame());
+		assertEquals(0, reader.fill());
+		assertFalse(reader.nextFrame());
+		assertEquals(5, reader.fill());
+		assertFalse(reader.nextFrame());
+		assertTrue(reader.hasBufferedData());
+		assertEquals(4, reader.fill());
+		assertTrue(reader.nextFrame());
+		assertEquals("abcdef", payload(reader));
+		assertFalse(reader.nextFrame());
+		assertEquals(10, reader.fill());
+		assertTrue(reader.nextFrame());
+		assertEquals("gh", payload(reader));
+		assertFalse(reader.hasBufferedData());
+	}
+
+	@Test
+	public void severalFramesInOneRead() throws IOException {
+		FrameReader reader = new FrameReader(new ChunkedChannel(frames("a", "", "ccc"), 1000));
+		reader.fill();
+		assertTrue(reader.nextFrame());
+		assertEquals("a", payload(reader));
+		assertTrue(reader.nextFrame());
+		assertEquals("", payload(reader));
+		assertTrue(reader.nextFrame());
+		assertEquals("ccc", payload(reader));
+		assertFalse(reader.nextFrame());
+	}
+
+	@Test
+	public void lastFrameSkipsToTheNewest() throws IOException {
+		FrameReader reader = new FrameReader(new ChunkedChannel(frames("1", "2", "3", "4"), 30));
+		reader.fill();
+		assertEquals(2, reader.lastFrame());
+		assertEquals("3", payload(reader));
+		assertEquals(-1, reader.lastFrame());
+	}
+
+	@Test
+	public void frameLargerThanTheBuffer() throws IOException {
+		String small = repeat('s', 100);
+		String large = repeat('L', 10000);
+		// The large frame starts near the end of the first read
+		FrameReader reader = new FrameReader(new ChunkedChannel(frames(small, large, small),
+				4000, 1200, 3000, 7000));
+		assertTrue(reader.readFrame());
+		assertEquals(small, payload(reader));
+		assertTrue(reader.readFrame());
+		assertEquals(large, payload(reader));
+		assertTrue(reader.readFrame());
+		assertEquals(small, payload(reader));
+		assertFalse(reader.readFrame());
+	}
+
+	@Test
+	public void lowerCaseHeader() throws IOException {
+		byte[] data = "0000000aabcdefghij".getBytes(StandardCharsets.US_ASCII);
+		FrameReader reader = new FrameReader(new ChunkedChannel(data, 100));
+		assertTrue(reader.readFrame());
+		assertEquals("abcdefghij", payload(reader));
+	}
+
+	@Test(expected = IOException.class)
+	public void invalidHeader() throws IOException {
+		byte[] data = "0000001Gxxxxxxxxxxxxxxxx".getBytes(StandardCharsets.US_ASCII);
+		new FrameReader(new ChunkedChannel(data, 100)).readFrame();
+	}
+}
@@ -0,0 +1,140 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package org.gazebosim.transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import gazebo.msgs.GzFloat64.Float64;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+public class InProcessTransportTest {
+	@Rule
+	public final TestNodes nodes = new TestNodes();
+
+	/**
+	 * Records each message as the topic followed by the value.
+	 */
+	private static SubscriberCallback<Float64> record(final List<String> seen, final String topic,
+			final CountDownLatch last, final double lastValue) {
+		return new SubscriberCallback<Float64>() {
+			@Override
+			public void callback(Float64 msg) {
+				seen.add(topic + (int) msg.getData());
+				if (last != null && msg.getData() == lastValue) {
+					last.countDown();
+				}
+			}
+		};
+	}
+
+	@Test
+	public void deliveredInPublishOrderAcrossTopics() throws Exception {
+		Node pubNode = nodes.inProcess("inprocOrder");
+		Node subNode = nodes.inProcess("inprocOrder");
+		List<String> seen = Collections.synchronizedList(new ArrayList<String>());
+		CountDownLatch done = new CountDownLatch(1);
+		subNode.subscribe("a", Msgs.Float64(), record(seen, "a", null, 0));
+		subNode.subscribe("b", Msgs.Float64(), record(seen, "b", done, 98));
+		Publisher<Float64> a = pubNode.advertise("a", Msgs.Float64());
+		Publisher<Float64> b = pubNode.advertise("b", Msgs.Float64());
+
+		List<String> expected = new ArrayList<>();
+		for (int i = 0; i < 99; i++) {
+			if (i % 3 == 0) {
+				a.publishFloat64(i);
+				expected.add("a" + i);
+			} else {
+				b.publishFloat64(i);
+				expected.add("b" + i);
+			}
+		}
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertEquals(expected, seen);
+	}
+
+	@Test
+	public void conflatedMessageKeepsItsPublishOrder() throws Exception {
+		Node pubNode = nodes.inProcess("inprocConflate");
+		Node subNode = nodes.inProcess("inprocConflate");
+		final CountDownLatch gate = new CountDownLatch(1);
+		List<String> seen = Collections.synchronizedList(new ArrayList<String>());
+		CountDownLatch done = new CountDownLatch(1);
+		// Holds up the dispatcher until everything is published
+		subNode.subscribe("gate", Msgs.Float64(), new SubscriberCallback<Float64>() {
+			@Override
+			public void callback(Float64 msg) {
+				try {
+					gate.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		subNode.subscribe("a", Msgs.Float64(), record(seen, "a", null, 0)).setConflating(true);
+		subNode.subscribe("b", Msgs.Float64(), record(seen, "b", done, 9));
+		Publisher<Float64> g = pubNode.advertise("gate", Msgs.Float64());
+		Publisher<Float64> a = pubNode.advertise("a", Msgs.Float64());
+		Publisher<Float64> b = pubNode.advertise("b", Msgs.Float64());
+
+		g.publishFloat64(0);
+		a.publishFloat64(1);
+		b.publishFloat64(1);
+		a.publishFloat64(2);
+		a.publishFloat64(3);
+		b.publishFloat64(2);
+		a.publishFloat64(4);
+		b.publishFloat64(9);
+		gate.countDown();
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		// a4 replaced a1 to a3, and comes after b2, which was published first
+		assertEquals(Arrays.asList("b1", "b2", "a4", "b9"), seen);
+	}
+
+	@Test
+	public void latchedMessageReachesLateSubscriber() throws Exception {
+		Node pubNode = nodes.inProcess("inprocLatch");
+		Publisher<Float64> pub = pubNode.advertise("latched", Msgs.Float64());
+		pub.setLatchMode(true);
+		pub.publishFloat64(42);
+
+		Node subNode = nodes.inProcess("inprocLatch");
+		LatestMessage<Float64> latest = subNode.subscribeLatest("latched", Msgs.Float64());
+		for (int i = 0; i < 500 && latest.get().getData() != 42; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(42, latest.get().getData(), 0);
+	}
+
+	@Test
+	public void closedNodeFreesItsTopics() throws Exception {
+		Node pubNode = nodes.inProcess("inprocClose");
+		Node oldNode = nodes.inProcess("inprocClose");
+		List<String> old = Collections.synchronizedList(new ArrayList<String>());
+		oldNode.subscribe("x", Msgs.Float64(), record(old, "x", null, 0));
+		oldNode.close();
+
+		Node newNode = nodes.inProcess("inprocClose");
+		List<String> seen = Collections.synchronizedList(new ArrayList<String>());
+		CountDownLatch done = new CountDownLatch(1);
+		newNode.subscribe("x", Msgs.Float64(), record(seen, "x", done, 1));
+		pubNode.advertise("x", Msgs.Float64()).publishFloat64(1);
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertEquals(Arrays.asList("x1"), seen);
+		assertEquals(Collections.emptyList(), old);
+	}
+}
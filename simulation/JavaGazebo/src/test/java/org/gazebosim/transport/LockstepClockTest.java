@@ -0,0 +1,88 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package org.gazebosim.transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import gazebo.msgs.GzFloat64.Float64;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+public class LockstepClockTest {
+	@Rule
+	public final TestNodes nodes = new TestNodes();
+
+	@Test
+	public void stepRequestsAreAcknowledgedAfterTheSensorValues() throws Exception {
+		Node clockNode = nodes.inProcess("lockstepTest");
+		Node robotNode = nodes.inProcess("lockstepTest");
+
+		final Publisher<Float64> sensorPub = clockNode.advertise("sensor", Msgs.Float64());
+		final int[] steps = new int[1];
+		LockstepClock clock = new LockstepClock(clockNode, "time", 0.001, new LockstepClock.Plant() {
+			@Override
+			public void step(double time, double dt) {
+				assertEquals(0.001, dt, 0);
+				steps[0]++;
+				// The sensor value is the step count
+				sensorPub.publishFloat64(steps[0]);
+			}
+		});
+
+		final LatestMessage<Float64> sensor = robotNode.subscribeLatest("sensor", Msgs.Float64());
+		// The sensor value seen when each time arrives
+		final BlockingQueue<double[]> acks = new ArrayBlockingQueue<>(100);
+		robotNode.subscribe("time", Msgs.Float64(), new SubscriberCallback<Float64>() {
+			@Override
+			public void callback(Float64 msg) {
+				acks.add(new double[] {msg.getData(), sensor.get().getData()});
+			}
+		});
+		Publisher<Float64> stepPub = robotNode.advertise("time" + LockstepClock.STEP_SUFFIX,
+				Msgs.Float64());
+		clock.start();
+
+		double[] initial = acks.poll(5, TimeUnit.SECONDS);
+		assertEquals(0, initial[0], 0);
+
+		for (int loop = 1; loop <= 10; loop++) {
+			stepPub.publishFloat64(loop * 0.02);
+			double[] ack = acks.poll(5, TimeUnit.SECONDS);
+			assertTrue("No acknowledgement for loop " + loop, ack != null);
+			assertEquals(loop * 0.02, ack[0], LockstepClock.TOLERANCE);
+			// Every sensor value of the step has arrived before the time
+			assertEquals(loop * 20, ack[1], 0);
+		}
+		assertEquals(200, steps[0]);
+		assertEquals(0.2, clock.getTime(), LockstepClock.TOLERANCE);
+	}
+
+	@Test
+	public void requestForThePastOnlyRepeatsTheTime() throws Exception {
+		Node clockNode = nodes.inProcess("lockstepPast");
+		LockstepClock clock = new LockstepClock(clockNode, "time", 0.01, null);
+		clock.start();
+		clock.advanceTo(0.05);
+		clock.advanceTo(0.03);
+		assertEquals(0.05, clock.getTime(), LockstepClock.TOLERANCE);
+		// Not a whole number of periods, so the time passes the target
+		clock.advanceTo(0.055);
+		assertEquals(0.06, clock.getTime(), LockstepClock.TOLERANCE);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void periodMustBePositive() {
+		new LockstepClock(null, "time", 0, null);
+	}
+}
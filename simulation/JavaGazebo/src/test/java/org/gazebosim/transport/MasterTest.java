@@ -0,0 +1,140 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package org.gazebosim.transport;
+
+import static org.gazebosim.transport.TestNodes.into;
+import static org.gazebosim.transport.TestNodes.take;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import gazebo.msgs.GzFloat64.Float64;
+import gazebo.msgs.GzString;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Runs TCP nodes against the stand-in master, with both the threads and the
+ * selector transports.
+ */
+public class MasterTest {
+	@Rule
+	public final TestNodes nodes = new TestNodes();
+
+	private Master master;
+
+	@Before
+	public void setUp() throws Exception {
+		master = new Master(0);
+		master.start();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		// The nodes unregister from the master as they close
+		nodes.closeAll();
+		master.close();
+	}
+
+	private Node node(String name, Node.Transport transport) throws Exception {
+		return nodes.connect(name, transport, master);
+	}
+
+	private void publishAndSubscribe(Node.Transport transport) throws Exception {
+		Node pubNode = node("frc", transport);
+		Node subNode = node("frc", transport);
+		BlockingQueue<GzString.String> received = new ArrayBlockingQueue<>(100);
+		Publisher<GzString.String> pub = pubNode.advertise("greeting", Msgs.String());
+		subNode.subscribe("greeting", Msgs.String(), into(received));
+		assertTrue(pub.waitForConnection(5000));
+		for (int i = 0; i < 50; i++) {
+			pub.publishString("hello " + i);
+		}
+		for (int i = 0; i < 50; i++) {
+			assertEquals("hello " + i, take(received).getData());
+		}
+	}
+
+	@Test
+	public void publishAndSubscribeWithThreads() throws Exception {
+		publishAndSubscribe(Node.Transport.THREADS);
+	}
+
+	@Test
+	public void publishAndSubscribeWithSelector() throws Exception {
+		publishAndSubscribe(Node.Transport.SELECTOR);
+	}
+
+	@Test
+	public void publishTime() throws Exception {
+		Node robot = node("frc", Node.Transport.SELECTOR);
+		BlockingQueue<Float64> times = new ArrayBlockingQueue<>(100);
+		robot.subscribe("time", Msgs.Float64(), into(times));
+		// The subscriber connects once the master routes the advertisement
+		for (int i = 0; i < 500 && times.isEmpty(); i++) {
+			master.publishTime(1.5);
+			Thread.sleep(10);
+		}
+		assertEquals(1.5, take(times).getData(), 0);
+	}
+
+	@Test
+	public void lockstepClock() throws Exception {
+		master.startLockstepClock(0.01);
+		Node robot = node("frc", Node.Transport.THREADS);
+		BlockingQueue<Float64> times = new ArrayBlockingQueue<>(100);
+		robot.subscribe("time", Msgs.Float64(), into(times));
+		// The latched initial time acknowledges the connection
+		assertEquals(0, take(times).getData(), 0);
+
+		Publisher<Float64> step = robot.advertise("time" + LockstepClock.STEP_SUFFIX, Msgs.Float64());
+		assertTrue(step.waitForConnection(5000));
+		for (int i = 1; i <= 5; i++) {
+			step.publishFloat64(i * 0.05);
+			assertEquals(i * 0.05, take(times).getData(), LockstepClock.TOLERANCE);
+		}
+	}
+
+	@Test
+	public void closeStopsTheThreads() throws Exception {
+		master.startClock(0.01);
+		Node robot = node("frc", Node.Transport.SELECTOR);
+		BlockingQueue<Float64> times = new ArrayBlockingQueue<>(1000);
+		robot.subscribe("time", Msgs.Float64(), into(times));
+		take(times);
+
+		robot.close();
+		master.close();
+		// Only the writer thread shared by every publisher is left
+		long deadline = System.nanoTime() + 5000000000L;
+		while (true) {
+			List<String> running = new ArrayList<>();
+			for (Thread thread : Thread.getAllStackTraces().keySet()) {
+				if (thread.isAlive() && thread.getName().startsWith("Gazebo")
+						&& !thread.getName().equals("Gazebo Publisher")) {
+					running.add(thread.getName());
+				}
+			}
+			if (running.isEmpty()) {
+				break;
+			}
+			if (System.nanoTime() > deadline) {
+				fail("Still running: " + running);
+			}
+			Thread.sleep(10);
+		}
+	}
+}
@@ -0,0 +1,224 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package org.gazebosim.transport;
+
+import static org.gazebosim.transport.TestNodes.into;
+import static org.gazebosim.transport.TestNodes.take;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import gazebo.msgs.GzString;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Runs the delivery policies against a TCP subscriber which stops reading
+ * its socket, by blocking in its callback.
+ */
+public class PublisherTest {
+	/**
+	 * The size of each message, large enough that the socket buffers fill
+	 * after a few hundred messages.
+	 */
+	private static final int PAYLOAD_SIZE = 64 << 10;
+
+	/**
+	 * How many messages are published before giving up on filling the
+	 * socket buffers.
+	 */
+	private static final int MAX_MESSAGES = 10000;
+
+	@Rule
+	public final TestNodes nodes = new TestNodes();
+
+	private Master master;
+	private final CountDownLatch release = new CountDownLatch(1);
+	private final char[] payload = new char[PAYLOAD_SIZE];
+
+	@Before
+	public void setUp() throws Exception {
+		master = new Master(0);
+		master.start();
+		Arrays.fill(payload, 'x');
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		release.countDown();
+		nodes.closeAll();
+		master.close();
+	}
+
+	private Node node() throws Exception {
+		return nodes.connect("frc", Node.Transport.THREADS, master);
+	}
+
+	/**
+	 * @return A message carrying the index, padded to the payload size
+	 */
+	private String message(int index) {
+		return index + ":" + new String(payload);
+	}
+
+	private static int index(GzString.String msg) {
+		String data = msg.getData();
+		return Integer.parseInt(data.substring(0, data.indexOf(':')));
+	}
+
+	/**
+	 * Subscribe with a callback which blocks on the first message until the
+	 * test releases it, so the connection's thread stops reading. The
+	 * publisher is latched, so the first message is sent as soon as the
+	 * subscriber connects.
+	 *
+	 * @return The messages received after the first
+	 */
+	private BlockingQueue<GzString.String> stall(Node subNode, String topic) throws Exception {
+		final BlockingQueue<GzString.String> received = new LinkedBlockingQueue<>();
+		final CountDownLatch stalled = new CountDownLatch(1);
+		subNode.subscribe(topic, Msgs.String(), new SubscriberCallback<GzString.String>() {
+			@Override
+			public void callback(GzString.String msg) {
+				if (stalled.getCount() == 0) {
+					received.add(msg);
+					return;
+				}
+				stalled.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		assertTrue(stalled.await(TestNodes.TIMEOUT, TimeUnit.SECONDS));
+		return received;
+	}
+
+	/**
+	 * Release the stalled subscriber and collect the indices it receives, up
+	 * to the last one published.
+	 */
+	private List<Integer> releaseAndCollect(BlockingQueue<GzString.String> received, int last)
+			throws InterruptedException {
+		release.countDown();
+		List<Integer> indices = new ArrayList<>();
+		int index;
+		do {
+			index = index(take(received));
+			indices.add(index);
+		} while (index != last);
+		return indices;
+	}
+
+	private static void assertIncreasing(List<Integer> indices) {
+		for (int i = 1; i < indices.size(); i++) {
+			assertTrue(indices.toString(), indices.get(i) > indices.get(i - 1));
+		}
+	}
+
+	@Test
+	public void queuedDropsTheOldestMessages() throws Exception {
+		Node pubNode = node();
+		Publisher<GzString.String> pub = pubNode.advertise("queuedDrops", Msgs.String());
+		pub.setDeliveryPolicy(Publisher.DeliveryPolicy.QUEUED);
+		pub.setOutboxSize(4);
+		pub.setLatchMode(true);
+		pub.publishString("ready");
+		BlockingQueue<GzString.String> received = stall(node(), "queuedDrops");
+		TopicMetrics metrics = pub.getMetrics();
+		metrics.reset();
+
+		// Keep publishing until the socket is full and the outbox has
+		// overflowed many times
+		int published = 0;
+		while (metrics.getDropped() < 100 && published < MAX_MESSAGES) {
+			pub.publishString(message(published++));
+		}
+		assertEquals(100, metrics.getDropped());
+
+		List<Integer> indices = releaseAndCollect(received, published - 1);
+		assertIncreasing(indices);
+		assertEquals(published - metrics.getDropped(), indices.size());
+		// The outbox kept the newest messages
+		int size = indices.size();
+		assertEquals(Arrays.asList(published - 4, published - 3, published - 2, published - 1),
+				indices.subList(size - 4, size));
+	}
+
+	@Test
+	public void latestDeliversOnlyTheNewestMessage() throws Exception {
+		Node pubNode = node();
+		Publisher<GzString.String> pub = pubNode.advertise("latestConflates", Msgs.String());
+		pub.setDeliveryPolicy(Publisher.DeliveryPolicy.LATEST);
+		pub.setLatchMode(true);
+		pub.publishString("ready");
+		BlockingQueue<GzString.String> received = stall(node(), "latestConflates");
+		TopicMetrics metrics = pub.getMetrics();
+		metrics.reset();
+
+		int published = 0;
+		while (metrics.getConflated() < 100 && published < MAX_MESSAGES) {
+			pub.publishString(message(published++));
+		}
+		assertEquals(100, metrics.getConflated());
+		assertTrue(metrics.getQueueDepth() <= 1);
+
+		List<Integer> indices = releaseAndCollect(received, published - 1);
+		assertIncreasing(indices);
+		// Every message was either written or replaced by a newer one
+		assertEquals(published - metrics.getConflated(), indices.size());
+		assertEquals(0, metrics.getDropped());
+	}
+
+	private void stalledSubscriberDoesNotBlock(Publisher.DeliveryPolicy policy) throws Exception {
+		String topic = "stalled" + policy;
+		Node pubNode = node();
+		Publisher<GzString.String> pub = pubNode.advertise(topic, Msgs.String());
+		pub.setDeliveryPolicy(policy);
+		// Large enough that the subscriber which reads loses nothing
+		pub.setOutboxSize(400);
+		pub.setLatchMode(true);
+		pub.publishString("ready");
+
+		BlockingQueue<GzString.String> fast = new LinkedBlockingQueue<>();
+		node().subscribe(topic, Msgs.String(), into(fast));
+		assertEquals("ready", take(fast).getData());
+		BlockingQueue<GzString.String> slow = stall(node(), topic);
+
+		// Far more than the stalled subscriber's socket buffers hold
+		for (int i = 0; i < 300; i++) {
+			pub.publishString(message(i));
+		}
+		for (int i = 0; i < 300; i++) {
+			assertEquals(i, index(take(fast)));
+		}
+		assertTrue(slow.isEmpty());
+	}
+
+	@Test(timeout = 30000)
+	public void stalledSubscriberDoesNotBlockSynchronous() throws Exception {
+		stalledSubscriberDoesNotBlock(Publisher.DeliveryPolicy.SYNCHRONOUS);
+	}
+
+	@Test(timeout = 30000)
+	public void stalledSubscriberDoesNotBlockQueued() throws Exception {
+		stalledSubscriberDoesNotBlock(Publisher.DeliveryPolicy.QUEUED);
+	}
+}
@@ -0,0 +1,201 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package org.gazebosim.transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import gazebo.msgs.GzBool.Bool;
+import gazebo.msgs.GzFloat64.Float64;
+import gazebo.msgs.GzString;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+public class ScalarWireTest {
+	private static final double[] DOUBLES = {0.0, -0.0, 1.5, -273.15, Double.MIN_VALUE,
+			Double.MAX_VALUE, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NaN};
+	private static final String[] STRINGS = {"", "frc", "h\u00e9llo w\u00f6rld",
+			"\u30ed\u30dc\u30c3\u30c8", "\ud834\udd1e clef", "nul\u0000inside"};
+
+	/**
+	 * Writes a message body to a coded stream.
+	 */
+	private interface Body {
+		void write(CodedOutputStream out) throws IOException;
+	}
+
+	private static byte[] encode(Body body) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		CodedOutputStream out = CodedOutputStream.newInstance(bytes);
+		body.write(out);
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Surround a message body with fields the scalar messages don't have, of
+	 * each wire type.
+	 */
+	private static byte[] withUnknownFields(final Body body) throws IOException {
+		return encode(new Body() {
+			@Override
+			public void write(CodedOutputStream out) throws IOException {
+				out.writeInt32(7, -5);
+				out.writeString(3, "ignored");
+				body.write(out);
+				out.writeFixed32(9, 42);
+				out.writeDouble(15, 2.0);
+			}
+		});
+	}
+
+	@Test
+	public void float64MatchesGeneratedClass() throws IOException {
+		for (final double value : DOUBLES) {
+			byte[] bytes = encode(new Body() {
+				@Override
+				public void write(CodedOutputStream out) throws IOException {
+					ScalarWire.writeFloat64(out, value);
+				}
+			});
+			Float64 parsed = Float64.parseFrom(bytes);
+			// Compare the bits, so NaN and -0.0 are checked exactly
+			assertEquals(Double.doubleToRawLongBits(value),
+					Double.doubleToRawLongBits(parsed.getData()));
+			assertEquals(Float64.newBuilder().setData(value).build().getSerializedSize(),
+					ScalarWire.float64Size());
+			assertEquals(ScalarWire.float64Size(), bytes.length);
+
+			byte[] generated = Float64.newBuilder().setData(value).build().toByteArray();
+			double read = ScalarWire.readFloat64(CodedInputStream.newInstance(generated));
+			assertEquals(Double.doubleToRawLongBits(value), Double.doubleToRawLongBits(read));
+		}
+	}
+
+	@Test
+	public void boolMatchesGeneratedClass() throws IOException {
+		for (final boolean value : new boolean[] {false, true}) {
+			byte[] bytes = encode(new Body() {
+				@Override
+				public void write(CodedOutputStream out) throws IOException {
+					ScalarWire.writeBool(out, value);
+				}
+			});
+			assertEquals(value, Bool.parseFrom(bytes).getData());
+			assertEquals(ScalarWire.boolSize(), bytes.length);
+
+			byte[] generated = Bool.newBuilder().setData(value).build().toByteArray();
+			assertEquals(value, ScalarWire.readBool(CodedInputStream.newInstance(generated)));
+		}
+	}
+
+	@Test
+	public void stringMatchesGeneratedClass() throws IOException {
+		for (final String value : STRINGS) {
+			byte[] bytes = encode(new Body() {
+				@Override
+				public void write(CodedOutputStream out) throws IOException {
+					ScalarWire.writeString(out, value);
+				}
+			});
+			GzString.String generated = GzString.String.newBuilder().setData(value).build();
+			assertEquals(value, GzString.String.parseFrom(bytes).getData());
+			assertEquals(generated.getSerializedSize(), ScalarWire.stringSize(value));
+			assertEquals(ScalarWire.stringSize(value), bytes.length);
+
+			assertEquals(value,
+					ScalarWire.readString(CodedInputStream.newInstance(generated.toByteArray())));
+		}
+	}
+
+	@Test
+	public void unknownFieldsAreSkipped() throws IOException {
+		byte[] float64 = withUnknownFields(new Body() {
+			@Override
+			public void write(CodedOutputStream out) throws IOException {
+				out.writeDouble(1, -0.0);
+			}
+		});
+		assertEquals(Double.doubleToRawLongBits(-0.0),
+				Double.doubleToRawLongBits(ScalarWire.readFloat64(CodedInputStream.newInstance(float64))));
+
+		byte[] bool = withUnknownFields(new Body() {
+			@Override
+			public void write(CodedOutputStream out) throws IOException {
+				out.writeBool(1, true);
+			}
+		});
+		assertTrue(ScalarWire.readBool(CodedInputStream.newInstance(bool)));
+
+		byte[] string = withUnknownFields(new Body() {
+			@Override
+			public void write(CodedOutputStream out) throws IOException {
+				out.writeString(1, "\u00e9t\u00e9");
+			}
+		});
+		assertEquals("\u00e9t\u00e9", ScalarWire.readString(CodedInputStream.newInstance(string)));
+	}
+
+	@Test
+	public void lastValueWins() throws IOException {
+		// As with the generated parser, a repeated scalar field keeps the last value
+		byte[] bytes = encode(new Body() {
+			@Override
+			public void write(CodedOutputStream out) throws IOException {
+				out.writeBool(1, true);
+				out.writeBool(1, false);
+			}
+		});
+		assertFalse(Bool.parseFrom(bytes).getData());
+		assertFalse(ScalarWire.readBool(CodedInputStream.newInstance(bytes)));
+	}
+
+	@Test
+	public void missingDataIsRejected() throws IOException {
+		byte[] onlyUnknown = withUnknownFields(new Body() {
+			@Override
+			public void write(CodedOutputStream out) {
+			}
+		});
+		for (byte[] bytes : new byte[][] {new byte[0], onlyUnknown}) {
+			try {
+				ScalarWire.readFloat64(CodedInputStream.newInstance(bytes));
+				fail("Read a Float64 without data");
+			} catch (InvalidProtocolBufferException e) {
+				// Expected
+			}
+			try {
+				ScalarWire.readBool(CodedInputStream.newInstance(bytes));
+				fail("Read a Bool without data");
+			} catch (InvalidProtocolBufferException e) {
+				// Expected
+			}
+			try {
+				ScalarWire.readString(CodedInputStream.newInstance(bytes));
+				fail("Read a String without data");
+			} catch (InvalidProtocolBufferException e) {
+				// Expected
+			}
+		}
+	}
+
+	@Test
+	public void emptyStringIsNotMissing() throws IOException {
+		byte[] bytes = GzString.String.newBuilder().setData("").build().toByteArray();
+		assertEquals("", ScalarWire.readString(CodedInputStream.newInstance(bytes)));
+	}
+}
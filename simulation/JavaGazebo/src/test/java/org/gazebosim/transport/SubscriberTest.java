@@ -0,0 +1,136 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package org.gazebosim.transport;
+
+import static org.gazebosim.transport.TestNodes.into;
+import static org.gazebosim.transport.TestNodes.take;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import gazebo.msgs.GzFloat64.Float64;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Runs several local callbacks on one subscription.
+ */
+public class SubscriberTest {
+	@Rule
+	public final TestNodes nodes = new TestNodes();
+
+	/**
+	 * @return A callback which adds its name and the value of each message
+	 *         to the queue, and then throws if asked to
+	 */
+	private static SubscriberCallback<Float64> named(final String name,
+			final BlockingQueue<String> seen, final boolean fails) {
+		return new SubscriberCallback<Float64>() {
+			@Override
+			public void callback(Float64 msg) {
+				seen.add(name + (int) msg.getData());
+				if (fails) {
+					throw new IllegalStateException("Callback failure");
+				}
+			}
+		};
+	}
+
+	@Test
+	public void secondSubscribeSharesTheConnection() throws Exception {
+		Master master = new Master(0);
+		master.start();
+		try {
+			Node pubNode = nodes.connect("fanOut", Node.Transport.THREADS, master);
+			Node subNode = nodes.connect("fanOut", Node.Transport.THREADS, master);
+			BlockingQueue<Float64> first = new LinkedBlockingQueue<>();
+			BlockingQueue<Float64> second = new LinkedBlockingQueue<>();
+			Publisher<Float64> pub = pubNode.advertise("shared", Msgs.Float64());
+			Subscriber<Float64> sub = subNode.subscribe("shared", Msgs.Float64(), into(first));
+			assertSame(sub, subNode.subscribe("shared", Msgs.Float64(), into(second)));
+			assertTrue(pub.waitForConnection(5000));
+			TopicMetrics metrics = sub.getMetrics();
+			metrics.reset();
+
+			for (int i = 0; i < 5; i++) {
+				pub.publishFloat64(i);
+			}
+			for (int i = 0; i < 5; i++) {
+				Float64 msg = take(first);
+				assertEquals(i, msg.getData(), 0);
+				// Both callbacks get the one parsed message
+				assertSame(msg, take(second));
+			}
+			assertEquals(5, metrics.getMessagesIn());
+		} finally {
+			nodes.closeAll();
+			master.close();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void secondSubscribeMustHaveTheSameType() throws Exception {
+		Node node = nodes.inProcess("fanOutType");
+		BlockingQueue<Object> received = new LinkedBlockingQueue<>();
+		node.subscribe("typed", Msgs.Float64(), into(received));
+		node.subscribe("typed", Msgs.String(), into(received));
+	}
+
+	@Test
+	public void callbacksRunInOrderPastFailures() throws Exception {
+		Node pubNode = nodes.inProcess("fanOutOrder");
+		Node subNode = nodes.inProcess("fanOutOrder");
+		BlockingQueue<String> seen = new LinkedBlockingQueue<>();
+		subNode.subscribe("order", Msgs.Float64(), named("a", seen, false));
+		subNode.subscribe("order", Msgs.Float64(), named("b", seen, true));
+		subNode.subscribe("order", Msgs.Float64(), named("c", seen, false));
+		Publisher<Float64> pub = pubNode.advertise("order", Msgs.Float64());
+
+		for (int i = 0; i < 3; i++) {
+			pub.publishFloat64(i);
+		}
+		for (int i = 0; i < 3; i++) {
+			assertEquals("a" + i, take(seen));
+			assertEquals("b" + i, take(seen));
+			assertEquals("c" + i, take(seen));
+		}
+	}
+
+	@Test
+	public void removingAMiddleCallbackKeepsTheRest() throws Exception {
+		Node pubNode = nodes.inProcess("fanOutRemove");
+		Node subNode = nodes.inProcess("fanOutRemove");
+		BlockingQueue<String> seen = new LinkedBlockingQueue<>();
+		SubscriberCallback<Float64> b = named("b", seen, false);
+		Subscriber<Float64> sub = subNode.subscribe("remove", Msgs.Float64(),
+				named("a", seen, false));
+		subNode.subscribe("remove", Msgs.Float64(), b);
+		subNode.subscribe("remove", Msgs.Float64(), named("c", seen, false));
+		Publisher<Float64> pub = pubNode.advertise("remove", Msgs.Float64());
+
+		assertTrue(sub.removeCallback(b));
+		assertFalse(sub.removeCallback(b));
+		pub.publishFloat64(1);
+		pub.publishFloat64(2);
+		assertEquals("a1", take(seen));
+		assertEquals("c1", take(seen));
+		assertEquals("a2", take(seen));
+		assertEquals("c2", take(seen));
+
+		sub.addCallback(b);
+		pub.publishFloat64(3);
+		assertEquals("a3", take(seen));
+		assertEquals("c3", take(seen));
+		assertEquals("b3", take(seen));
+	}
+}
@@ -0,0 +1,109 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package org.gazebosim.transport;
+
+import static org.junit.Assert.assertTrue;
+
+import gazebo.msgs.GzFloat64.Float64;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.rules.ExternalResource;
+
+/**
+ * The nodes of a test, which are closed after it. Used as a rule:
+ *
+ * <pre>
+ * &#64;Rule
+ * public final TestNodes nodes = new TestNodes();
+ * </pre>
+ */
+class TestNodes extends ExternalResource {
+	/**
+	 * How long the helpers wait for a message, in seconds.
+	 */
+	static final long TIMEOUT = 5;
+
+	private final List<Node> nodes = new ArrayList<>();
+
+	/**
+	 * Connect an in-process node.
+	 */
+	Node inProcess(String name) throws Exception {
+		Node node = new Node(name, Node.Transport.IN_PROCESS);
+		node.waitForConnection();
+		return add(node);
+	}
+
+	/**
+	 * Connect a TCP node to a master on this machine.
+	 */
+	Node connect(String name, Node.Transport transport, Master master) throws Exception {
+		Node node = new Node(name, transport);
+		node.waitForConnection("localhost", master.getPort());
+		return add(node);
+	}
+
+	private synchronized Node add(Node node) {
+		nodes.add(node);
+		return node;
+	}
+
+	/**
+	 * Close every node, before the end of the test if it needs them closed
+	 * first, such as before closing the master.
+	 */
+	synchronized void closeAll() {
+		for (Node node : nodes) {
+			node.close();
+		}
+		nodes.clear();
+	}
+
+	@Override
+	protected void after() {
+		closeAll();
+	}
+
+	/**
+	 * @return A callback which adds each message to the queue
+	 */
+	static <T> SubscriberCallback<T> into(final BlockingQueue<? super T> queue) {
+		return new SubscriberCallback<T>() {
+			@Override
+			public void callback(T msg) {
+				queue.add(msg);
+			}
+		};
+	}
+
+	/**
+	 * @return A callback which adds the value of each message to the queue
+	 */
+	static SubscriberCallback<Float64> values(final BlockingQueue<Double> queue) {
+		return new SubscriberCallback<Float64>() {
+			@Override
+			public void callback(Float64 msg) {
+				queue.add(msg.getData());
+			}
+		};
+	}
+
+	/**
+	 * Wait for the next element of a queue, failing the test if it does not
+	 * come within {@link #TIMEOUT} seconds.
+	 */
+	static <T> T take(BlockingQueue<T> queue) throws InterruptedException {
+		T value = queue.poll(TIMEOUT, TimeUnit.SECONDS);
+		assertTrue("Timed out waiting for a message", value != null);
+		return value;
+	}
+}
@@ -0,0 +1,125 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package org.gazebosim.transport;
+
+import static org.gazebosim.transport.TestNodes.take;
+import static org.gazebosim.transport.TestNodes.values;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import gazebo.msgs.GzFloat64.Float64;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TopicRecorderTest {
+	private static final double EPSILON = 1e-9;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Rule
+	public final TestNodes nodes = new TestNodes();
+
+	/**
+	 * Records three steps of a robot which receives a sensor value and then
+	 * the time, and publishes a motor output in reply.
+	 */
+	private Path record() throws Exception {
+		Path path = folder.getRoot().toPath().resolve("session.gzrec");
+		Node sim = nodes.inProcess("recordRobot");
+		Node robot = nodes.inProcess("recordRobot");
+		TopicRecorder recorder = new TopicRecorder(path);
+		robot.setRecorder(recorder);
+
+		BlockingQueue<Double> times = new ArrayBlockingQueue<>(10);
+		robot.subscribe("sensor", Msgs.Float64(), new SubscriberCallback<Float64>() {
+			@Override
+			public void callback(Float64 msg) {
+			}
+		});
+		robot.subscribe(TopicRecorder.TIME_TOPIC, Msgs.Float64(), values(times));
+		Publisher<Float64> motor = robot.advertise("motor", Msgs.Float64());
+		Publisher<Float64> sensor = sim.advertise("sensor", Msgs.Float64());
+		Publisher<Float64> time = sim.advertise(TopicRecorder.TIME_TOPIC, Msgs.Float64());
+		for (int step = 1; step <= 3; step++) {
+			sensor.publishFloat64(step);
+			time.publishFloat64(step * 0.1);
+			assertEquals(step * 0.1, take(times), EPSILON);
+			motor.publishFloat64(-step);
+		}
+		assertEquals(0.3, recorder.getTime(), EPSILON);
+		recorder.close();
+		return path;
+	}
+
+	@Test
+	public void replaysTheRecordedInputsStepByStep() throws Exception {
+		Path path = record();
+		try (TopicReplayer replayer = new TopicReplayer(path)) {
+			Node robot = nodes.inProcess("replayRobot");
+			BlockingQueue<Double> sensors = new ArrayBlockingQueue<>(10);
+			BlockingQueue<Double> times = new ArrayBlockingQueue<>(10);
+			BlockingQueue<Double> motors = new ArrayBlockingQueue<>(10);
+			robot.subscribe("sensor", Msgs.Float64(), values(sensors));
+			robot.subscribe(TopicRecorder.TIME_TOPIC, Msgs.Float64(), values(times));
+			// The recorded outputs are not published again
+			robot.subscribe("motor", Msgs.Float64(), values(motors));
+			replayer.connect(nodes.inProcess("replayRobot"));
+
+			for (int step = 1; step <= 2; step++) {
+				assertTrue(replayer.advanceTo(step * 0.1));
+				assertEquals(step, take(sensors), 0);
+				assertEquals(step * 0.1, take(times), EPSILON);
+				assertEquals(step * 0.1, replayer.getTime(), EPSILON);
+				assertTrue(sensors.isEmpty());
+			}
+			assertFalse(replayer.advanceTo(1));
+			assertTrue(replayer.isFinished());
+			assertEquals(3, take(sensors), 0);
+			assertEquals(0.3, take(times), EPSILON);
+			assertTrue(motors.isEmpty());
+		}
+	}
+
+	@Test
+	public void truncatedRecordingIsReadToTheLastWholeRecord() throws Exception {
+		Path path = record();
+		byte[] bytes = Files.readAllBytes(path);
+		// Drop the motor output of the third step, which is the last record,
+		// and cut the time message before it in half. A Float64 record is
+		// 4 + 1 + 2 + 8 bytes of header and 9 bytes of message.
+		Files.write(path, Arrays.copyOf(bytes, bytes.length - 24 - 12));
+		try (TopicReplayer replayer = new TopicReplayer(path)) {
+			Node robot = nodes.inProcess("truncatedRobot");
+			BlockingQueue<Double> times = new ArrayBlockingQueue<>(10);
+			robot.subscribe(TopicRecorder.TIME_TOPIC, Msgs.Float64(), values(times));
+			replayer.connect(nodes.inProcess("truncatedRobot"));
+			assertFalse(replayer.advanceTo(1));
+			assertEquals(0.1, take(times), EPSILON);
+			assertEquals(0.2, take(times), EPSILON);
+			assertEquals(0.2, replayer.getTime(), EPSILON);
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void otherFilesAreRejected() throws Exception {
+		Path path = folder.newFile("other").toPath();
+		Files.write(path, new byte[] {'n', 'o', 't', ' ', 'a', ' ', 'r', 'e', 'c'});
+		new TopicReplayer(path).close();
+	}
+}
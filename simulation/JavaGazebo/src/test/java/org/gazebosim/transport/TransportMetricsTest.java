@@ -0,0 +1,157 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package org.gazebosim.transport;
+
+import static org.gazebosim.transport.TestNodes.take;
+import static org.gazebosim.transport.TestNodes.values;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import gazebo.msgs.GzFloat64.Float64;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+public class TransportMetricsTest {
+	@Rule
+	public final TestNodes nodes = new TestNodes();
+
+	/**
+	 * Publish ten values and wait for the subscriber to get them all.
+	 */
+	private static void publishTen(Publisher<Float64> pub, BlockingQueue<Double> received)
+			throws InterruptedException {
+		for (int i = 0; i < 10; i++) {
+			pub.publishFloat64(i);
+		}
+		for (int i = 0; i < 10; i++) {
+			assertEquals(i, take(received), 0);
+		}
+	}
+
+	@Test
+	public void inProcessMessagesAreCountedOnce() throws Exception {
+		Node pubNode = nodes.inProcess("metricsInProcess");
+		Node subNode = nodes.inProcess("metricsInProcess");
+		BlockingQueue<Double> received = new LinkedBlockingQueue<>();
+		subNode.subscribe("value", Msgs.Float64(), values(received));
+		Publisher<Float64> pub = pubNode.advertise("value", Msgs.Float64());
+		TopicMetrics metrics = pub.getMetrics();
+		metrics.reset();
+
+		publishTen(pub, received);
+		assertEquals(0, metrics.getMessagesOut());
+		assertEquals(10, metrics.getMessagesIn());
+		assertEquals(0, metrics.getBytesOut());
+		assertEquals(0, metrics.getBytesIn());
+	}
+
+	@Test
+	public void tcpMessagesAreCountedOnEachSide() throws Exception {
+		Master master = new Master(0);
+		master.start();
+		try {
+			Node pubNode = nodes.connect("metricsTcp", Node.Transport.THREADS, master);
+			Node subNode = nodes.connect("metricsTcp", Node.Transport.THREADS, master);
+			BlockingQueue<Double> received = new LinkedBlockingQueue<>();
+			Publisher<Float64> pub = pubNode.advertise("value", Msgs.Float64());
+			subNode.subscribe("value", Msgs.Float64(), values(received));
+			assertTrue(pub.waitForConnection(5000));
+			TopicMetrics metrics = pub.getMetrics();
+			metrics.reset();
+
+			publishTen(pub, received);
+			assertEquals(10, metrics.getMessagesOut());
+			assertEquals(10, metrics.getMessagesIn());
+			assertEquals(10 * ScalarWire.float64Size(), metrics.getBytesOut());
+			assertEquals(metrics.getBytesOut(), metrics.getBytesIn());
+		} finally {
+			nodes.closeAll();
+			master.close();
+		}
+	}
+
+	@Test
+	public void topicsAreRegisteredOnce() throws Exception {
+		TopicMetrics metrics = TransportMetrics.forTopic("/gazebo/metrics/registered");
+		assertSame(metrics, TransportMetrics.forTopic("/gazebo/metrics/registered"));
+		assertTrue(TransportMetrics.getAll().contains(metrics));
+
+		metrics.reset();
+		metrics.messageOut(8);
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName("org.gazebosim.transport:type=Topic,name="
+				+ ObjectName.quote("/gazebo/metrics/registered"));
+		assertTrue(server.isRegistered(name));
+		assertEquals(1L, server.getAttribute(name, "MessagesOut"));
+		assertEquals(8L, server.getAttribute(name, "BytesOut"));
+	}
+
+	/**
+	 * @return The columns of a topic's row in a formatted table
+	 */
+	private static String[] row(String table, String topic) {
+		for (String line : table.split("\n")) {
+			String[] columns = line.trim().split("\\s+");
+			if (columns[0].equals(topic)) {
+				return columns;
+			}
+		}
+		throw new AssertionError(topic + " is not in the table:\n" + table);
+	}
+
+	@Test
+	public void formatRatesSinceTheLastCall() {
+		TopicMetrics busy = TransportMetrics.forTopic("/gazebo/metrics/busy");
+		TopicMetrics quiet = TransportMetrics.forTopic("/gazebo/metrics/quiet");
+		busy.reset();
+		quiet.reset();
+		for (int i = 0; i < 6; i++) {
+			busy.messageOut(8);
+			busy.messageIn(8);
+		}
+		quiet.messageIn(4);
+		busy.dropped();
+		quiet.conflated();
+
+		Map<String, Long> last = new HashMap<>();
+		String table = TransportMetrics.format(last, 2.0);
+		assertTrue(table.startsWith("Gazebo transport metrics\n"));
+		// The busiest topic comes first
+		assertTrue(table.indexOf("/gazebo/metrics/busy") < table.indexOf("/gazebo/metrics/quiet"));
+		String[] columns = row(table, "/gazebo/metrics/busy");
+		assertEquals("6.0", columns[1]);
+		assertEquals("6", columns[2]);
+		assertEquals("6", columns[3]);
+		assertEquals("48", columns[4]);
+		assertEquals("48", columns[5]);
+		assertEquals("1", columns[9]);
+		assertEquals("0", columns[10]);
+		columns = row(table, "/gazebo/metrics/quiet");
+		assertEquals("0.5", columns[1]);
+		assertEquals("4", columns[5]);
+		assertEquals("1", columns[10]);
+
+		// Only the messages since the last call count towards the rate
+		quiet.messageIn(4);
+		table = TransportMetrics.format(last, 1.0);
+		assertEquals("0.0", row(table, "/gazebo/metrics/busy")[1]);
+		assertEquals("1.0", row(table, "/gazebo/metrics/quiet")[1]);
+		assertTrue(table.indexOf("/gazebo/metrics/quiet") < table.indexOf("/gazebo/metrics/busy"));
+	}
+}
@@ -0,0 +1,102 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.simulation.plant;
+
+import org.gazebosim.transport.Node;
+
+/**
+ * A uniform rod turned about one end by a gearbox against gravity, with hard
+ * stops at both ends of its travel.
+ *
+ * The state is the angle of the arm above horizontal and its angular
+ * velocity.
+ */
+public class Arm extends Model {
+	private static final int ANGLE = 0, VELOCITY = 1;
+
+	private final Gearbox gearbox;
+	private final MotorInput input;
+	private final double mass;
+	private final double length;
+	private final double inertia;
+	private final double minAngle, maxAngle;
+	private double voltage;
+
+	private final Shaft joint = new Shaft() {
+		@Override
+		public double getAngle() {
+			return get(ANGLE);
+		}
+
+		@Override
+		public double getVelocity() {
+			return get(VELOCITY);
+		}
+	};
+
+	/**
+	 * @param gearbox The gearbox turning the arm
+	 * @param input The speed controllers driving the gearbox
+	 * @param mass The mass of the arm in kg
+	 * @param length The length of the arm in meters
+	 * @param minAngle The lowest angle in radians, where the arm starts
+	 * @param maxAngle The highest angle in radians
+	 */
+	public Arm(Gearbox gearbox, MotorInput input, double mass, double length,
+			double minAngle, double maxAngle) {
+		super(2);
+		this.gearbox = gearbox;
+		this.input = input;
+		this.mass = mass;
+		this.length = length;
+		this.inertia = mass * length * length / 3;
+		this.minAngle = minAngle;
+		this.maxAngle = maxAngle;
+	}
+
+	/**
+	 * @return The joint, for an encoder or a potentiometer
+	 */
+	public Shaft joint() {
+		return joint;
+	}
+
+	@Override
+	protected void initialize(double[] x, int i) {
+		x[i + ANGLE] = minAngle;
+	}
+
+	@Override
+	protected void connect(Node node) {
+		input.connect(node);
+	}
+
+	@Override
+	protected void sampleInputs() {
+		voltage = input.getVoltage();
+	}
+
+	@Override
+	protected void derivatives(double[] x, int i, double[] dxdt) {
+		double w = x[i + VELOCITY];
+		double gravity = mass * Elevator.GRAVITY * length / 2 * Math.cos(x[i + ANGLE]);
+		dxdt[i + ANGLE] = w;
+		dxdt[i + VELOCITY] = (gearbox.torque(voltage, w) - gravity) / inertia;
+	}
+
+	@Override
+	protected void constrain(double[] x, int i) {
+		if (x[i + ANGLE] < minAngle) {
+			x[i + ANGLE] = minAngle;
+			x[i + VELOCITY] = Math.max(x[i + VELOCITY], 0);
+		} else if (x[i + ANGLE] > maxAngle) {
+			x[i + ANGLE] = maxAngle;
+			x[i + VELOCITY] = Math.min(x[i + VELOCITY], 0);
+		}
+	}
+}
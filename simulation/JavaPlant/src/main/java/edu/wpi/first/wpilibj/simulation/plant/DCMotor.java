@@ -0,0 +1,76 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.simulation.plant;
+
+/**
+ * The characteristics of a brushed DC motor, from its datasheet.
+ *
+ * The motor is modeled by a winding resistance, a back-EMF constant and a
+ * torque constant, which are derived from the stall and free running points
+ * at the nominal voltage.
+ */
+public class DCMotor {
+	/**
+	 * The voltage the datasheet values are given at.
+	 */
+	public static final double NOMINAL_VOLTAGE = 12.0;
+
+	private final double resistance;
+	private final double kv;
+	private final double kt;
+
+	/**
+	 * @param stallTorque The stall torque in newton meters
+	 * @param stallCurrent The stall current in amps
+	 * @param freeSpeed The free speed in revolutions per minute
+	 * @param freeCurrent The free current in amps
+	 */
+	public DCMotor(double stallTorque, double stallCurrent, double freeSpeed, double freeCurrent) {
+		resistance = NOMINAL_VOLTAGE / stallCurrent;
+		kv = (freeSpeed * 2 * Math.PI / 60) / (NOMINAL_VOLTAGE - resistance * freeCurrent);
+		kt = stallTorque / stallCurrent;
+	}
+
+	public static DCMotor cim() {
+		return new DCMotor(2.41, 131, 5330, 2.7);
+	}
+
+	public static DCMotor miniCim() {
+		return new DCMotor(1.41, 89, 5840, 3);
+	}
+
+	public static DCMotor bag() {
+		return new DCMotor(0.43, 53, 13180, 1.8);
+	}
+
+	public static DCMotor rs775pro() {
+		return new DCMotor(0.71, 134, 18730, 0.7);
+	}
+
+	/**
+	 * Get the torque of the motor.
+	 *
+	 * @param voltage The applied voltage
+	 * @param speed The speed of the motor in radians per second
+	 * @return The torque in newton meters
+	 */
+	public double torque(double voltage, double speed) {
+		return kt * current(voltage, speed);
+	}
+
+	/**
+	 * Get the current drawn by the motor.
+	 *
+	 * @param voltage The applied voltage
+	 * @param speed The speed of the motor in radians per second
+	 * @return The current in amps
+	 */
+	public double current(double voltage, double speed) {
+		return (voltage - speed / kv) / resistance;
+	}
+}
@@ -0,0 +1,171 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.simulation.plant;
+
+import org.gazebosim.transport.Node;
+
+/**
+ * A robot driven by a gearbox on each side, such as a tank or west coast
+ * drive, on a flat floor without wheel slip.
+ *
+ * The state is the position and heading of the robot on the field, the
+ * velocity of each side and the distance each side has traveled. The heading
+ * is counterclockwise from the x axis, as the gyro plugin measures yaw.
+ *
+ * RobotDrive negates the signals of the right side, so its input is normally
+ * inverted.
+ */
+public class DifferentialDrivetrain extends Model {
+	private static final int X = 0, Y = 1, HEADING = 2, LEFT_VELOCITY = 3, RIGHT_VELOCITY = 4,
+			LEFT_DISTANCE = 5, RIGHT_DISTANCE = 6;
+
+	private final Gearbox leftGearbox, rightGearbox;
+	private final MotorInput leftInput, rightInput;
+	private final double mass;
+	private final double inertia;
+	private final double trackWidth;
+	private final double wheelRadius;
+	private double leftVoltage, rightVoltage;
+
+	private final Shaft leftWheel = new Shaft() {
+		@Override
+		public double getAngle() {
+			return get(LEFT_DISTANCE) / wheelRadius;
+		}
+
+		@Override
+		public double getVelocity() {
+			return get(LEFT_VELOCITY) / wheelRadius;
+		}
+	};
+
+	private final Shaft rightWheel = new Shaft() {
+		@Override
+		public double getAngle() {
+			return get(RIGHT_DISTANCE) / wheelRadius;
+		}
+
+		@Override
+		public double getVelocity() {
+			return get(RIGHT_VELOCITY) / wheelRadius;
+		}
+	};
+
+	private final Shaft heading = new Shaft() {
+		@Override
+		public double getAngle() {
+			return get(HEADING);
+		}
+
+		@Override
+		public double getVelocity() {
+			return (get(RIGHT_VELOCITY) - get(LEFT_VELOCITY)) / trackWidth;
+		}
+	};
+
+	/**
+	 * @param leftGearbox The gearbox of the left side
+	 * @param leftInput The speed controllers of the left side
+	 * @param rightGearbox The gearbox of the right side
+	 * @param rightInput The speed controllers of the right side
+	 * @param mass The mass of the robot in kg
+	 * @param inertia The moment of inertia of the robot about its center in
+	 *        kg m^2
+	 * @param trackWidth The distance between the left and right wheels in
+	 *        meters
+	 * @param wheelRadius The radius of the wheels in meters
+	 */
+	public DifferentialDrivetrain(Gearbox leftGearbox, MotorInput leftInput,
+			Gearbox rightGearbox, MotorInput rightInput, double mass, double inertia,
+			double trackWidth, double wheelRadius) {
+		super(7);
+		this.leftGearbox = leftGearbox;
+		this.leftInput = leftInput;
+		this.rightGearbox = rightGearbox;
+		this.rightInput = rightInput;
+		this.mass = mass;
+		this.inertia = inertia;
+		this.trackWidth = trackWidth;
+		this.wheelRadius = wheelRadius;
+	}
+
+	/**
+	 * @return The left wheels, for an encoder
+	 */
+	public Shaft leftWheel() {
+		return leftWheel;
+	}
+
+	/**
+	 * @return The right wheels, for an encoder
+	 */
+	public Shaft rightWheel() {
+		return rightWheel;
+	}
+
+	/**
+	 * @return The heading of the robot, for a gyro
+	 */
+	public Shaft heading() {
+		return heading;
+	}
+
+	/**
+	 * @return The x position of the robot in meters
+	 */
+	public double getX() {
+		return get(X);
+	}
+
+	/**
+	 * @return The y position of the robot in meters
+	 */
+	public double getY() {
+		return get(Y);
+	}
+
+	/**
+	 * @return The heading of the robot in radians
+	 */
+	public double getHeading() {
+		return get(HEADING);
+	}
+
+	@Override
+	protected void connect(Node node) {
+		leftInput.connect(node);
+		rightInput.connect(node);
+	}
+
+	@Override
+	protected void sampleInputs() {
+		leftVoltage = leftInput.getVoltage();
+		rightVoltage = rightInput.getVoltage();
+	}
+
+	@Override
+	protected void derivatives(double[] x, int i, double[] dxdt) {
+		double vl = x[i + LEFT_VELOCITY];
+		double vr = x[i + RIGHT_VELOCITY];
+		double theta = x[i + HEADING];
+		double fl = leftGearbox.torque(leftVoltage, vl / wheelRadius) / wheelRadius;
+		double fr = rightGearbox.torque(rightVoltage, vr / wheelRadius) / wheelRadius;
+
+		double v = (vl + vr) / 2;
+		double accel = (fl + fr) / mass;
+		double alpha = (fr - fl) * trackWidth / 2 / inertia;
+
+		dxdt[i + X] = v * Math.cos(theta);
+		dxdt[i + Y] = v * Math.sin(theta);
+		dxdt[i + HEADING] = (vr - vl) / trackWidth;
+		dxdt[i + LEFT_VELOCITY] = accel - alpha * trackWidth / 2;
+		dxdt[i + RIGHT_VELOCITY] = accel + alpha * trackWidth / 2;
+		dxdt[i + LEFT_DISTANCE] = vl;
+		dxdt[i + RIGHT_DISTANCE] = vr;
+	}
+}
@@ -0,0 +1,111 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.simulation.plant;
+
+import org.gazebosim.transport.Node;
+
+/**
+ * A carriage lifted against gravity by a gearbox winding a cable on a drum,
+ * with hard stops at both ends of its travel.
+ *
+ * The state is the height of the carriage and its velocity.
+ */
+public class Elevator extends Model {
+	/**
+	 * The acceleration of gravity in m/s^2.
+	 */
+	public static final double GRAVITY = 9.81;
+
+	private static final int HEIGHT = 0, VELOCITY = 1;
+
+	private final Gearbox gearbox;
+	private final MotorInput input;
+	private final double mass;
+	private final double drumRadius;
+	private final double minHeight, maxHeight;
+	private double voltage;
+
+	private final Shaft drum = new Shaft() {
+		@Override
+		public double getAngle() {
+			return get(HEIGHT) / drumRadius;
+		}
+
+		@Override
+		public double getVelocity() {
+			return get(VELOCITY) / drumRadius;
+		}
+	};
+
+	/**
+	 * @param gearbox The gearbox turning the drum
+	 * @param input The speed controllers driving the gearbox
+	 * @param mass The mass of the carriage in kg
+	 * @param drumRadius The radius of the drum in meters
+	 * @param minHeight The lowest height in meters, where the carriage starts
+	 * @param maxHeight The highest height in meters
+	 */
+	public Elevator(Gearbox gearbox, MotorInput input, double mass, double drumRadius,
+			double minHeight, double maxHeight) {
+		super(2);
+		this.gearbox = gearbox;
+		this.input = input;
+		this.mass = mass;
+		this.drumRadius = drumRadius;
+		this.minHeight = minHeight;
+		this.maxHeight = maxHeight;
+	}
+
+	/**
+	 * @return The drum, for an encoder
+	 */
+	public Shaft drum() {
+		return drum;
+	}
+
+	/**
+	 * @return The height of the carriage in meters
+	 */
+	public double getHeight() {
+		return get(HEIGHT);
+	}
+
+	@Override
+	protected void initialize(double[] x, int i) {
+		x[i + HEIGHT] = minHeight;
+	}
+
+	@Override
+	protected void connect(Node node) {
+		input.connect(node);
+	}
+
+	@Override
+	protected void sampleInputs() {
+		voltage = input.getVoltage();
+	}
+
+	@Override
+	protected void derivatives(double[] x, int i, double[] dxdt) {
+		double v = x[i + VELOCITY];
+		double force = gearbox.torque(voltage, v / drumRadius) / drumRadius;
+		dxdt[i + HEIGHT] = v;
+		dxdt[i + VELOCITY] = force / mass - GRAVITY;
+	}
+
+	@Override
+	protected void constrain(double[] x, int i) {
+		if (x[i + HEIGHT] < minHeight) {
+			x[i + HEIGHT] = minHeight;
+			x[i + VELOCITY] = Math.max(x[i + VELOCITY], 0);
+		} else if (x[i + HEIGHT] > maxHeight) {
+			x[i + HEIGHT] = maxHeight;
+			x[i + VELOCITY] = Math.min(x[i + VELOCITY], 0);
+		}
+	}
+}
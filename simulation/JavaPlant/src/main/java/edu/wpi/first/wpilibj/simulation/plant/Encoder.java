@@ -0,0 +1,94 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.simulation.plant;
+
+import gazebo.msgs.GzFloat64.Float64;
+import gazebo.msgs.GzString;
+
+import org.gazebosim.transport.Msgs;
+import org.gazebosim.transport.Node;
+import org.gazebosim.transport.Publisher;
+import org.gazebosim.transport.SubscriberCallback;
+
+/**
+ * An encoder on a shaft, which behaves like the encoder plugin: it publishes
+ * on topic+"/position" and topic+"/velocity", and takes the "start", "stop"
+ * and "reset" commands on topic+"/control". It starts stopped.
+ */
+public class Encoder implements Sensor {
+	private final String topic;
+	private final Shaft shaft;
+	private final double scale;
+	private Publisher<Float64> pos_pub, vel_pub;
+
+	// Guarded by this, since commands arrive on the transport's threads
+	private double zero;
+	private boolean stopped = true;
+	private double stop_value = 0;
+
+	/**
+	 * @param topic The topic, such as "simulator/dio/1/2"
+	 * @param shaft The shaft the encoder measures
+	 * @param degrees True to measure in degrees, rather than radians
+	 */
+	public Encoder(String topic, Shaft shaft, boolean degrees) {
+		this.topic = topic;
+		this.shaft = shaft;
+		this.scale = degrees ? 180 / Math.PI : 1;
+	}
+
+	/**
+	 * @param topic The topic, such as "simulator/dio/1/2"
+	 * @param shaft The shaft the encoder measures, in radians
+	 */
+	public Encoder(String topic, Shaft shaft) {
+		this(topic, shaft, false);
+	}
+
+	@Override
+	public synchronized void connect(Node node) {
+		zero = getAngle();
+		node.subscribe(topic + "/control", Msgs.String(), new SubscriberCallback<GzString.String>() {
+			@Override
+			public void callback(GzString.String msg) {
+				command(msg.getData());
+			}
+		});
+		pos_pub = node.advertise(topic + "/position", Msgs.Float64());
+		vel_pub = node.advertise(topic + "/velocity", Msgs.Float64());
+	}
+
+	private synchronized void command(String command) {
+		if (command.equals("reset")) {
+			zero = getAngle();
+		} else if (command.equals("start")) {
+			stopped = false;
+			zero = getAngle() - stop_value;
+		} else if (command.equals("stop")) {
+			stopped = true;
+			stop_value = getAngle();
+		} else {
+			System.err.println("WARNING: Encoder got unknown command '" + command + "'.");
+		}
+	}
+
+	@Override
+	public synchronized void publish() {
+		if (stopped) {
+			pos_pub.publishFloat64(stop_value);
+			vel_pub.publishFloat64(0);
+		} else {
+			pos_pub.publishFloat64(getAngle() - zero);
+			vel_pub.publishFloat64(shaft.getVelocity() * scale);
+		}
+	}
+
+	private double getAngle() {
+		return shaft.getAngle() * scale;
+	}
+}
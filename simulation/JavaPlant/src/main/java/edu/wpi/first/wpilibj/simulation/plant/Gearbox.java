@@ -0,0 +1,52 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.simulation.plant;
+
+/**
+ * One or more identical DC motors driving an output shaft through a
+ * reduction.
+ */
+public class Gearbox {
+	private final DCMotor motor;
+	private final int count;
+	private final double ratio;
+
+	/**
+	 * @param motor The motor
+	 * @param count The number of motors, which all get the same voltage
+	 * @param ratio The reduction, which is the motor speed over the output
+	 *        speed
+	 */
+	public Gearbox(DCMotor motor, int count, double ratio) {
+		this.motor = motor;
+		this.count = count;
+		this.ratio = ratio;
+	}
+
+	/**
+	 * Get the torque at the output shaft.
+	 *
+	 * @param voltage The voltage applied to each motor
+	 * @param speed The speed of the output shaft in radians per second
+	 * @return The torque in newton meters
+	 */
+	public double torque(double voltage, double speed) {
+		return count * ratio * motor.torque(voltage, speed * ratio);
+	}
+
+	/**
+	 * Get the total current drawn by the motors.
+	 *
+	 * @param voltage The voltage applied to each motor
+	 * @param speed The speed of the output shaft in radians per second
+	 * @return The current in amps
+	 */
+	public double current(double voltage, double speed) {
+		return count * motor.current(voltage, speed * ratio);
+	}
+}
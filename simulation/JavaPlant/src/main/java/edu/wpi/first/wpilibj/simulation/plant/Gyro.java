@@ -0,0 +1,94 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.simulation.plant;
+
+import gazebo.msgs.GzFloat64.Float64;
+import gazebo.msgs.GzString;
+
+import org.gazebosim.transport.Msgs;
+import org.gazebosim.transport.Node;
+import org.gazebosim.transport.Publisher;
+import org.gazebosim.transport.SubscriberCallback;
+
+/**
+ * A gyro on a shaft, which behaves like the gyro plugin: it publishes the
+ * angle since the last reset, limited to a half turn either way, on
+ * topic+"/position" and the angular velocity on topic+"/velocity", and takes
+ * the "reset" command on topic+"/control".
+ */
+public class Gyro implements Sensor {
+	private final String topic;
+	private final Shaft shaft;
+	private final double scale;
+	private Publisher<Float64> pos_pub, vel_pub;
+
+	// Guarded by this, since resets arrive on the transport's threads
+	private double zero;
+
+	/**
+	 * @param topic The topic, such as "simulator/analog/1"
+	 * @param shaft The shaft the gyro measures, such as the heading of a
+	 *        drivetrain
+	 * @param degrees True to measure in degrees, rather than radians
+	 */
+	public Gyro(String topic, Shaft shaft, boolean degrees) {
+		this.topic = topic;
+		this.shaft = shaft;
+		this.scale = degrees ? 180 / Math.PI : 1;
+	}
+
+	/**
+	 * @param topic The topic, such as "simulator/analog/1"
+	 * @param shaft The shaft the gyro measures, in radians
+	 */
+	public Gyro(String topic, Shaft shaft) {
+		this(topic, shaft, false);
+	}
+
+	@Override
+	public synchronized void connect(Node node) {
+		zero = getAngle();
+		node.subscribe(topic + "/control", Msgs.String(), new SubscriberCallback<GzString.String>() {
+			@Override
+			public void callback(GzString.String msg) {
+				command(msg.getData());
+			}
+		});
+		pos_pub = node.advertise(topic + "/position", Msgs.Float64());
+		vel_pub = node.advertise(topic + "/velocity", Msgs.Float64());
+	}
+
+	private synchronized void command(String command) {
+		if (command.equals("reset")) {
+			zero = getAngle();
+		} else {
+			System.err.println("WARNING: Gyro got unknown command '" + command + "'.");
+		}
+	}
+
+	@Override
+	public synchronized void publish() {
+		pos_pub.publishFloat64(limit(getAngle() - zero));
+		vel_pub.publishFloat64(shaft.getVelocity() * scale);
+	}
+
+	private double getAngle() {
+		return shaft.getAngle() * scale;
+	}
+
+	private double limit(double value) {
+		double halfTurn = Math.PI * scale;
+		while (value < -halfTurn) {
+			value += 2 * halfTurn;
+		}
+		while (value > halfTurn) {
+			value -= 2 * halfTurn;
+		}
+		return value;
+	}
+}
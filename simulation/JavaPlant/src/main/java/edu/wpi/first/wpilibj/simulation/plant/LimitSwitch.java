@@ -0,0 +1,50 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.simulation.plant;
+
+import gazebo.msgs.GzBool.Bool;
+
+import org.gazebosim.transport.Msgs;
+import org.gazebosim.transport.Node;
+import org.gazebosim.transport.Publisher;
+
+/**
+ * A limit switch on a shaft, which behaves like an internal limit switch in
+ * the limit_switch plugin: it publishes true on its topic while the angle of
+ * the shaft is within a range.
+ */
+public class LimitSwitch implements Sensor {
+	private final String topic;
+	private final Shaft shaft;
+	private final double min, max;
+	private Publisher<Bool> pub;
+
+	/**
+	 * @param topic The topic, such as "simulator/dio/3"
+	 * @param shaft The shaft the limit switch measures
+	 * @param min The lowest angle at which the switch is pressed in radians
+	 * @param max The highest angle at which the switch is pressed in radians
+	 */
+	public LimitSwitch(String topic, Shaft shaft, double min, double max) {
+		this.topic = topic;
+		this.shaft = shaft;
+		this.min = min;
+		this.max = max;
+	}
+
+	@Override
+	public void connect(Node node) {
+		pub = node.advertise(topic, Msgs.Bool());
+	}
+
+	@Override
+	public void publish() {
+		double value = shaft.getAngle();
+		pub.publishBool(value >= min && value <= max);
+	}
+}
@@ -0,0 +1,76 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.simulation.plant;
+
+import org.gazebosim.transport.Node;
+
+/**
+ * A gearbox turning an inertia against viscous friction, such as a shooter
+ * wheel, an intake roller or a turret.
+ *
+ * The state is the angle and the angular velocity of the output shaft.
+ */
+public class Mechanism extends Model {
+	private static final int ANGLE = 0, VELOCITY = 1;
+
+	private final Gearbox gearbox;
+	private final MotorInput input;
+	private final double inertia;
+	private final double friction;
+	private double voltage;
+
+	private final Shaft shaft = new Shaft() {
+		@Override
+		public double getAngle() {
+			return get(ANGLE);
+		}
+
+		@Override
+		public double getVelocity() {
+			return get(VELOCITY);
+		}
+	};
+
+	/**
+	 * @param gearbox The gearbox
+	 * @param input The speed controllers driving the gearbox
+	 * @param inertia The moment of inertia at the output shaft in kg m^2
+	 * @param friction The viscous friction at the output shaft in N m s/rad
+	 */
+	public Mechanism(Gearbox gearbox, MotorInput input, double inertia, double friction) {
+		super(2);
+		this.gearbox = gearbox;
+		this.input = input;
+		this.inertia = inertia;
+		this.friction = friction;
+	}
+
+	/**
+	 * @return The output shaft
+	 */
+	public Shaft shaft() {
+		return shaft;
+	}
+
+	@Override
+	protected void connect(Node node) {
+		input.connect(node);
+	}
+
+	@Override
+	protected void sampleInputs() {
+		voltage = input.getVoltage();
+	}
+
+	@Override
+	protected void derivatives(double[] x, int i, double[] dxdt) {
+		double w = x[i + VELOCITY];
+		dxdt[i + ANGLE] = w;
+		dxdt[i + VELOCITY] = (gearbox.torque(voltage, w) - friction * w) / inertia;
+	}
+}
@@ -0,0 +1,82 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.simulation.plant;
+
+import org.gazebosim.transport.Node;
+
+/**
+ * A plant model, whose state is a slice of the {@link Plant}'s state array.
+ *
+ * The methods which take a state array get the index of the model's first
+ * element, so the models read and write the shared arrays in place.
+ */
+public abstract class Model {
+	final int size;
+	int offset;
+	private double[] state;
+
+	/**
+	 * @param size The number of elements in the state
+	 */
+	protected Model(int size) {
+		this.size = size;
+	}
+
+	void attach(double[] state, int offset) {
+		this.state = state;
+		this.offset = offset;
+	}
+
+	/**
+	 * Get an element of the current state, for the sensors.
+	 *
+	 * @param index The index within this model's state
+	 */
+	protected final double get(int index) {
+		return state[offset + index];
+	}
+
+	/**
+	 * Set the initial state. The state is zero by default.
+	 *
+	 * @param x The state array
+	 * @param i The index of the model's first element
+	 */
+	protected void initialize(double[] x, int i) {
+	}
+
+	/**
+	 * Subscribe to the motor topics.
+	 */
+	protected abstract void connect(Node node);
+
+	/**
+	 * Take the latest motor inputs, which are then held for the whole step.
+	 */
+	protected abstract void sampleInputs();
+
+	/**
+	 * Compute the derivative of the state. This is called four times per
+	 * step, with different states, and must not allocate.
+	 *
+	 * @param x The state array
+	 * @param i The index of the model's first element
+	 * @param dxdt The array to write the derivatives to, at the same indices
+	 */
+	protected abstract void derivatives(double[] x, int i, double[] dxdt);
+
+	/**
+	 * Apply hard limits to the state after a step, such as the end of an
+	 * elevator's travel.
+	 *
+	 * @param x The state array
+	 * @param i The index of the model's first element
+	 */
+	protected void constrain(double[] x, int i) {
+	}
+}
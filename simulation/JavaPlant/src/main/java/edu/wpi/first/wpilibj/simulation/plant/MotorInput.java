@@ -0,0 +1,77 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.simulation.plant;
+
+import gazebo.msgs.GzFloat64.Float64;
+
+import org.gazebosim.transport.Msgs;
+import org.gazebosim.transport.Node;
+import org.gazebosim.transport.SubscriberCallback;
+
+/**
+ * The speed controller signals driving a gearbox, such as "simulator/pwm/1",
+ * as the dc_motor plugin reads them.
+ *
+ * When several controllers drive the same gearbox, the voltage is the mean of
+ * their signals, which gives the same torque as each motor getting its own
+ * signal.
+ */
+public class MotorInput {
+	private final String[] topics;
+	private final double[] signals;
+	private final boolean inverted;
+
+	/**
+	 * @param inverted True if a positive signal turns the shaft backwards, like
+	 *        a multiplier of -1 in the dc_motor plugin
+	 * @param topics The speed controller topics
+	 */
+	public MotorInput(boolean inverted, String... topics) {
+		if (topics.length == 0) {
+			throw new IllegalArgumentException("No motor topics");
+		}
+		this.topics = topics.clone();
+		this.signals = new double[topics.length];
+		this.inverted = inverted;
+	}
+
+	/**
+	 * @param topics The speed controller topics
+	 */
+	public MotorInput(String... topics) {
+		this(false, topics);
+	}
+
+	void connect(Node node) {
+		for (int i = 0; i < topics.length; i++) {
+			final int index = i;
+			node.subscribe(topics[i], Msgs.Float64(), new SubscriberCallback<Float64>() {
+				@Override
+				public void callback(Float64 msg) {
+					set(index, msg.getData());
+				}
+			});
+		}
+	}
+
+	private synchronized void set(int index, double signal) {
+		signals[index] = Math.max(-1, Math.min(1, signal));
+	}
+
+	/**
+	 * @return The voltage applied to each motor
+	 */
+	public synchronized double getVoltage() {
+		double sum = 0;
+		for (double signal : signals) {
+			sum += signal;
+		}
+		double voltage = sum / signals.length * DCMotor.NOMINAL_VOLTAGE;
+		return inverted ? -voltage : voltage;
+	}
+}
@@ -0,0 +1,183 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.simulation.plant;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.gazebosim.transport.LockstepClock;
+import org.gazebosim.transport.Node;
+
+/**
+ * A set of plant models which stands in for a Gazebo world with the
+ * frc_gazebo_plugins.
+ *
+ * The models subscribe to the same motor topics and the sensors publish on the
+ * same topics, with the same message types, as the plugins, so the simulated
+ * robot talks to them unchanged. They must be connected to a node with the
+ * same name as the robot's, which is "frc" unless the robot runs in a
+ * simulation context of another name.
+ *
+ * The state of every model is kept in one array, which is integrated with the
+ * classic fourth order Runge-Kutta method at a fixed step. The motor inputs
+ * are held for the whole step. All of the arrays are allocated when the plant
+ * is connected, so stepping allocates nothing except the sensor messages of
+ * the in-process transport.
+ *
+ * The plant is stepped by a {@link LockstepClock}, which also publishes the
+ * time:
+ *
+ * <pre>
+ * Plant plant = new Plant();
+ * DifferentialDrivetrain drive = plant.add(new DifferentialDrivetrain(...));
+ * plant.add(new Gyro("simulator/analog/1", drive.heading()));
+ * plant.connect(node);
+ * new LockstepClock(node, "time", 0.001, plant).start();
+ * </pre>
+ *
+ * When the robot is not run in lockstep, the harness calls
+ * {@link LockstepClock#advanceTo(double)} with the wall clock time instead.
+ */
+public class Plant implements LockstepClock.Plant {
+	private final List<Model> models = new ArrayList<>();
+	private final List<Sensor> sensors = new ArrayList<>();
+	private Model[] modelArray;
+	private Sensor[] sensorArray;
+
+	// The state, the four slopes and the state at which a slope is taken
+	private double[] x, k1, k2, k3, k4, xt;
+	private double time = 0;
+
+	/**
+	 * Add a model. Models must be added before the plant is connected.
+	 *
+	 * @return The model
+	 */
+	public synchronized <M extends Model> M add(M model) {
+		checkNotConnected();
+		models.add(model);
+		return model;
+	}
+
+	/**
+	 * Add a sensor, which publishes after every step. Sensors must be added
+	 * before the plant is connected.
+	 *
+	 * @return The sensor
+	 */
+	public synchronized <S extends Sensor> S add(S sensor) {
+		checkNotConnected();
+		sensors.add(sensor);
+		return sensor;
+	}
+
+	private void checkNotConnected() {
+		if (x != null) {
+			throw new IllegalStateException("The plant is already connected");
+		}
+	}
+
+	/**
+	 * Allocate the state, and subscribe to the motor topics and advertise the
+	 * sensor topics on a node.
+	 *
+	 * @param node The node, which must have the same name as the robot's
+	 */
+	public synchronized void connect(Node node) {
+		checkNotConnected();
+		int size = 0;
+		for (Model model : models) {
+			size += model.size;
+		}
+		x = new double[size];
+		k1 = new double[size];
+		k2 = new double[size];
+		k3 = new double[size];
+		k4 = new double[size];
+		xt = new double[size];
+
+		int offset = 0;
+		for (Model model : models) {
+			model.attach(x, offset);
+			model.initialize(x, offset);
+			model.connect(node);
+			offset += model.size;
+		}
+		for (Sensor sensor : sensors) {
+			sensor.connect(node);
+		}
+		modelArray = models.toArray(new Model[models.size()]);
+		sensorArray = sensors.toArray(new Sensor[sensors.size()]);
+		publish();
+	}
+
+	/**
+	 * Advance the models by one step and publish the sensors.
+	 *
+	 * @param time The simulation time at the end of the step in seconds
+	 * @param dt The length of the step in seconds
+	 */
+	@Override
+	public synchronized void step(double time, double dt) {
+		integrate(dt);
+		this.time = time;
+		publish();
+	}
+
+	/**
+	 * Advance the models by one step without publishing.
+	 *
+	 * @param dt The length of the step in seconds
+	 */
+	public synchronized void integrate(double dt) {
+		if (x == null) {
+			throw new IllegalStateException("The plant is not connected");
+		}
+		for (Model model : modelArray) {
+			model.sampleInputs();
+		}
+		derivatives(x, k1);
+		advance(x, k1, dt / 2, xt);
+		derivatives(xt, k2);
+		advance(x, k2, dt / 2, xt);
+		derivatives(xt, k3);
+		advance(x, k3, dt, xt);
+		derivatives(xt, k4);
+		for (int i = 0; i < x.length; i++) {
+			x[i] += dt / 6 * (k1[i] + 2 * k2[i] + 2 * k3[i] + k4[i]);
+		}
+		for (Model model : modelArray) {
+			model.constrain(x, model.offset);
+		}
+	}
+
+	private void derivatives(double[] state, double[] dxdt) {
+		for (Model model : modelArray) {
+			model.derivatives(state, model.offset, dxdt);
+		}
+	}
+
+	private static void advance(double[] state, double[] slope, double h, double[] out) {
+		for (int i = 0; i < state.length; i++) {
+			out[i] = state[i] + h * slope[i];
+		}
+	}
+
+	private void publish() {
+		for (Sensor sensor : sensorArray) {
+			sensor.publish();
+		}
+	}
+
+	/**
+	 * @return The simulation time of the last step in seconds
+	 */
+	public synchronized double getTime() {
+		return time;
+	}
+}
@@ -0,0 +1,54 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.simulation.plant;
+
+import gazebo.msgs.GzFloat64.Float64;
+
+import org.gazebosim.transport.Msgs;
+import org.gazebosim.transport.Node;
+import org.gazebosim.transport.Publisher;
+
+/**
+ * A potentiometer on a shaft, which behaves like the potentiometer plugin: it
+ * publishes the angle of the shaft on its topic.
+ */
+public class Potentiometer implements Sensor {
+	private final String topic;
+	private final Shaft shaft;
+	private final double scale;
+	private Publisher<Float64> pub;
+
+	/**
+	 * @param topic The topic, such as "simulator/analog/2"
+	 * @param shaft The shaft the potentiometer measures
+	 * @param degrees True to measure in degrees, rather than radians
+	 */
+	public Potentiometer(String topic, Shaft shaft, boolean degrees) {
+		this.topic = topic;
+		this.shaft = shaft;
+		this.scale = degrees ? 180 / Math.PI : 1;
+	}
+
+	/**
+	 * @param topic The topic, such as "simulator/analog/2"
+	 * @param shaft The shaft the potentiometer measures, in radians
+	 */
+	public Potentiometer(String topic, Shaft shaft) {
+		this(topic, shaft, false);
+	}
+
+	@Override
+	public void connect(Node node) {
+		pub = node.advertise(topic, Msgs.Float64());
+	}
+
+	@Override
+	public void publish() {
+		pub.publishFloat64(shaft.getAngle() * scale);
+	}
+}
@@ -0,0 +1,25 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.simulation.plant;
+
+import org.gazebosim.transport.Node;
+
+/**
+ * A sensor which publishes a value of a {@link Plant} after every step.
+ */
+public interface Sensor {
+	/**
+	 * Advertise the sensor topics and subscribe to the command topics.
+	 */
+	void connect(Node node);
+
+	/**
+	 * Publish the current value.
+	 */
+	void publish();
+}
@@ -0,0 +1,24 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.simulation.plant;
+
+/**
+ * Something which turns, which a sensor measures. This is the joint or link
+ * a sensor plugin is attached to in Gazebo.
+ */
+public interface Shaft {
+	/**
+	 * @return The angle in radians
+	 */
+	double getAngle();
+
+	/**
+	 * @return The angular velocity in radians per second
+	 */
+	double getVelocity();
+}
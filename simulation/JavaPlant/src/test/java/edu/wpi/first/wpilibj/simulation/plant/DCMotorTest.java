@@ -0,0 +1,47 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.simulation.plant;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class DCMotorTest {
+	private static final double EPSILON = 1e-9;
+	private static final double FREE_SPEED = 5330 * 2 * Math.PI / 60;
+
+	@Test
+	public void stallAtNominalVoltage() {
+		DCMotor cim = DCMotor.cim();
+		assertEquals(2.41, cim.torque(12, 0), EPSILON);
+		assertEquals(131, cim.current(12, 0), EPSILON);
+	}
+
+	@Test
+	public void freeSpeedAtNominalVoltage() {
+		DCMotor cim = DCMotor.cim();
+		// Only the free current flows, which turns against the motor's friction
+		assertEquals(2.7, cim.current(12, FREE_SPEED), EPSILON);
+		assertEquals(2.41 / 131 * 2.7, cim.torque(12, FREE_SPEED), EPSILON);
+	}
+
+	@Test
+	public void torqueScalesWithVoltage() {
+		DCMotor cim = DCMotor.cim();
+		assertEquals(2.41 / 2, cim.torque(6, 0), EPSILON);
+		assertEquals(-2.41, cim.torque(-12, 0), EPSILON);
+	}
+
+	@Test
+	public void gearboxMultipliesTorqueAndDividesSpeed() {
+		Gearbox gearbox = new Gearbox(DCMotor.cim(), 2, 10.71);
+		assertEquals(2 * 10.71 * 2.41, gearbox.torque(12, 0), EPSILON);
+		assertEquals(2 * 131, gearbox.current(12, 0), EPSILON);
+		assertEquals(2 * 2.7, gearbox.current(12, FREE_SPEED / 10.71), EPSILON);
+	}
+}
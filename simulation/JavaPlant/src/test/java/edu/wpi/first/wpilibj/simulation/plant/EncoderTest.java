@@ -0,0 +1,154 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.simulation.plant;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import gazebo.msgs.GzFloat64.Float64;
+import gazebo.msgs.GzString;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.gazebosim.transport.Msgs;
+import org.gazebosim.transport.Node;
+import org.gazebosim.transport.Publisher;
+import org.gazebosim.transport.SubscriberCallback;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the sensors against the command handling of the encoder and gyro
+ * plugins.
+ */
+public class EncoderTest {
+	private Node node;
+	private Publisher<GzString.String> control;
+	private Publisher<Float64> sync;
+	private final BlockingQueue<Double> positions = new ArrayBlockingQueue<>(10);
+	private final BlockingQueue<Double> synced = new ArrayBlockingQueue<>(10);
+
+	/**
+	 * A shaft which the test turns.
+	 */
+	private static final class TestShaft implements Shaft {
+		double angle, velocity;
+
+		@Override
+		public double getAngle() {
+			return angle;
+		}
+
+		@Override
+		public double getVelocity() {
+			return velocity;
+		}
+	}
+
+	private final TestShaft shaft = new TestShaft();
+
+	@Before
+	public void setUp() throws Exception {
+		node = new Node("encoderTest", Node.Transport.IN_PROCESS);
+		node.waitForConnection();
+		node.subscribe("sensor/position", Msgs.Float64(), new SubscriberCallback<Float64>() {
+			@Override
+			public void callback(Float64 msg) {
+				positions.add(msg.getData());
+			}
+		});
+		// Delivered after the commands published before it
+		node.subscribe("sync", Msgs.Float64(), new SubscriberCallback<Float64>() {
+			@Override
+			public void callback(Float64 msg) {
+				synced.add(msg.getData());
+			}
+		});
+		control = node.advertise("sensor/control", Msgs.String());
+		sync = node.advertise("sync", Msgs.Float64());
+	}
+
+	@After
+	public void tearDown() {
+		node.close();
+	}
+
+	private void command(String command) throws InterruptedException {
+		control.publishString(command);
+		sync.publishFloat64(0);
+		assertTrue(synced.poll(5, TimeUnit.SECONDS) != null);
+	}
+
+	private double read(Sensor sensor) throws InterruptedException {
+		sensor.publish();
+		Double position = positions.poll(5, TimeUnit.SECONDS);
+		assertTrue(position != null);
+		return position;
+	}
+
+	@Test
+	public void encoderStartStopAndReset() throws Exception {
+		Encoder encoder = new Encoder("sensor", shaft);
+		encoder.connect(node);
+
+		// Starts stopped
+		shaft.angle = 2;
+		assertEquals(0, read(encoder), 0);
+
+		command("start");
+		assertEquals(0, read(encoder), 0);
+		shaft.angle = 5;
+		assertEquals(3, read(encoder), 0);
+
+		// Holds the shaft angle it stopped at, and carries on from it
+		command("stop");
+		shaft.angle = 9;
+		assertEquals(5, read(encoder), 0);
+		command("start");
+		shaft.angle = 10;
+		assertEquals(6, read(encoder), 0);
+
+		command("reset");
+		assertEquals(0, read(encoder), 0);
+		shaft.angle = 11;
+		assertEquals(1, read(encoder), 0);
+
+		// Like encoder.cpp, stopping holds the raw shaft angle rather than
+		// the count since the reset
+		command("stop");
+		assertEquals(11, read(encoder), 0);
+	}
+
+	@Test
+	public void encoderMeasuresInDegrees() throws Exception {
+		Encoder encoder = new Encoder("sensor", shaft, true);
+		encoder.connect(node);
+		command("start");
+		shaft.angle = Math.PI / 2;
+		assertEquals(90, read(encoder), 1e-9);
+	}
+
+	@Test
+	public void gyroResetsAndWraps() throws Exception {
+		shaft.angle = 1;
+		Gyro gyro = new Gyro("sensor", shaft, true);
+		gyro.connect(node);
+		assertEquals(0, read(gyro), 1e-9);
+
+		shaft.angle = 1 + Math.PI / 2;
+		assertEquals(90, read(gyro), 1e-9);
+		shaft.angle = 1 + 1.5 * Math.PI;
+		assertEquals(-90, read(gyro), 1e-9);
+
+		command("reset");
+		assertEquals(0, read(gyro), 1e-9);
+	}
+}
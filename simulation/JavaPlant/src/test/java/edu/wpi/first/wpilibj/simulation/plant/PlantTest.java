@@ -0,0 +1,151 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.simulation.plant;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import gazebo.msgs.GzFloat64.Float64;
+
+import org.gazebosim.transport.Msgs;
+import org.gazebosim.transport.Node;
+import org.gazebosim.transport.Publisher;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Steps plants at 1 ms and compares them with closed-form results.
+ */
+public class PlantTest {
+	private static final double DT = 0.001;
+
+	private Node node;
+	private Plant plant;
+
+	@Before
+	public void setUp() throws Exception {
+		node = new Node("plantTest", Node.Transport.IN_PROCESS);
+		node.waitForConnection();
+		plant = new Plant();
+	}
+
+	@After
+	public void tearDown() {
+		node.close();
+	}
+
+	/**
+	 * Set a speed controller signal and wait for the input to see it.
+	 */
+	private void drive(MotorInput input, double expectedVoltage, String topic, double signal)
+			throws InterruptedException {
+		Publisher<Float64> pub = node.advertise(topic, Msgs.Float64());
+		pub.publishFloat64(signal);
+		long deadline = System.nanoTime() + 5000000000L;
+		while (input.getVoltage() != expectedVoltage) {
+			assertTrue("The input did not see " + topic, System.nanoTime() < deadline);
+			Thread.sleep(1);
+		}
+	}
+
+	private void run(double seconds) {
+		for (int i = 0; i < Math.round(seconds / DT); i++) {
+			plant.integrate(DT);
+		}
+	}
+
+	@Test
+	public void mechanismSpinsUpLikeTheClosedForm() throws Exception {
+		Gearbox gearbox = new Gearbox(DCMotor.miniCim(), 1, 4);
+		MotorInput input = new MotorInput("mechanism");
+		double inertia = 0.01, friction = 0.002;
+		Mechanism wheel = plant.add(new Mechanism(gearbox, input, inertia, friction));
+		plant.connect(node);
+		drive(input, 12, "mechanism", 1);
+
+		// The torque is linear in the speed, so J dw/dt = a J - c J w
+		double a = gearbox.torque(12, 0) / inertia;
+		double c = (gearbox.torque(12, 0) - gearbox.torque(12, 1) + friction) / inertia;
+		for (int step = 1; step <= 500; step++) {
+			plant.integrate(DT);
+			double t = step * DT;
+			double decay = Math.exp(-c * t);
+			double w = a / c * (1 - decay);
+			double angle = a / c * (t - (1 - decay) / c);
+			assertEquals(w, wheel.shaft().getVelocity(), 1e-6 * Math.max(1, w));
+			assertEquals(angle, wheel.shaft().getAngle(), 1e-6 * Math.max(1, angle));
+		}
+	}
+
+	private DifferentialDrivetrain drivetrain(MotorInput left, MotorInput right) {
+		Gearbox gearbox = new Gearbox(DCMotor.cim(), 2, 10.71);
+		return plant.add(new DifferentialDrivetrain(gearbox, left, gearbox, right, 50, 6, 0.6,
+				0.0762));
+	}
+
+	@Test
+	public void drivetrainGoesStraightWithEqualInputs() throws Exception {
+		MotorInput left = new MotorInput("left"), right = new MotorInput("right");
+		DifferentialDrivetrain drive = drivetrain(left, right);
+		plant.connect(node);
+		drive(left, 6, "left", 0.5);
+		drive(right, 6, "right", 0.5);
+		run(2);
+
+		assertTrue(drive.getX() > 1);
+		assertEquals(0, drive.getY(), 1e-12);
+		assertEquals(0, drive.getHeading(), 1e-12);
+		assertEquals(drive.leftWheel().getAngle(), drive.rightWheel().getAngle(), 1e-12);
+		assertEquals(0, drive.heading().getVelocity(), 1e-12);
+	}
+
+	@Test
+	public void drivetrainTurnsInPlaceWithOppositeInputs() throws Exception {
+		MotorInput left = new MotorInput("left"), right = new MotorInput("right");
+		DifferentialDrivetrain drive = drivetrain(left, right);
+		plant.connect(node);
+		drive(left, -6, "left", -0.5);
+		drive(right, 6, "right", 0.5);
+		run(1);
+
+		assertEquals(0, drive.getX(), 1e-12);
+		assertEquals(0, drive.getY(), 1e-12);
+		// Counterclockwise, and each side has turned the arc of the heading
+		assertTrue(drive.getHeading() > 0.5);
+		double arc = drive.getHeading() * 0.6 / 2;
+		assertEquals(arc, drive.rightWheel().getAngle() * 0.0762, 1e-9);
+		assertEquals(-arc, drive.leftWheel().getAngle() * 0.0762, 1e-9);
+	}
+
+	@Test
+	public void elevatorStaysWithinItsTravel() throws Exception {
+		MotorInput input = new MotorInput("elevator");
+		Elevator elevator = plant.add(new Elevator(new Gearbox(DCMotor.cim(), 2, 20), input, 10,
+				0.02, 0.1, 1.5));
+		plant.connect(node);
+		assertEquals(0.1, elevator.getHeight(), 0);
+
+		drive(input, 12, "elevator", 1);
+		for (int i = 0; i < 3000; i++) {
+			plant.integrate(DT);
+			assertTrue(elevator.getHeight() <= 1.5);
+		}
+		assertEquals(1.5, elevator.getHeight(), 0);
+		assertEquals(0, elevator.drum().getVelocity(), 0);
+
+		// Driven down onto the bottom stop, where it stays
+		drive(input, -12, "elevator", -1);
+		for (int i = 0; i < 3000; i++) {
+			plant.integrate(DT);
+			assertTrue(elevator.getHeight() >= 0.1);
+		}
+		assertEquals(0.1, elevator.getHeight(), 0);
+		assertEquals(0, elevator.drum().getVelocity(), 0);
+	}
+}
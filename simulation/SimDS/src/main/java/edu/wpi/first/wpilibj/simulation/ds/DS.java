@@ -151,6 +151,7 @@ public class DS {
 
 	public void advertise(Node node) {
 		pub = node.advertise("ds/state", DriverStation.getDefaultInstance());
+		pub.setDeliveryPolicy(Publisher.DeliveryPolicy.LATEST);
 	}
 
 	public void publish() {
@@ -7,7 +7,7 @@
 
 package edu.wpi.first.wpilibj.simulation.ds;
 
-import org.gazebosim.transport.Node;
+import gazebo.msgs.GzJoystick.Joystick;
 
 
 public class FakeJoystick implements ISimJoystick {
@@ -20,7 +20,7 @@ public class FakeJoystick implements ISimJoystick {
 		return getName();
 	}
 
-	@Override public void advertise(Node node, int i) {}
-
-	@Override public void publish() {}
+	@Override public Joystick poll() {
+		return null;
+	}
 }
@@ -7,10 +7,15 @@
 
 package edu.wpi.first.wpilibj.simulation.ds;
 
-import org.gazebosim.transport.Node;
+import gazebo.msgs.GzJoystick.Joystick;
 
 public interface ISimJoystick {
 	String getName();
-	void advertise(Node node, int i);
-	void publish();
+
+	/**
+	 * Read the state of the joystick.
+	 *
+	 * @return The state, or null if there is no joystick to publish
+	 */
+	Joystick poll();
 }
@@ -18,6 +18,7 @@ import java.awt.dnd.DragSourceDragEvent;
 import java.awt.dnd.DragSourceDropEvent;
 import java.awt.dnd.DragSourceEvent;
 import java.awt.dnd.DragSourceListener;
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.swing.DropMode;
@@ -53,7 +54,7 @@ public class JoystickList extends JList<ISimJoystick> {
 	public void setListData(List<ISimJoystick> sticks) {
 		joysticks = sticks;
 		setListData(sticks.toArray(new ISimJoystick[0]));
-		joystickProvider.setJoysticks(sticks);
+		joystickProvider.setJoysticks(new ArrayList<>(sticks));
 	}
 
 	class DragListener implements DragSourceListener, DragGestureListener {
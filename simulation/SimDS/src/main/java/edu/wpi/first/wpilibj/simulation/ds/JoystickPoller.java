@@ -0,0 +1,117 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.simulation.ds;
+
+import gazebo.msgs.GzJoystick.Joystick;
+
+import java.util.List;
+
+import org.gazebosim.transport.Node;
+import org.gazebosim.transport.Publisher;
+
+/**
+ * Polls the joysticks on its own thread and publishes each joystick slot
+ * when its state changes.
+ *
+ * The topics are per slot, "ds/joysticks/0" to "ds/joysticks/5", and are
+ * advertised once, so reordering the joysticks only changes what is
+ * published on them. A slot whose state has not changed is published again
+ * every {@link #kKeepAlivePeriod} milliseconds. A slot which loses its
+ * joystick is published once as an empty joystick, with no axes or buttons,
+ * so the robot does not keep the last state of the lost one. The publishers
+ * are latched, so a robot which starts later gets the current state.
+ */
+public class JoystickPoller implements Runnable {
+	/**
+	 * The system property which sets the polling period in milliseconds.
+	 */
+	public static final String PERIOD_PROPERTY = "simds.joystickPeriod";
+
+	/**
+	 * The polling period in milliseconds when the property is not set.
+	 */
+	public static final long kDefaultPeriod = 20;
+
+	/**
+	 * How often an unchanged slot is published again, in milliseconds.
+	 */
+	public static final long kKeepAlivePeriod = 1000;
+
+	/**
+	 * The number of joystick slots.
+	 */
+	public static final int kSlots = 6;
+
+	private final JoystickProvider provider;
+	private final long period;
+	private final Publisher<Joystick>[] pubs;
+	private final Joystick[] last = new Joystick[kSlots];
+	private final long[] lastPublished = new long[kSlots];
+
+	/**
+	 * @param node The node to advertise the joystick topics on
+	 * @param provider The joysticks, in slot order
+	 * @param period The polling period in milliseconds
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public JoystickPoller(Node node, JoystickProvider provider, long period) {
+		this.provider = provider;
+		this.period = period;
+		pubs = new Publisher[kSlots];
+		for (int i = 0; i < kSlots; i++) {
+			pubs[i] = node.advertise("ds/joysticks/"+i, Joystick.getDefaultInstance());
+			pubs[i].setDeliveryPolicy(Publisher.DeliveryPolicy.LATEST);
+			pubs[i].setLatchMode(true);
+		}
+	}
+
+	/**
+	 * Start polling on a daemon thread.
+	 */
+	public void start() {
+		Thread thread = new Thread(this, "Joystick Poller");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	@Override
+	public void run() {
+		while (!Thread.currentThread().isInterrupted()) {
+			poll();
+			try {
+				Thread.sleep(period);
+			} catch (InterruptedException e) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Poll every joystick and publish the slots which changed, or which are
+	 * due for a keep-alive.
+	 */
+	public void poll() {
+		List<ISimJoystick> joysticks = provider.getJoysticks();
+		long now = System.currentTimeMillis();
+		for (int i = 0; i < kSlots; i++) {
+			Joystick state = i < joysticks.size() ? joysticks.get(i).poll() : null;
+			if (state == null) {
+				if (last[i] != null) {
+					pubs[i].publish(Joystick.getDefaultInstance());
+					last[i] = null;
+				}
+				continue;
+			}
+			if (!state.equals(last[i]) || now - lastPublished[i] >= kKeepAlivePeriod) {
+				pubs[i].publish(state);
+				last[i] = state;
+				lastPublished[i] = now;
+			}
+		}
+	}
+}
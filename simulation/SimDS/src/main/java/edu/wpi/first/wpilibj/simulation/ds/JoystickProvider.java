@@ -17,7 +17,8 @@ import net.java.games.input.Controller;
 import net.java.games.input.ControllerEnvironment;
 
 public class JoystickProvider {
-	List<ISimJoystick> joysticks;
+	// Replaced rather than changed, as the poller reads it on its own thread
+	volatile List<ISimJoystick> joysticks;
 	
 	public JoystickProvider() {
 		scanForJoysticks();
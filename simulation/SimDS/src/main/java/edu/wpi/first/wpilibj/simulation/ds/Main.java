@@ -32,6 +32,8 @@ public class Main {
 		JoystickProvider provider = new JoystickProvider();
 		DS ds = new DS(provider);
 		ds.advertise(node);
+		new JoystickPoller(node, provider,
+				Long.getLong(JoystickPoller.PERIOD_PROPERTY, JoystickPoller.kDefaultPeriod)).start();
 
     	sub = node.subscribe("time", Msgs.Float64(),
 			new SubscriberCallback<Float64>() {
@@ -47,11 +49,7 @@ public class Main {
 
 		while (true) {
 	    	final double start = simTime;
-			for (int i = 0; i < provider.getJoysticks().size(); i++) {
-				ISimJoystick joystick = provider.getJoysticks().get(i);
-				joystick.advertise(node, i);
-				joystick.publish();
-			}
+			// The state is the robot's packet clock, so it is always sent
 			ds.publish();
 
 	    	while ((simTime - start) < 0.020 /*20ms*/) {
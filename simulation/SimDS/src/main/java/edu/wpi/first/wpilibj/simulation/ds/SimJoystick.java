@@ -12,17 +12,12 @@ import gazebo.msgs.GzJoystick.Joystick;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.gazebosim.transport.Node;
-import org.gazebosim.transport.Publisher;
-
 import net.java.games.input.Component;
 import net.java.games.input.Controller;
 
 public class SimJoystick implements ISimJoystick {
 	private Controller controller;
 	private List<Component> axes, buttons;
-	private Publisher<Joystick> pub = null;
-	private int prevI = -1; private Node prevNode = null;
 
 	public SimJoystick(Controller controller) {
 		this.controller = controller;
@@ -48,21 +43,7 @@ public class SimJoystick implements ISimJoystick {
 	}
 
 	@Override
-	public void advertise(Node node, int i) {
-		if (pub == null) {
-			// I'm good
-		} else if (prevI != i || prevNode != node) {
-			// TODO: pub.close();
-		} else {
-			return; // No change
-		}
-		pub = node.advertise("ds/joysticks/"+i, Joystick.getDefaultInstance());
-		prevNode = node;
-		prevI = i;
-	}
-	
-	@Override
-	public void publish() {
+	public Joystick poll() {
 		controller.poll();
 		Joystick.Builder builder = Joystick.newBuilder();
 		for (Component a : axes) {
@@ -71,6 +52,6 @@ public class SimJoystick implements ISimJoystick {
 		for (Component b : buttons) {
 			builder.addButtons(b.getPollData() > 0.5);
 		}
-		pub.publish(builder.build());
+		return builder.build();
 	}
 }
@@ -0,0 +1,140 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.simulation.ds;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import gazebo.msgs.GzJoystick.Joystick;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.gazebosim.transport.Node;
+import org.gazebosim.transport.SubscriberCallback;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JoystickPollerTest {
+	private Node node;
+	private JoystickProvider provider;
+	private JoystickPoller poller;
+	private final StubJoystick first = new StubJoystick(), second = new StubJoystick();
+	private final List<BlockingQueue<Joystick>> received = new ArrayList<>();
+
+	/**
+	 * A joystick whose state is set by the test.
+	 */
+	private static final class StubJoystick implements ISimJoystick {
+		volatile Joystick state;
+
+		@Override
+		public String getName() {
+			return "Stub Joystick";
+		}
+
+		@Override
+		public Joystick poll() {
+			return state;
+		}
+	}
+
+	private static Joystick state(double axis, boolean button) {
+		return Joystick.newBuilder().addAxes(axis).addButtons(button).build();
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		node = new Node("joystickPoller", Node.Transport.IN_PROCESS);
+		node.waitForConnection();
+		// Without scanning for real joysticks
+		provider = new JoystickProvider() {
+			@Override
+			public List<ISimJoystick> scanForJoysticks() {
+				List<ISimJoystick> none = new ArrayList<>();
+				setJoysticks(none);
+				return none;
+			}
+		};
+		provider.setJoysticks(Arrays.<ISimJoystick>asList(first, second));
+		poller = new JoystickPoller(node, provider, JoystickPoller.kDefaultPeriod);
+		for (int i = 0; i < 2; i++) {
+			final BlockingQueue<Joystick> queue = new ArrayBlockingQueue<>(10);
+			received.add(queue);
+			node.subscribe("ds/joysticks/" + i, Joystick.getDefaultInstance(),
+					new SubscriberCallback<Joystick>() {
+						@Override
+						public void callback(Joystick msg) {
+							queue.add(msg);
+						}
+					});
+		}
+	}
+
+	@After
+	public void tearDown() {
+		node.close();
+	}
+
+	private Joystick take(int slot) throws InterruptedException {
+		Joystick msg = received.get(slot).poll(5, TimeUnit.SECONDS);
+		assertTrue("Nothing published on slot " + slot, msg != null);
+		return msg;
+	}
+
+	@Test
+	public void unchangedStateIsNotPublishedAgain() throws Exception {
+		first.state = state(0.5, true);
+		second.state = state(0, false);
+		poller.poll();
+		assertEquals(first.state, take(0));
+		assertEquals(second.state, take(1));
+
+		// Slot 1 changes, so its message marks the end of the second poll
+		second.state = state(-1, false);
+		poller.poll();
+		assertEquals(second.state, take(1));
+		assertTrue(received.get(0).isEmpty());
+	}
+
+	@Test
+	public void changedStateIsPublished() throws Exception {
+		first.state = state(0.5, true);
+		poller.poll();
+		assertEquals(first.state, take(0));
+
+		first.state = state(0.5, false);
+		poller.poll();
+		assertEquals(first.state, take(0));
+	}
+
+	@Test
+	public void lostJoystickIsPublishedAsEmpty() throws Exception {
+		first.state = state(0.5, true);
+		second.state = state(0, false);
+		poller.poll();
+		assertEquals(first.state, take(0));
+		assertEquals(second.state, take(1));
+
+		provider.setJoysticks(Arrays.<ISimJoystick>asList(second));
+		poller.poll();
+		assertEquals(second.state, take(0));
+		assertEquals(Joystick.getDefaultInstance(), take(1));
+
+		// Only once, while the slot stays empty
+		second.state = state(1, true);
+		poller.poll();
+		assertEquals(second.state, take(0));
+		assertTrue(received.get(1).isEmpty());
+	}
+}
@@ -7,6 +7,8 @@
 
 #include "clock.h"
 
+#include <cmath>
+
 GZ_REGISTER_MODEL_PLUGIN(Clock)
 
 Clock::Clock() {}
@@ -31,6 +33,7 @@ void Clock::Load(physics::ModelPtr model, sdf::ElementPtr sdf) {
   node = transport::NodePtr(new transport::Node());
   node->Init(scoped_name);
   pub = node->Advertise<msgs::Float64>(topic);
+  stepSub = node->Subscribe(topic + "/step", &Clock::OnStep, this);
 
   // Connect to the world update event.
   // This will trigger the Update function every Gazebo iteration
@@ -42,3 +45,25 @@ void Clock::Update(const common::UpdateInfo &info) {
   msg.set_data(info.simTime.Double());
   pub->Publish(msg);
 }
+
+void Clock::OnStep(const msgs::ConstFloat64Ptr &msg) {
+  physics::WorldPtr world = model->GetWorld();
+  if (!world->IsPaused()) {
+    gzmsg << "Lockstep request on " << topic << ", pausing the world" << std::endl;
+    world->SetPaused(true);
+  }
+
+  double now = world->GetSimTime().Double();
+  double dt = world->GetPhysicsEngine()->GetMaxStepSize();
+  // Allow for rounding, as the robot does
+  int steps = static_cast<int>(std::ceil((msg->data() - now) / dt - 1e-6));
+  if (steps > 0) {
+    // Update() publishes the time of each step
+    world->Step(steps);
+  } else {
+    // Already there, acknowledge with the current time
+    msgs::Float64 ack;
+    ack.set_data(now);
+    pub->Publish(ack);
+  }
+}
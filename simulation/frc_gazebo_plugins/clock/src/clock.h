@@ -23,6 +23,12 @@ using namespace gazebo;
  * This plugin publishes the simualtaion time in seconds every physics
  * update.
  *
+ * It also answers the step requests of a robot in lockstep mode, which are
+ * published on the clock topic followed by "/step". The first request pauses
+ * the world. Each request then steps the world until the simulation time
+ * reaches the requested time, and the time published by the last step
+ * acknowledges the request.
+ *
  * To add a clock to your robot, add the following XML to your robot
  * model:
  *
@@ -45,11 +51,15 @@ public:
   /// \brief Sends out time each timestep.
   void Update(const common::UpdateInfo &info);
 
+  /// \brief Steps the paused world to the requested time.
+  void OnStep(const msgs::ConstFloat64Ptr &msg);
+
 private:
   std::string topic;               ///< \brief Publish the time on this topic.
   physics::ModelPtr model;         ///< \brief The model that this is attached to.
   event::ConnectionPtr updateConn; ///< \brief Pointer to the world update function.
   transport::NodePtr node;         ///< \brief The node we're advertising on.
   transport::PublisherPtr pub;     ///< \brief Publisher handle.
+  transport::SubscriberPtr stepSub; ///< \brief Step request subscriber handle.
 };
 
@@ -167,6 +167,46 @@ JNIEXPORT jshortArray JNICALL Java_edu_wpi_first_wpilibj_communication_FRCNetwor
     return povsArray;
 }
 
+/*
+ * Class:     edu_wpi_first_wpilibj_communication_FRCNetworkCommunicationsLibrary
+ * Method:    HALFillJoystickAxes
+ * Signature: (B[S)I
+ */
+JNIEXPORT jint JNICALL Java_edu_wpi_first_wpilibj_communication_FRCNetworkCommunicationsLibrary_HALFillJoystickAxes
+  (JNIEnv * env, jclass, jbyte joystickNum, jshortArray axesArray)
+{
+	NETCOMM_LOG(logDEBUG) << "Calling HALFillJoystickAxes";
+    HALJoystickAxes axes;
+    HALGetJoystickAxes(joystickNum, &axes);
+
+    jsize count = axes.count;
+    jsize length = env->GetArrayLength(axesArray);
+    if (count > length) count = length;
+    env->SetShortArrayRegion(axesArray, 0, count, axes.axes);
+
+    return count;
+}
+
+/*
+ * Class:     edu_wpi_first_wpilibj_communication_FRCNetworkCommunicationsLibrary
+ * Method:    HALFillJoystickPOVs
+ * Signature: (B[S)I
+ */
+JNIEXPORT jint JNICALL Java_edu_wpi_first_wpilibj_communication_FRCNetworkCommunicationsLibrary_HALFillJoystickPOVs
+  (JNIEnv * env, jclass, jbyte joystickNum, jshortArray povsArray)
+{
+	NETCOMM_LOG(logDEBUG) << "Calling HALFillJoystickPOVs";
+    HALJoystickPOVs povs;
+    HALGetJoystickPOVs(joystickNum, &povs);
+
+    jsize count = povs.count;
+    jsize length = env->GetArrayLength(povsArray);
+    if (count > length) count = length;
+    env->SetShortArrayRegion(povsArray, 0, count, povs.povs);
+
+    return count;
+}
+
 /*
  * Class:     edu_wpi_first_wpilibj_communication_FRCNetworkCommunicationsLibrary
  * Method:    HALGetJoystickButtons
@@ -420,6 +420,7 @@ public class CANJaguar implements MotorSafety, PIDOutput, CANSpeedController {
       }
 
       sendMessage(messageID, data, dataSize, kSendMessagePeriod);
+      InputLatencyMonitor.outputWritten();
     }
 
     m_value = outputValue;
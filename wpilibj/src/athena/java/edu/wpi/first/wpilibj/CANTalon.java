@@ -459,6 +459,7 @@ public class CANTalon implements MotorSafety, PIDOutput, PIDSource, CANSpeedCont
           break;
       }
       CanTalonJNI.SetModeSelect(m_handle, m_controlMode.value);
+      InputLatencyMonitor.outputWritten();
     }
   }
 
@@ -7,11 +7,14 @@
 
 package edu.wpi.first.wpilibj;
 
-import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import edu.wpi.first.wpilibj.communication.FRCNetworkCommunicationsLibrary;
 import edu.wpi.first.wpilibj.communication.HALControlWord;
 import edu.wpi.first.wpilibj.communication.HALAllianceStationID;
+import edu.wpi.first.wpilibj.communication.HALJoystickDataSource;
+import edu.wpi.first.wpilibj.communication.JoystickDataBuffer;
+import edu.wpi.first.wpilibj.communication.JoystickDataSource;
 import edu.wpi.first.wpilibj.hal.HALUtil;
 import edu.wpi.first.wpilibj.hal.PowerJNI;
 
@@ -26,11 +29,6 @@ public class DriverStation implements RobotState.Interface {
    */
   public static final int kJoystickPorts = 6;
 
-  private class HALJoystickButtons {
-    public int buttons;
-    public byte count;
-  }
-
   /**
    * The robot alliance that the robot is a part of
    */
@@ -54,18 +52,22 @@ public class DriverStation implements RobotState.Interface {
     }
   } /* DriverStationTask */
 
+  private static final int kErrorQueueSize = 256;
+
+  private static final ErrorReporter errorReporter =
+      new ErrorReporter(new ErrorReporter.Sink() {
+        @Override
+        public void send(boolean isError, int code, String details, String location,
+            String callStack) {
+          FRCNetworkCommunicationsLibrary.HALSendError(isError, code, false, details, location,
+              callStack, true);
+        }
+      }, kErrorQueueSize);
+
   private static DriverStation instance = new DriverStation();
 
-  private short[][] m_joystickAxes =
-      new short[kJoystickPorts][FRCNetworkCommunicationsLibrary.kMaxJoystickAxes];
-  private short[][] m_joystickPOVs =
-      new short[kJoystickPorts][FRCNetworkCommunicationsLibrary.kMaxJoystickPOVs];
-  private HALJoystickButtons[] m_joystickButtons = new HALJoystickButtons[kJoystickPorts];
-  private int[] m_joystickIsXbox = new int[kJoystickPorts];
-  private int[] m_joystickType = new int[kJoystickPorts];
-  private String[] m_joystickName = new String[kJoystickPorts];
-  private int[][] m_joystickAxisType =
-      new int[kJoystickPorts][FRCNetworkCommunicationsLibrary.kMaxJoystickAxes];
+  private final JoystickDataSource m_joystickSource = new HALJoystickDataSource();
+  private final JoystickDataBuffer m_joystickData = new JoystickDataBuffer(kJoystickPorts);
 
   private Thread m_thread;
   private final Object m_dataSem;
@@ -74,7 +76,9 @@ public class DriverStation implements RobotState.Interface {
   private boolean m_userInAutonomous = false;
   private boolean m_userInTeleop = false;
   private boolean m_userInTest = false;
-  private boolean m_newControlData;
+  private final AtomicBoolean m_newControlData = new AtomicBoolean(false);
+  private volatile long m_packetTimestamp;
+  private volatile long m_controlDataTimestamp;
   private final long m_packetDataAvailableMutex;
   private final long m_packetDataAvailableSem;
 
@@ -95,9 +99,6 @@ public class DriverStation implements RobotState.Interface {
    */
   protected DriverStation() {
     m_dataSem = new Object();
-    for (int i = 0; i < kJoystickPorts; i++) {
-      m_joystickButtons[i] = new HALJoystickButtons();
-    }
 
     m_packetDataAvailableMutex = HALUtil.initializeMutexNormal();
     m_packetDataAvailableSem = HALUtil.initializeMultiWait();
@@ -123,9 +124,8 @@ public class DriverStation implements RobotState.Interface {
     int safetyCounter = 0;
     while (m_thread_keepalive) {
       HALUtil.takeMultiWait(m_packetDataAvailableSem, m_packetDataAvailableMutex);
-      synchronized (this) {
-        getData();
-      }
+      m_packetTimestamp = System.nanoTime();
+      getData();
       synchronized (m_dataSem) {
         m_dataSem.notifyAll();
       }
@@ -171,23 +171,14 @@ public class DriverStation implements RobotState.Interface {
   }
 
   /**
-   * Copy data from the DS task for the user. If no new data exists, it will
-   * just be returned, otherwise the data will be copied from the DS polling
-   * loop.
+   * Copy data from the DS task for the user. The joystick data is decoded into
+   * the back buffer and then published, so readers never see a partially
+   * updated packet and never block this thread.
    */
-  protected synchronized void getData() {
-
-    // Get the status of all of the joysticks
-    for (byte stick = 0; stick < kJoystickPorts; stick++) {
-      m_joystickAxes[stick] = FRCNetworkCommunicationsLibrary.HALGetJoystickAxes(stick);
-      m_joystickPOVs[stick] = FRCNetworkCommunicationsLibrary.HALGetJoystickPOVs(stick);
-      ByteBuffer countBuffer = ByteBuffer.allocateDirect(1);
-      m_joystickButtons[stick].buttons =
-          FRCNetworkCommunicationsLibrary.HALGetJoystickButtons((byte) stick, countBuffer);
-      m_joystickButtons[stick].count = countBuffer.get();
-    }
+  protected void getData() {
+    m_joystickData.update(m_joystickSource);
 
-    m_newControlData = true;
+    m_newControlData.set(true);
   }
 
   /**
@@ -231,7 +222,7 @@ public class DriverStation implements RobotState.Interface {
    * @param axis The analog axis value to read from the joystick.
    * @return The value of the axis on the joystick.
    */
-  public synchronized double getStickAxis(int stick, int axis) {
+  public double getStickAxis(int stick, int axis) {
     if (stick < 0 || stick >= kJoystickPorts) {
       throw new RuntimeException("Joystick index is out of range, should be 0-5");
     }
@@ -240,13 +231,20 @@ public class DriverStation implements RobotState.Interface {
       throw new RuntimeException("Joystick axis is out of range");
     }
 
-    if (axis >= m_joystickAxes[stick].length) {
+    if (axis >= m_joystickData.getAxisCount(stick)) {
       reportJoystickUnpluggedWarning("Joystick axis " + axis + " on port " + stick
           + " not available, check if controller is plugged in");
       return 0.0;
     }
 
-    byte value = (byte) m_joystickAxes[stick][axis];
+    return normalizeAxis(m_joystickData.getAxis(stick, axis));
+  }
+
+  /**
+   * Convert a raw axis value from the Driver Station to the range -1 to 1.
+   */
+  private static double normalizeAxis(short raw) {
+    byte value = (byte) raw;
 
     if (value < 0) {
       return value / 128.0;
@@ -261,13 +259,13 @@ public class DriverStation implements RobotState.Interface {
    * @param stick The joystick port number
    * @return The number of axes on the indicated joystick
    */
-  public synchronized int getStickAxisCount(int stick) {
+  public int getStickAxisCount(int stick) {
 
     if (stick < 0 || stick >= kJoystickPorts) {
       throw new RuntimeException("Joystick index is out of range, should be 0-5");
     }
 
-    return m_joystickAxes[stick].length;
+    return m_joystickData.getAxisCount(stick);
   }
 
   /**
@@ -275,7 +273,7 @@ public class DriverStation implements RobotState.Interface {
    *
    * @return the angle of the POV in degrees, or -1 if the POV is not pressed.
    */
-  public synchronized int getStickPOV(int stick, int pov) {
+  public int getStickPOV(int stick, int pov) {
     if (stick < 0 || stick >= kJoystickPorts) {
       throw new RuntimeException("Joystick index is out of range, should be 0-5");
     }
@@ -284,13 +282,13 @@ public class DriverStation implements RobotState.Interface {
       throw new RuntimeException("Joystick POV is out of range");
     }
 
-    if (pov >= m_joystickPOVs[stick].length) {
+    if (pov >= m_joystickData.getPOVCount(stick)) {
       reportJoystickUnpluggedWarning("Joystick POV " + pov + " on port " + stick
           + " not available, check if controller is plugged in");
       return -1;
     }
 
-    return m_joystickPOVs[stick][pov];
+    return m_joystickData.getPOV(stick, pov);
   }
 
   /**
@@ -299,13 +297,13 @@ public class DriverStation implements RobotState.Interface {
    * @param stick The joystick port number
    * @return The number of POVs on the indicated joystick
    */
-  public synchronized int getStickPOVCount(int stick) {
+  public int getStickPOVCount(int stick) {
 
     if (stick < 0 || stick >= kJoystickPorts) {
       throw new RuntimeException("Joystick index is out of range, should be 0-5");
     }
 
-    return m_joystickPOVs[stick].length;
+    return m_joystickData.getPOVCount(stick);
   }
 
   /**
@@ -314,12 +312,12 @@ public class DriverStation implements RobotState.Interface {
    * @param stick The joystick to read.
    * @return The state of the buttons on the joystick.
    */
-  public synchronized int getStickButtons(final int stick) {
+  public int getStickButtons(final int stick) {
     if (stick < 0 || stick >= kJoystickPorts) {
       throw new RuntimeException("Joystick index is out of range, should be 0-3");
     }
 
-    return m_joystickButtons[stick].buttons;
+    return m_joystickData.getButtons(stick);
   }
 
   /**
@@ -329,13 +327,13 @@ public class DriverStation implements RobotState.Interface {
    * @param button The button index, beginning at 1.
    * @return The state of the joystick button.
    */
-  public synchronized boolean getStickButton(final int stick, byte button) {
+  public boolean getStickButton(final int stick, byte button) {
     if (stick < 0 || stick >= kJoystickPorts) {
       throw new RuntimeException("Joystick index is out of range, should be 0-3");
     }
 
 
-    if (button > m_joystickButtons[stick].count) {
+    if (button > m_joystickData.getButtonCount(stick)) {
       reportJoystickUnpluggedWarning("Joystick Button " + button + " on port " + stick
           + " not available, check if controller is plugged in");
       return false;
@@ -344,7 +342,7 @@ public class DriverStation implements RobotState.Interface {
       reportJoystickUnpluggedError("Button indexes begin at 1 in WPILib for C++ and Java");
       return false;
     }
-    return ((0x1 << (button - 1)) & m_joystickButtons[stick].buttons) != 0;
+    return ((0x1 << (button - 1)) & m_joystickData.getButtons(stick)) != 0;
   }
 
   /**
@@ -353,14 +351,51 @@ public class DriverStation implements RobotState.Interface {
    * @param stick The joystick port number
    * @return The number of buttons on the indicated joystick
    */
-  public synchronized int getStickButtonCount(int stick) {
+  public int getStickButtonCount(int stick) {
 
     if (stick < 0 || stick >= kJoystickPorts) {
       throw new RuntimeException("Joystick index is out of range, should be 0-5");
     }
 
 
-    return m_joystickButtons[stick].count;
+    return m_joystickData.getButtonCount(stick);
+  }
+
+  /**
+   * Copy the complete state of a joystick into a snapshot. All of the values
+   * come from the same packet, and no range checks or warnings are done for
+   * the individual axes, POVs and buttons.
+   *
+   * @param stick The joystick port number
+   * @param snapshot The snapshot to update
+   */
+  public void getStickSnapshot(int stick, HIDSnapshot snapshot) {
+    if (stick < 0 || stick >= kJoystickPorts) {
+      throw new RuntimeException("Joystick index is out of range, should be 0-5");
+    }
+
+    int axisCount;
+    int povCount;
+    int buttons;
+    int buttonCount;
+    long stamp;
+    do {
+      stamp = m_joystickData.startRead();
+      axisCount = Math.min(m_joystickData.peekAxisCount(stick), HIDSnapshot.kMaxAxes);
+      for (int i = 0; i < axisCount; i++) {
+        snapshot.m_axes[i] = normalizeAxis(m_joystickData.peekAxis(stick, i));
+      }
+      povCount = Math.min(m_joystickData.peekPOVCount(stick), HIDSnapshot.kMaxPOVs);
+      for (int i = 0; i < povCount; i++) {
+        snapshot.m_povs[i] = m_joystickData.peekPOV(stick, i);
+      }
+      buttons = m_joystickData.peekButtons(stick);
+      buttonCount = m_joystickData.peekButtonCount(stick);
+    } while (!m_joystickData.validate(stamp));
+
+    snapshot.m_axisCount = axisCount;
+    snapshot.m_povCount = povCount;
+    snapshot.setButtons(buttons, buttonCount);
   }
 
   /**
@@ -369,14 +404,14 @@ public class DriverStation implements RobotState.Interface {
    * @param stick The joystick port number
    * @return A boolean that returns the value of isXbox
    */
-  public synchronized boolean getJoystickIsXbox(int stick) {
+  public boolean getJoystickIsXbox(int stick) {
 
     if (stick < 0 || stick >= kJoystickPorts) {
       throw new RuntimeException("Joystick index is out of range, should be 0-5");
     }
     // TODO: Remove this when calling for descriptor on empty stick no longer
     // crashes
-    if (1 > m_joystickButtons[stick].count && 1 > m_joystickAxes[stick].length) {
+    if (1 > m_joystickData.getButtonCount(stick) && 1 > m_joystickData.getAxisCount(stick)) {
       reportJoystickUnpluggedWarning("Joystick on port " + stick
           + " not available, check if controller is plugged in");
       return false;
@@ -394,14 +429,14 @@ public class DriverStation implements RobotState.Interface {
    * @param stick The joystick port number
    * @return The value of type
    */
-  public synchronized int getJoystickType(int stick) {
+  public int getJoystickType(int stick) {
 
     if (stick < 0 || stick >= kJoystickPorts) {
       throw new RuntimeException("Joystick index is out of range, should be 0-5");
     }
     // TODO: Remove this when calling for descriptor on empty stick no longer
     // crashes
-    if (1 > m_joystickButtons[stick].count && 1 > m_joystickAxes[stick].length) {
+    if (1 > m_joystickData.getButtonCount(stick) && 1 > m_joystickData.getAxisCount(stick)) {
       reportJoystickUnpluggedWarning("Joystick on port " + stick
           + " not available, check if controller is plugged in");
       return -1;
@@ -415,14 +450,14 @@ public class DriverStation implements RobotState.Interface {
    * @param stick The joystick port number
    * @return The value of name
    */
-  public synchronized String getJoystickName(int stick) {
+  public String getJoystickName(int stick) {
 
     if (stick < 0 || stick >= kJoystickPorts) {
       throw new RuntimeException("Joystick index is out of range, should be 0-5");
     }
     // TODO: Remove this when calling for descriptor on empty stick no longer
     // crashes
-    if (1 > m_joystickButtons[stick].count && 1 > m_joystickAxes[stick].length) {
+    if (1 > m_joystickData.getButtonCount(stick) && 1 > m_joystickData.getAxisCount(stick)) {
       reportJoystickUnpluggedWarning("Joystick on port " + stick
           + " not available, check if controller is plugged in");
       return "";
@@ -510,12 +545,25 @@ public class DriverStation implements RobotState.Interface {
    *$
    * @return True if the control data has been updated since the last call.
    */
-  public synchronized boolean isNewControlData() {
-    boolean result = m_newControlData;
-    m_newControlData = false;
+  public boolean isNewControlData() {
+    boolean result = m_newControlData.getAndSet(false);
+    if (result) {
+      m_controlDataTimestamp = m_packetTimestamp;
+    }
     return result;
   }
 
+  /**
+   * Get the time at which the packet last reported by
+   * {@link #isNewControlData()} arrived.
+   *
+   * @return The {@link System#nanoTime()} at which the packet arrived, or 0 if
+   *         no packet has been reported yet
+   */
+  public long getControlDataTimestamp() {
+    return m_controlDataTimestamp;
+  }
+
   /**
    * Get the current alliance from the FMS
    *$
@@ -626,25 +674,8 @@ public class DriverStation implements RobotState.Interface {
   }
 
   private static void reportErrorImpl(boolean is_error, int code, String error, boolean printTrace) {
-    StackTraceElement[] traces = Thread.currentThread().getStackTrace();
-    String locString;
-    if (traces.length > 3)
-      locString = traces[3].toString();
-    else
-      locString = new String();
-    boolean haveLoc = false;
-    String traceString = new String();
-    traceString = " at ";
-    for (int i = 3; i < traces.length; i++) {
-      String loc = traces[i].toString();
-      traceString += loc + "\n";
-      // get first user function
-      if (!haveLoc && !loc.startsWith("edu.wpi.first.wpilibj")) {
-        locString = loc;
-        haveLoc = true;
-      }
-    }
-    FRCNetworkCommunicationsLibrary.HALSendError(is_error, code, false, error, locString, printTrace ? traceString : "", true);
+    // Skip this method and reportError/reportWarning
+    errorReporter.report(is_error, code, error, printTrace, 2);
   }
 
   /**
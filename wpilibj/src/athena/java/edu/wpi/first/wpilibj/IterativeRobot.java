@@ -77,83 +77,114 @@ public class IterativeRobot extends RobotBase {
     // loop forever, calling the appropriate mode-dependent function
     LiveWindow.setEnabled(false);
     while (true) {
-      // Call the appropriate function depending upon the current robot mode
-      if (isDisabled()) {
-        // call DisabledInit() if we are now just entering disabled mode from
-        // either a different mode or from power-on
-        if (!m_disabledInitialized) {
-          LiveWindow.setEnabled(false);
-          disabledInit();
-          m_disabledInitialized = true;
-          // reset the initialization flags for the other modes
-          m_autonomousInitialized = false;
-          m_teleopInitialized = false;
-          m_testInitialized = false;
-        }
-        if (nextPeriodReady()) {
-          FRCNetworkCommunicationsLibrary.FRCNetworkCommunicationObserveUserProgramDisabled();
-          disabledPeriodic();
-        }
-      } else if (isTest()) {
-        // call TestInit() if we are now just entering test mode from either
-        // a different mode or from power-on
-        if (!m_testInitialized) {
-          LiveWindow.setEnabled(true);
-          testInit();
-          m_testInitialized = true;
-          m_autonomousInitialized = false;
-          m_teleopInitialized = false;
-          m_disabledInitialized = false;
-        }
-        if (nextPeriodReady()) {
-          FRCNetworkCommunicationsLibrary.FRCNetworkCommunicationObserveUserProgramTest();
-          testPeriodic();
-        }
-      } else if (isAutonomous()) {
-        // call Autonomous_Init() if this is the first time
-        // we've entered autonomous_mode
-        if (!m_autonomousInitialized) {
-          LiveWindow.setEnabled(false);
-          // KBS NOTE: old code reset all PWMs and relays to "safe values"
-          // whenever entering autonomous mode, before calling
-          // "Autonomous_Init()"
-          autonomousInit();
-          m_autonomousInitialized = true;
-          m_testInitialized = false;
-          m_teleopInitialized = false;
-          m_disabledInitialized = false;
-        }
-        if (nextPeriodReady()) {
-          FRCNetworkCommunicationsLibrary.FRCNetworkCommunicationObserveUserProgramAutonomous();
-          autonomousPeriodic();
-        }
-      } else {
-        // call Teleop_Init() if this is the first time
-        // we've entered teleop_mode
-        if (!m_teleopInitialized) {
-          LiveWindow.setEnabled(false);
-          teleopInit();
-          m_teleopInitialized = true;
-          m_testInitialized = false;
-          m_autonomousInitialized = false;
-          m_disabledInitialized = false;
-        }
-        if (nextPeriodReady()) {
-          FRCNetworkCommunicationsLibrary.FRCNetworkCommunicationObserveUserProgramTeleop();
-          teleopPeriodic();
-        }
-      }
+      loopFunc();
       m_ds.waitForData();
     }
   }
 
+  /**
+   * Run one iteration of the main loop: call the init method if the mode has
+   * changed, then the periodic method for the current mode if
+   * {@link #nextPeriodReady()} says it is time.
+   */
+  void loopFunc() {
+    LoopProfiler.beginLoop();
+    // Call the appropriate function depending upon the current robot mode
+    if (isDisabled()) {
+      // call DisabledInit() if we are now just entering disabled mode from
+      // either a different mode or from power-on
+      if (!m_disabledInitialized) {
+        LiveWindow.setEnabled(false);
+        disabledInit();
+        m_disabledInitialized = true;
+        // reset the initialization flags for the other modes
+        m_autonomousInitialized = false;
+        m_teleopInitialized = false;
+        m_testInitialized = false;
+      }
+      if (nextPeriodReady()) {
+        FRCNetworkCommunicationsLibrary.FRCNetworkCommunicationObserveUserProgramDisabled();
+        long start = LoopProfiler.start();
+        AllocationMonitor.beginPeriodic();
+        disabledPeriodic();
+        AllocationMonitor.endPeriodic();
+        LoopProfiler.end(LoopProfiler.kPeriodic, start);
+      }
+    } else if (isTest()) {
+      // call TestInit() if we are now just entering test mode from either
+      // a different mode or from power-on
+      if (!m_testInitialized) {
+        LiveWindow.setEnabled(true);
+        testInit();
+        m_testInitialized = true;
+        m_autonomousInitialized = false;
+        m_teleopInitialized = false;
+        m_disabledInitialized = false;
+      }
+      if (nextPeriodReady()) {
+        FRCNetworkCommunicationsLibrary.FRCNetworkCommunicationObserveUserProgramTest();
+        long start = LoopProfiler.start();
+        AllocationMonitor.beginPeriodic();
+        testPeriodic();
+        AllocationMonitor.endPeriodic();
+        LoopProfiler.end(LoopProfiler.kPeriodic, start);
+      }
+    } else if (isAutonomous()) {
+      // call Autonomous_Init() if this is the first time
+      // we've entered autonomous_mode
+      if (!m_autonomousInitialized) {
+        LiveWindow.setEnabled(false);
+        // KBS NOTE: old code reset all PWMs and relays to "safe values"
+        // whenever entering autonomous mode, before calling
+        // "Autonomous_Init()"
+        autonomousInit();
+        m_autonomousInitialized = true;
+        m_testInitialized = false;
+        m_teleopInitialized = false;
+        m_disabledInitialized = false;
+      }
+      if (nextPeriodReady()) {
+        FRCNetworkCommunicationsLibrary.FRCNetworkCommunicationObserveUserProgramAutonomous();
+        long start = LoopProfiler.start();
+        AllocationMonitor.beginPeriodic();
+        autonomousPeriodic();
+        AllocationMonitor.endPeriodic();
+        LoopProfiler.end(LoopProfiler.kPeriodic, start);
+      }
+    } else {
+      // call Teleop_Init() if this is the first time
+      // we've entered teleop_mode
+      if (!m_teleopInitialized) {
+        LiveWindow.setEnabled(false);
+        teleopInit();
+        m_teleopInitialized = true;
+        m_testInitialized = false;
+        m_autonomousInitialized = false;
+        m_disabledInitialized = false;
+      }
+      if (nextPeriodReady()) {
+        FRCNetworkCommunicationsLibrary.FRCNetworkCommunicationObserveUserProgramTeleop();
+        long start = LoopProfiler.start();
+        AllocationMonitor.beginPeriodic();
+        teleopPeriodic();
+        AllocationMonitor.endPeriodic();
+        LoopProfiler.end(LoopProfiler.kPeriodic, start);
+      }
+    }
+    LoopProfiler.endLoop();
+  }
+
   /**
    * Determine if the appropriate next periodic function should be called. Call
    * the periodic functions whenever a packet is received from the Driver
    * Station, or about every 20ms.
    */
-  private boolean nextPeriodReady() {
-    return m_ds.isNewControlData();
+  boolean nextPeriodReady() {
+    if (!m_ds.isNewControlData()) {
+      return false;
+    }
+    InputLatencyMonitor.startPeriodic(m_ds.getControlDataTimestamp());
+    return true;
   }
 
   /* ----------- Overridable initialization code ----------------- */
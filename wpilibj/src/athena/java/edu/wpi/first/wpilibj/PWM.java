@@ -334,6 +334,17 @@ public class PWM extends SensorBase implements LiveWindowSendable {
    * @param value Raw PWM value. Range 0 - 255.
    */
   public void setRaw(int value) {
+    writeRaw(value);
+    InputLatencyMonitor.outputWritten();
+  }
+
+  /**
+   * Write a raw value to the PWM channel without recording it as an output for
+   * the {@link InputLatencyMonitor}, as when motor safety stops the motor.
+   *
+   * @param value Raw PWM value. Range 0 - 255.
+   */
+  void writeRaw(int value) {
     PWMJNI.setPWM(m_port, (short) value);
   }
 
@@ -236,6 +236,23 @@ public abstract class RobotBase {
       }
     }
 
+    if (getBooleanProperty(InputLatencyMonitor.ENABLED_PROP, false)) {
+      InputLatencyMonitor.setEnabled(true);
+    }
+
+    if (getBooleanProperty(LoopProfiler.ENABLED_PROP, false)) {
+        LoopProfiler.setEnabled(true);
+    }
+
+    if (getBooleanProperty(AllocationMonitor.ENABLED_PROP, false)) {
+      try {
+        AllocationMonitor.setEnabled(true);
+      } catch (UnsupportedOperationException ex) {
+        DriverStation.reportError("ERROR Could not start the allocation monitor: "
+            + ex.getMessage(), false);
+      }
+    }
+
     boolean errorOnExit = false;
     try {
       System.out.println("********** Robot program starting **********");
@@ -99,6 +99,8 @@ public class SafePWM extends PWM implements MotorSafety {
   }
 
   public void disable() {
-    setRaw(kPwmDisabled);
+    // Called by stopMotor() from the motor safety thread, so not an output
+    // for the latency monitor
+    writeRaw(kPwmDisabled);
   }
 }
@@ -25,6 +25,10 @@ import edu.wpi.first.wpilibj.livewindow.LiveWindow;
  *
  * Alternatively you can override the robotMain() method and manage all aspects
  * of the robot yourself.
+ *
+ * Since the loops are written by the user, the {@link LoopProfiler} only
+ * records them if the loop body is wrapped in {@link LoopProfiler#beginLoop()}
+ * and {@link LoopProfiler#endLoop()}.
  */
 public class SampleRobot extends RobotBase {
 
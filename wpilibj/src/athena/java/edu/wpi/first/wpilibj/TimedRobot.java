@@ -0,0 +1,142 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj;
+
+import edu.wpi.first.wpilibj.communication.FRCNetworkCommunicationsLibrary;
+import edu.wpi.first.wpilibj.communication.FRCNetworkCommunicationsLibrary.tInstances;
+import edu.wpi.first.wpilibj.communication.FRCNetworkCommunicationsLibrary.tResourceType;
+import edu.wpi.first.wpilibj.communication.UsageReporting;
+import edu.wpi.first.wpilibj.livewindow.LiveWindow;
+
+/**
+ * TimedRobot implements the IterativeRobot robot program framework, but calls
+ * the periodic methods at a fixed period instead of whenever a Driver Station
+ * packet arrives.
+ *
+ * The period is timed by a {@link Notifier}. Each deadline is one period after
+ * the previous deadline, not one period after the loop finished, so the loop
+ * does not drift. If the periodic methods take longer than a period, the missed
+ * deadlines are counted as overruns, a warning is sent to the Driver Station,
+ * and the next loop starts immediately.
+ *
+ * The periodic methods never wait for Driver Station data. They use whatever
+ * data arrived most recently; {@link Joystick#getSnapshot(HIDSnapshot)} reads
+ * all of a joystick's state from the same packet without blocking.
+ */
+public class TimedRobot extends IterativeRobot {
+  /**
+   * The default period in seconds.
+   */
+  public static final double kDefaultPeriod = 0.02;
+
+  private final double m_period;
+  private final Notifier m_notifier;
+  private final Object m_tickLock = new Object();
+  // The number of deadlines which have passed since the last loop started.
+  private int m_pendingTicks = 0;
+  private volatile long m_overruns = 0;
+
+  /**
+   * Create a robot which runs the periodic methods every
+   * {@link #kDefaultPeriod} seconds.
+   */
+  public TimedRobot() {
+    this(kDefaultPeriod);
+  }
+
+  /**
+   * Create a robot which runs the periodic methods at a fixed period.
+   *
+   * @param period The period in seconds.
+   */
+  public TimedRobot(double period) {
+    if (period <= 0) {
+      throw new IllegalArgumentException("Period must be positive");
+    }
+    m_period = period;
+    AllocationMonitor.setLoopPeriod(period);
+    m_notifier = new Notifier(new Runnable() {
+      @Override
+      public void run() {
+        synchronized (m_tickLock) {
+          m_pendingTicks++;
+          m_tickLock.notifyAll();
+        }
+      }
+    });
+  }
+
+  /**
+   * Provide an alternate "main loop" via startCompetition().
+   */
+  public void startCompetition() {
+    UsageReporting.report(tResourceType.kResourceType_Framework, tInstances.kFramework_Iterative);
+
+    robotInit();
+
+    // Tell the DS that the robot is ready to be enabled
+    FRCNetworkCommunicationsLibrary.FRCNetworkCommunicationObserveUserProgramStarting();
+
+    // loop forever, calling the appropriate mode-dependent function
+    LiveWindow.setEnabled(false);
+    m_notifier.startPeriodic(m_period);
+    while (true) {
+      waitForNextPeriod();
+      loopFunc();
+    }
+  }
+
+  /**
+   * Every loop is a new period. New Driver Station data is checked without
+   * blocking, only so the input latency can be recorded.
+   */
+  @Override
+  boolean nextPeriodReady() {
+    if (m_ds.isNewControlData()) {
+      InputLatencyMonitor.startPeriodic(m_ds.getControlDataTimestamp());
+    }
+    return true;
+  }
+
+  private void waitForNextPeriod() {
+    int missed;
+    synchronized (m_tickLock) {
+      while (m_pendingTicks == 0) {
+        try {
+          m_tickLock.wait();
+        } catch (InterruptedException ex) {
+          // Keep waiting; the loop only starts on a deadline
+        }
+      }
+      missed = m_pendingTicks - 1;
+      m_pendingTicks = 0;
+    }
+    if (missed > 0) {
+      m_overruns += missed;
+      DriverStation.reportWarning("TimedRobot loop overrun: missed " + missed + " period(s) of "
+          + m_period + "s", false);
+    }
+  }
+
+  /**
+   * @return The period of the loop in seconds
+   */
+  public double getPeriod() {
+    return m_period;
+  }
+
+  /**
+   * Get the number of deadlines which were missed because the periodic
+   * methods took longer than the period.
+   *
+   * @return The total number of missed periods
+   */
+  public long getOverrunCount() {
+    return m_overruns;
+  }
+}
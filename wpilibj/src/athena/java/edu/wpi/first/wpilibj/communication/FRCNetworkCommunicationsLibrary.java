@@ -206,13 +206,31 @@ public class FRCNetworkCommunicationsLibrary extends JNIWrapper {
     }
   }
 
-  public static int kMaxJoystickAxes = 12;
-  public static int kMaxJoystickPOVs = 12;
+  public static final int kMaxJoystickAxes = 12;
+  public static final int kMaxJoystickPOVs = 12;
 
   public static native short[] HALGetJoystickAxes(byte joystickNum);
 
   public static native short[] HALGetJoystickPOVs(byte joystickNum);
 
+  /**
+   * Copies the axes of a joystick into a caller-owned array without allocating.
+   *
+   * @param joystickNum The joystick port number
+   * @param axes The array to fill, at least kMaxJoystickAxes long
+   * @return The number of axes copied into the array
+   */
+  public static native int HALFillJoystickAxes(byte joystickNum, short[] axes);
+
+  /**
+   * Copies the POVs of a joystick into a caller-owned array without allocating.
+   *
+   * @param joystickNum The joystick port number
+   * @param povs The array to fill, at least kMaxJoystickPOVs long
+   * @return The number of POVs copied into the array
+   */
+  public static native int HALFillJoystickPOVs(byte joystickNum, short[] povs);
+
   public static native int HALGetJoystickButtons(byte joystickNum, ByteBuffer count);
 
   public static native int HALSetJoystickOutputs(byte joystickNum, int outputs, short leftRumble,
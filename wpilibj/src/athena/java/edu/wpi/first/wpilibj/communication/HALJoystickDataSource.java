@@ -0,0 +1,31 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.communication;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads joystick data from the HAL into caller-owned arrays.
+ */
+public class HALJoystickDataSource implements JoystickDataSource {
+
+  @Override
+  public int getJoystickAxes(byte stick, short[] axes) {
+    return FRCNetworkCommunicationsLibrary.HALFillJoystickAxes(stick, axes);
+  }
+
+  @Override
+  public int getJoystickPOVs(byte stick, short[] povs) {
+    return FRCNetworkCommunicationsLibrary.HALFillJoystickPOVs(stick, povs);
+  }
+
+  @Override
+  public int getJoystickButtons(byte stick, ByteBuffer count) {
+    return FRCNetworkCommunicationsLibrary.HALGetJoystickButtons(stick, count);
+  }
+}
@@ -0,0 +1,298 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.communication;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Double-buffered joystick state shared between the Driver Station thread and
+ * user code.
+ *
+ * A single writer decodes each packet into the back buffer and then publishes
+ * it by swapping the front and back buffers. The swap is guarded by a
+ * {@link StampedLock} whose stamp acts as a sequence counter: readers use
+ * optimistic reads, never block the writer and only retry if a swap happened
+ * while they were reading. All of the storage is allocated up front, so
+ * neither updating nor reading allocates.
+ */
+public class JoystickDataBuffer {
+
+  private static final class Frame {
+    final short[][] axes;
+    final int[] axisCount;
+    final short[][] povs;
+    final int[] povCount;
+    final int[] buttons;
+    final int[] buttonCount;
+    long sequence;
+
+    Frame(int sticks) {
+      axes = new short[sticks][FRCNetworkCommunicationsLibrary.kMaxJoystickAxes];
+      axisCount = new int[sticks];
+      povs = new short[sticks][FRCNetworkCommunicationsLibrary.kMaxJoystickPOVs];
+      povCount = new int[sticks];
+      buttons = new int[sticks];
+      buttonCount = new int[sticks];
+    }
+  }
+
+  private final int m_sticks;
+  private final StampedLock m_lock = new StampedLock();
+  private final ByteBuffer m_countBuffer = ByteBuffer.allocateDirect(1);
+  private Frame m_front;
+  private Frame m_back;
+
+  /**
+   * Create a joystick data buffer.
+   *
+   * @param sticks The number of joystick ports to store
+   */
+  public JoystickDataBuffer(int sticks) {
+    m_sticks = sticks;
+    m_front = new Frame(sticks);
+    m_back = new Frame(sticks);
+  }
+
+  /**
+   * Read every joystick from the source and publish the result to readers.
+   * Only one thread may call this method.
+   *
+   * @param source The source to decode the joystick data from
+   */
+  public void update(JoystickDataSource source) {
+    Frame back = m_back;
+    for (byte stick = 0; stick < m_sticks; stick++) {
+      back.axisCount[stick] = source.getJoystickAxes(stick, back.axes[stick]);
+      back.povCount[stick] = source.getJoystickPOVs(stick, back.povs[stick]);
+      back.buttons[stick] = source.getJoystickButtons(stick, m_countBuffer);
+      back.buttonCount[stick] = m_countBuffer.get(0) & 0xff;
+    }
+    back.sequence = m_front.sequence + 1;
+
+    long stamp = m_lock.writeLock();
+    m_back = m_front;
+    m_front = back;
+    m_lock.unlockWrite(stamp);
+  }
+
+  /**
+   * Start reading several values which must come from the same packet. The
+   * values are read with the peek methods, and are only valid if
+   * {@link #validate(long)} returns true for the returned stamp afterwards.
+   *
+   * <pre>
+   * long stamp;
+   * do {
+   *   stamp = buffer.startRead();
+   *   count = buffer.peekAxisCount(stick);
+   *   ...
+   * } while (!buffer.validate(stamp));
+   * </pre>
+   *
+   * @return The stamp to validate the read against
+   */
+  public long startRead() {
+    return m_lock.tryOptimisticRead();
+  }
+
+  /**
+   * Check whether the values read since {@link #startRead()} are consistent.
+   *
+   * @param stamp The stamp returned by startRead
+   * @return True if no update was published while reading
+   */
+  public boolean validate(long stamp) {
+    return m_lock.validate(stamp);
+  }
+
+  /**
+   * Get the number of updates that have been published.
+   *
+   * @return The sequence number of the current joystick data
+   */
+  public long getSequence() {
+    while (true) {
+      long stamp = startRead();
+      long sequence = m_front.sequence;
+      if (validate(stamp)) {
+        return sequence;
+      }
+    }
+  }
+
+  /**
+   * Get the number of axes on a joystick.
+   *
+   * @param stick The joystick port number
+   * @return The number of axes on the joystick
+   */
+  public int getAxisCount(int stick) {
+    while (true) {
+      long stamp = startRead();
+      int count = peekAxisCount(stick);
+      if (validate(stamp)) {
+        return count;
+      }
+    }
+  }
+
+  /**
+   * Get the raw value of a joystick axis.
+   *
+   * @param stick The joystick port number
+   * @param axis The axis index, less than kMaxJoystickAxes
+   * @return The raw axis value, or 0 if the joystick does not have the axis
+   */
+  public short getAxis(int stick, int axis) {
+    while (true) {
+      long stamp = startRead();
+      short value = peekAxis(stick, axis);
+      if (validate(stamp)) {
+        return value;
+      }
+    }
+  }
+
+  /**
+   * Get the number of POVs on a joystick.
+   *
+   * @param stick The joystick port number
+   * @return The number of POVs on the joystick
+   */
+  public int getPOVCount(int stick) {
+    while (true) {
+      long stamp = startRead();
+      int count = peekPOVCount(stick);
+      if (validate(stamp)) {
+        return count;
+      }
+    }
+  }
+
+  /**
+   * Get the angle of a joystick POV.
+   *
+   * @param stick The joystick port number
+   * @param pov The POV index, less than kMaxJoystickPOVs
+   * @return The POV angle in degrees, or -1 if the joystick does not have the
+   *         POV
+   */
+  public short getPOV(int stick, int pov) {
+    while (true) {
+      long stamp = startRead();
+      short value = peekPOV(stick, pov);
+      if (validate(stamp)) {
+        return value;
+      }
+    }
+  }
+
+  /**
+   * Get the button state of a joystick.
+   *
+   * @param stick The joystick port number
+   * @return The state of the buttons, one bit per button starting at bit 0
+   */
+  public int getButtons(int stick) {
+    while (true) {
+      long stamp = startRead();
+      int buttons = peekButtons(stick);
+      if (validate(stamp)) {
+        return buttons;
+      }
+    }
+  }
+
+  /**
+   * Get the number of buttons on a joystick.
+   *
+   * @param stick The joystick port number
+   * @return The number of buttons on the joystick
+   */
+  public int getButtonCount(int stick) {
+    while (true) {
+      long stamp = startRead();
+      int count = peekButtonCount(stick);
+      if (validate(stamp)) {
+        return count;
+      }
+    }
+  }
+
+  /**
+   * Get the number of axes on a joystick without validating the read. It must
+   * be bracketed by {@link #startRead()} and {@link #validate(long)}.
+   *
+   * @param stick The joystick port number
+   * @return The number of axes on the joystick
+   */
+  public int peekAxisCount(int stick) {
+    return m_front.axisCount[stick];
+  }
+
+  /**
+   * Get the raw value of a joystick axis without validating the read. It must
+   * be bracketed by {@link #startRead()} and {@link #validate(long)}.
+   *
+   * @param stick The joystick port number
+   * @param axis The axis index, less than kMaxJoystickAxes
+   * @return The raw axis value, or 0 if the joystick does not have the axis
+   */
+  public short peekAxis(int stick, int axis) {
+    Frame front = m_front;
+    return axis < front.axisCount[stick] ? front.axes[stick][axis] : 0;
+  }
+
+  /**
+   * Get the number of POVs on a joystick without validating the read. It must
+   * be bracketed by {@link #startRead()} and {@link #validate(long)}.
+   *
+   * @param stick The joystick port number
+   * @return The number of POVs on the joystick
+   */
+  public int peekPOVCount(int stick) {
+    return m_front.povCount[stick];
+  }
+
+  /**
+   * Get the angle of a joystick POV without validating the read. It must be
+   * bracketed by {@link #startRead()} and {@link #validate(long)}.
+   *
+   * @param stick The joystick port number
+   * @param pov The POV index, less than kMaxJoystickPOVs
+   * @return The POV angle in degrees, or -1 if the joystick does not have the
+   *         POV
+   */
+  public short peekPOV(int stick, int pov) {
+    Frame front = m_front;
+    return pov < front.povCount[stick] ? front.povs[stick][pov] : -1;
+  }
+
+  /**
+   * Get the button state of a joystick without validating the read. It must be
+   * bracketed by {@link #startRead()} and {@link #validate(long)}.
+   *
+   * @param stick The joystick port number
+   * @return The state of the buttons, one bit per button starting at bit 0
+   */
+  public int peekButtons(int stick) {
+    return m_front.buttons[stick];
+  }
+
+  /**
+   * Get the number of buttons on a joystick without validating the read. It
+   * must be bracketed by {@link #startRead()} and {@link #validate(long)}.
+   *
+   * @param stick The joystick port number
+   * @return The number of buttons on the joystick
+   */
+  public int peekButtonCount(int stick) {
+    return m_front.buttonCount[stick];
+  }
+}
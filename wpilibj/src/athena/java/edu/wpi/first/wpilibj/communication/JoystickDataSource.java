@@ -0,0 +1,52 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.communication;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A source of decoded joystick data for a single Driver Station packet.
+ *
+ * The DriverStation reads every joystick from one of these each time a new
+ * packet arrives. Implementations must not allocate; all of the output
+ * parameters are owned and reused by the caller. The HAL backed implementation
+ * is {@link HALJoystickDataSource}, other implementations can be used to drive
+ * a {@link JoystickDataBuffer} without a robot.
+ */
+public interface JoystickDataSource {
+
+  /**
+   * Copy the axes of a joystick into the given array.
+   *
+   * @param stick The joystick port number
+   * @param axes The array to fill,
+   *        {@link FRCNetworkCommunicationsLibrary#kMaxJoystickAxes} long
+   * @return The number of axes written into the array
+   */
+  int getJoystickAxes(byte stick, short[] axes);
+
+  /**
+   * Copy the POVs of a joystick into the given array.
+   *
+   * @param stick The joystick port number
+   * @param povs The array to fill,
+   *        {@link FRCNetworkCommunicationsLibrary#kMaxJoystickPOVs} long
+   * @return The number of POVs written into the array
+   */
+  int getJoystickPOVs(byte stick, short[] povs);
+
+  /**
+   * Get the button state of a joystick.
+   *
+   * @param stick The joystick port number
+   * @param count A direct buffer whose first byte is set to the number of
+   *        buttons on the joystick
+   * @return The state of the buttons, one bit per button starting at bit 0
+   */
+  int getJoystickButtons(byte stick, ByteBuffer count);
+}
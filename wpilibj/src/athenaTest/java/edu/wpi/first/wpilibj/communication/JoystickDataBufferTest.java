@@ -0,0 +1,88 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.communication;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+/**
+ * Runs off the robot, so building a buffer must not load the HAL library.
+ */
+public class JoystickDataBufferTest {
+  private static final int kSticks = 6;
+
+  /**
+   * Reports every axis and POV the buffer can hold, with the values derived
+   * from the port and index.
+   */
+  private static class FullSource implements JoystickDataSource {
+    @Override
+    public int getJoystickAxes(byte stick, short[] axes) {
+      for (int i = 0; i < axes.length; i++) {
+        axes[i] = (short) (stick * 100 + i);
+      }
+      return axes.length;
+    }
+
+    @Override
+    public int getJoystickPOVs(byte stick, short[] povs) {
+      for (int i = 0; i < povs.length; i++) {
+        povs[i] = (short) (i * 45);
+      }
+      return povs.length;
+    }
+
+    @Override
+    public int getJoystickButtons(byte stick, ByteBuffer count) {
+      count.put(0, (byte) 32);
+      return stick;
+    }
+  }
+
+  @Test
+  public void emptyBeforeUpdateTest() {
+    JoystickDataBuffer buffer = new JoystickDataBuffer(kSticks);
+
+    assertEquals(0, buffer.getSequence());
+    assertEquals(0, buffer.getAxisCount(0));
+    assertEquals(0, buffer.getAxis(0, 0));
+    assertEquals(-1, buffer.getPOV(0, 0));
+    assertEquals(0, buffer.getButtonCount(0));
+  }
+
+  @Test
+  public void holdsTheHALLimitsTest() {
+    JoystickDataBuffer buffer = new JoystickDataBuffer(kSticks);
+    buffer.update(new FullSource());
+
+    int lastAxis = FRCNetworkCommunicationsLibrary.kMaxJoystickAxes - 1;
+    int lastPOV = FRCNetworkCommunicationsLibrary.kMaxJoystickPOVs - 1;
+    assertEquals(1, buffer.getSequence());
+    assertEquals(lastAxis + 1, buffer.getAxisCount(5));
+    assertEquals(500 + lastAxis, buffer.getAxis(5, lastAxis));
+    assertEquals(lastPOV + 1, buffer.getPOVCount(2));
+    assertEquals(lastPOV * 45, buffer.getPOV(2, lastPOV));
+    assertEquals(3, buffer.getButtons(3));
+    assertEquals(32, buffer.getButtonCount(3));
+  }
+
+  @Test
+  public void readingDoesNotNeedTheHALTest() {
+    JoystickDataBuffer buffer = new JoystickDataBuffer(kSticks);
+    buffer.update(new FullSource());
+
+    long stamp = buffer.startRead();
+    short axis = buffer.peekAxis(1, 0);
+    assertTrue(buffer.validate(stamp));
+    assertEquals(100, axis);
+  }
+}
@@ -0,0 +1,366 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.ThreadMXBean;
+
+import edu.wpi.first.wpilibj.networktables.NetworkTable;
+import edu.wpi.first.wpilibj.tables.ITable;
+
+/**
+ * Measures how much memory the robot's periodic methods allocate and how long
+ * the garbage collector pauses.
+ *
+ * The robot base class calls {@link #beginPeriodic()} and
+ * {@link #endPeriodic()} around each periodic method. The bytes allocated by
+ * the calling thread in between are read from the JVM's per-thread allocation
+ * counter. Garbage collections are counted from the JVM's GC notifications.
+ * A periodic method which takes longer than the loop period is an overrun;
+ * overruns during which the garbage collector ran are counted separately, so
+ * it is easy to tell whether the GC is the cause of the overruns.
+ *
+ * The statistics are published to the "AllocationMonitor" NetworkTable about
+ * once a second. The monitor is disabled by default; {@link RobotBase} enables
+ * it if the {@link #ENABLED_PROP} system property is true.
+ *
+ * For tests, {@link #setZeroAllocationAssertion(int)} makes
+ * {@link #endPeriodic()} throw an AssertionError if a periodic method
+ * allocates anything once the warmup loops have run.
+ */
+public class AllocationMonitor {
+  /**
+   * The system property which enables the monitor when the robot starts.
+   */
+  public static final String ENABLED_PROP = "first.allocationmonitor.enabled";
+
+  private static final int kPublishInterval = 50;
+  private static final int kCalibrationReads = 16;
+
+  private static volatile boolean enabled = false;
+  // The bytes counted between two back to back reads of the counter, which
+  // are allocated by the read itself on some JVMs.
+  private static long readOverhead = 0;
+  private static long loopPeriodNanos = 20000000L;
+
+  private static Thread periodicThread;
+  private static long periodicStartBytes;
+  private static long periodicStartTime;
+  private static long periodicStartGcs;
+  private static int warmupLoops = -1;
+
+  private static long loops = 0;
+  private static long lastBytes = 0;
+  private static long totalBytes = 0;
+  private static long maxBytes = 0;
+  private static long allocatingLoops = 0;
+  private static long overruns = 0;
+  private static long overrunsWithGc = 0;
+  private static long overrunBytes = 0;
+  private static int loopsSincePublish = 0;
+  private static ITable table;
+
+  private static final AtomicLong gcCount = new AtomicLong();
+  private static final AtomicLong gcPauseMillis = new AtomicLong();
+  private static final AtomicLong gcMaxPauseMillis = new AtomicLong();
+
+  /**
+   * The parts of the monitor which use the com.sun.management extensions.
+   * They are only loaded when the monitor is enabled, so a robot which does
+   * not enable it does not depend on them.
+   */
+  private static final class Jvm {
+    private static ThreadMXBean threadBean;
+
+    private static final NotificationListener gcListener = new NotificationListener() {
+      @Override
+      public void handleNotification(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION
+            .equals(notification.getType())) {
+          return;
+        }
+        GarbageCollectionNotificationInfo info =
+            GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        long duration = info.getGcInfo().getDuration();
+        gcPauseMillis.addAndGet(duration);
+        long max;
+        do {
+          max = gcMaxPauseMillis.get();
+        } while (duration > max && !gcMaxPauseMillis.compareAndSet(max, duration));
+        gcCount.incrementAndGet();
+      }
+    };
+
+    /**
+     * Turn on the allocation counter and add the GC listeners the first time
+     * the monitor is enabled.
+     */
+    static void enable() {
+      if (threadBean != null) {
+        return;
+      }
+      java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+      if (!(bean instanceof ThreadMXBean)
+          || !((ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+        throw new UnsupportedOperationException(
+            "This JVM does not support measuring thread allocations");
+      }
+      ((ThreadMXBean) bean).setThreadAllocatedMemoryEnabled(true);
+      threadBean = (ThreadMXBean) bean;
+      calibrate();
+      for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+        if (gc instanceof NotificationEmitter) {
+          ((NotificationEmitter) gc).addNotificationListener(gcListener, null, null);
+        }
+      }
+    }
+
+    static long getAllocatedBytes(long threadId) {
+      return threadBean.getThreadAllocatedBytes(threadId);
+    }
+
+    /**
+     * Find the smallest count between two back to back reads, which is what
+     * reading the counter allocates by itself.
+     */
+    private static void calibrate() {
+      long id = Thread.currentThread().getId();
+      long overhead = Long.MAX_VALUE;
+      for (int i = 0; i < kCalibrationReads; i++) {
+        long start = threadBean.getThreadAllocatedBytes(id);
+        long end = threadBean.getThreadAllocatedBytes(id);
+        overhead = Math.min(overhead, end - start);
+      }
+      readOverhead = Math.max(overhead, 0);
+    }
+  }
+
+  private AllocationMonitor() {}
+
+  /**
+   * Enable or disable the monitor.
+   *
+   * @param enable True to measure allocations and garbage collections
+   * @throws UnsupportedOperationException if the JVM cannot measure per-thread
+   *         allocations
+   */
+  public static synchronized void setEnabled(boolean enable) {
+    if (enable) {
+      Jvm.enable();
+    }
+    periodicThread = null;
+    enabled = enable;
+  }
+
+  /**
+   * @return True if the monitor is enabled
+   */
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Set the loop period. Periodic methods which take longer than this are
+   * counted as overruns.
+   *
+   * @param period The period in seconds
+   */
+  public static void setLoopPeriod(double period) {
+    loopPeriodNanos = (long) (period * 1e9);
+  }
+
+  /**
+   * Make {@link #endPeriodic()} throw an AssertionError if a periodic method
+   * allocates after the warmup loops. This is meant for tests which check
+   * that the steady state of a robot program does not create garbage.
+   *
+   * @param warmup The number of periodic calls to allow allocations in, or -1
+   *        to turn the assertion off
+   */
+  public static void setZeroAllocationAssertion(int warmup) {
+    warmupLoops = warmup;
+  }
+
+  /**
+   * Called by the robot base class just before a periodic method.
+   */
+  public static void beginPeriodic() {
+    if (!enabled) {
+      return;
+    }
+    Thread thread = Thread.currentThread();
+    periodicThread = thread;
+    periodicStartGcs = gcCount.get();
+    periodicStartTime = System.nanoTime();
+    periodicStartBytes = Jvm.getAllocatedBytes(thread.getId());
+  }
+
+  /**
+   * Called by the robot base class just after a periodic method.
+   *
+   * @throws AssertionError if the zero allocation assertion is on and the
+   *         periodic method allocated
+   */
+  public static void endPeriodic() {
+    if (!enabled) {
+      return;
+    }
+    Thread thread = Thread.currentThread();
+    if (thread != periodicThread) {
+      return;
+    }
+    long bytes = Jvm.getAllocatedBytes(thread.getId()) - periodicStartBytes
+        - readOverhead;
+    long duration = System.nanoTime() - periodicStartTime;
+    boolean hadGc = gcCount.get() != periodicStartGcs;
+    if (bytes < 0) {
+      bytes = 0;
+    }
+
+    loops++;
+    lastBytes = bytes;
+    totalBytes += bytes;
+    if (bytes > maxBytes) {
+      maxBytes = bytes;
+    }
+    if (bytes > 0) {
+      allocatingLoops++;
+    }
+    if (duration > loopPeriodNanos) {
+      overruns++;
+      overrunBytes += bytes;
+      if (hadGc) {
+        overrunsWithGc++;
+      }
+    }
+
+    if (++loopsSincePublish >= kPublishInterval) {
+      loopsSincePublish = 0;
+      publish();
+    }
+
+    if (warmupLoops >= 0 && loops > warmupLoops && bytes > 0) {
+      throw new AssertionError("Periodic method allocated " + bytes + " bytes after "
+          + warmupLoops + " warmup loops");
+    }
+  }
+
+  /**
+   * @return The number of periodic calls measured
+   */
+  public static long getLoops() {
+    return loops;
+  }
+
+  /**
+   * @return The bytes allocated by the most recent periodic call
+   */
+  public static long getLastBytes() {
+    return lastBytes;
+  }
+
+  /**
+   * @return The mean bytes allocated per periodic call
+   */
+  public static double getMeanBytes() {
+    return loops == 0 ? 0.0 : (double) totalBytes / loops;
+  }
+
+  /**
+   * @return The most bytes allocated by a single periodic call
+   */
+  public static long getMaxBytes() {
+    return maxBytes;
+  }
+
+  /**
+   * @return The number of periodic calls which allocated anything
+   */
+  public static long getAllocatingLoops() {
+    return allocatingLoops;
+  }
+
+  /**
+   * @return The number of periodic calls which took longer than the loop
+   *         period
+   */
+  public static long getOverruns() {
+    return overruns;
+  }
+
+  /**
+   * @return The number of overruns during which the garbage collector ran
+   */
+  public static long getOverrunsWithGc() {
+    return overrunsWithGc;
+  }
+
+  /**
+   * @return The number of garbage collections since the monitor was enabled
+   */
+  public static long getGcCount() {
+    return gcCount.get();
+  }
+
+  /**
+   * @return The total time spent in garbage collection in milliseconds
+   */
+  public static long getGcPauseMillis() {
+    return gcPauseMillis.get();
+  }
+
+  /**
+   * @return The longest garbage collection in milliseconds
+   */
+  public static long getGcMaxPauseMillis() {
+    return gcMaxPauseMillis.get();
+  }
+
+  /**
+   * Clear the statistics.
+   */
+  public static void reset() {
+    loops = 0;
+    lastBytes = 0;
+    totalBytes = 0;
+    maxBytes = 0;
+    allocatingLoops = 0;
+    overruns = 0;
+    overrunsWithGc = 0;
+    overrunBytes = 0;
+    loopsSincePublish = 0;
+    gcCount.set(0);
+    gcPauseMillis.set(0);
+    gcMaxPauseMillis.set(0);
+  }
+
+  private static void publish() {
+    if (table == null) {
+      table = NetworkTable.getTable("AllocationMonitor");
+    }
+    table.putNumber("Loops", loops);
+    table.putNumber("MeanBytes", getMeanBytes());
+    table.putNumber("MaxBytes", maxBytes);
+    table.putNumber("AllocatingLoops", allocatingLoops);
+    table.putNumber("Overruns", overruns);
+    table.putNumber("OverrunsWithGC", overrunsWithGc);
+    table.putNumber("MeanOverrunBytes", overruns == 0 ? 0.0 : (double) overrunBytes / overruns);
+    table.putNumber("GCCount", gcCount.get());
+    table.putNumber("GCPauseMs", gcPauseMillis.get());
+    table.putNumber("GCMaxPauseMs", gcMaxPauseMillis.get());
+  }
+}
@@ -0,0 +1,346 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Reports errors and warnings to the Driver Station from a background thread.
+ *
+ * Callers capture their stack and put the report on a bounded lock-free queue.
+ * Capturing the stack walks the caller's frames, which is the main cost left
+ * on the calling thread; turning the frames into StackTraceElements, finding
+ * where the report came from and formatting the trace are done by the
+ * reporter thread, and the trace is only formatted when a report is sent.
+ * Identical reports from the same location are collapsed: the first one is
+ * sent immediately and any repeats within the next second are sent as a single
+ * report with the repeat count and the times of the first and last repeat.
+ * Each report is stamped with {@link Timer#getFPGATimestamp()} on the thread
+ * which reports it, so in simulation the times are those of the robot's own
+ * simulation.
+ * If the queue is full, reports are dropped and the number dropped is sent
+ * instead.
+ *
+ * The reporter thread only wakes periodically, so {@link #flush()} sends the
+ * queued reports at once. It is also called when the JVM exits, so a fatal
+ * error reported just before System.exit() is not lost. An exception thrown
+ * while sending is printed and does not stop the reporter thread.
+ */
+public class ErrorReporter {
+
+  /**
+   * The destination for the reports.
+   */
+  public interface Sink {
+    /**
+     * Send a report.
+     *
+     * @param isError True for an error, false for a warning
+     * @param code The error code
+     * @param details The error message
+     * @param location The first stack frame outside of WPILib
+     * @param callStack The formatted stack trace, or an empty string
+     */
+    void send(boolean isError, int code, String details, String location, String callStack);
+  }
+
+  private static final long kRepeatWindowNanos = 1000000000L;
+  private static final long kPollPeriodNanos = 20000000L;
+
+  private static final class Report {
+    final boolean m_isError;
+    final int m_code;
+    final String m_details;
+    final Throwable m_trace;
+    final int m_skipFrames;
+    final boolean m_printTrace;
+    final long m_time;
+    // The FPGA time in seconds, or NaN if the timer is not set up yet
+    final double m_timestamp;
+
+    Report(boolean isError, int code, String details, Throwable trace, int skipFrames,
+        boolean printTrace, long time, double timestamp) {
+      m_isError = isError;
+      m_code = code;
+      m_details = details;
+      m_trace = trace;
+      m_skipFrames = skipFrames;
+      m_printTrace = printTrace;
+      m_time = time;
+      m_timestamp = timestamp;
+    }
+  }
+
+  private static final class Repeats {
+    final boolean m_isError;
+    final int m_code;
+    final String m_details;
+    final String m_location;
+    final long m_sentTime;
+    int m_count = 0;
+    double m_firstTimestamp;
+    double m_lastTimestamp;
+
+    Repeats(Report report, String location) {
+      m_isError = report.m_isError;
+      m_code = report.m_code;
+      m_details = report.m_details;
+      m_location = location;
+      m_sentTime = report.m_time;
+    }
+  }
+
+  /**
+   * A bounded multiple producer, single consumer queue. Each slot has a
+   * sequence number which tells producers when it is free and the consumer
+   * when it has been filled.
+   */
+  private static final class ReportQueue {
+    private final Report[] m_reports;
+    private final AtomicLongArray m_sequence;
+    private final int m_mask;
+    private final AtomicLong m_tail = new AtomicLong();
+    private long m_head = 0;
+
+    ReportQueue(int capacity) {
+      int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+      m_reports = new Report[size];
+      m_sequence = new AtomicLongArray(size);
+      for (int i = 0; i < size; i++) {
+        m_sequence.set(i, i);
+      }
+      m_mask = size - 1;
+    }
+
+    boolean offer(Report report) {
+      long tail = m_tail.get();
+      while (true) {
+        int index = (int) tail & m_mask;
+        long diff = m_sequence.get(index) - tail;
+        if (diff == 0) {
+          if (m_tail.compareAndSet(tail, tail + 1)) {
+            m_reports[index] = report;
+            m_sequence.set(index, tail + 1);
+            return true;
+          }
+          tail = m_tail.get();
+        } else if (diff < 0) {
+          return false;
+        } else {
+          tail = m_tail.get();
+        }
+      }
+    }
+
+    Report poll() {
+      int index = (int) m_head & m_mask;
+      if (m_sequence.get(index) != m_head + 1) {
+        return null;
+      }
+      Report report = m_reports[index];
+      m_reports[index] = null;
+      m_sequence.set(index, m_head + m_mask + 1);
+      m_head++;
+      return report;
+    }
+  }
+
+  private final Sink m_sink;
+  private final ReportQueue m_queue;
+  private final AtomicLong m_dropped = new AtomicLong();
+  private final Map<String, Repeats> m_repeats = new HashMap<String, Repeats>();
+  private final Thread m_thread;
+
+  /**
+   * Create an error reporter and start its thread.
+   *
+   * @param sink Where to send the reports
+   * @param capacity The number of reports which can be queued
+   */
+  public ErrorReporter(Sink sink, int capacity) {
+    this(sink, capacity, true);
+  }
+
+  ErrorReporter(Sink sink, int capacity, boolean startThread) {
+    m_sink = sink;
+    m_queue = new ReportQueue(capacity);
+    if (startThread) {
+      m_thread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          while (true) {
+            try {
+              drain(System.nanoTime());
+            } catch (RuntimeException e) {
+              // The report being sent is lost, but later ones are not
+              System.err.println("FRCErrorReporter: could not send an error report");
+              e.printStackTrace();
+            }
+            LockSupport.parkNanos(kPollPeriodNanos);
+          }
+        }
+      }, "FRCErrorReporter");
+      m_thread.setDaemon(true);
+      m_thread.start();
+      // The thread is a daemon, so send what is left when the robot exits
+      Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            flush();
+          } catch (RuntimeException e) {
+            System.err.println("FRCErrorReporter: could not send the error reports");
+            e.printStackTrace();
+          }
+        }
+      }, "FRCErrorReporter shutdown"));
+    } else {
+      m_thread = null;
+    }
+  }
+
+  /**
+   * Queue a report. This captures the stack of the calling thread, but does not
+   * decode or format it.
+   *
+   * @param isError True for an error, false for a warning
+   * @param code The error code
+   * @param details The error message
+   * @param printTrace If true, send the stack trace with the report
+   * @param skipFrames The number of frames, starting with the caller of this
+   *        method, to leave out of the location and stack trace
+   * @return False if the queue was full and the report was dropped
+   */
+  public boolean report(boolean isError, int code, String details, boolean printTrace,
+      int skipFrames) {
+    Report report = new Report(isError, code, details, new Throwable(), skipFrames + 1,
+        printTrace, System.nanoTime(), getTimestamp());
+    if (!m_queue.offer(report)) {
+      m_dropped.incrementAndGet();
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Process every queued report and send any collapsed repeats whose window
+   * has ended.
+   *
+   * @param now The current {@link System#nanoTime()}
+   */
+  synchronized void drain(long now) {
+    Report report;
+    while ((report = m_queue.poll()) != null) {
+      process(report);
+    }
+
+    Iterator<Repeats> it = m_repeats.values().iterator();
+    while (it.hasNext()) {
+      Repeats repeats = it.next();
+      if (now - repeats.m_sentTime >= kRepeatWindowNanos) {
+        if (repeats.m_count > 0) {
+          sendRepeats(repeats);
+        }
+        it.remove();
+      }
+    }
+
+    long dropped = m_dropped.getAndSet(0);
+    if (dropped > 0) {
+      m_sink.send(false, 1, dropped + " error reports were dropped because the queue was full",
+          "", "");
+    }
+  }
+
+  /**
+   * Send every queued report and every collapsed repeat now, on the calling
+   * thread, without waiting for the reporter thread.
+   */
+  public synchronized void flush() {
+    drain(System.nanoTime());
+    for (Repeats repeats : m_repeats.values()) {
+      if (repeats.m_count > 0) {
+        sendRepeats(repeats);
+        repeats.m_count = 0;
+      }
+    }
+  }
+
+  private static double getTimestamp() {
+    try {
+      return Timer.getFPGATimestamp();
+    } catch (RuntimeException e) {
+      // Reported before Timer.SetImplementation()
+      return Double.NaN;
+    }
+  }
+
+  private void process(Report report) {
+    StackTraceElement[] traces = report.m_trace.getStackTrace();
+    String location = getLocation(traces, report.m_skipFrames);
+    String key = (report.m_isError ? "E" : "W") + report.m_code + location + '\0'
+        + report.m_details;
+
+    Repeats repeats = m_repeats.get(key);
+    if (repeats != null && report.m_time - repeats.m_sentTime < kRepeatWindowNanos) {
+      if (repeats.m_count == 0) {
+        repeats.m_firstTimestamp = report.m_timestamp;
+      }
+      repeats.m_count++;
+      repeats.m_lastTimestamp = report.m_timestamp;
+      return;
+    }
+    if (repeats != null && repeats.m_count > 0) {
+      sendRepeats(repeats);
+    }
+
+    String callStack = report.m_printTrace ? formatTrace(traces, report.m_skipFrames) : "";
+    m_sink.send(report.m_isError, report.m_code, report.m_details, location, callStack);
+    m_repeats.put(key, new Repeats(report, location));
+  }
+
+  private void sendRepeats(Repeats repeats) {
+    String range = "";
+    if (!Double.isNaN(repeats.m_firstTimestamp) && !Double.isNaN(repeats.m_lastTimestamp)) {
+      range = " from " + String.format("%.3f", repeats.m_firstTimestamp) + "s to "
+          + String.format("%.3f", repeats.m_lastTimestamp) + "s";
+    }
+    m_sink.send(repeats.m_isError, repeats.m_code, repeats.m_details + " (repeated "
+        + repeats.m_count + " times" + range + ")", repeats.m_location, "");
+  }
+
+  /**
+   * Get the first stack frame outside of WPILib, or the caller if all of the
+   * frames are in WPILib.
+   */
+  private static String getLocation(StackTraceElement[] traces, int skipFrames) {
+    if (traces.length <= skipFrames) {
+      return "";
+    }
+    for (int i = skipFrames; i < traces.length; i++) {
+      String loc = traces[i].toString();
+      if (!loc.startsWith("edu.wpi.first.wpilibj")) {
+        return loc;
+      }
+    }
+    return traces[skipFrames].toString();
+  }
+
+  private static String formatTrace(StackTraceElement[] traces, int skipFrames) {
+    StringBuilder traceString = new StringBuilder(" at ");
+    for (int i = skipFrames; i < traces.length; i++) {
+      traceString.append(traces[i].toString()).append('\n');
+    }
+    return traceString.toString();
+  }
+}
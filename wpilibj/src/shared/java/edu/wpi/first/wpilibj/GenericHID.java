@@ -174,4 +174,36 @@ public abstract class GenericHID {
   public int getPOV() {
     return getPOV(0);
   }
+
+  /**
+   * Copy the state of every axis, POV and button into a snapshot. The snapshot
+   * should be reused between calls so that the pressed and released buttons can
+   * be computed and nothing is allocated.
+   *
+   * This reads each input through {@link #getRawAxis(int)},
+   * {@link #getPOV(int)} and {@link #getRawButton(int)}, so the values may come
+   * from different Driver Station packets, and every HID is taken to have
+   * {@link HIDSnapshot#kMaxAxes} axes, {@link HIDSnapshot#kMaxPOVs} POVs and
+   * {@link HIDSnapshot#kMaxButtons} buttons. HIDs that can read all of their
+   * inputs at once override it.
+   *
+   * @param snapshot The snapshot to update
+   */
+  public void getSnapshot(HIDSnapshot snapshot) {
+    for (int i = 0; i < HIDSnapshot.kMaxAxes; i++) {
+      snapshot.m_axes[i] = getRawAxis(i);
+    }
+    snapshot.m_axisCount = HIDSnapshot.kMaxAxes;
+    for (int i = 0; i < HIDSnapshot.kMaxPOVs; i++) {
+      snapshot.m_povs[i] = getPOV(i);
+    }
+    snapshot.m_povCount = HIDSnapshot.kMaxPOVs;
+    int buttons = 0;
+    for (int i = 0; i < HIDSnapshot.kMaxButtons; i++) {
+      if (getRawButton(i + 1)) {
+        buttons |= 1 << i;
+      }
+    }
+    snapshot.setButtons(buttons, HIDSnapshot.kMaxButtons);
+  }
 }
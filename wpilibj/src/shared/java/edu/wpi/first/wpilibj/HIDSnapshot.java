@@ -0,0 +1,166 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj;
+
+/**
+ * The complete state of a HID at one point in time.
+ *
+ * A snapshot is filled in by {@link GenericHID#getSnapshot(HIDSnapshot)} in a
+ * single operation, so every value in it comes from the same Driver Station
+ * packet. Snapshots are meant to be created once and reused every loop; the
+ * pressed and released masks are computed relative to the previous state
+ * stored in the same object.
+ */
+public class HIDSnapshot {
+  /**
+   * The maximum number of axes that a snapshot can hold.
+   */
+  public static final int kMaxAxes = 12;
+
+  /**
+   * The maximum number of POVs that a snapshot can hold.
+   */
+  public static final int kMaxPOVs = 12;
+
+  /**
+   * The maximum number of buttons that a snapshot can hold.
+   */
+  public static final int kMaxButtons = 32;
+
+  final double[] m_axes = new double[kMaxAxes];
+  int m_axisCount = 0;
+  final int[] m_povs = new int[kMaxPOVs];
+  int m_povCount = 0;
+  private int m_buttons = 0;
+  private int m_buttonCount = 0;
+  private int m_pressed = 0;
+  private int m_released = 0;
+
+  /**
+   * Update the button state, computing the edges relative to the previous
+   * state.
+   *
+   * @param buttons The new button state, one bit per button starting at bit 0
+   * @param count The number of buttons on the HID
+   */
+  void setButtons(int buttons, int count) {
+    m_pressed = buttons & ~m_buttons;
+    m_released = m_buttons & ~buttons;
+    m_buttons = buttons;
+    m_buttonCount = count;
+  }
+
+  /**
+   * Get the value of an axis.
+   *
+   * @param axis The axis to read, starting at 0.
+   * @return The value of the axis, or 0.0 if the HID does not have the axis.
+   */
+  public double getAxis(int axis) {
+    if (axis < 0 || axis >= m_axisCount) {
+      return 0.0;
+    }
+    return m_axes[axis];
+  }
+
+  /**
+   * @return The number of axes on the HID
+   */
+  public int getAxisCount() {
+    return m_axisCount;
+  }
+
+  /**
+   * Get the angle in degrees of a POV.
+   *
+   * @param pov The index of the POV to read (starting at 0)
+   * @return the angle of the POV in degrees, or -1 if the POV is not pressed or
+   *         the HID does not have the POV.
+   */
+  public int getPOV(int pov) {
+    if (pov < 0 || pov >= m_povCount) {
+      return -1;
+    }
+    return m_povs[pov];
+  }
+
+  /**
+   * @return The number of POVs on the HID
+   */
+  public int getPOVCount() {
+    return m_povCount;
+  }
+
+  /**
+   * @return The state of all of the buttons, one bit per button with button 1
+   *         in bit 0
+   */
+  public int getButtons() {
+    return m_buttons;
+  }
+
+  /**
+   * @return The number of buttons on the HID
+   */
+  public int getButtonCount() {
+    return m_buttonCount;
+  }
+
+  /**
+   * Get the state of a button.
+   *
+   * @param button The button number to be read (starting at 1).
+   * @return The state of the button.
+   */
+  public boolean getRawButton(int button) {
+    return isSet(m_buttons, button);
+  }
+
+  /**
+   * @return The buttons which were pressed since the previous snapshot, one bit
+   *         per button with button 1 in bit 0
+   */
+  public int getPressedButtons() {
+    return m_pressed;
+  }
+
+  /**
+   * @return The buttons which were released since the previous snapshot, one
+   *         bit per button with button 1 in bit 0
+   */
+  public int getReleasedButtons() {
+    return m_released;
+  }
+
+  /**
+   * Whether a button was pressed since the previous snapshot.
+   *
+   * @param button The button number to be read (starting at 1).
+   * @return True if the button went from released to pressed.
+   */
+  public boolean getButtonPressed(int button) {
+    return isSet(m_pressed, button);
+  }
+
+  /**
+   * Whether a button was released since the previous snapshot.
+   *
+   * @param button The button number to be read (starting at 1).
+   * @return True if the button went from pressed to released.
+   */
+  public boolean getButtonReleased(int button) {
+    return isSet(m_released, button);
+  }
+
+  private static boolean isSet(int mask, int button) {
+    if (button < 1 || button > kMaxButtons) {
+      return false;
+    }
+    return ((0x1 << (button - 1)) & mask) != 0;
+  }
+}
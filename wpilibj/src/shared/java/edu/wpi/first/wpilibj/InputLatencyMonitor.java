@@ -0,0 +1,142 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.wpi.first.wpilibj.networktables.NetworkTable;
+import edu.wpi.first.wpilibj.tables.ITable;
+
+/**
+ * Measures how long a Driver Station packet takes to reach an actuator.
+ *
+ * The DriverStation timestamps every packet on arrival. When the robot loop
+ * starts the periodic method for a new packet it calls
+ * {@link #startPeriodic(long)}, which records the packet to periodic latency.
+ * The first speed controller output written after that calls
+ * {@link #outputWritten()}, which records the periodic to output latency. Both
+ * histograms are published to the "InputLatency" NetworkTable about once a
+ * second.
+ *
+ * The monitor is disabled by default; {@link RobotBase} enables it if the
+ * {@link #ENABLED_PROP} system property is true. When it is disabled the hooks
+ * return after reading a single flag.
+ *
+ * Outputs written by motor safety when it stops a motor are not recorded, as
+ * they are not a response to the packet.
+ */
+public class InputLatencyMonitor {
+  /**
+   * The system property which enables the monitor when the robot starts.
+   */
+  public static final String ENABLED_PROP = "first.inputlatency.enabled";
+
+  private static final int kPublishInterval = 50;
+
+  private static volatile boolean enabled = false;
+  private static final LatencyHistogram packetToPeriodic = new LatencyHistogram();
+  private static final LatencyHistogram periodicToOutput = new LatencyHistogram();
+  // The time the current periodic method started, or 0 once an output has
+  // been recorded for it.
+  private static final AtomicLong periodicStart = new AtomicLong();
+  private static final double[] counts = new double[LatencyHistogram.kBuckets];
+  private static int loopsSincePublish = 0;
+  private static ITable table;
+
+  private InputLatencyMonitor() {}
+
+  /**
+   * Enable or disable latency measurement.
+   *
+   * @param enable True to measure and publish latencies
+   */
+  public static void setEnabled(boolean enable) {
+    if (!enable) {
+      periodicStart.set(0);
+    }
+    enabled = enable;
+  }
+
+  /**
+   * @return True if latencies are being measured
+   */
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Called by the robot base class just before it runs the periodic method for
+   * a new Driver Station packet.
+   *
+   * @param packetTimestamp The {@link System#nanoTime()} at which the packet
+   *        arrived, or 0 if it is unknown
+   */
+  public static void startPeriodic(long packetTimestamp) {
+    if (!enabled) {
+      return;
+    }
+    long now = System.nanoTime();
+    if (packetTimestamp != 0) {
+      packetToPeriodic.record(now - packetTimestamp);
+    }
+    periodicStart.set(now);
+
+    if (++loopsSincePublish >= kPublishInterval) {
+      loopsSincePublish = 0;
+      publish();
+    }
+  }
+
+  /**
+   * Called by actuators whenever an output is written. Only the first output
+   * after each {@link #startPeriodic(long)} is recorded.
+   */
+  public static void outputWritten() {
+    if (!enabled) {
+      return;
+    }
+    long start = periodicStart.get();
+    if (start != 0 && periodicStart.compareAndSet(start, 0)) {
+      periodicToOutput.record(System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * @return The latencies from packet arrival to the start of the periodic
+   *         method
+   */
+  public static LatencyHistogram getPacketToPeriodic() {
+    return packetToPeriodic;
+  }
+
+  /**
+   * @return The latencies from the start of the periodic method to the first
+   *         actuator output
+   */
+  public static LatencyHistogram getPeriodicToOutput() {
+    return periodicToOutput;
+  }
+
+  private static void publish() {
+    if (table == null) {
+      table = NetworkTable.getTable("InputLatency");
+    }
+    publish(table.getSubTable("PacketToPeriodic"), packetToPeriodic);
+    publish(table.getSubTable("PeriodicToOutput"), periodicToOutput);
+  }
+
+  private static void publish(ITable subtable, LatencyHistogram histogram) {
+    histogram.getCounts(counts);
+    subtable.putNumberArray("Counts", counts);
+    subtable.putNumber("Samples", histogram.getSamples());
+    subtable.putNumber("Mean", histogram.getMean());
+    subtable.putNumber("P50", histogram.getPercentile(0.5));
+    subtable.putNumber("P99", histogram.getPercentile(0.99));
+    subtable.putNumber("Max", histogram.getMax());
+  }
+}
@@ -0,0 +1,141 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies with power of two microsecond buckets.
+ *
+ * Bucket 0 counts latencies under 1us, and bucket i counts latencies from
+ * 2^(i-1)us up to 2^i us. The last bucket also counts everything longer.
+ * Recording is thread safe and does not allocate.
+ */
+public class LatencyHistogram {
+  /**
+   * The number of buckets. The last bucket starts at about 4 seconds.
+   */
+  public static final int kBuckets = 24;
+
+  private final AtomicLongArray m_counts = new AtomicLongArray(kBuckets);
+  private final AtomicLong m_samples = new AtomicLong();
+  private final AtomicLong m_totalMicros = new AtomicLong();
+  private final AtomicLong m_maxMicros = new AtomicLong();
+
+  /**
+   * Record one latency.
+   *
+   * @param nanos The latency in nanoseconds
+   */
+  public void record(long nanos) {
+    long micros = nanos < 0 ? 0 : nanos / 1000;
+    int bucket = 64 - Long.numberOfLeadingZeros(micros);
+    if (bucket >= kBuckets) {
+      bucket = kBuckets - 1;
+    }
+    m_counts.incrementAndGet(bucket);
+    m_samples.incrementAndGet();
+    m_totalMicros.addAndGet(micros);
+
+    long max;
+    do {
+      max = m_maxMicros.get();
+    } while (micros > max && !m_maxMicros.compareAndSet(max, micros));
+  }
+
+  /**
+   * Get the upper bound of a bucket.
+   *
+   * @param bucket The bucket index
+   * @return The exclusive upper bound of the bucket in microseconds, or
+   *         infinity for the last bucket
+   */
+  public static double getBucketLimit(int bucket) {
+    if (bucket >= kBuckets - 1) {
+      return Double.POSITIVE_INFINITY;
+    }
+    return 1L << bucket;
+  }
+
+  /**
+   * @param bucket The bucket index
+   * @return The number of latencies counted in the bucket
+   */
+  public long getCount(int bucket) {
+    return m_counts.get(bucket);
+  }
+
+  /**
+   * @return The number of latencies recorded
+   */
+  public long getSamples() {
+    return m_samples.get();
+  }
+
+  /**
+   * @return The mean latency in microseconds, or 0 if nothing was recorded
+   */
+  public double getMean() {
+    long samples = m_samples.get();
+    return samples == 0 ? 0.0 : (double) m_totalMicros.get() / samples;
+  }
+
+  /**
+   * @return The longest latency recorded in microseconds
+   */
+  public long getMax() {
+    return m_maxMicros.get();
+  }
+
+  /**
+   * Estimate a percentile from the bucket counts.
+   *
+   * @param percentile The percentile to estimate, between 0 and 1
+   * @return The upper bound in microseconds of the bucket containing the
+   *         percentile, capped at the maximum recorded latency
+   */
+  public double getPercentile(double percentile) {
+    long samples = m_samples.get();
+    if (samples == 0) {
+      return 0.0;
+    }
+    long target = (long) Math.ceil(percentile * samples);
+    long seen = 0;
+    for (int i = 0; i < kBuckets; i++) {
+      seen += m_counts.get(i);
+      if (seen >= target) {
+        return Math.min(getBucketLimit(i), m_maxMicros.get());
+      }
+    }
+    return m_maxMicros.get();
+  }
+
+  /**
+   * Copy the bucket counts into an array.
+   *
+   * @param counts The array to fill, kBuckets long
+   */
+  public void getCounts(double[] counts) {
+    for (int i = 0; i < kBuckets; i++) {
+      counts[i] = m_counts.get(i);
+    }
+  }
+
+  /**
+   * Clear all of the recorded latencies.
+   */
+  public void reset() {
+    for (int i = 0; i < kBuckets; i++) {
+      m_counts.set(i, 0);
+    }
+    m_samples.set(0);
+    m_totalMicros.set(0);
+    m_maxMicros.set(0);
+  }
+}
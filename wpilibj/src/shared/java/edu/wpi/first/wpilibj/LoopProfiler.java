@@ -0,0 +1,254 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj;
+
+import java.util.Arrays;
+
+import edu.wpi.first.wpilibj.networktables.NetworkTable;
+import edu.wpi.first.wpilibj.tables.ITable;
+
+/**
+ * Measures how long each phase of the robot loop takes.
+ *
+ * The robot base class calls {@link #beginLoop()} and {@link #endLoop()}
+ * around each loop. Inside the loop, a phase is timed with
+ * <pre>
+ * long start = LoopProfiler.start();
+ * ...
+ * LoopProfiler.end(id, start);
+ * </pre>
+ * and its time is added to the total for that phase in the current loop.
+ * Spans may nest, and a span which runs more than once in a loop is counted
+ * once with the sum of its times. Spans are only recorded on the thread which
+ * called {@link #beginLoop()}; spans on other threads are ignored.
+ *
+ * The totals for the last {@link #kWindow} loops are kept, and their mean,
+ * percentiles and maximum are published to the "LoopProfiler" NetworkTable
+ * about once a second, with one subtable per phase, in microseconds.
+ *
+ * Nothing is allocated while profiling. The profiler is disabled by default,
+ * in which case every method returns immediately; {@link RobotBase} enables it
+ * if the {@link #ENABLED_PROP} system property is true.
+ */
+public class LoopProfiler {
+  /**
+   * The system property which enables the profiler when the robot starts.
+   */
+  public static final String ENABLED_PROP = "first.loopprofiler.enabled";
+
+  /**
+   * The maximum number of phases which can be registered.
+   */
+  public static final int kMaxSpans = 16;
+
+  /**
+   * The number of loops over which the statistics are computed.
+   */
+  public static final int kWindow = 128;
+
+  private static final int kPublishInterval = 50;
+
+  private static volatile boolean enabled = false;
+  private static final String[] names = new String[kMaxSpans];
+  private static int spanCount = 0;
+  private static final long[] loopTotals = new long[kMaxSpans];
+  private static final long[][] history = new long[kMaxSpans][kWindow];
+  private static final long[] sorted = new long[kWindow];
+  private static int historyIndex = 0;
+  private static int historyCount = 0;
+  private static Thread loopThread;
+  private static long loopStart;
+  private static int loopsSincePublish = 0;
+  private static ITable table;
+
+  /**
+   * The whole loop, from {@link #beginLoop()} to {@link #endLoop()}.
+   */
+  public static final int kLoop = register("Loop");
+
+  /**
+   * The user's periodic method.
+   */
+  public static final int kPeriodic = register("Periodic");
+
+  /**
+   * {@link edu.wpi.first.wpilibj.command.Scheduler#run()}.
+   */
+  public static final int kScheduler = register("Scheduler");
+
+  /**
+   * {@link edu.wpi.first.wpilibj.livewindow.LiveWindow#run()}.
+   */
+  public static final int kLiveWindow = register("LiveWindow");
+
+  /**
+   * Values put to the SmartDashboard.
+   */
+  public static final int kSmartDashboard = register("SmartDashboard");
+
+  private LoopProfiler() {}
+
+  /**
+   * Register a new phase.
+   *
+   * @param name The name of the phase, used as its subtable name
+   * @return The id to pass to {@link #end(int, long)}
+   */
+  public static synchronized int register(String name) {
+    for (int i = 0; i < spanCount; i++) {
+      if (names[i].equals(name)) {
+        return i;
+      }
+    }
+    if (spanCount >= kMaxSpans) {
+      throw new IllegalStateException("Too many profiler phases, the maximum is " + kMaxSpans);
+    }
+    names[spanCount] = name;
+    return spanCount++;
+  }
+
+  /**
+   * Enable or disable the profiler. The current loop is abandoned, so this
+   * should not be called inside a loop.
+   *
+   * @param enable True to time the loops
+   */
+  public static synchronized void setEnabled(boolean enable) {
+    loopThread = null;
+    enabled = enable;
+  }
+
+  /**
+   * @return True if the profiler is enabled
+   */
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Start a new loop on the calling thread.
+   */
+  public static void beginLoop() {
+    if (!enabled) {
+      return;
+    }
+    loopThread = Thread.currentThread();
+    Arrays.fill(loopTotals, 0L);
+    loopStart = System.nanoTime();
+  }
+
+  /**
+   * Finish the current loop, add its totals to the statistics and publish
+   * them if it is time to.
+   */
+  public static void endLoop() {
+    if (!enabled || Thread.currentThread() != loopThread) {
+      return;
+    }
+    loopTotals[kLoop] = System.nanoTime() - loopStart;
+    int count = spanCount;
+    for (int i = 0; i < count; i++) {
+      history[i][historyIndex] = loopTotals[i];
+    }
+    historyIndex = (historyIndex + 1) % kWindow;
+    if (historyCount < kWindow) {
+      historyCount++;
+    }
+
+    if (++loopsSincePublish >= kPublishInterval) {
+      loopsSincePublish = 0;
+      publish();
+    }
+  }
+
+  /**
+   * Start timing a phase.
+   *
+   * @return The start time to pass to {@link #end(int, long)}
+   */
+  public static long start() {
+    return enabled ? System.nanoTime() : 0L;
+  }
+
+  /**
+   * Finish timing a phase and add its time to the current loop.
+   *
+   * @param id The phase id
+   * @param start The value returned by {@link #start()}
+   */
+  public static void end(int id, long start) {
+    if (!enabled || Thread.currentThread() != loopThread) {
+      return;
+    }
+    loopTotals[id] += System.nanoTime() - start;
+  }
+
+  /**
+   * Estimate a percentile of the time a phase took over the recent loops.
+   *
+   * This sorts a copy of the recent times, so it should not be called every
+   * loop. It must be called from the loop thread.
+   *
+   * @param id The phase id
+   * @param percentile The percentile to get, between 0 and 1
+   * @return The time in microseconds
+   */
+  public static double getPercentile(int id, double percentile) {
+    int count = sortHistory(id);
+    return percentileOfSorted(count, percentile);
+  }
+
+  /**
+   * Get the mean time a phase took over the recent loops. It must be called
+   * from the loop thread.
+   *
+   * @param id The phase id
+   * @return The time in microseconds
+   */
+  public static double getMean(int id) {
+    long total = 0;
+    for (int i = 0; i < historyCount; i++) {
+      total += history[id][i];
+    }
+    return historyCount == 0 ? 0.0 : total * 1e-3 / historyCount;
+  }
+
+  private static int sortHistory(int id) {
+    int count = historyCount;
+    System.arraycopy(history[id], 0, sorted, 0, count);
+    Arrays.sort(sorted, 0, count);
+    return count;
+  }
+
+  private static double percentileOfSorted(int count, double percentile) {
+    if (count == 0) {
+      return 0.0;
+    }
+    int index = (int) Math.ceil(percentile * count) - 1;
+    if (index < 0) {
+      index = 0;
+    }
+    return sorted[index] * 1e-3;
+  }
+
+  private static void publish() {
+    if (table == null) {
+      table = NetworkTable.getTable("LoopProfiler");
+    }
+    int count = spanCount;
+    for (int i = 0; i < count; i++) {
+      ITable subtable = table.getSubTable(names[i]);
+      subtable.putNumber("Mean", getMean(i));
+      int samples = sortHistory(i);
+      subtable.putNumber("P50", percentileOfSorted(samples, 0.5));
+      subtable.putNumber("P90", percentileOfSorted(samples, 0.9));
+      subtable.putNumber("P99", percentileOfSorted(samples, 0.99));
+      subtable.putNumber("Max", percentileOfSorted(samples, 1.0));
+    }
+  }
+}
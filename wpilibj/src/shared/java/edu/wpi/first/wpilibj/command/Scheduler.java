@@ -12,6 +12,7 @@ import java.util.Hashtable;
 import java.util.Vector;
 
 import edu.wpi.first.wpilibj.HLUsageReporting;
+import edu.wpi.first.wpilibj.LoopProfiler;
 import edu.wpi.first.wpilibj.NamedSendable;
 import edu.wpi.first.wpilibj.buttons.Trigger.ButtonScheduler;
 import edu.wpi.first.wpilibj.tables.ITable;
@@ -208,6 +209,8 @@ public class Scheduler implements NamedSendable {
       return;
     } // Don't run when disabled
 
+    long start = LoopProfiler.start();
+
     // Get button input (going backwards preserves button priority)
     if (buttons != null) {
       for (int i = buttons.size() - 1; i >= 0; i--) {
@@ -242,6 +245,7 @@ public class Scheduler implements NamedSendable {
     }
 
     updateTable();
+    LoopProfiler.end(LoopProfiler.kScheduler, start);
   }
 
   /**
@@ -4,6 +4,7 @@
  */
 package edu.wpi.first.wpilibj.livewindow;
 
+import edu.wpi.first.wpilibj.LoopProfiler;
 import edu.wpi.first.wpilibj.command.Scheduler;
 import edu.wpi.first.wpilibj.networktables.NetworkTable;
 import edu.wpi.first.wpilibj.tables.ITable;
@@ -132,7 +133,9 @@ public class LiveWindow {
    * screen in test mode.
    */
   public static void run() {
+    long start = LoopProfiler.start();
     updateValues();
+    LoopProfiler.end(LoopProfiler.kLiveWindow, start);
   }
 
   /**
@@ -14,6 +14,7 @@ import edu.wpi.first.wpilibj.networktables.NetworkTableKeyNotDefined;
 import edu.wpi.first.wpilibj.tables.ITable;
 import edu.wpi.first.wpilibj.tables.TableKeyNotDefinedException;
 import edu.wpi.first.wpilibj.HLUsageReporting;
+import edu.wpi.first.wpilibj.LoopProfiler;
 import java.util.Hashtable;
 import java.util.NoSuchElementException;
 
@@ -52,10 +53,12 @@ public class SmartDashboard {
    * @throws IllegalArgumentException if key is null
    */
   public static void putData(String key, Sendable data) {
+    long start = LoopProfiler.start();
     ITable dataTable = table.getSubTable(key);
     dataTable.putString("~TYPE~", data.getSmartDashboardType());
     data.initTable(dataTable);
     tablesToData.put(data, key);
+    LoopProfiler.end(LoopProfiler.kSmartDashboard, start);
   }
 
 
@@ -101,7 +104,9 @@ public class SmartDashboard {
    * @throws IllegalArgumentException if key is null
    */
   public static void putBoolean(String key, boolean value) {
+    long start = LoopProfiler.start();
     table.putBoolean(key, value);
+    LoopProfiler.end(LoopProfiler.kSmartDashboard, start);
   }
 
   /**
@@ -142,7 +147,9 @@ public class SmartDashboard {
    * @throws IllegalArgumentException if key is null
    */
   public static void putNumber(String key, double value) {
+    long start = LoopProfiler.start();
     table.putNumber(key, value);
+    LoopProfiler.end(LoopProfiler.kSmartDashboard, start);
   }
 
   /**
@@ -185,7 +192,9 @@ public class SmartDashboard {
    * @throws IllegalArgumentException if key or value is null
    */
   public static void putString(String key, String value) {
+    long start = LoopProfiler.start();
     table.putString(key, value);
+    LoopProfiler.end(LoopProfiler.kSmartDashboard, start);
   }
 
   /**
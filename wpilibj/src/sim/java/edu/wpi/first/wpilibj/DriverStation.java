@@ -7,7 +7,11 @@
 
 package edu.wpi.first.wpilibj;
 
+import java.util.function.Supplier;
+
+import edu.wpi.first.wpilibj.simulation.Lockstep;
 import edu.wpi.first.wpilibj.simulation.MainNode;
+import edu.wpi.first.wpilibj.simulation.SimContext;
 import gazebo.msgs.GzDriverStation;
 import gazebo.msgs.GzDriverStation.DriverStation.State;
 import gazebo.msgs.GzJoystick.Joystick;
@@ -38,6 +42,11 @@ public class DriverStation implements RobotState.Interface {
      * Convert from raw values to volts
      */
     public static final double kDSAnalogInScaling = 5.0 / 1023.0;
+    /**
+     * The time between packets from the driver station in seconds, which is
+     * how far {@link #waitForData()} advances the clock in lockstep mode.
+     */
+    public static final double kPacketPeriod = 0.02;
 
     /**
      * The robot alliance that the robot is a part of
@@ -65,30 +74,48 @@ public class DriverStation implements RobotState.Interface {
     } /* Alliance */
 
 
-    private static DriverStation instance = new DriverStation();
+    private static final int kErrorQueueSize = 256;
+
+    private static final ErrorReporter errorReporter =
+        new ErrorReporter(new ErrorReporter.Sink() {
+            @Override
+            public void send(boolean isError, int code, String details, String location,
+                    String callStack) {
+                System.err.println(details + callStack);
+            }
+        }, kErrorQueueSize);
+
     private final Object m_dataSem;
     private boolean m_userInDisabled = false;
     private boolean m_userInAutonomous = false;
     private boolean m_userInTeleop = false;
     private boolean m_userInTest = false;
     private boolean m_newControlData;
+    private volatile long m_packetTimestamp;
+    private volatile long m_controlDataTimestamp;
     private GzDriverStation.DriverStation state;
     private Joystick joysticks[] = new Joystick[6];
 
     /**
-     * Gets an instance of the DriverStation
+     * Gets the DriverStation of the current simulation context, creating it
+     * the first time.
      *
      * @return The DriverStation.
      */
     public static DriverStation getInstance() {
-        return DriverStation.instance;
+        return SimContext.current().getSingleton(DriverStation.class, new Supplier<DriverStation>() {
+            @Override
+            public DriverStation get() {
+                return new DriverStation();
+            }
+        });
     }
 
     /**
      * DriverStation constructor.
      *
-     * The single DriverStation instance is created statically with the
-     * instance static member variable.
+     * Each simulation context has a single DriverStation instance, which is
+     * created by {@link #getInstance()}.
      */
     protected DriverStation() {
         m_dataSem = new Object();
@@ -96,6 +123,7 @@ public class DriverStation implements RobotState.Interface {
         MainNode.subscribe("ds/state", GzDriverStation.DriverStation.getDefaultInstance(),
     		new SubscriberCallback<GzDriverStation.DriverStation>() {
 				@Override public void callback(GzDriverStation.DriverStation msg) {
+					m_packetTimestamp = System.nanoTime();
 					state = msg;
 					m_newControlData = true;
 					synchronized (m_dataSem) {
@@ -133,6 +161,14 @@ public class DriverStation implements RobotState.Interface {
      * @param timeout The maximum time in milliseconds to wait.
      */
     public void waitForData(long timeout) {
+        if (Lockstep.isEnabled()) {
+            // The driver station is not stepped, so take the place of its
+            // packets, which repeat the last state
+            Timer.delay(kPacketPeriod);
+            m_packetTimestamp = System.nanoTime();
+            m_newControlData = true;
+            return;
+        }
         synchronized (m_dataSem) {
             try {
                 m_dataSem.wait(timeout);
@@ -185,6 +221,44 @@ public class DriverStation implements RobotState.Interface {
     	return joysticks[stick].getButtons(button - 1);
     }
 
+    /**
+     * Copy the complete state of a joystick into a snapshot. All of the values
+     * come from the same joystick message.
+     *
+     * @param stick The joystick port number
+     * @param snapshot The snapshot to update
+     */
+    public void getStickSnapshot(int stick, HIDSnapshot snapshot) {
+        Joystick joystick = null;
+        if (stick >= 0 && stick < joysticks.length) {
+            synchronized (m_dataSem) {
+                joystick = joysticks[stick];
+            }
+        }
+        if (joystick == null) {
+            snapshot.m_axisCount = 0;
+            snapshot.m_povCount = 0;
+            snapshot.setButtons(0, 0);
+            return;
+        }
+
+        int axisCount = Math.min(joystick.getAxesCount(), Math.min(kJoystickAxes, HIDSnapshot.kMaxAxes));
+        for (int i = 0; i < axisCount; i++) {
+            snapshot.m_axes[i] = joystick.getAxes(i);
+        }
+        snapshot.m_axisCount = axisCount;
+        snapshot.m_povCount = 0;
+
+        int buttonCount = Math.min(joystick.getButtonsCount(), HIDSnapshot.kMaxButtons);
+        int buttons = 0;
+        for (int i = 0; i < buttonCount; i++) {
+            if (joystick.getButtons(i)) {
+                buttons |= 1 << i;
+            }
+        }
+        snapshot.setButtons(buttons, buttonCount);
+    }
+
     /**
      * Gets a value indicating whether the Driver Station requires the
      * robot to be enabled.
@@ -241,9 +315,23 @@ public class DriverStation implements RobotState.Interface {
     public synchronized boolean isNewControlData() {
         boolean result = m_newControlData;
         m_newControlData = false;
+        if (result) {
+            m_controlDataTimestamp = m_packetTimestamp;
+        }
         return result;
     }
 
+    /**
+     * Get the time at which the packet last reported by
+     * {@link #isNewControlData()} was received from Gazebo.
+     *
+     * @return The {@link System#nanoTime()} at which the packet arrived, or 0
+     *         if no packet has been reported yet
+     */
+    public long getControlDataTimestamp() {
+        return m_controlDataTimestamp;
+    }
+
     /**
      * Get the current alliance from the FMS
      * @return the current alliance
@@ -292,16 +380,8 @@ public class DriverStation implements RobotState.Interface {
 	 * @param printTrace If true, append stack trace to error string
 	 */
 	public static void reportError(String error, boolean printTrace) {
-		String errorString = error;
-		if(printTrace) {
-			errorString += " at ";
-			StackTraceElement[] traces = Thread.currentThread().getStackTrace();
-			for (int i=2; i<traces.length; i++)
-			{
-				errorString += traces[i].toString() + "\n";
-			}
-		}
-		System.err.println(errorString);
+		// Skip this method
+		errorReporter.report(true, 1, error, printTrace, 1);
 	}
 
     /** Only to be used to tell the Driver Station what code you claim to be executing
@@ -9,6 +9,7 @@ package edu.wpi.first.wpilibj;
 
 import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.livewindow.LiveWindow;
+import edu.wpi.first.wpilibj.simulation.SimOutputs;
 
 /**
  * IterativeRobot implements a specific type of Robot Program framework, extending the RobotBase class.
@@ -63,99 +64,119 @@ public class IterativeRobot extends RobotBase {
      */
     public void startCompetition() {
         robotInit();
-
-        // tracing support:
-        final int TRACE_LOOP_MAX = 100;
-        int loopCount = TRACE_LOOP_MAX;
-        Object marker = null;
-        boolean didDisabledPeriodic = false;
-        boolean didAutonomousPeriodic = false;
-        boolean didTeleopPeriodic = false;
-        boolean didTestPeriodic = false;
+        awaitDevicesReady();
 
         // loop forever, calling the appropriate mode-dependent function
         LiveWindow.setEnabled(false);
         while (true) {
-            // Call the appropriate function depending upon the current robot mode
-            if (isDisabled()) {
-                // call DisabledInit() if we are now just entering disabled mode from
-                // either a different mode or from power-on
-                if (!m_disabledInitialized) {
-                    LiveWindow.setEnabled(false);
-                    disabledInit();
-                    m_disabledInitialized = true;
-                    // reset the initialization flags for the other modes
-                    m_autonomousInitialized = false;
-                    m_teleopInitialized = false;
-                    m_testInitialized = false;
-                }
-                if (nextPeriodReady()) {
-                	// TODO: FRC_NetworkCommunicationsLibrary.FRC_NetworkCommunication_observeUserProgramDisabled();
-                    disabledPeriodic();
-                    didDisabledPeriodic = true;
-                }
-            } else if (isTest()) {
-                // call TestInit() if we are now just entering test mode from either
-                // a different mode or from power-on
-                if (!m_testInitialized) {
-                    LiveWindow.setEnabled(true);
-                    testInit();
-                    m_testInitialized = true;
-                    m_autonomousInitialized = false;
-                    m_teleopInitialized = false;
-                    m_disabledInitialized = false;
-                }
-                if (nextPeriodReady()) {
-                	// TODO: FRC_NetworkCommunicationsLibrary.FRC_NetworkCommunication_observeUserProgramTest();
-                    testPeriodic();
-                    didTestPeriodic = true;
-                }
-            } else if (isAutonomous()) {
-                // call Autonomous_Init() if this is the first time
-                // we've entered autonomous_mode
-                if (!m_autonomousInitialized) {
-                    LiveWindow.setEnabled(false);
-                    // KBS NOTE: old code reset all PWMs and relays to "safe values"
-                    // whenever entering autonomous mode, before calling
-                    // "Autonomous_Init()"
-                    autonomousInit();
-                    m_autonomousInitialized = true;
-                    m_testInitialized = false;
-                    m_teleopInitialized = false;
-                    m_disabledInitialized = false;
-                }
-                if (nextPeriodReady()) {
-                    // TODO: FRC_NetworkCommunicationsLibrary.FRC_NetworkCommunication_observeUserProgramAutonomous();
-                    autonomousPeriodic();
-                    didAutonomousPeriodic = true;
-                }
-            } else {
-                // call Teleop_Init() if this is the first time
-                // we've entered teleop_mode
-                if (!m_teleopInitialized) {
-                    LiveWindow.setEnabled(false);
-                    teleopInit();
-                    m_teleopInitialized = true;
-                    m_testInitialized = false;
-                    m_autonomousInitialized = false;
-                    m_disabledInitialized = false;
-                }
-                if (nextPeriodReady()) {
-                    // TODO: FRC_NetworkCommunicationsLibrary.FRC_NetworkCommunication_observeUserProgramTeleop();
-                    teleopPeriodic();
-                    didTeleopPeriodic = true;
-                }
+            loopFunc();
+            m_ds.waitForData();
+        }
+    }
+
+    /**
+     * Run one iteration of the main loop: call the init method if the mode has changed,
+     * then the periodic method for the current mode if {@link #nextPeriodReady()} says it is time,
+     * then publish the outputs which changed.
+     */
+    void loopFunc() {
+        LoopProfiler.beginLoop();
+        // Call the appropriate function depending upon the current robot mode
+        if (isDisabled()) {
+            // call DisabledInit() if we are now just entering disabled mode from
+            // either a different mode or from power-on
+            if (!m_disabledInitialized) {
+                LiveWindow.setEnabled(false);
+                disabledInit();
+                m_disabledInitialized = true;
+                // reset the initialization flags for the other modes
+                m_autonomousInitialized = false;
+                m_teleopInitialized = false;
+                m_testInitialized = false;
+            }
+            if (nextPeriodReady()) {
+            	// TODO: FRC_NetworkCommunicationsLibrary.FRC_NetworkCommunication_observeUserProgramDisabled();
+                long start = LoopProfiler.start();
+                AllocationMonitor.beginPeriodic();
+                disabledPeriodic();
+                AllocationMonitor.endPeriodic();
+                LoopProfiler.end(LoopProfiler.kPeriodic, start);
+            }
+        } else if (isTest()) {
+            // call TestInit() if we are now just entering test mode from either
+            // a different mode or from power-on
+            if (!m_testInitialized) {
+                LiveWindow.setEnabled(true);
+                testInit();
+                m_testInitialized = true;
+                m_autonomousInitialized = false;
+                m_teleopInitialized = false;
+                m_disabledInitialized = false;
+            }
+            if (nextPeriodReady()) {
+            	// TODO: FRC_NetworkCommunicationsLibrary.FRC_NetworkCommunication_observeUserProgramTest();
+                long start = LoopProfiler.start();
+                AllocationMonitor.beginPeriodic();
+                testPeriodic();
+                AllocationMonitor.endPeriodic();
+                LoopProfiler.end(LoopProfiler.kPeriodic, start);
+            }
+        } else if (isAutonomous()) {
+            // call Autonomous_Init() if this is the first time
+            // we've entered autonomous_mode
+            if (!m_autonomousInitialized) {
+                LiveWindow.setEnabled(false);
+                // KBS NOTE: old code reset all PWMs and relays to "safe values"
+                // whenever entering autonomous mode, before calling
+                // "Autonomous_Init()"
+                autonomousInit();
+                m_autonomousInitialized = true;
+                m_testInitialized = false;
+                m_teleopInitialized = false;
+                m_disabledInitialized = false;
+            }
+            if (nextPeriodReady()) {
+                // TODO: FRC_NetworkCommunicationsLibrary.FRC_NetworkCommunication_observeUserProgramAutonomous();
+                long start = LoopProfiler.start();
+                AllocationMonitor.beginPeriodic();
+                autonomousPeriodic();
+                AllocationMonitor.endPeriodic();
+                LoopProfiler.end(LoopProfiler.kPeriodic, start);
+            }
+        } else {
+            // call Teleop_Init() if this is the first time
+            // we've entered teleop_mode
+            if (!m_teleopInitialized) {
+                LiveWindow.setEnabled(false);
+                teleopInit();
+                m_teleopInitialized = true;
+                m_testInitialized = false;
+                m_autonomousInitialized = false;
+                m_disabledInitialized = false;
+            }
+            if (nextPeriodReady()) {
+                // TODO: FRC_NetworkCommunicationsLibrary.FRC_NetworkCommunication_observeUserProgramTeleop();
+                long start = LoopProfiler.start();
+                AllocationMonitor.beginPeriodic();
+                teleopPeriodic();
+                AllocationMonitor.endPeriodic();
+                LoopProfiler.end(LoopProfiler.kPeriodic, start);
             }
-        	m_ds.waitForData();
         }
+        SimOutputs.getInstance().flush();
+        LoopProfiler.endLoop();
     }
 
     /**
      * Determine if the appropriate next periodic function should be called.
      * Call the periodic functions whenever a packet is received from the Driver Station, or about every 20ms.
      */
-    private boolean nextPeriodReady() {
-    	return m_ds.isNewControlData();
+    boolean nextPeriodReady() {
+        if (!m_ds.isNewControlData()) {
+            return false;
+        }
+        InputLatencyMonitor.startPeriodic(m_ds.getControlDataTimestamp());
+        return true;
     }
 
     /* ----------- Overridable initialization code -----------------*/
@@ -286,6 +286,17 @@ public class Joystick extends GenericHID {
         return 0; // TODO
     }
 
+    /**
+     * Copy the state of every axis and button on this joystick into a
+     * snapshot with a single read of the Driver Station data.
+     *
+     * @param snapshot The snapshot to update
+     */
+    @Override
+    public void getSnapshot(HIDSnapshot snapshot) {
+        m_ds.getStickSnapshot(m_port, snapshot);
+    }
+
     /**
      * Get buttons based on an enumerated type.
      *
@@ -9,13 +9,19 @@ package edu.wpi.first.wpilibj;
 
 import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Enumeration;
 import java.util.jar.Manifest;
 
+import edu.wpi.first.wpilibj.simulation.Lockstep;
 import edu.wpi.first.wpilibj.simulation.MainNode;
+import edu.wpi.first.wpilibj.simulation.SimContext;
 import edu.wpi.first.wpilibj.internal.SimTimer;
 import edu.wpi.first.wpilibj.networktables.NetworkTable;
 
+import org.gazebosim.transport.TopicRecorder;
+
 /**
  * Implement a Robot Program framework.
  * The RobotBase class is intended to be subclassed by a user creating a robot program.
@@ -35,8 +41,16 @@ public abstract class RobotBase {
      */
     public final static String ERRORS_TO_DRIVERSTATION_PROP = "first.driverstation.senderrors";
 
+    /**
+     * String System property. If set, every message the robot publishes or receives is recorded
+     * to the file it names, for replay with a TopicReplayer.
+     */
+    public final static String RECORD_PROP = "sim.record";
+
     protected final DriverStation m_ds;
 
+    private static boolean implementationsSet = false;
+
     /**
      * Constructor for a generic robot program.
      * User code should be placed in the constructor that runs before the Autonomous or Operator
@@ -146,6 +160,116 @@ public abstract class RobotBase {
         }
     }
 
+    /**
+     * Wait for the simulated devices created so far to connect to Gazebo.
+     * They connect in parallel, so this takes as long as the slowest device.
+     *
+     * @see MainNode#awaitDevicesReady()
+     */
+    static void awaitDevicesReady() {
+        try {
+            MainNode.awaitDevicesReady();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Record the session of the default context, closing the recording when the JVM exits since
+     * the robot never returns.
+     */
+    private static void startRecording(Path path) throws IOException {
+        final TopicRecorder recorder = SimContext.getDefault().record(path);
+        Runtime.getRuntime().addShutdownHook(new Thread("Recorder shutdown") {
+            @Override
+            public void run() {
+                try {
+                    recorder.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+        System.out.println("Recording to " + path);
+    }
+
+    /**
+     * Set the implementations of the static methods of Timer, RobotState and
+     * HLUsageReporting. They look up the current simulation context on each
+     * call, so they are only set once for every robot in the JVM.
+     */
+    private static synchronized void setImplementations() {
+        if (implementationsSet) {
+            return;
+        }
+        Timer.SetImplementation(new SimTimer());
+        RobotState.SetImplementation(new RobotState.Interface() {
+            @Override
+            public boolean isDisabled() {
+                return DriverStation.getInstance().isDisabled();
+            }
+
+            @Override
+            public boolean isEnabled() {
+                return DriverStation.getInstance().isEnabled();
+            }
+
+            @Override
+            public boolean isOperatorControl() {
+                return DriverStation.getInstance().isOperatorControl();
+            }
+
+            @Override
+            public boolean isAutonomous() {
+                return DriverStation.getInstance().isAutonomous();
+            }
+
+            @Override
+            public boolean isTest() {
+                return DriverStation.getInstance().isTest();
+            }
+        });
+        HLUsageReporting.SetImplementation(new HLUsageReporting.Null()); // No reporting
+        implementationsSet = true;
+    }
+
+    /**
+     * Run a robot program in the current simulation context until the
+     * context is stopped, as main() runs one in the default context. This
+     * lets a harness such as {@link edu.wpi.first.wpilibj.simulation.SimRunner}
+     * run many robots in one JVM, each on its own thread.
+     *
+     * The context is connected first if it is not already, and in lockstep
+     * mode the calling thread drives the clock. In lockstep mode the robot
+     * also waits for one driver station packet before it starts, by which
+     * time it has received every message published before it was created,
+     * such as the driver station state. So the runs are reproducible.
+     *
+     * @param robotClass The robot program
+     * @return The robot, after it has stopped
+     */
+    public static <R extends RobotBase> R runRobot(Class<R> robotClass)
+            throws IOException, InterruptedException, ReflectiveOperationException {
+        SimContext context = SimContext.current();
+        context.open();
+        if (Lockstep.isEnabled()) {
+            Lockstep.init();
+        }
+        setImplementations();
+
+        R robot = robotClass.newInstance();
+        MainNode.awaitDevicesReady();
+        try {
+            if (Lockstep.isEnabled()) {
+                robot.m_ds.waitForData();
+            }
+            robot.startCompetition();
+        } catch (SimContext.StoppedException e) {
+            // The harness ended the run
+        }
+        return robot;
+    }
+
     /**
      * Starting point for the applications. Starts the OtaServer and then runs
      * the robot.
@@ -156,6 +280,14 @@ public abstract class RobotBase {
 
         try {
             MainNode.openGazeboConnection();
+            String recording = System.getProperty(RECORD_PROP);
+            if (recording != null) {
+                startRecording(Paths.get(recording));
+            }
+            if (Lockstep.isEnabled()) {
+                // This thread runs the robot loop, which drives the clock
+                Lockstep.init();
+            }
         } catch (Throwable e) {
             System.err.println("Could not connect to Gazebo.");
             e.printStackTrace();
@@ -164,9 +296,7 @@ public abstract class RobotBase {
         }
 
         // Set some implementations so that the static methods work properly
-        Timer.SetImplementation(new SimTimer());
-        RobotState.SetImplementation(DriverStation.getInstance());
-		HLUsageReporting.SetImplementation(new HLUsageReporting.Null()); // No reporting
+        setImplementations();
 
 		String robotName = "";
 		Enumeration<URL> resources = null;
@@ -194,6 +324,25 @@ public abstract class RobotBase {
 			return;
 		}
 
+        if (getBooleanProperty(InputLatencyMonitor.ENABLED_PROP, false)) {
+            InputLatencyMonitor.setEnabled(true);
+        }
+
+        if (getBooleanProperty(LoopProfiler.ENABLED_PROP, false)) {
+            LoopProfiler.setEnabled(true);
+        }
+
+        if (getBooleanProperty(AllocationMonitor.ENABLED_PROP, false)) {
+            try {
+                AllocationMonitor.setEnabled(true);
+            } catch (UnsupportedOperationException e) {
+                System.err.println("ERROR: Could not start the allocation monitor: " + e.getMessage());
+            }
+        }
+
+        // For devices created by the robot's constructor
+        awaitDevicesReady();
+
         try {
             robot.startCompetition();
         } catch (Throwable t) {
@@ -19,6 +19,9 @@ import edu.wpi.first.wpilibj.livewindow.LiveWindow;
  * depending on the state of the competition.
  *
  * Alternatively you can override the robotMain() method and manage all aspects of the robot yourself.
+ *
+ * Since the loops are written by the user, the {@link LoopProfiler} only records them if the loop
+ * body is wrapped in {@link LoopProfiler#beginLoop()} and {@link LoopProfiler#endLoop()}.
  */
 public class SampleRobot extends RobotBase {
 
@@ -114,6 +117,7 @@ public class SampleRobot extends RobotBase {
             // first and one-time initialization
             LiveWindow.setEnabled(false);
             robotInit();
+            awaitDevicesReady();
 
             while (true) {
                 if (isDisabled()) {
@@ -0,0 +1,114 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj;
+
+import edu.wpi.first.wpilibj.livewindow.LiveWindow;
+
+/**
+ * TimedRobot implements the IterativeRobot robot program framework, but calls the periodic
+ * methods at a fixed period of simulation time instead of whenever a Driver Station packet arrives.
+ *
+ * Each deadline is one period after the previous deadline, not one period after the loop
+ * finished, so the loop does not drift. If the periodic methods take longer than a period, the
+ * missed deadlines are counted as overruns and the next loop starts immediately.
+ *
+ * The periodic methods never wait for Driver Station data; they use whatever data arrived most
+ * recently.
+ */
+public class TimedRobot extends IterativeRobot {
+    /**
+     * The default period in seconds.
+     */
+    public static final double kDefaultPeriod = 0.02;
+
+    private final double m_period;
+    // The simulation time at which the next loop should start.
+    private double m_expirationTime;
+    private volatile long m_overruns = 0;
+
+    /**
+     * Create a robot which runs the periodic methods every {@link #kDefaultPeriod} seconds.
+     */
+    public TimedRobot() {
+        this(kDefaultPeriod);
+    }
+
+    /**
+     * Create a robot which runs the periodic methods at a fixed period.
+     *
+     * @param period The period in seconds.
+     */
+    public TimedRobot(double period) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Period must be positive");
+        }
+        m_period = period;
+        AllocationMonitor.setLoopPeriod(period);
+    }
+
+    /**
+     * Provide an alternate "main loop" via startCompetition().
+     */
+    public void startCompetition() {
+        robotInit();
+        awaitDevicesReady();
+
+        // loop forever, calling the appropriate mode-dependent function
+        LiveWindow.setEnabled(false);
+        m_expirationTime = Timer.getFPGATimestamp() + m_period;
+        while (true) {
+            waitForNextPeriod();
+            loopFunc();
+        }
+    }
+
+    /**
+     * Every loop is a new period. New Driver Station data is checked without blocking, only so
+     * the input latency can be recorded.
+     */
+    @Override
+    boolean nextPeriodReady() {
+        if (m_ds.isNewControlData()) {
+            InputLatencyMonitor.startPeriodic(m_ds.getControlDataTimestamp());
+        }
+        return true;
+    }
+
+    private void waitForNextPeriod() {
+        double now = Timer.getFPGATimestamp();
+        if (now < m_expirationTime) {
+            Timer.delay(m_expirationTime - now);
+            now = Timer.getFPGATimestamp();
+        }
+        long missed = (long) ((now - m_expirationTime) / m_period);
+        if (missed > 0) {
+            m_overruns += missed;
+            m_expirationTime += missed * m_period;
+            DriverStation.reportError("TimedRobot loop overrun: missed " + missed + " period(s) of "
+                + m_period + "s", false);
+        }
+        m_expirationTime += m_period;
+    }
+
+    /**
+     * @return The period of the loop in seconds
+     */
+    public double getPeriod() {
+        return m_period;
+    }
+
+    /**
+     * Get the number of deadlines which were missed because the periodic methods took longer
+     * than the period.
+     *
+     * @return The total number of missed periods
+     */
+    public long getOverrunCount() {
+        return m_overruns;
+    }
+}
@@ -10,11 +10,14 @@ package edu.wpi.first.wpilibj.command;
 import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.Vector;
+import java.util.function.Supplier;
 
+import edu.wpi.first.wpilibj.LoopProfiler;
 import edu.wpi.first.wpilibj.NamedSendable;
 import edu.wpi.first.wpilibj.buttons.Trigger.ButtonScheduler;
 import edu.wpi.first.wpilibj.networktables2.type.NumberArray;
 import edu.wpi.first.wpilibj.networktables2.type.StringArray;
+import edu.wpi.first.wpilibj.simulation.SimContext;
 import edu.wpi.first.wpilibj.tables.ITable;
 
 /**
@@ -35,17 +38,18 @@ import edu.wpi.first.wpilibj.tables.ITable;
 public class Scheduler implements NamedSendable {
 
     /**
-     * The Singleton Instance
-     */
-    private static Scheduler instance;
-
-    /**
-     * Returns the {@link Scheduler}, creating it if one does not exist.
+     * Returns the {@link Scheduler} of the current simulation context,
+     * creating it if one does not exist.
      *
      * @return the {@link Scheduler}
      */
-    public synchronized static Scheduler getInstance() {
-        return instance == null ? instance = new Scheduler() : instance;
+    public static Scheduler getInstance() {
+        return SimContext.current().getSingleton(Scheduler.class, new Supplier<Scheduler>() {
+            @Override
+            public Scheduler get() {
+                return new Scheduler();
+            }
+        });
     }
     /**
      * A hashtable of active {@link Command Commands} to their
@@ -200,6 +204,8 @@ public class Scheduler implements NamedSendable {
             return;
         } // Don't run when disabled
 
+        long start = LoopProfiler.start();
+
         // Get button input (going backwards preserves button priority)
         if (buttons != null) {
             for (int i = buttons.size() - 1; i >= 0; i--) {
@@ -234,6 +240,7 @@ public class Scheduler implements NamedSendable {
         }
 
         updateTable();
+        LoopProfiler.end(LoopProfiler.kScheduler, start);
     }
 
     /**
@@ -7,12 +7,9 @@
 
 package edu.wpi.first.wpilibj.internal;
 
-import org.gazebosim.transport.Msgs;
-import org.gazebosim.transport.SubscriberCallback;
-
 import edu.wpi.first.wpilibj.Timer;
-import edu.wpi.first.wpilibj.simulation.MainNode;
-import gazebo.msgs.GzFloat64.Float64;
+import edu.wpi.first.wpilibj.simulation.Lockstep;
+import edu.wpi.first.wpilibj.simulation.SimContext;
 
 /**
  * Timer objects measure accumulated time in milliseconds.
@@ -26,19 +23,6 @@ public class SimTimer implements Timer.StaticInterface {
     private double m_startTime;
     private double m_accumulatedTime;
     private boolean m_running;
-    private static double simTime;
-    private static Object time_notifier = new Object();
-    static {
-    	MainNode.subscribe("time", Msgs.Float64(),
-			new SubscriberCallback<Float64>() {
-				@Override
-				public void callback(Float64 msg) {
-					simTime = msg.getData();
-					synchronized(time_notifier) { time_notifier.notifyAll(); } // Ew, this is nested too deep... Refactor?
-				}
-			}
-		);
-    }
 
     /**
      * Pause the thread for a specified time. Pause the execution of the
@@ -47,20 +31,25 @@ public class SimTimer implements Timer.StaticInterface {
      * to update. Only the task containing the wait will pause until the wait
      * time is expired.
      *
+     * In lockstep mode, the thread running the robot loop asks the clock to
+     * advance instead of waiting for it.
+     *
+     * The time is that of the thread's {@link SimContext}.
+     *
      * @param seconds Length of time to pause
+     * @throws SimContext.StoppedException If the simulation is stopped
      */
     public void delay(final double seconds) {
-    	final double start = simTime;
-
-    	while ((simTime - start) < seconds) {
-    		synchronized(time_notifier) {
-    			try {
-    				time_notifier.wait(); // Block until time progresses
-    			} catch (InterruptedException e) {
-    				e.printStackTrace();
-    			}
-    		}
-		}
+    	SimContext context = SimContext.current();
+    	final double target = context.getTime() + seconds;
+
+    	context.checkStopped();
+    	// The end of the robot's step, so the plant sees its outputs first
+    	context.getOutputs().flush();
+    	if (seconds > 0 && Lockstep.isEnabled()) {
+    		Lockstep.requestStep(target);
+    	}
+    	context.waitForTime(target);
     }
 
     /**
@@ -70,12 +59,12 @@ public class SimTimer implements Timer.StaticInterface {
      * @return Robot running time in seconds.
      */
     public double getFPGATimestamp() {
-        return simTime;
+        return SimContext.current().getTime();
     }
 
 	@Override
 	public double getMatchTime() {
-		return simTime;
+		return SimContext.current().getTime();
 	}
 
 	@Override
@@ -101,7 +90,7 @@ public class SimTimer implements Timer.StaticInterface {
 	     * @return Robot running time in milliseconds.
 	     */
 	    private double getMsClock() {
-	        return (simTime * 1e3);
+	        return (SimContext.current().getTime() * 1e3);
 	    }
 
 	    /**
@@ -0,0 +1,116 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.simulation;
+
+import gazebo.msgs.GzFloat64.Float64;
+
+import org.gazebosim.transport.LockstepClock;
+import org.gazebosim.transport.Msgs;
+import org.gazebosim.transport.Publisher;
+
+/**
+ * Lockstep mode, in which the robot drives the simulation clock instead of
+ * following it.
+ *
+ * Normally Gazebo runs freely and the robot loop waits for time to pass. In
+ * lockstep mode, whenever the robot waits for simulation time, in
+ * {@link edu.wpi.first.wpilibj.Timer#delay(double)} or
+ * {@link edu.wpi.first.wpilibj.DriverStation#waitForData()}, it has finished
+ * its step and published its outputs, so it asks the clock to advance to the
+ * time it is waiting for, and the clock answers by publishing that time. The
+ * simulation then runs as fast as the robot code and the physics allow, and
+ * the physics never run while the robot is in the middle of a loop.
+ *
+ * Only the thread which runs the robot loop sends step requests. Other
+ * threads which wait for time wait for the robot loop to advance it, so the
+ * runs are only reproducible if the robot does its work in the loop.
+ *
+ * In lockstep mode the speed controllers publish synchronously, so their
+ * outputs are handed to the transport before the step request. With the
+ * in-process transport the clock's side then sees them first. Over TCP they
+ * are written to their sockets first, unless a socket is full, but each
+ * topic has its own connection and Gazebo may still read the step request
+ * before an output, so TCP runs are not always reproducible.
+ *
+ * Lockstep mode is turned on with the {@link #PROPERTY} system property and
+ * needs a clock which answers step requests: the Gazebo clock plugin, the
+ * {@link org.gazebosim.transport.Master} stand-in started with "lockstep", or
+ * a {@link LockstepClock} stepping plant models in the same JVM.
+ */
+public class Lockstep {
+	/**
+	 * The system property which turns on lockstep mode when set to "true".
+	 */
+	public static final String PROPERTY = "sim.lockstep";
+
+	private Lockstep() {
+	}
+
+	/**
+	 * @return True if the current {@link SimContext} is in lockstep mode
+	 */
+	public static boolean isEnabled() {
+		return SimContext.current().lockstep;
+	}
+
+	/**
+	 * Turn lockstep mode on or off for the current {@link SimContext}. This
+	 * must be done before the robot starts.
+	 */
+	public static void setEnabled(boolean enabled) {
+		SimContext.current().lockstep = enabled;
+	}
+
+	/**
+	 * Advertise the step topic and make the calling thread the one which
+	 * sends step requests. The clock is registered as a device, so the robot
+	 * waits for it to subscribe before it starts. Called by RobotBase.main().
+	 */
+	public static void init() {
+		SimContext context = SimContext.current();
+		synchronized (context) {
+			context.driver = Thread.currentThread();
+			if (context.stepPub == null) {
+				context.stepPub = MainNode.advertise("time" + LockstepClock.STEP_SUFFIX, Msgs.Float64());
+				MainNode.registerDevice("time" + LockstepClock.STEP_SUFFIX, context.stepPub.whenConnected());
+			}
+		}
+	}
+
+	/**
+	 * Ask the clock to advance to the target time, if this is the thread
+	 * which drives the clock. The caller waits for the time to reach the
+	 * target, less {@link LockstepClock#TOLERANCE}.
+	 *
+	 * @param target The time to reach in seconds
+	 */
+	public static void requestStep(double target) {
+		SimContext context = SimContext.current();
+		Publisher<Float64> stepPub;
+		synchronized (context) {
+			if (context.driver == null) {
+				// Without RobotBase.main(), the first thread to wait drives
+				init();
+			}
+			if (Thread.currentThread() != context.driver) {
+				return;
+			}
+			stepPub = context.stepPub;
+		}
+		if (!stepPub.whenConnected().isDone()) {
+			System.err.println("Waiting for the lockstep clock to subscribe to time" + LockstepClock.STEP_SUFFIX);
+			try {
+				stepPub.waitForConnection();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+		stepPub.publishFloat64(target);
+	}
+}
@@ -8,8 +8,15 @@
 package edu.wpi.first.wpilibj.simulation;
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Logger;
 
+import org.gazebosim.transport.LatestMessage;
 import org.gazebosim.transport.Node;
 import org.gazebosim.transport.Publisher;
 import org.gazebosim.transport.Subscriber;
@@ -17,34 +24,115 @@ import org.gazebosim.transport.SubscriberCallback;
 
 import com.google.protobuf.Message;
 
+/**
+ * The connection to the simulator of the current {@link SimContext}, which
+ * the simulated devices publish and subscribe through.
+ */
 public class MainNode {
 
 	private MainNode() {
 	}
 
 	private static final Logger LOG = Logger.getLogger("Simulation MainNode");
-	private static Node mainNode;
 
-	public static synchronized void openGazeboConnection() throws IOException, InterruptedException {
-		if (mainNode != null) {
+	/**
+	 * How long {@link #awaitDevicesReady()} waits for the devices, in
+	 * milliseconds.
+	 */
+	public static final long kDeviceReadyTimeout = 5000;
+
+	public static void openGazeboConnection() throws IOException, InterruptedException {
+		if (!SimContext.current().open()) {
 			LOG.warning("MainNode.openGazeboConnection() was already called!");
-			return;
 		}
-		mainNode = new Node("frc");
-		mainNode.waitForConnection();
 	}
 
-	public static <T extends Message> Publisher<T> advertise(String topic, T defaultMessage) {
-		if (mainNode == null) {
+	private static Node getNode() {
+		Node node = SimContext.current().getNode();
+		if (node == null) {
 			throw new IllegalStateException("MainNode.openGazeboConnection() should have already been called by RobotBase.main()!");
 		}
-		return mainNode.advertise(topic, defaultMessage);
+		return node;
+	}
+
+	public static <T extends Message> Publisher<T> advertise(String topic, T defaultMessage) {
+		return getNode().advertise(topic, defaultMessage);
 	}
 
 	public static <T extends Message> Subscriber<T> subscribe(String topic, T defaultMessage, SubscriberCallback<T> cb) {
-		if (mainNode == null) {
-			throw new IllegalStateException("MainNode.openGazeboConnection() should have already been called by RobotBase.main()!");
+		return getNode().subscribe(topic, defaultMessage, cb);
+	}
+
+	public static <T extends Message> LatestMessage<T> subscribeLatest(String topic, T defaultMessage) {
+		return getNode().subscribeLatest(topic, defaultMessage);
+	}
+
+	/**
+	 * Register a device which is ready when a future completes, typically
+	 * when the Gazebo plugin subscribes to one of its topics. Devices register
+	 * instead of blocking in their constructors, so they can all connect at
+	 * the same time, and {@link #awaitDevicesReady()} then waits for them
+	 * together.
+	 *
+	 * @param name The name reported for the device, such as its topic
+	 * @param ready The future which completes when the device is ready
+	 */
+	public static void registerDevice(final String name, CompletableFuture<?> ready) {
+		Map<String, CompletableFuture<?>> pendingDevices = SimContext.current().pendingDevices;
+		synchronized (pendingDevices) {
+			pendingDevices.put(name, ready);
+		}
+		ready.thenRun(new Runnable() {
+			@Override
+			public void run() {
+				System.out.println("Initialized " + name);
+			}
+		});
+	}
+
+	/**
+	 * Wait up to {@link #kDeviceReadyTimeout} for every registered device.
+	 *
+	 * @see #awaitDevicesReady(long)
+	 */
+	public static boolean awaitDevicesReady() throws InterruptedException {
+		return awaitDevicesReady(kDeviceReadyTimeout);
+	}
+
+	/**
+	 * Wait until every device registered so far is ready. The devices are
+	 * waited for together, so this takes as long as the slowest device rather
+	 * than the sum of all of them. The devices which are not ready by the
+	 * timeout are reported and not waited for again.
+	 *
+	 * @param timeoutMillis The longest time to wait in milliseconds
+	 * @return True if every device is ready
+	 */
+	public static boolean awaitDevicesReady(long timeoutMillis) throws InterruptedException {
+		Map<String, CompletableFuture<?>> pendingDevices = SimContext.current().pendingDevices;
+		Map<String, CompletableFuture<?>> devices;
+		synchronized (pendingDevices) {
+			devices = new LinkedHashMap<>(pendingDevices);
+			pendingDevices.clear();
+		}
+		if (devices.isEmpty()) {
+			return true;
+		}
+		try {
+			CompletableFuture.allOf(devices.values().toArray(new CompletableFuture<?>[devices.size()]))
+					.get(timeoutMillis, TimeUnit.MILLISECONDS);
+			return true;
+		} catch (TimeoutException | ExecutionException e) {
+			// Report the devices below
+		}
+		boolean ready = true;
+		for (Map.Entry<String, CompletableFuture<?>> device : devices.entrySet()) {
+			CompletableFuture<?> future = device.getValue();
+			if (!future.isDone() || future.isCompletedExceptionally()) {
+				System.err.println("Failed to initialize " + device.getKey() + ": does the device exist?");
+				ready = false;
+			}
 		}
-		return mainNode.subscribe(topic, defaultMessage, cb);
+		return ready;
 	}
 }
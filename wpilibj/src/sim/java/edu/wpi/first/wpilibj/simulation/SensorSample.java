@@ -0,0 +1,73 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.simulation;
+
+/**
+ * The position and velocity of a simulated sensor at one simulation time.
+ * Samples are immutable, so a sample read by the robot always holds a
+ * position and velocity from the same physics step.
+ */
+public final class SensorSample {
+	private final double time;
+	private final double position;
+	private final double velocity;
+
+	/**
+	 * @param time The simulation time of the sample in seconds
+	 * @param position The position the sensor measured
+	 * @param velocity The velocity the sensor measured
+	 */
+	public SensorSample(double time, double position, double velocity) {
+		this.time = time;
+		this.position = position;
+		this.velocity = velocity;
+	}
+
+	/**
+	 * @return The simulation time of the sample in seconds
+	 */
+	public double getTime() {
+		return time;
+	}
+
+	/**
+	 * @return The position the sensor measured
+	 */
+	public double getPosition() {
+		return position;
+	}
+
+	/**
+	 * @return The velocity the sensor measured
+	 */
+	public double getVelocity() {
+		return velocity;
+	}
+
+	/**
+	 * Interpolate linearly between this sample and a later one.
+	 *
+	 * @param next The later sample
+	 * @param time The simulation time, between the times of the two samples
+	 * @return The sample at the time
+	 */
+	public SensorSample interpolate(SensorSample next, double time) {
+		double span = next.time - this.time;
+		if (span <= 0) {
+			return next;
+		}
+		double t = (time - this.time) / span;
+		return new SensorSample(time, position + (next.position - position) * t,
+				velocity + (next.velocity - velocity) * t);
+	}
+
+	@Override
+	public String toString() {
+		return "SensorSample [time=" + time + ", position=" + position + ", velocity=" + velocity + "]";
+	}
+}
@@ -0,0 +1,376 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.simulation;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+import org.gazebosim.transport.LockstepClock;
+import org.gazebosim.transport.Msgs;
+import org.gazebosim.transport.Node;
+import org.gazebosim.transport.Publisher;
+import org.gazebosim.transport.SubscriberCallback;
+import org.gazebosim.transport.TopicRecorder;
+
+import gazebo.msgs.GzFloat64.Float64;
+
+/**
+ * The state of one simulated robot: its connection to the simulator, its
+ * simulation time and lockstep clock, and its DriverStation, Scheduler and
+ * LiveWindow.
+ *
+ * The static accessors of those classes, such as
+ * {@link edu.wpi.first.wpilibj.DriverStation#getInstance()},
+ * {@link edu.wpi.first.wpilibj.Timer#delay(double)} and
+ * {@link MainNode#advertise(String, com.google.protobuf.Message)}, use the
+ * current context of the calling thread. A thread's context is set with
+ * {@link #setCurrent(SimContext)} and is inherited by the threads it starts,
+ * so the robot's own threads belong to the same robot. Threads without a
+ * context use the default one, which is what a robot started by
+ * RobotBase.main() runs in.
+ *
+ * Each context's topics are under its name, so several robots can share one
+ * simulator, or one JVM with the in-process transport, without seeing each
+ * other's messages. The plant models of a robot must use a node with the same
+ * name, such as one made by {@link #createNode()}.
+ *
+ * @see SimRunner
+ */
+public class SimContext {
+	/**
+	 * The name of the default context, which is the namespace the Gazebo
+	 * plugins use.
+	 */
+	public static final String kDefaultName = "frc";
+
+	private static final SimContext defaultContext = new SimContext(kDefaultName, null);
+	private static final InheritableThreadLocal<SimContext> current = new InheritableThreadLocal<>();
+
+	private final String name;
+	private final Node.Transport transport;
+	private Node node;
+	// Other nodes with the context's name, closed with it
+	private final List<Node> nodes = new ArrayList<>();
+	private TopicRecorder recorder;
+
+	// Devices which have not been waited for yet, by name
+	final Map<String, CompletableFuture<?>> pendingDevices = new LinkedHashMap<>();
+
+	private volatile double simTime;
+	private final List<Sampler> samplers = new CopyOnWriteArrayList<>();
+	private final SimOutputs outputs = new SimOutputs();
+	private final Object timeNotifier = new Object();
+	private volatile double stopTime = Double.POSITIVE_INFINITY;
+	private volatile boolean stopped = false;
+
+	volatile boolean lockstep = Boolean.getBoolean(Lockstep.PROPERTY);
+	Publisher<Float64> stepPub;
+	Thread driver;
+
+	// The DriverStation, Scheduler and LiveWindow of this robot, by class
+	private final Map<Class<?>, Object> singletons = new HashMap<>();
+
+	/**
+	 * Thrown by {@link edu.wpi.first.wpilibj.Timer#delay(double)} and the
+	 * other waits for simulation time when the context is stopped, to end the
+	 * robot program.
+	 */
+	public static class StoppedException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		StoppedException(String name) {
+			super("The simulation " + name + " was stopped");
+		}
+	}
+
+	/**
+	 * Takes a sample of a sensor each time the simulation time advances.
+	 */
+	interface Sampler {
+		/**
+		 * @param time The new simulation time in seconds
+		 */
+		void sample(double time);
+	}
+
+	/**
+	 * @param name The name of the context, which its topics are under
+	 * @param transport How the context talks to the simulator, or null for
+	 *        the transport selected by {@link Node#TRANSPORT_PROPERTY}
+	 */
+	public SimContext(String name, Node.Transport transport) {
+		this.name = name;
+		this.transport = transport;
+	}
+
+	/**
+	 * @return The context of the calling thread, or the default context
+	 */
+	public static SimContext current() {
+		SimContext context = current.get();
+		return context != null ? context : defaultContext;
+	}
+
+	/**
+	 * @return The context of threads which have not set one
+	 */
+	public static SimContext getDefault() {
+		return defaultContext;
+	}
+
+	/**
+	 * Set the context of the calling thread, and of the threads it starts
+	 * from now on.
+	 *
+	 * @param context The context, or null for the default context
+	 */
+	public static void setCurrent(SimContext context) {
+		if (context == null) {
+			current.remove();
+		} else {
+			current.set(context);
+		}
+	}
+
+	/**
+	 * @return The name of the context, which is also the name of its node
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Connect to the simulator and start following the simulation time.
+	 * Called by {@link MainNode#openGazeboConnection()}.
+	 *
+	 * @return False if the context was already connected
+	 */
+	public synchronized boolean open() throws IOException, InterruptedException {
+		if (node != null) {
+			return false;
+		}
+		Node node = transport != null ? new Node(name, transport) : new Node(name);
+		node.waitForConnection();
+		node.subscribe("time", Msgs.Float64(), new SubscriberCallback<Float64>() {
+			@Override
+			public void callback(Float64 msg) {
+				// Before the robot wakes, so it sees the samples of this time
+				for (Sampler sampler : samplers) {
+					sampler.sample(msg.getData());
+				}
+				outputs.flush();
+				setTime(msg.getData());
+			}
+		});
+		this.node = node;
+		return true;
+	}
+
+	/**
+	 * @return The node, or null if the context is not connected
+	 */
+	public synchronized Node getNode() {
+		return node;
+	}
+
+	/**
+	 * Connect another node with the context's name and transport, such as
+	 * one for the robot's plant models. It is closed with the context.
+	 *
+	 * @return The node
+	 */
+	public Node createNode() throws IOException, InterruptedException {
+		Node node = transport != null ? new Node(name, transport) : new Node(name);
+		node.waitForConnection();
+		synchronized (this) {
+			nodes.add(node);
+		}
+		return node;
+	}
+
+	/**
+	 * Record every message the robot publishes or receives, such as its
+	 * motor outputs and the sensor values and driver station state from the
+	 * simulator, so the session can be replayed with a
+	 * {@link org.gazebosim.transport.TopicReplayer}. The recording is closed
+	 * with the context.
+	 *
+	 * @param path The file to record to, which is replaced
+	 * @return The recorder
+	 * @throws IllegalStateException If the context is not connected
+	 */
+	public synchronized TopicRecorder record(Path path) throws IOException {
+		if (node == null) {
+			throw new IllegalStateException("The context " + name + " is not connected");
+		}
+		if (recorder != null) {
+			recorder.close();
+		}
+		recorder = new TopicRecorder(path);
+		node.setRecorder(recorder);
+		return recorder;
+	}
+
+	/**
+	 * Stop the robot, close the recording and close the nodes. Nothing can be
+	 * published or subscribed to afterwards.
+	 */
+	public void close() {
+		stop();
+		List<Node> closing;
+		TopicRecorder closingRecorder;
+		synchronized (this) {
+			closing = new ArrayList<>(nodes);
+			if (node != null) {
+				closing.add(node);
+				node.setRecorder(null);
+			}
+			nodes.clear();
+			node = null;
+			closingRecorder = recorder;
+			recorder = null;
+		}
+		if (closingRecorder != null) {
+			try {
+				closingRecorder.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		for (Node node : closing) {
+			node.close();
+		}
+	}
+
+	/**
+	 * @return The actuator outputs of this robot, which are published at the
+	 *         end of each step
+	 */
+	public SimOutputs getOutputs() {
+		return outputs;
+	}
+
+	/**
+	 * Get the object of a class which this robot has one of, such as its
+	 * DriverStation, creating it the first time.
+	 *
+	 * @param type The class
+	 * @param factory Creates the object
+	 * @return The object
+	 */
+	public <T> T getSingleton(Class<T> type, Supplier<? extends T> factory) {
+		synchronized (singletons) {
+			Object instance = singletons.get(type);
+			if (instance == null) {
+				instance = factory.get();
+				singletons.put(type, instance);
+			}
+			return type.cast(instance);
+		}
+	}
+
+	/**
+	 * Take a sample each time the simulation time advances. Called by the
+	 * sensors.
+	 */
+	void addSampler(Sampler sampler) {
+		samplers.add(sampler);
+	}
+
+	/**
+	 * @return The simulation time in seconds
+	 */
+	public double getTime() {
+		return simTime;
+	}
+
+	private void setTime(double time) {
+		simTime = time;
+		if (time >= stopTime) {
+			stopped = true;
+		}
+		synchronized (timeNotifier) {
+			timeNotifier.notifyAll();
+		}
+	}
+
+	/**
+	 * Block until the simulation time reaches the target, less
+	 * {@link LockstepClock#TOLERANCE}.
+	 *
+	 * @param target The time in seconds
+	 * @throws StoppedException If the context is stopped
+	 */
+	public void waitForTime(double target) {
+		synchronized (timeNotifier) {
+			// Checked with the lock held, so an update just before the wait is not missed
+			while (simTime < target - LockstepClock.TOLERANCE) {
+				checkStopped();
+				try {
+					timeNotifier.wait(); // Block until time progresses
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+		checkStopped();
+	}
+
+	/**
+	 * @throws StoppedException If the context is stopped
+	 */
+	public void checkStopped() {
+		if (stopped) {
+			throw new StoppedException(name);
+		}
+	}
+
+	/**
+	 * Stop the robot when the simulation time reaches a limit. The robot's
+	 * waits for time then throw a {@link StoppedException}.
+	 *
+	 * @param time The time in seconds
+	 */
+	public void stopAt(double time) {
+		stopTime = time;
+		if (simTime >= time) {
+			stop();
+		}
+	}
+
+	/**
+	 * Stop the robot now. The robot's waits for time throw a
+	 * {@link StoppedException}.
+	 */
+	public void stop() {
+		stopped = true;
+		synchronized (timeNotifier) {
+			timeNotifier.notifyAll();
+		}
+	}
+
+	/**
+	 * @return True if the robot has been stopped
+	 */
+	public boolean isStopped() {
+		return stopped;
+	}
+
+	@Override
+	public String toString() {
+		return "SimContext " + name;
+	}
+}
@@ -9,23 +9,17 @@ package edu.wpi.first.wpilibj.simulation;
 
 import gazebo.msgs.GzBool.Bool;
 
+import org.gazebosim.transport.LatestMessage;
 import org.gazebosim.transport.Msgs;
-import org.gazebosim.transport.SubscriberCallback;
 
 public class SimDigitalInput {
-	private boolean value;
+	private LatestMessage<Bool> value;
 	
 	public SimDigitalInput(String topic) {
-    	MainNode.subscribe(topic, Msgs.Bool(),
-			new SubscriberCallback<Bool>() {
-    			@Override public void callback(Bool msg) {
-    				value = msg.getData();
-    			}
-			}
-		);
+    	value = MainNode.subscribeLatest(topic, Msgs.Bool());
 	}
 
 	public boolean get() {
-		return value;
+		return value.get().getData();
 	}
 }
@@ -7,46 +7,35 @@
 
 package edu.wpi.first.wpilibj.simulation;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.gazebosim.transport.Msgs;
 import org.gazebosim.transport.Publisher;
-import org.gazebosim.transport.SubscriberCallback;
 
-import gazebo.msgs.GzFloat64.Float64;
 import gazebo.msgs.GzString;
 
 public class SimEncoder {
-	private double position, velocity;
+	private SimSensorState state;
 	private Publisher<GzString.String> command_pub;
+	// Commands sent before the plugin subscribed, guarded by this
+	private final List<String> pendingCommands = new ArrayList<>();
+	private boolean connected = false;
 	
 	public SimEncoder(String topic) {
 		command_pub = MainNode.advertise(topic+"/control", Msgs.String());
 
-		MainNode.subscribe(topic+"/position", Msgs.Float64(),
-			new SubscriberCallback<Float64>() {
-				@Override public void callback(Float64 msg) {
-					position = msg.getData();
-				}
-			}
-		);
-
-		MainNode.subscribe(topic+"/velocity", Msgs.Float64(),
-			new SubscriberCallback<Float64>() {
-				@Override public void callback(Float64 msg) {
-					velocity = msg.getData();
-				}
-			}
-		);
+		state = new SimSensorState(topic);
 
-		try {
-			if (command_pub.waitForConnection(5000)) { // Wait up to five seconds.
-				System.out.println("Initialized " + topic);
-			} else {
-				System.err.println("Failed to initialize " + topic + ": does the encoder exist?");
+		// Don't block until the plugin subscribes, RobotBase waits for all of
+		// the devices at once
+		command_pub.whenConnected().thenRun(new Runnable() {
+			@Override
+			public void run() {
+				sendPendingCommands();
 			}
-		} catch (InterruptedException ex) {
-			ex.printStackTrace(); // TODO: Better way to handle this?
-			Thread.currentThread().interrupt();
-		}
+		});
+		MainNode.registerDevice(topic, command_pub.whenConnected());
 	}
 	
 	public void reset() {
@@ -61,15 +50,44 @@ public class SimEncoder {
 		sendCommand("stop");
 	}
 
-	private void sendCommand(String cmd) {
-		command_pub.publish(Msgs.String(cmd));
+	private synchronized void sendCommand(String cmd) {
+		if (connected) {
+			command_pub.publishString(cmd);
+		} else {
+			pendingCommands.add(cmd);
+		}
+	}
+
+	private synchronized void sendPendingCommands() {
+		connected = true;
+		for (String cmd : pendingCommands) {
+			command_pub.publishString(cmd);
+		}
+		pendingCommands.clear();
 	}
 
 	public double getPosition() {
-		return position;
+		return state.getSample().getPosition();
 	}
 
 	public double getVelocity() {
-		return velocity;
+		return state.getSample().getVelocity();
+	}
+
+	/**
+	 * @return The newest position and velocity
+	 * @see SimSensorState#getSample()
+	 */
+	public SensorSample getSample() {
+		return state.getSample();
+	}
+
+	/**
+	 * @param time The simulation time in seconds
+	 * @return The position and velocity interpolated to the time
+	 * @see SimSensorState#getSample(double)
+	 */
+	public SensorSample getSample(double time) {
+		return state.getSample(time);
 	}
 }
@@ -8,25 +8,19 @@
 package edu.wpi.first.wpilibj.simulation;
 
 
+import org.gazebosim.transport.LatestMessage;
 import org.gazebosim.transport.Msgs;
-import org.gazebosim.transport.SubscriberCallback;
 
 import gazebo.msgs.GzFloat64.Float64;
 
 public class SimFloatInput {
-	private double value;
+	private LatestMessage<Float64> value;
 	
 	public SimFloatInput(String topic) {
-    	MainNode.subscribe(topic, Msgs.Float64(),
-			new SubscriberCallback<Float64>() {
-    			@Override public void callback(Float64 msg) {
-    				value = msg.getData();
-    			}
-			}
-		);
+    	value = MainNode.subscribeLatest(topic, Msgs.Float64());
 	}
 
 	public double get() {
-		return value;
+		return value.get().getData();
 	}
 }
@@ -7,36 +7,20 @@
 
 package edu.wpi.first.wpilibj.simulation;
 
-import gazebo.msgs.GzFloat64.Float64;
 import gazebo.msgs.GzString;
 
 import org.gazebosim.transport.Msgs;
 import org.gazebosim.transport.Publisher;
-import org.gazebosim.transport.SubscriberCallback;
 
 public class SimGyro {
-	private double position, velocity;
+	private SimSensorState state;
 	private Publisher<GzString.String> command_pub;
 	
 	public SimGyro(String topic) {
 		command_pub = MainNode.advertise(topic+"/control", Msgs.String());
 		command_pub.setLatchMode(true);
 
-		MainNode.subscribe(topic+"/position", Msgs.Float64(),
-			new SubscriberCallback<Float64>() {
-				@Override public void callback(Float64 msg) {
-					position = msg.getData();
-				}
-			}
-    	);
-    	
-    	MainNode.subscribe(topic+"/velocity", Msgs.Float64(),
-			new SubscriberCallback<Float64>() {
-				@Override public void callback(Float64 msg) {
-					velocity = msg.getData();
-				}
-			}
-		);
+		state = new SimSensorState(topic);
 	}
 	
 	public void reset() {
@@ -44,14 +28,31 @@ public class SimGyro {
 	}
 
 	private void sendCommand(String cmd) {
-		command_pub.publish(Msgs.String(cmd));
+		command_pub.publishString(cmd);
 	}
 
 	public double getAngle() {
-		return position;
+		return state.getSample().getPosition();
 	}
 
 	public double getVelocity() {
-		return velocity;
+		return state.getSample().getVelocity();
+	}
+
+	/**
+	 * @return The newest angle and velocity
+	 * @see SimSensorState#getSample()
+	 */
+	public SensorSample getSample() {
+		return state.getSample();
+	}
+
+	/**
+	 * @param time The simulation time in seconds
+	 * @return The angle and velocity interpolated to the time
+	 * @see SimSensorState#getSample(double)
+	 */
+	public SensorSample getSample(double time) {
+		return state.getSample(time);
 	}
 }
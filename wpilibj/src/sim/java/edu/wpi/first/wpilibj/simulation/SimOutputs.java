@@ -0,0 +1,63 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds the values written to a robot's actuators, such as speed
+ * controllers, relays and solenoids, until the end of the robot's step.
+ *
+ * Robot code often sets the same output several times in a loop, and sets
+ * every output each loop whether it changed or not. Setting an output only
+ * stores the value; {@link #flush()} then publishes the outputs whose value
+ * differs from the one last published, together. So the messages sent to the
+ * simulator follow the changes of the outputs rather than the calls.
+ *
+ * The outputs are flushed at the end of each IterativeRobot loop, before each
+ * {@link edu.wpi.first.wpilibj.Timer#delay(double)}, which is also before
+ * each lockstep step, and whenever the simulation time advances, so values
+ * set on other threads are not held back by a long delay.
+ */
+public class SimOutputs {
+	// Guarded by this
+	private final List<SimSpeedController> changed = new ArrayList<>();
+
+	SimOutputs() {
+	}
+
+	/**
+	 * @return The outputs of the current {@link SimContext}
+	 */
+	public static SimOutputs getInstance() {
+		return SimContext.current().getOutputs();
+	}
+
+	/**
+	 * Remember that an output was set since the last flush.
+	 */
+	synchronized void set(SimSpeedController output) {
+		if (!output.pending) {
+			output.pending = true;
+			changed.add(output);
+		}
+	}
+
+	/**
+	 * Publish the outputs which were set to a new value since the last flush.
+	 */
+	public synchronized void flush() {
+		for (int i = 0; i < changed.size(); i++) {
+			SimSpeedController output = changed.get(i);
+			output.pending = false;
+			output.flush();
+		}
+		changed.clear();
+	}
+}
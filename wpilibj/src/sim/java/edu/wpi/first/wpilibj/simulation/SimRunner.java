@@ -0,0 +1,163 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.gazebosim.transport.Node;
+
+/**
+ * Runs many independent robot simulations in one JVM, each on its own thread
+ * and in its own {@link SimContext}, such as Monte-Carlo variants of an
+ * autonomous routine with different sensor noise or starting poses.
+ *
+ * The simulations use the in-process transport and run in lockstep mode, so
+ * each one runs as fast as its thread allows and gives the same result
+ * whatever else is running. Each simulation connects its plant models to a
+ * node made by {@link SimContext#createNode()} and runs the robot with
+ * {@link edu.wpi.first.wpilibj.RobotBase#runRobot(Class)}. There is no
+ * driver station in-process, so the robot stays disabled unless the
+ * simulation publishes the "ds/state" topic itself, latched so the robot gets
+ * it however late it subscribes:
+ *
+ * <pre>
+ * SimRunner runner = new SimRunner(Runtime.getRuntime().availableProcessors());
+ * List&lt;Double&gt; results = runner.run(500, new SimRunner.Simulation&lt;Double&gt;() {
+ *     public Double run(SimContext context, int index) throws Exception {
+ *         Node node = context.createNode();
+ *         ... connect the plant and start a LockstepClock on node ...
+ *         Publisher&lt;GzDriverStation.DriverStation&gt; ds = node.advertise("ds/state",
+ *                 GzDriverStation.DriverStation.getDefaultInstance());
+ *         ds.setLatchMode(true);
+ *         ds.publish(GzDriverStation.DriverStation.newBuilder()
+ *                 .setEnabled(true).setState(State.AUTO).build());
+ *         context.stopAt(15);
+ *         RobotBase.runRobot(MyRobot.class);
+ *         return drive.getX();
+ *     }
+ * });
+ * runner.shutdown();
+ * </pre>
+ *
+ * A context is named after the slot running it, such as "frc3", and the
+ * name is used again by the next simulation in that slot once the previous
+ * one has closed its nodes. So the topic names, and the transport metrics,
+ * stay the same however many simulations are run.
+ */
+public class SimRunner {
+	/**
+	 * One run of a simulation.
+	 */
+	public interface Simulation<T> {
+		/**
+		 * Run the simulation. It is called on a worker thread whose current
+		 * context is the given one, which is closed, with the nodes it
+		 * created, when it returns.
+		 *
+		 * @param context The context of the run, which is connected but not
+		 *        yet running a robot
+		 * @param index The number of the run, from 0
+		 * @return The result of the run
+		 */
+		T run(SimContext context, int index) throws Exception;
+	}
+
+	private final ExecutorService executor;
+	// The context names which are not in use by a running simulation
+	private final BlockingQueue<String> names;
+
+	/**
+	 * @param threads The number of simulations to run at the same time
+	 */
+	public SimRunner(int threads) {
+		names = new ArrayBlockingQueue<>(threads);
+		for (int i = 0; i < threads; i++) {
+			names.add(SimContext.kDefaultName + i);
+		}
+		executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "Simulation " + count.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Start runs of a simulation.
+	 *
+	 * @param count The number of runs
+	 * @param simulation The simulation
+	 * @return The results of the runs, in order
+	 */
+	public <T> List<Future<T>> submit(int count, final Simulation<T> simulation) {
+		List<Future<T>> results = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			final int index = i;
+			results.add(executor.submit(new Callable<T>() {
+				@Override
+				public T call() throws Exception {
+					return runOne(simulation, index);
+				}
+			}));
+		}
+		return results;
+	}
+
+	/**
+	 * Run a simulation several times and wait for all of the runs.
+	 *
+	 * @param count The number of runs
+	 * @param simulation The simulation
+	 * @return The results of the runs, in order
+	 * @throws ExecutionException If a run threw an exception
+	 */
+	public <T> List<T> run(int count, Simulation<T> simulation)
+			throws InterruptedException, ExecutionException {
+		List<T> results = new ArrayList<>(count);
+		for (Future<T> result : submit(count, simulation)) {
+			results.add(result.get());
+		}
+		return results;
+	}
+
+	private <T> T runOne(Simulation<T> simulation, int index) throws Exception {
+		String name = names.take();
+		SimContext context = new SimContext(name, Node.Transport.IN_PROCESS);
+		SimContext.setCurrent(context);
+		try {
+			context.lockstep = true;
+			context.open();
+			return simulation.run(context, index);
+		} finally {
+			context.close();
+			SimContext.setCurrent(null);
+			names.add(name);
+		}
+	}
+
+	/**
+	 * Stop the worker threads once the runs already submitted are done.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+}
@@ -0,0 +1,114 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.simulation;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.gazebosim.transport.LatestMessage;
+import org.gazebosim.transport.Msgs;
+
+import gazebo.msgs.GzFloat64.Float64;
+
+/**
+ * The recent samples of a sensor which publishes a position and a velocity,
+ * such as an encoder or a gyro.
+ *
+ * The position and velocity arrive on separate topics. They are combined
+ * into a {@link SensorSample} each time the simulation time advances, before
+ * the robot is woken for that time, and the sample is stamped with that time.
+ * With the in-process transport, messages arrive in the order they were
+ * published, so a sample holds the values of the physics step which ended at
+ * its time. Over TCP each topic has its own connection, so this is only best
+ * effort: a value may arrive after the time, and the sample then holds the
+ * value from the step before. Each sample is immutable and the history is
+ * read without locks.
+ */
+public class SimSensorState {
+	/**
+	 * How many samples are kept for {@link #getSample(double)}.
+	 */
+	public static final int kHistorySize = 64;
+
+	private final SimContext context;
+	private final LatestMessage<Float64> position, velocity;
+	// The samples, written only by the thread which receives the time
+	private final AtomicReferenceArray<SensorSample> history =
+			new AtomicReferenceArray<>(kHistorySize);
+	private volatile long count = 0;
+
+	/**
+	 * @param topic The topic of the sensor, which has position and velocity
+	 *        subtopics
+	 */
+	public SimSensorState(String topic) {
+		position = MainNode.subscribeLatest(topic + "/position", Msgs.Float64());
+		velocity = MainNode.subscribeLatest(topic + "/velocity", Msgs.Float64());
+		context = SimContext.current();
+		context.addSampler(new SimContext.Sampler() {
+			@Override
+			public void sample(double time) {
+				add(current(time));
+			}
+		});
+	}
+
+	private SensorSample current(double time) {
+		return new SensorSample(time, position.get().getData(), velocity.get().getData());
+	}
+
+	private void add(SensorSample sample) {
+		long n = count;
+		history.set((int) (n % kHistorySize), sample);
+		count = n + 1;
+	}
+
+	/**
+	 * @return The newest sample. Before the simulation time first advances,
+	 *         the values received so far, or zero, at the current time.
+	 */
+	public SensorSample getSample() {
+		long n = count;
+		if (n == 0) {
+			return current(context.getTime());
+		}
+		return history.get((int) ((n - 1) % kHistorySize));
+	}
+
+	/**
+	 * Get the sample at a simulation time, interpolated linearly between the
+	 * samples around it. A time after the newest sample gives the newest
+	 * sample, and a time before the oldest one kept gives the oldest. Before
+	 * the simulation time first advances, this is the same as
+	 * {@link #getSample()}.
+	 *
+	 * @param time The simulation time in seconds
+	 * @return The sample at the time
+	 */
+	public SensorSample getSample(double time) {
+		long n = count;
+		if (n == 0) {
+			return getSample();
+		}
+		SensorSample later = history.get((int) ((n - 1) % kHistorySize));
+		if (time >= later.getTime()) {
+			return later;
+		}
+		for (long i = n - 2; i >= Math.max(0, n - kHistorySize); i--) {
+			SensorSample earlier = history.get((int) (i % kHistorySize));
+			if (earlier.getTime() > later.getTime()) {
+				// Overwritten by a newer sample while reading
+				break;
+			}
+			if (earlier.getTime() <= time) {
+				return earlier.interpolate(later, time);
+			}
+			later = earlier;
+		}
+		return later;
+	}
+}
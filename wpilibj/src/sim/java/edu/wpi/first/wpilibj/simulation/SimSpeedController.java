@@ -7,6 +7,7 @@
 
 package edu.wpi.first.wpilibj.simulation;
 
+import edu.wpi.first.wpilibj.InputLatencyMonitor;
 import gazebo.msgs.GzFloat64.Float64;
 
 import org.gazebosim.transport.Msgs;
@@ -15,7 +16,11 @@ import org.gazebosim.transport.Publisher;
 
 public class SimSpeedController {
 	private Publisher<Float64> pub;
-	private double speed;
+	private final SimOutputs outputs;
+	private volatile double speed;
+	private double published = Double.NaN;
+	// Set while the controller waits for a flush, guarded by outputs
+	boolean pending = false;
 
     /**
      * Constructor that assumes the default digital module.
@@ -24,6 +29,18 @@ public class SimSpeedController {
      */
     public SimSpeedController(String topic) {
     	pub = MainNode.advertise(topic, Msgs.Float64());
+    	if (Lockstep.isEnabled()) {
+    		// Written before the robot asks for the next step, rather than by
+    		// the background writer, which could send it after the request
+    		pub.setDeliveryPolicy(Publisher.DeliveryPolicy.SYNCHRONOUS);
+    	} else {
+    		// Only the latest setpoint matters, so never block the robot loop on it
+    		pub.setDeliveryPolicy(Publisher.DeliveryPolicy.LATEST);
+    	}
+    	// Values are only published when they change, so give the last one
+    	// to a plugin which connects later
+    	pub.setLatchMode(true);
+    	outputs = SimOutputs.getInstance();
     }
 
     /**
@@ -47,10 +64,31 @@ public class SimSpeedController {
      * The PWM value is set using a range of -1.0 to 1.0, appropriately
      * scaling the value for the FPGA.
      *
+     * The value is published when the outputs are next flushed, if it
+     * differs from the value last published.
+     *
      * @param speed The speed value between -1.0 and 1.0 to set.
+     * @see SimOutputs
      */
     public void set(double speed) {
-		pub.publish(Msgs.Float64(speed));
+		store(speed);
+		InputLatencyMonitor.outputWritten();
+    }
+
+    private void store(double speed) {
+		this.speed = speed;
+		outputs.set(this);
+    }
+
+    /**
+     * Publish the value if it has changed. Called by {@link SimOutputs}.
+     */
+    void flush() {
+		double value = speed;
+		if (Double.doubleToLongBits(value) != Double.doubleToLongBits(published)) {
+			published = value;
+			pub.publishFloat64(value);
+		}
     }
 
     /**
@@ -66,7 +104,8 @@ public class SimSpeedController {
      * Disable the speed controller
      */
     public void disable() {
-		set(0);
+		// Called by motor safety, so not an output for the latency monitor
+		store(0);
 	}
 
     /**
@@ -0,0 +1,46 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.simulation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class SensorSampleTest {
+	private static final double EPSILON = 1e-9;
+
+	@Test
+	public void interpolatesPositionAndVelocity() {
+		SensorSample earlier = new SensorSample(1.0, 10, -2);
+		SensorSample later = new SensorSample(1.5, 20, 2);
+		SensorSample sample = earlier.interpolate(later, 1.125);
+		assertEquals(1.125, sample.getTime(), EPSILON);
+		assertEquals(12.5, sample.getPosition(), EPSILON);
+		assertEquals(-1, sample.getVelocity(), EPSILON);
+	}
+
+	@Test
+	public void endsGiveTheSamples() {
+		SensorSample earlier = new SensorSample(0, 3, 4);
+		SensorSample later = new SensorSample(0.02, 5, 6);
+		SensorSample start = earlier.interpolate(later, 0);
+		assertEquals(3, start.getPosition(), EPSILON);
+		assertEquals(4, start.getVelocity(), EPSILON);
+		SensorSample end = earlier.interpolate(later, 0.02);
+		assertEquals(5, end.getPosition(), EPSILON);
+		assertEquals(6, end.getVelocity(), EPSILON);
+	}
+
+	@Test
+	public void samplesAtTheSameTimeGiveTheLaterOne() {
+		SensorSample earlier = new SensorSample(0.5, 1, 1);
+		SensorSample later = new SensorSample(0.5, 2, 2);
+		assertSame(later, earlier.interpolate(later, 0.5));
+	}
+}
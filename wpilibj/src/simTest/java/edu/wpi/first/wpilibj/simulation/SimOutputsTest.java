@@ -0,0 +1,121 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.simulation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import gazebo.msgs.GzFloat64.Float64;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.gazebosim.transport.Msgs;
+import org.gazebosim.transport.Node;
+import org.gazebosim.transport.SubscriberCallback;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SimOutputsTest {
+	private static final double EPSILON = 1e-9;
+
+	private SimContext context;
+	private SimSpeedController controller;
+	private BlockingQueue<Double> published;
+
+	@Before
+	public void setUp() throws Exception {
+		context = new SimContext("simOutputs", Node.Transport.IN_PROCESS);
+		SimContext.setCurrent(context);
+		context.open();
+		published = subscribe(context.createNode());
+		controller = new SimSpeedController("simulator/pwm/1");
+	}
+
+	@After
+	public void tearDown() {
+		context.close();
+		SimContext.setCurrent(null);
+	}
+
+	/**
+	 * @return The values published to the controller's topic, as seen by the
+	 *         node
+	 */
+	private static BlockingQueue<Double> subscribe(Node node) {
+		final BlockingQueue<Double> values = new LinkedBlockingQueue<>();
+		node.subscribe("simulator/pwm/1", Msgs.Float64(), new SubscriberCallback<Float64>() {
+			@Override
+			public void callback(Float64 msg) {
+				values.add(msg.getData());
+			}
+		});
+		return values;
+	}
+
+	private static double take(BlockingQueue<Double> values) throws InterruptedException {
+		Double value = values.poll(5, TimeUnit.SECONDS);
+		assertTrue("Timed out waiting for a value", value != null);
+		return value;
+	}
+
+	@Test
+	public void valuesArePublishedOnFlush() throws Exception {
+		controller.set(0.5);
+		assertEquals(0.5, controller.get(), EPSILON);
+		assertNull(published.poll(100, TimeUnit.MILLISECONDS));
+
+		context.getOutputs().flush();
+		assertEquals(0.5, take(published), EPSILON);
+	}
+
+	@Test
+	public void repeatedValuesArePublishedOnce() throws Exception {
+		for (int i = 0; i < 3; i++) {
+			controller.set(0.5);
+			context.getOutputs().flush();
+		}
+		controller.set(0.5);
+		controller.set(0.7);
+		controller.set(0.5);
+		context.getOutputs().flush();
+		controller.set(0.7);
+		context.getOutputs().flush();
+
+		assertEquals(0.5, take(published), EPSILON);
+		// Nothing was published in between
+		assertEquals(0.7, take(published), EPSILON);
+	}
+
+	@Test
+	public void lateSubscriberGetsTheLastValue() throws Exception {
+		controller.set(0.25);
+		context.getOutputs().flush();
+		assertEquals(0.25, take(published), EPSILON);
+
+		assertEquals(0.25, take(subscribe(context.createNode())), EPSILON);
+	}
+
+	@Test
+	public void getReturnsTheLastValueSet() throws Exception {
+		assertEquals(0, controller.get(), EPSILON);
+		controller.set(-0.4);
+		assertEquals(-0.4, controller.get(), EPSILON);
+		context.getOutputs().flush();
+		assertEquals(-0.4, controller.get(), EPSILON);
+
+		controller.disable();
+		assertEquals(0, controller.get(), EPSILON);
+		context.getOutputs().flush();
+		assertEquals(-0.4, take(published), EPSILON);
+		assertEquals(0, take(published), EPSILON);
+	}
+}
@@ -0,0 +1,145 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.simulation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import gazebo.msgs.GzDriverStation;
+import gazebo.msgs.GzDriverStation.DriverStation.State;
+import gazebo.msgs.GzFloat64.Float64;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.gazebosim.transport.LatestMessage;
+import org.gazebosim.transport.LockstepClock;
+import org.gazebosim.transport.Msgs;
+import org.gazebosim.transport.Node;
+import org.gazebosim.transport.Publisher;
+import org.junit.Test;
+
+import edu.wpi.first.wpilibj.IterativeRobot;
+import edu.wpi.first.wpilibj.RobotBase;
+
+public class SimRunnerTest {
+	/**
+	 * Drives a motor to a position in autonomous, recording the positions it
+	 * reads.
+	 */
+	public static class Robot extends IterativeRobot {
+		final List<Double> positions = new ArrayList<>();
+		private SimSpeedController motor;
+		private SimFloatInput position;
+
+		@Override
+		public void robotInit() {
+			motor = new SimSpeedController("simulator/pwm/1");
+			position = new SimFloatInput("simulator/position");
+		}
+
+		@Override
+		public void autonomousPeriodic() {
+			double x = position.get();
+			positions.add(x);
+			motor.set(x < 1 ? 1 : 0);
+		}
+	}
+
+	/**
+	 * A motor turning a load, whose position is read with noise from a
+	 * seeded generator.
+	 */
+	private static class Motor implements LockstepClock.Plant {
+		private final LatestMessage<Float64> command;
+		private final Publisher<Float64> position;
+		private final Random noise;
+		private double x, v;
+
+		Motor(Node node, long seed) {
+			command = node.subscribeLatest("simulator/pwm/1", Msgs.Float64());
+			position = node.advertise("simulator/position", Msgs.Float64());
+			noise = new Random(seed);
+		}
+
+		@Override
+		public void step(double time, double dt) {
+			v += (command.get().getData() * 5 - v) * dt;
+			x += v * dt;
+			position.publishFloat64(x + noise.nextGaussian() * 0.01);
+		}
+	}
+
+	private static final SimRunner.Simulation<List<Double>> kSimulation =
+			new SimRunner.Simulation<List<Double>>() {
+		@Override
+		public List<Double> run(SimContext context, int index) throws Exception {
+			Node node = context.createNode();
+			new LockstepClock(node, "time", 0.001, new Motor(node, index % 2)).start();
+			Publisher<GzDriverStation.DriverStation> ds = node.advertise("ds/state",
+					GzDriverStation.DriverStation.getDefaultInstance());
+			ds.setLatchMode(true);
+			ds.publish(GzDriverStation.DriverStation.newBuilder()
+					.setEnabled(true).setState(State.AUTO).build());
+			context.stopAt(2);
+			return RobotBase.runRobot(Robot.class).positions;
+		}
+	};
+
+	/**
+	 * @return The number of dispatcher threads of the runner's contexts
+	 */
+	private static int dispatchers() {
+		Thread[] threads = new Thread[Thread.activeCount() * 2];
+		int count = 0;
+		for (int i = Thread.enumerate(threads) - 1; i >= 0; i--) {
+			String name = threads[i].getName();
+			if (name.equals("Gazebo Dispatcher " + SimContext.kDefaultName + "0")
+					|| name.equals("Gazebo Dispatcher " + SimContext.kDefaultName + "1")) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Test
+	public void runsWithTheSameSeedAreIdentical() throws Exception {
+		SimRunner runner = new SimRunner(2);
+		List<List<Double>> results;
+		try {
+			results = runner.run(4, kSimulation);
+		} finally {
+			runner.shutdown();
+		}
+
+		// The robot ran autonomous for the two seconds
+		assertTrue(results.get(0).size() > 90);
+		assertTrue(results.get(0).get(results.get(0).size() - 1) > 0.5);
+		assertEquals(results.get(0), results.get(2));
+		assertEquals(results.get(1), results.get(3));
+		assertFalse(results.get(0).equals(results.get(1)));
+	}
+
+	@Test
+	public void closedContextsLeaveNoDispatchers() throws Exception {
+		SimRunner runner = new SimRunner(2);
+		try {
+			runner.run(2, kSimulation);
+		} finally {
+			runner.shutdown();
+		}
+
+		// The dispatchers are stopped by the close, and exit soon after
+		for (int i = 0; i < 500 && dispatchers() != 0; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(0, dispatchers());
+	}
+}
@@ -0,0 +1,89 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.simulation;
+
+import static org.junit.Assert.assertEquals;
+
+import gazebo.msgs.GzFloat64.Float64;
+
+import org.gazebosim.transport.Msgs;
+import org.gazebosim.transport.Node;
+import org.gazebosim.transport.Publisher;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SimSensorStateTest {
+	private static final double EPSILON = 1e-9;
+
+	private SimContext context;
+	private SimSensorState state;
+	private Publisher<Float64> position, velocity, time;
+
+	@Before
+	public void setUp() throws Exception {
+		context = new SimContext("sensorState", Node.Transport.IN_PROCESS);
+		SimContext.setCurrent(context);
+		context.open();
+		state = new SimSensorState("encoder");
+		Node sim = context.createNode();
+		position = sim.advertise("encoder/position", Msgs.Float64());
+		velocity = sim.advertise("encoder/velocity", Msgs.Float64());
+		time = sim.advertise("time", Msgs.Float64());
+	}
+
+	@After
+	public void tearDown() {
+		context.close();
+		SimContext.setCurrent(null);
+	}
+
+	/**
+	 * Publish the sensor values of a step, then its time, and wait for the
+	 * robot side to see the time.
+	 */
+	private void step(double t, double pos, double vel) {
+		position.publishFloat64(pos);
+		velocity.publishFloat64(vel);
+		time.publishFloat64(t);
+		context.waitForTime(t);
+	}
+
+	private static void assertSample(double t, double pos, double vel, SensorSample sample) {
+		assertEquals(t, sample.getTime(), EPSILON);
+		assertEquals(pos, sample.getPosition(), EPSILON);
+		assertEquals(vel, sample.getVelocity(), EPSILON);
+	}
+
+	@Test
+	public void beforeTheFirstTimeTheSampleIsZero() {
+		assertSample(0, 0, 0, state.getSample());
+		assertSample(0, 0, 0, state.getSample(1));
+	}
+
+	@Test
+	public void samplesAreStampedWithTheTime() {
+		step(0.02, 1, 50);
+		step(0.04, 2, 50);
+		assertSample(0.04, 2, 50, state.getSample());
+		assertSample(0.03, 1.5, 50, state.getSample(0.03));
+		assertSample(0.04, 2, 50, state.getSample(1));
+	}
+
+	@Test
+	public void timeBeforeTheHistoryGivesTheOldestSample() {
+		step(0.02, 1, 50);
+		step(0.04, 2, 50);
+		assertSample(0.02, 1, 50, state.getSample(0));
+		for (int i = 3; i <= SimSensorState.kHistorySize + 2; i++) {
+			step(i * 0.02, i, 50);
+		}
+		// The first two samples have been overwritten
+		assertSample(0.06, 3, 50, state.getSample(0));
+	}
+}
@@ -0,0 +1,85 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.logging.Logger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.wpi.first.wpilibj.test.AbstractComsSetup;
+
+public class AllocationMonitorTest extends AbstractComsSetup {
+  private static final Logger logger = Logger.getLogger(AllocationMonitorTest.class.getName());
+
+  // Stored so that the allocations can't be optimized away
+  private static byte[] garbage;
+
+  @Before
+  public void setUp() {
+    AllocationMonitor.setEnabled(true);
+    AllocationMonitor.reset();
+  }
+
+  @After
+  public void tearDown() {
+    AllocationMonitor.setZeroAllocationAssertion(-1);
+    AllocationMonitor.setEnabled(false);
+  }
+
+  private static void periodic(int bytes) {
+    AllocationMonitor.beginPeriodic();
+    if (bytes > 0) {
+      garbage = new byte[bytes];
+    }
+    AllocationMonitor.endPeriodic();
+  }
+
+  @Test
+  public void allocationsAreCountedTest() {
+    periodic(100000);
+    assertEquals(1, AllocationMonitor.getLoops());
+    assertTrue(AllocationMonitor.getLastBytes() >= 100000);
+    assertTrue(AllocationMonitor.getMaxBytes() >= 100000);
+    assertEquals(1, AllocationMonitor.getAllocatingLoops());
+  }
+
+  @Test
+  public void zeroAllocationAssertionTest() {
+    AllocationMonitor.setZeroAllocationAssertion(2);
+    // Allocating during the warmup is allowed
+    periodic(1000);
+    periodic(1000);
+    for (int i = 0; i < 10; i++) {
+      periodic(0);
+    }
+    try {
+      periodic(1000);
+    } catch (AssertionError ex) {
+      return;
+    }
+    fail("An allocation after the warmup was not detected");
+  }
+
+  @Test
+  public void disabledMonitorDoesNothingTest() {
+    AllocationMonitor.setEnabled(false);
+    periodic(1000);
+    assertEquals(0, AllocationMonitor.getLoops());
+  }
+
+  @Override
+  protected Logger getClassLogger() {
+    return logger;
+  }
+}
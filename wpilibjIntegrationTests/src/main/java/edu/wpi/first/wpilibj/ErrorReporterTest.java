@@ -0,0 +1,166 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import edu.wpi.first.wpilibj.test.AbstractComsSetup;
+
+public class ErrorReporterTest extends AbstractComsSetup {
+  private static final Logger logger = Logger.getLogger(ErrorReporterTest.class.getName());
+
+  private static class RecordingSink implements ErrorReporter.Sink {
+    final List<String> details = new ArrayList<String>();
+    final List<String> locations = new ArrayList<String>();
+    final List<String> callStacks = new ArrayList<String>();
+
+    @Override
+    public void send(boolean isError, int code, String details, String location,
+        String callStack) {
+      this.details.add(details);
+      this.locations.add(location);
+      this.callStacks.add(callStack);
+    }
+  }
+
+  @Test
+  public void repeatsAreCollapsedTest() {
+    RecordingSink sink = new RecordingSink();
+    ErrorReporter reporter = new ErrorReporter(sink, 16, false);
+
+    for (int i = 0; i < 5; i++) {
+      reporter.report(true, 1, "Repeated", false, 0);
+    }
+    reporter.report(false, 1, "Other", false, 0);
+    long now = System.nanoTime();
+    reporter.drain(now);
+
+    // The first of each report is sent immediately, the repeats are held
+    assertEquals(2, sink.details.size());
+    assertEquals("Repeated", sink.details.get(0));
+    assertEquals("Other", sink.details.get(1));
+
+    reporter.drain(now + 2000000000L);
+    assertEquals(3, sink.details.size());
+    assertTrue(sink.details.get(2).startsWith("Repeated (repeated 4 times from "));
+  }
+
+  @Test
+  public void traceIsOnlyFormattedWhenRequestedTest() {
+    RecordingSink sink = new RecordingSink();
+    ErrorReporter reporter = new ErrorReporter(sink, 16, false);
+
+    reporter.report(true, 1, "No trace", false, 0);
+    reporter.report(true, 1, "Trace", true, 0);
+    reporter.drain(System.nanoTime());
+
+    assertEquals("", sink.callStacks.get(0));
+    assertTrue(sink.callStacks.get(1).startsWith(" at "));
+    assertTrue(sink.callStacks.get(1).contains("traceIsOnlyFormattedWhenRequestedTest"));
+    assertFalse(sink.callStacks.get(1).contains("ErrorReporter.report"));
+  }
+
+  @Test
+  public void fullQueueDropsReportsTest() {
+    RecordingSink sink = new RecordingSink();
+    ErrorReporter reporter = new ErrorReporter(sink, 4, false);
+
+    for (int i = 0; i < 4; i++) {
+      assertTrue(reporter.report(true, 1, "Report " + i, false, 0));
+    }
+    assertFalse(reporter.report(true, 1, "Dropped", false, 0));
+    reporter.drain(System.nanoTime());
+
+    assertEquals(5, sink.details.size());
+    assertEquals("1 error reports were dropped because the queue was full", sink.details.get(4));
+
+    // The queue can be reused once it has been drained
+    assertTrue(reporter.report(true, 1, "After", false, 0));
+    reporter.drain(System.nanoTime());
+    assertEquals("After", sink.details.get(5));
+  }
+
+  @Test
+  public void flushSendsQueuedReportsAndRepeatsTest() {
+    RecordingSink sink = new RecordingSink();
+    ErrorReporter reporter = new ErrorReporter(sink, 16, false);
+
+    for (int i = 0; i < 3; i++) {
+      reporter.report(true, 1, "Fatal", false, 0);
+    }
+    reporter.flush();
+
+    // Nothing is held back waiting for the repeat window
+    assertEquals(2, sink.details.size());
+    assertEquals("Fatal", sink.details.get(0));
+    assertTrue(sink.details.get(1).startsWith("Fatal (repeated 2 times from "));
+
+    reporter.flush();
+    assertEquals(2, sink.details.size());
+  }
+
+  @Test
+  public void repeatsAreStampedWhenReportedTest() {
+    RecordingSink sink = new RecordingSink();
+    ErrorReporter reporter = new ErrorReporter(sink, 16, false);
+
+    double start = Timer.getFPGATimestamp();
+    for (int i = 0; i < 3; i++) {
+      reporter.report(true, 1, "Stamped", false, 0);
+      Timer.delay(0.1);
+    }
+    double end = Timer.getFPGATimestamp();
+    reporter.flush();
+
+    Matcher matcher = Pattern.compile("Stamped \\(repeated 2 times from (.*)s to (.*)s\\)")
+        .matcher(sink.details.get(1));
+    assertTrue(sink.details.get(1), matcher.matches());
+    double first = Double.parseDouble(matcher.group(1));
+    double last = Double.parseDouble(matcher.group(2));
+    assertTrue(first >= start + 0.099 && first <= end);
+    assertTrue(last >= first + 0.099 && last <= end);
+  }
+
+  @Test
+  public void failingSinkDoesNotStopTheReporterTest() throws InterruptedException {
+    final BlockingQueue<String> sent = new LinkedBlockingQueue<String>();
+    ErrorReporter reporter = new ErrorReporter(new ErrorReporter.Sink() {
+      @Override
+      public void send(boolean isError, int code, String details, String location,
+          String callStack) {
+        if (details.equals("Throws")) {
+          throw new IllegalStateException("Sink failure");
+        }
+        sent.add(details);
+      }
+    }, 16);
+
+    reporter.report(true, 1, "Throws", false, 0);
+    Timer.delay(0.1);
+    reporter.report(true, 1, "After", false, 0);
+    assertEquals("After", sent.poll(1, TimeUnit.SECONDS));
+  }
+
+  @Override
+  protected Logger getClassLogger() {
+    return logger;
+  }
+}
@@ -0,0 +1,95 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.logging.Logger;
+
+import org.junit.Test;
+
+import edu.wpi.first.wpilibj.test.AbstractComsSetup;
+
+public class HIDSnapshotTest extends AbstractComsSetup {
+  private static final Logger logger = Logger.getLogger(HIDSnapshotTest.class.getName());
+
+  @Test
+  public void buttonEdgesTest() {
+    HIDSnapshot snapshot = new HIDSnapshot();
+
+    snapshot.setButtons(0b0101, 4);
+    assertEquals(0b0101, snapshot.getPressedButtons());
+    assertEquals(0, snapshot.getReleasedButtons());
+    assertTrue(snapshot.getButtonPressed(1));
+    assertTrue(snapshot.getRawButton(3));
+
+    snapshot.setButtons(0b0110, 4);
+    assertEquals(0b0010, snapshot.getPressedButtons());
+    assertEquals(0b0001, snapshot.getReleasedButtons());
+    assertTrue(snapshot.getButtonPressed(2));
+    assertTrue(snapshot.getButtonReleased(1));
+    assertFalse(snapshot.getButtonPressed(3));
+
+    snapshot.setButtons(0b0110, 4);
+    assertEquals(0, snapshot.getPressedButtons());
+    assertEquals(0, snapshot.getReleasedButtons());
+    assertEquals(4, snapshot.getButtonCount());
+  }
+
+  @Test
+  public void outOfRangeTest() {
+    HIDSnapshot snapshot = new HIDSnapshot();
+    snapshot.m_axes[0] = 0.5;
+    snapshot.m_axisCount = 1;
+    snapshot.m_povs[0] = 90;
+    snapshot.m_povCount = 1;
+
+    assertEquals(0.5, snapshot.getAxis(0), 0.00005);
+    assertEquals(0.0, snapshot.getAxis(1), 0.00005);
+    assertEquals(0.0, snapshot.getAxis(-1), 0.00005);
+    assertEquals(90, snapshot.getPOV(0));
+    assertEquals(-1, snapshot.getPOV(1));
+    assertFalse(snapshot.getRawButton(0));
+    assertFalse(snapshot.getRawButton(33));
+  }
+
+  @Test
+  public void genericSnapshotTest() {
+    GenericHID hid = new GenericHID() {
+      public double getX(Hand hand) { return 0; }
+      public double getY(Hand hand) { return 0; }
+      public double getZ(Hand hand) { return 0; }
+      public double getTwist() { return 0; }
+      public double getThrottle() { return 0; }
+      public double getRawAxis(int which) { return which / 10.0; }
+      public boolean getTrigger(Hand hand) { return false; }
+      public boolean getTop(Hand hand) { return false; }
+      public boolean getBumper(Hand hand) { return false; }
+      public boolean getRawButton(int button) { return button == 2 || button == 32; }
+      public int getPOV(int pov) { return pov == 0 ? 180 : -1; }
+    };
+    HIDSnapshot snapshot = new HIDSnapshot();
+    hid.getSnapshot(snapshot);
+
+    assertEquals(HIDSnapshot.kMaxAxes, snapshot.getAxisCount());
+    assertEquals(0.3, snapshot.getAxis(3), 0.00005);
+    assertEquals(180, snapshot.getPOV(0));
+    assertEquals(-1, snapshot.getPOV(1));
+    assertTrue(snapshot.getRawButton(2));
+    assertTrue(snapshot.getRawButton(32));
+    assertFalse(snapshot.getRawButton(1));
+    assertTrue(snapshot.getButtonPressed(2));
+  }
+
+  @Override
+  protected Logger getClassLogger() {
+    return logger;
+  }
+}
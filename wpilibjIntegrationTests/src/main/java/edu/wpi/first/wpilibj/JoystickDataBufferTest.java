@@ -0,0 +1,113 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.util.logging.Logger;
+
+import org.junit.Test;
+
+import edu.wpi.first.wpilibj.communication.JoystickDataBuffer;
+import edu.wpi.first.wpilibj.communication.JoystickDataSource;
+import edu.wpi.first.wpilibj.test.AbstractComsSetup;
+
+public class JoystickDataBufferTest extends AbstractComsSetup {
+  private static final Logger logger = Logger.getLogger(JoystickDataBufferTest.class.getName());
+
+  /**
+   * Reports the same fake joystick on every port, with the values derived from
+   * the number of packets that have been read.
+   */
+  private static class FakeSource implements JoystickDataSource {
+    int packet = 0;
+    int axisCount = 4;
+    int povCount = 1;
+    int buttonCount = 10;
+
+    @Override
+    public int getJoystickAxes(byte stick, short[] axes) {
+      for (int i = 0; i < axisCount; i++) {
+        axes[i] = (short) (packet + stick + i);
+      }
+      return axisCount;
+    }
+
+    @Override
+    public int getJoystickPOVs(byte stick, short[] povs) {
+      for (int i = 0; i < povCount; i++) {
+        povs[i] = (short) (packet * 45 % 360);
+      }
+      return povCount;
+    }
+
+    @Override
+    public int getJoystickButtons(byte stick, ByteBuffer count) {
+      count.put(0, (byte) buttonCount);
+      return packet & ((1 << buttonCount) - 1);
+    }
+  }
+
+  @Test
+  public void emptyBeforeUpdateTest() {
+    JoystickDataBuffer buffer = new JoystickDataBuffer(DriverStation.kJoystickPorts);
+
+    assertEquals(0, buffer.getSequence());
+    assertEquals(0, buffer.getAxisCount(0));
+    assertEquals(0, buffer.getAxis(0, 0));
+    assertEquals(-1, buffer.getPOV(0, 0));
+    assertEquals(0, buffer.getButtonCount(0));
+  }
+
+  @Test
+  public void updatePublishesPacketTest() {
+    JoystickDataBuffer buffer = new JoystickDataBuffer(DriverStation.kJoystickPorts);
+    FakeSource source = new FakeSource();
+
+    source.packet = 3;
+    buffer.update(source);
+
+    assertEquals(1, buffer.getSequence());
+    assertEquals(4, buffer.getAxisCount(2));
+    assertEquals(3 + 2 + 1, buffer.getAxis(2, 1));
+    assertEquals(0, buffer.getAxis(2, 4));
+    assertEquals(1, buffer.getPOVCount(5));
+    assertEquals(135, buffer.getPOV(5, 0));
+    assertEquals(-1, buffer.getPOV(5, 1));
+    assertEquals(3, buffer.getButtons(0));
+    assertEquals(10, buffer.getButtonCount(0));
+  }
+
+  @Test
+  public void updateReusesBuffersTest() {
+    JoystickDataBuffer buffer = new JoystickDataBuffer(DriverStation.kJoystickPorts);
+    FakeSource source = new FakeSource();
+
+    for (int i = 1; i <= 5; i++) {
+      source.packet = i;
+      buffer.update(source);
+
+      assertEquals(i, buffer.getSequence());
+      assertEquals(i, buffer.getAxis(0, 0));
+      assertEquals(i, buffer.getButtons(0));
+    }
+
+    // Unplugging the joystick hides the stale values from the previous packets
+    source.axisCount = 0;
+    source.povCount = 0;
+    buffer.update(source);
+    assertEquals(0, buffer.getAxis(0, 0));
+    assertEquals(-1, buffer.getPOV(0, 0));
+  }
+
+  @Override
+  protected Logger getClassLogger() {
+    return logger;
+  }
+}
@@ -0,0 +1,61 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.logging.Logger;
+
+import org.junit.Test;
+
+import edu.wpi.first.wpilibj.test.AbstractComsSetup;
+
+public class LatencyHistogramTest extends AbstractComsSetup {
+  private static final Logger logger = Logger.getLogger(LatencyHistogramTest.class.getName());
+
+  @Test
+  public void bucketTest() {
+    LatencyHistogram histogram = new LatencyHistogram();
+
+    histogram.record(500); // 0us
+    histogram.record(1000); // 1us
+    histogram.record(3000); // 3us
+    histogram.record(20000000); // 20ms
+    histogram.record(Long.MAX_VALUE);
+
+    assertEquals(1, histogram.getCount(0));
+    assertEquals(1, histogram.getCount(1));
+    assertEquals(1, histogram.getCount(2));
+    assertEquals(1, histogram.getCount(15));
+    assertEquals(1, histogram.getCount(LatencyHistogram.kBuckets - 1));
+    assertEquals(5, histogram.getSamples());
+  }
+
+  @Test
+  public void statisticsTest() {
+    LatencyHistogram histogram = new LatencyHistogram();
+
+    for (int i = 1; i <= 100; i++) {
+      histogram.record(i * 100000L); // 0.1ms to 10ms
+    }
+
+    assertEquals(5050.0, histogram.getMean(), 0.00005);
+    assertEquals(10000, histogram.getMax());
+    assertEquals(8192.0, histogram.getPercentile(0.5), 0.00005);
+    assertEquals(10000.0, histogram.getPercentile(0.99), 0.00005);
+
+    histogram.reset();
+    assertEquals(0, histogram.getSamples());
+    assertEquals(0.0, histogram.getPercentile(0.5), 0.00005);
+  }
+
+  @Override
+  protected Logger getClassLogger() {
+    return logger;
+  }
+}
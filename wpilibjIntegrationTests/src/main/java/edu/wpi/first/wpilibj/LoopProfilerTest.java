@@ -0,0 +1,105 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2016. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.logging.Logger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.wpi.first.wpilibj.networktables.NetworkTable;
+import edu.wpi.first.wpilibj.tables.ITable;
+import edu.wpi.first.wpilibj.test.AbstractComsSetup;
+
+public class LoopProfilerTest extends AbstractComsSetup {
+  private static final Logger logger = Logger.getLogger(LoopProfilerTest.class.getName());
+
+  private static final int kSpan = LoopProfiler.register("LoopProfilerTest");
+
+  @Before
+  public void setUp() {
+    LoopProfiler.setEnabled(true);
+  }
+
+  @After
+  public void tearDown() {
+    LoopProfiler.setEnabled(false);
+  }
+
+  /**
+   * Run a full window of loops in which the test span takes loop % 100 ms,
+   * so the old history is replaced.
+   */
+  private static void runLoops() {
+    for (int i = 0; i < LoopProfiler.kWindow; i++) {
+      LoopProfiler.beginLoop();
+      LoopProfiler.end(kSpan, System.nanoTime() - (i % 100) * 1000000L);
+      LoopProfiler.endLoop();
+    }
+  }
+
+  @Test
+  public void registerReturnsExistingIdTest() {
+    assertEquals(kSpan, LoopProfiler.register("LoopProfilerTest"));
+    assertEquals(LoopProfiler.kScheduler, LoopProfiler.register("Scheduler"));
+  }
+
+  @Test
+  public void disabledRecordsNothingTest() {
+    runLoops();
+    LoopProfiler.setEnabled(false);
+    LoopProfiler.beginLoop();
+    LoopProfiler.end(kSpan, System.nanoTime() - 1000000000L);
+    LoopProfiler.endLoop();
+    assertEquals(99000.0, LoopProfiler.getPercentile(kSpan, 1.0), 1000.0);
+  }
+
+  @Test
+  public void percentilesTest() {
+    runLoops();
+    // 0-99ms then 0-27ms, so the median is 36ms and the maximum 99ms
+    assertEquals(36000.0, LoopProfiler.getPercentile(kSpan, 0.5), 1000.0);
+    assertEquals(99000.0, LoopProfiler.getPercentile(kSpan, 1.0), 1000.0);
+    assertTrue(LoopProfiler.getPercentile(LoopProfiler.kLoop, 1.0) < 1000.0);
+  }
+
+  @Test
+  public void otherThreadsAreIgnoredTest() throws InterruptedException {
+    LoopProfiler.beginLoop();
+    Thread other = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        LoopProfiler.end(kSpan, System.nanoTime() - 1000000000L);
+      }
+    });
+    other.start();
+    other.join();
+    LoopProfiler.endLoop();
+    // A full window of loops after this one has a maximum of 99ms
+    runLoops();
+    assertEquals(99000.0, LoopProfiler.getPercentile(kSpan, 1.0), 1000.0);
+  }
+
+  @Test
+  public void publishTest() {
+    // After the first window, every published window includes a 99ms loop
+    runLoops();
+    runLoops();
+    ITable table = NetworkTable.getTable("LoopProfiler").getSubTable("LoopProfilerTest");
+    assertEquals(99000.0, table.getNumber("Max", 0.0), 1000.0);
+  }
+
+  @Override
+  protected Logger getClassLogger() {
+    return logger;
+  }
+}
@@ -19,12 +19,15 @@ import edu.wpi.first.wpilibj.test.AbstractTestSuite;
  *         if a test is missing from the list
  */
 @RunWith(Suite.class)
-@SuiteClasses({AnalogCrossConnectTest.class, AnalogPotentiometerTest.class,
-    BuiltInAccelerometerTest.class, CANTalonTest.class,
+@SuiteClasses({AllocationMonitorTest.class, AnalogCrossConnectTest.class,
+    AnalogPotentiometerTest.class, BuiltInAccelerometerTest.class, CANTalonTest.class,
     CircularBufferTest.class, CounterTest.class, DigitalGlitchFilterTest.class,
-    DIOCrossConnectTest.class, EncoderTest.class, FilterNoiseTest.class,
-    FilterOutputTest.class, GyroTest.class, MotorEncoderTest.class,
-    MotorInvertingTest.class, PCMTest.class, PDPTest.class, PIDTest.class,
+    DIOCrossConnectTest.class, EncoderTest.class, ErrorReporterTest.class,
+    FilterNoiseTest.class,
+    FilterOutputTest.class, GyroTest.class, HIDSnapshotTest.class,
+    JoystickDataBufferTest.class, LatencyHistogramTest.class,
+    LoopProfilerTest.class, MotorEncoderTest.class, MotorInvertingTest.class,
+    PCMTest.class, PDPTest.class, PIDTest.class,
     PIDToleranceTest.class, PreferencesTest.class, RelayCrossConnectTest.class, 
     SampleTest.class, TimerTest.class})
 public class WpiLibJTestSuite extends AbstractTestSuite {